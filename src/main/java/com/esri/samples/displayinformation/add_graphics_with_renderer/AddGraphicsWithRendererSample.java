@@ -16,6 +16,10 @@
 
 package com.esri.samples.displayinformation.add_graphics_with_renderer;
 
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.Consumer;
+
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.PolygonBuilder;
 import com.esri.arcgisruntime.geometry.PolylineBuilder;
@@ -31,13 +35,25 @@ import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
 import com.esri.arcgisruntime.symbology.SimpleRenderer;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 public class AddGraphicsWithRendererSample extends Application {
 
   private MapView mapView;
+  private GraphicsBulkLoader bulkLoader;
+
+  // points added by the bulk load button, and the graphics added per call
+  private static final int BULK_GRAPHICS = 1000000;
+  private static final int BULK_BATCH_SIZE = 25000;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -46,6 +62,7 @@ public class AddGraphicsWithRendererSample extends Application {
       // create stack pane and application scene
       StackPane stackPane = new StackPane();
       Scene scene = new Scene(stackPane);
+      scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // set title, size, and add scene to stage
       stage.setTitle("Add Graphics with Renderer Sample");
@@ -104,8 +121,52 @@ public class AddGraphicsWithRendererSample extends Application {
       polygonGraphicOverlay.setRenderer(polygonRenderer);
       mapView.getGraphicsOverlays().add(polygonGraphicOverlay);
 
-      // add the map view to stack pane
-      stackPane.getChildren().add(mapView);
+      // points loaded in bulk, drawn by the overlay's renderer rather than a symbol per graphic
+      GraphicsOverlay bulkGraphicOverlay = new GraphicsOverlay();
+      bulkGraphicOverlay.setRenderer(new SimpleRenderer(new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE,
+          0xFF00A000, 3)));
+      mapView.getGraphicsOverlays().add(bulkGraphicOverlay);
+      bulkLoader = new GraphicsBulkLoader(bulkGraphicOverlay, BULK_BATCH_SIZE, Platform::runLater);
+
+      // create controls to load a million random points
+      Button loadButton = new Button(String.format("Add %,d Points", BULK_GRAPHICS));
+      ProgressBar loadProgressBar = new ProgressBar(0);
+      loadProgressBar.setMaxWidth(Double.MAX_VALUE);
+      Label loadLabel = new Label();
+      loadLabel.getStyleClass().add("panel-label");
+      loadLabel.setWrapText(true);
+      VBox controlsVBox = new VBox(6, loadButton, loadProgressBar, loadLabel);
+      controlsVBox.getStyleClass().add("panel-region");
+      controlsVBox.setMaxSize(240, 140);
+
+      loadButton.setOnAction(e -> {
+        loadButton.setDisable(true);
+        bulkGraphicOverlay.getGraphics().clear();
+        Random random = new Random();
+        double[] xs = new double[BULK_GRAPHICS];
+        double[] ys = new double[BULK_GRAPHICS];
+        for (int i = 0; i < BULK_GRAPHICS; i++) {
+          xs[i] = (random.nextDouble() * 2 - 1) * 20e6;
+          ys[i] = (random.nextDouble() * 2 - 1) * 15e6;
+        }
+        // build the graphics off the application thread, and add them on it a batch at a time
+        Consumer<GraphicsBulkLoader.Statistics> onProgress = statistics -> {
+          loadProgressBar.setProgress(statistics.getFraction());
+          loadLabel.setText(statistics.toString());
+        };
+        bulkLoader.loadAsync(xs, ys, null, SpatialReferences.getWebMercator(), Collections.emptyMap(), onProgress)
+            .whenComplete((statistics, error) -> Platform.runLater(() -> {
+          loadButton.setDisable(false);
+          if (error != null) {
+            loadLabel.setText(error.getCause() != null ? error.getCause().getMessage() : error.getMessage());
+          }
+        }));
+      });
+
+      // add the map view and controls to stack pane
+      stackPane.getChildren().addAll(mapView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -117,6 +178,9 @@ public class AddGraphicsWithRendererSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    if (bulkLoader != null) {
+      bulkLoader.shutdown();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
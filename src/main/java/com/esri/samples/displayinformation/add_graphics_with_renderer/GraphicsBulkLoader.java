@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.displayinformation.add_graphics_with_renderer;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+
+/**
+ * Adds large numbers of point graphics to an overlay, built from columns of coordinates and attributes.
+ * <p>
+ * Adding graphics one at a time with {@code getGraphics().add()} on the JavaFX application thread costs a change
+ * notification per graphic and blocks the UI for as long as the graphics take to build. Instead, the graphics are
+ * built on a thread of the loader's own, a batch at a time, and each batch is added with a single
+ * {@code getGraphics().addAll()} on the given executor, such as {@code Platform::runLater}. While a batch is added, the
+ * next one is built, and no more than those two batches are held outside the overlay.
+ * <p>
+ * The graphics have no symbols of their own, so the overlay's renderer draws them all with one symbol, rather than a
+ * symbol being held for every graphic.
+ */
+public class GraphicsBulkLoader {
+
+  private final GraphicsOverlay graphicsOverlay;
+  private final int batchSize;
+  private final Executor insertExecutor;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "graphics-bulk-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile boolean cancelled;
+
+  /**
+   * Creates a loader for an overlay.
+   *
+   * @param graphicsOverlay overlay to add to, with a renderer to draw the graphics
+   * @param batchSize       graphics added per call
+   * @param insertExecutor  runs the calls adding the graphics, such as on the JavaFX application thread
+   */
+  public GraphicsBulkLoader(GraphicsOverlay graphicsOverlay, int batchSize, Executor insertExecutor) {
+
+    this.graphicsOverlay = graphicsOverlay;
+    this.batchSize = batchSize;
+    this.insertExecutor = insertExecutor;
+  }
+
+  /**
+   * Builds a point graphic for each index of the coordinate columns and adds them to the overlay. Only one load runs
+   * at a time.
+   *
+   * @param xs               x coordinates
+   * @param ys               y coordinates
+   * @param zs               z coordinates, or null
+   * @param spatialReference spatial reference of the coordinates
+   * @param columns          attribute values by name, each an array of a primitive type or of objects, at least as long
+   *                         as the coordinates
+   * @param onProgress       called after each batch is added, on the insert executor
+   * @return future of the final statistics, completing once every graphic is added or, after {@link #cancel()}, every
+   * batch already built
+   * @throws IllegalStateException    if the overlay has no renderer
+   * @throws IllegalArgumentException if a column is shorter than the x coordinates
+   */
+  public CompletableFuture<Statistics> loadAsync(double[] xs, double[] ys, double[] zs,
+      SpatialReference spatialReference, Map<String, Object> columns, Consumer<Statistics> onProgress) {
+
+    if (graphicsOverlay.getRenderer() == null) {
+      throw new IllegalStateException("Set a renderer on the overlay, the graphics have no symbols of their own");
+    }
+    if (ys.length < xs.length || (zs != null && zs.length < xs.length)) {
+      throw new IllegalArgumentException("Expected as many y and z coordinates as x coordinates");
+    }
+    Map<String, IntFunction<Object>> readers = new LinkedHashMap<>();
+    columns.forEach((name, column) -> readers.put(name, reader(name, column, xs.length)));
+
+    cancelled = false;
+    return CompletableFuture.supplyAsync(() -> {
+      Statistics statistics = new Statistics();
+      CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+      for (int start = 0; start < xs.length && !cancelled; start += batchSize) {
+        long buildStart = System.nanoTime();
+        List<Graphic> batch = new ArrayList<>(Math.min(batchSize, xs.length - start));
+        for (int i = start; i < Math.min(xs.length, start + batchSize); i++) {
+          Point point = zs != null ? new Point(xs[i], ys[i], zs[i], spatialReference) : new Point(xs[i], ys[i],
+              spatialReference);
+          if (readers.isEmpty()) {
+            batch.add(new Graphic(point));
+          } else {
+            Map<String, Object> attributes = new HashMap<>(readers.size() * 2);
+            for (Map.Entry<String, IntFunction<Object>> reader : readers.entrySet()) {
+              attributes.put(reader.getKey(), reader.getValue().apply(i));
+            }
+            batch.add(new Graphic(point, attributes));
+          }
+        }
+        statistics.built(System.nanoTime() - buildStart);
+
+        // wait for the previous batch to be added before handing over this one
+        previous.join();
+        CompletableFuture<Void> added = new CompletableFuture<>();
+        insertExecutor.execute(() -> {
+          try {
+            long insertStart = System.nanoTime();
+            graphicsOverlay.getGraphics().addAll(batch);
+            statistics.inserted(batch.size(), System.nanoTime() - insertStart);
+            onProgress.accept(statistics.snapshot(xs.length, cancelled));
+            added.complete(null);
+          } catch (RuntimeException e) {
+            added.completeExceptionally(e);
+          }
+        });
+        previous = added;
+      }
+      previous.join();
+      return statistics.snapshot(xs.length, cancelled);
+    }, executor);
+  }
+
+  /**
+   * Stops building batches. Batches already built are still added.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Stops the loader's thread.
+   */
+  public void shutdown() {
+
+    cancelled = true;
+    executor.shutdown();
+  }
+
+  /**
+   * Creates a function reading the values of a column, without boxing them until they are read.
+   */
+  private static IntFunction<Object> reader(String name, Object column, int length) {
+
+    if (column == null || !column.getClass().isArray() || Array.getLength(column) < length) {
+      throw new IllegalArgumentException("Column " + name + " is not an array of at least " + length + " values");
+    }
+    if (column instanceof double[]) {
+      double[] values = (double[]) column;
+      return i -> values[i];
+    } else if (column instanceof float[]) {
+      float[] values = (float[]) column;
+      return i -> values[i];
+    } else if (column instanceof long[]) {
+      long[] values = (long[]) column;
+      return i -> values[i];
+    } else if (column instanceof int[]) {
+      int[] values = (int[]) column;
+      return i -> values[i];
+    } else if (column instanceof short[]) {
+      short[] values = (short[]) column;
+      return i -> values[i];
+    } else if (column instanceof Object[]) {
+      Object[] values = (Object[]) column;
+      return i -> values[i];
+    }
+    return i -> Array.get(column, i);
+  }
+
+  /**
+   * Counts and times of a load.
+   */
+  public static class Statistics {
+
+    private final long startNanos = System.nanoTime();
+    private int added;
+    private int batches;
+    private long buildNanos;
+    private long insertNanos;
+    private int total;
+    private double seconds;
+    private boolean cancelled;
+
+    Statistics() {
+    }
+
+    synchronized void built(long nanos) {
+      buildNanos += nanos;
+    }
+
+    synchronized void inserted(int count, long nanos) {
+
+      added += count;
+      batches++;
+      insertNanos += nanos;
+    }
+
+    synchronized Statistics snapshot(int total, boolean cancelled) {
+
+      Statistics snapshot = new Statistics();
+      snapshot.added = added;
+      snapshot.batches = batches;
+      snapshot.buildNanos = buildNanos;
+      snapshot.insertNanos = insertNanos;
+      snapshot.total = total;
+      snapshot.seconds = (System.nanoTime() - startNanos) / 1e9;
+      snapshot.cancelled = cancelled;
+      return snapshot;
+    }
+
+    /**
+     * Gets the number of graphics to load.
+     *
+     * @return graphics
+     */
+    public int getTotal() {
+      return total;
+    }
+
+    /**
+     * Gets the number of graphics added to the overlay.
+     *
+     * @return graphics
+     */
+    public int getAdded() {
+      return added;
+    }
+
+    public int getBatches() {
+      return batches;
+    }
+
+    /**
+     * Gets the time spent building graphics, on the loader's thread.
+     *
+     * @return milliseconds
+     */
+    public double getBuildMillis() {
+      return buildNanos / 1e6;
+    }
+
+    /**
+     * Gets the time spent adding graphics to the overlay, on the insert executor.
+     *
+     * @return milliseconds
+     */
+    public double getInsertMillis() {
+      return insertNanos / 1e6;
+    }
+
+    /**
+     * Gets the time from the start of the load until this snapshot.
+     *
+     * @return seconds
+     */
+    public double getSeconds() {
+      return seconds;
+    }
+
+    public double getGraphicsPerSecond() {
+      return seconds > 0 ? added / seconds : 0;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Gets the part of the graphics added.
+     *
+     * @return 0 to 1
+     */
+    public double getFraction() {
+      return total > 0 ? (double) added / total : 1;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d of %d graphics in %.1f s, %.0f graphics/s\n%d batches: %.0f ms building, %.0f ms "
+          + "adding%s", added, total, seconds, getGraphicsPerSecond(), batches, getBuildMillis(), getInsertMillis(),
+          cancelled ? ", cancelled" : "");
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.displayinformation.add_graphics_with_renderer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
+import com.esri.arcgisruntime.symbology.SimpleRenderer;
+
+/**
+ * Measures the time and memory of adding one million point graphics to an overlay with a {@link GraphicsBulkLoader}
+ * against adding them one at a time, each with a symbol of its own, as the samples do.
+ * <p>
+ * Points are scattered over the web mercator extent of the world, with an integer and a double attribute. The one at a
+ * time load adds fewer graphics, since it is much slower, and is reported per graphic. Memory is the growth of the
+ * Java heap after a full collection, and of the process's resident set where the platform reports it, since the
+ * runtime keeps most of a graphic in native memory.
+ * <p>
+ * Run with <code>./gradlew run -PmainClass="com.esri.samples.displayinformation.add_graphics_with_renderer
+ * .GraphicsLoadBenchmark"</code>.
+ */
+public class GraphicsLoadBenchmark {
+
+  private static final int GRAPHICS = 1000000;
+  private static final int ONE_AT_A_TIME_GRAPHICS = 100000;
+  private static final int BATCH_SIZE = 25000;
+  private static final double WORLD = 20037508.34;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+
+    Random random = new Random(42);
+    double[] xs = new double[GRAPHICS];
+    double[] ys = new double[GRAPHICS];
+    int[] categories = new int[GRAPHICS];
+    double[] values = new double[GRAPHICS];
+    for (int i = 0; i < GRAPHICS; i++) {
+      xs[i] = (random.nextDouble() * 2 - 1) * WORLD;
+      ys[i] = (random.nextDouble() * 2 - 1) * WORLD;
+      categories[i] = random.nextInt(10);
+      values[i] = random.nextDouble() * 100;
+    }
+
+    // one at a time, a new symbol and attribute map per graphic
+    GraphicsOverlay overlay = new GraphicsOverlay();
+    long heapBefore = usedHeap();
+    long residentBefore = residentBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < ONE_AT_A_TIME_GRAPHICS; i++) {
+      Graphic graphic = new Graphic(new Point(xs[i], ys[i], SpatialReferences.getWebMercator()),
+          new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, 0xFF0000FF, 4));
+      graphic.getAttributes().put("category", categories[i]);
+      graphic.getAttributes().put("value", values[i]);
+      overlay.getGraphics().add(graphic);
+    }
+    report("one at a time", ONE_AT_A_TIME_GRAPHICS, System.nanoTime() - start, usedHeap() - heapBefore, residentBefore,
+        residentBytes());
+    overlay.getGraphics().clear();
+
+    // bulk, from columns with the overlay's renderer, adding on the loader's thread as there is no UI here
+    GraphicsOverlay bulkOverlay = new GraphicsOverlay();
+    bulkOverlay.setRenderer(new SimpleRenderer(new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, 0xFF0000FF,
+        4)));
+    GraphicsBulkLoader loader = new GraphicsBulkLoader(bulkOverlay, BATCH_SIZE, Runnable::run);
+    Map<String, Object> columns = new LinkedHashMap<>();
+    columns.put("category", categories);
+    columns.put("value", values);
+    heapBefore = usedHeap();
+    residentBefore = residentBytes();
+    start = System.nanoTime();
+    GraphicsBulkLoader.Statistics statistics = loader.loadAsync(xs, ys, null, SpatialReferences.getWebMercator(),
+        columns, progress -> {}).join();
+    report("bulk", statistics.getAdded(), System.nanoTime() - start, usedHeap() - heapBefore, residentBefore,
+        residentBytes());
+    System.out.printf("bulk: %d batches, %.0f ms building, %.0f ms adding%n", statistics.getBatches(), statistics
+        .getBuildMillis(), statistics.getInsertMillis());
+    loader.shutdown();
+  }
+
+  private static void report(String name, int count, long nanos, long heapBytes, long residentBefore,
+      long residentAfter) {
+
+    String resident = residentBefore < 0 || residentAfter < 0 ? "n/a" : String.format("%.0f B", (double)
+        (residentAfter - residentBefore) / count);
+    System.out.printf("%-13s %8d graphics: %7.0f ms, %6.2f us/graphic, heap %5.0f B/graphic, resident %s/graphic%n",
+        name, count, nanos / 1e6, nanos / 1e3 / count, (double) heapBytes / count, resident);
+  }
+
+  private static long usedHeap() {
+
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Gets the resident set size of the process on Linux.
+   *
+   * @return bytes, or -1 if unknown
+   */
+  private static long residentBytes() {
+
+    Path statm = Paths.get("/proc/self/statm");
+    try {
+      if (Files.exists(statm)) {
+        // pages of the whole program, then of the resident set
+        return Long.parseLong(new String(Files.readAllBytes(statm)).trim().split("\\s+")[1]) * 4096;
+      }
+    } catch (IOException | NumberFormatException e) {
+      e.printStackTrace();
+    }
+    return -1;
+  }
+}
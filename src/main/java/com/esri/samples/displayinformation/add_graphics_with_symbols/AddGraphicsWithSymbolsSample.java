@@ -16,6 +16,10 @@
 
 package com.esri.samples.displayinformation.add_graphics_with_symbols;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import com.esri.arcgisruntime.geometry.*;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
@@ -99,19 +103,13 @@ public class AddGraphicsWithSymbolsSample extends Application {
     // create a red (0xFFFF0000) circle simple marker symbol
     SimpleMarkerSymbol redCircleSymbol = new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, 0xFFFF0000, 10);
 
-    // create graphics and add to graphics overlay
-    Graphic graphic;
-    graphic = new Graphic(new Point(-2.72, 56.065, SPATIAL_REFERENCE), redCircleSymbol);
-    graphicsOverlay.getGraphics().add(graphic);
-
-    graphic = new Graphic(new Point(-2.69, 56.065, SPATIAL_REFERENCE), redCircleSymbol);
-    graphicsOverlay.getGraphics().add(graphic);
-
-    graphic = new Graphic(new Point(-2.66, 56.065, SPATIAL_REFERENCE), redCircleSymbol);
-    graphicsOverlay.getGraphics().add(graphic);
-
-    graphic = new Graphic(new Point(-2.63, 56.065, SPATIAL_REFERENCE), redCircleSymbol);
-    graphicsOverlay.getGraphics().add(graphic);
+    // create graphics sharing the symbol, and add them to the graphics overlay in one call
+    List<Graphic> graphics = new ArrayList<>();
+    graphics.add(new Graphic(new Point(-2.72, 56.065, SPATIAL_REFERENCE), redCircleSymbol));
+    graphics.add(new Graphic(new Point(-2.69, 56.065, SPATIAL_REFERENCE), redCircleSymbol));
+    graphics.add(new Graphic(new Point(-2.66, 56.065, SPATIAL_REFERENCE), redCircleSymbol));
+    graphics.add(new Graphic(new Point(-2.63, 56.065, SPATIAL_REFERENCE), redCircleSymbol));
+    graphicsOverlay.getGraphics().addAll(graphics);
   }
 
   /**
@@ -196,9 +194,8 @@ public class AddGraphicsWithSymbolsSample extends Application {
     Graphic bassRockGraphic = new Graphic(bassPoint, bassRockTextSymbol);
     Graphic craigleithGraphic = new Graphic(craigleithPoint, craigleithTextSymbol);
 
-    // add graphics to the graphics overlay
-    graphicsOverlay.getGraphics().add(bassRockGraphic);
-    graphicsOverlay.getGraphics().add(craigleithGraphic);
+    // add graphics to the graphics overlay in one call
+    graphicsOverlay.getGraphics().addAll(Arrays.asList(bassRockGraphic, craigleithGraphic));
   }
 
   /**
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.displayinformation.identify_graphics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.ArcGISMap;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.IdentifyGraphicsOverlayResult;
+import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
+import com.esri.arcgisruntime.symbology.SimpleRenderer;
+import com.esri.samples.util.GraphicsHitTester;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import javafx.scene.Scene;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+
+/**
+ * Measures hit testing an overlay of 100k point graphics with a {@link GraphicsHitTester} against
+ * {@link MapView#identifyGraphicsOverlayAsync}, at the same random screen locations with a tolerance of ten pixels.
+ * <p>
+ * The graphics are scattered over an extent filling the view, in a map without a basemap so nothing is requested from
+ * a service. Once the view has drawn, identifies are run one after another, each timed from the call until its done
+ * listener runs, then hit tests on the JavaFX application thread. The topmost graphic each returns is compared. Last,
+ * graphics are moved and their hit tester updated, as a drag would.
+ * <p>
+ * Run with <code>./gradlew run -PmainClass="com.esri.samples.displayinformation.identify_graphics
+ * .GraphicsHitTestBenchmark"</code>.
+ */
+public class GraphicsHitTestBenchmark extends Application {
+
+  private static final int GRAPHICS = 100000;
+  private static final int IDENTIFIES = 500;
+  private static final int HIT_TESTS = 100000;
+  private static final int UPDATES = 10000;
+  private static final double TOLERANCE = 10;
+  private static final double EXTENT = 1000000;
+
+  private final Random random = new Random(42);
+  private final List<Point2D> locations = new ArrayList<>();
+  private final List<Graphic> identified = new ArrayList<>();
+  private MapView mapView;
+  private GraphicsOverlay graphicsOverlay;
+  private GraphicsHitTester hitTester;
+  private long identifyNanos;
+  private long identifyHits;
+  private boolean started;
+
+  @Override
+  public void start(Stage stage) throws Exception {
+
+    StackPane stackPane = new StackPane();
+    stage.setTitle("Graphics Hit Test Benchmark");
+    stage.setWidth(800);
+    stage.setHeight(700);
+    stage.setScene(new Scene(stackPane));
+    stage.show();
+
+    mapView = new MapView();
+    mapView.setMap(new ArcGISMap(SpatialReferences.getWebMercator()));
+    stackPane.getChildren().add(mapView);
+
+    // the hit tester follows the overlay from the start, so adding the graphics is timed with it
+    graphicsOverlay = new GraphicsOverlay();
+    graphicsOverlay.setRenderer(new SimpleRenderer(new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, 0xFF0000FF,
+        6)));
+    mapView.getGraphicsOverlays().add(graphicsOverlay);
+    hitTester = new GraphicsHitTester(mapView, graphicsOverlay);
+
+    List<Graphic> graphics = new ArrayList<>(GRAPHICS);
+    for (int i = 0; i < GRAPHICS; i++) {
+      graphics.add(new Graphic(new Point((random.nextDouble() * 2 - 1) * EXTENT, (random.nextDouble() * 2 - 1) * EXTENT,
+          SpatialReferences.getWebMercator())));
+    }
+    long start = System.nanoTime();
+    graphicsOverlay.getGraphics().addAll(graphics);
+    System.out.printf("add %d graphics: %.0f ms, %d indexed%n", GRAPHICS, (System.nanoTime() - start) / 1e6,
+        hitTester.size());
+    mapView.setViewpointGeometryAsync(new Envelope(-EXTENT, -EXTENT, EXTENT, EXTENT, SpatialReferences
+        .getWebMercator()));
+
+    // wait for the graphics to be drawn, identify only sees what the view has drawn
+    mapView.addDrawStatusChangedListener(e -> {
+      if (e.getDrawStatus() == DrawStatus.COMPLETED && graphicsOverlay.getGraphics().size() == GRAPHICS) {
+        Platform.runLater(() -> {
+          if (!started) {
+            started = true;
+            for (int i = 0; i < HIT_TESTS; i++) {
+              locations.add(new Point2D(random.nextDouble() * mapView.getWidth(), random.nextDouble() * mapView
+                  .getHeight()));
+            }
+            identify(0);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Identifies at a location, then at the next once it is done.
+   */
+  private void identify(int i) {
+
+    if (i == IDENTIFIES) {
+      report();
+      return;
+    }
+    long start = System.nanoTime();
+    ListenableFuture<IdentifyGraphicsOverlayResult> result = mapView.identifyGraphicsOverlayAsync(graphicsOverlay,
+        locations.get(i), TOLERANCE, false);
+    result.addDoneListener(() -> {
+      identifyNanos += System.nanoTime() - start;
+      try {
+        List<Graphic> graphics = result.get().getGraphics();
+        identifyHits += graphics.size();
+        identified.add(graphics.isEmpty() ? null : graphics.get(0));
+      } catch (Exception e) {
+        e.printStackTrace();
+        identified.add(null);
+      }
+      Platform.runLater(() -> identify(i + 1));
+    });
+  }
+
+  private void report() {
+
+    System.out.printf("identify %8.1f us/query (%d hits in %d queries)%n", identifyNanos / 1e3 / IDENTIFIES,
+        identifyHits, IDENTIFIES);
+
+    long hits = 0;
+    long start = System.nanoTime();
+    for (Point2D location : locations) {
+      hits += hitTester.hitTest(location, TOLERANCE, Integer.MAX_VALUE).size();
+    }
+    double hitTestMicros = (System.nanoTime() - start) / 1e3 / HIT_TESTS;
+    System.out.printf("hit test %8.1f us/query (%d hits in %d queries), %.0fx%n", hitTestMicros, hits, HIT_TESTS,
+        identifyNanos / 1e3 / IDENTIFIES / hitTestMicros);
+
+    // identify may return graphics in another order, so compare whether each found the same topmost graphic
+    int agreed = 0;
+    for (int i = 0; i < IDENTIFIES; i++) {
+      List<Graphic> found = hitTester.hitTest(locations.get(i), TOLERANCE, 1);
+      Graphic top = found.isEmpty() ? null : found.get(0);
+      agreed += top == identified.get(i) ? 1 : 0;
+    }
+    System.out.printf("same topmost graphic in %d of %d queries%n", agreed, IDENTIFIES);
+
+    start = System.nanoTime();
+    for (int i = 0; i < UPDATES; i++) {
+      Graphic graphic = graphicsOverlay.getGraphics().get(random.nextInt(GRAPHICS));
+      graphic.setGeometry(new Point((random.nextDouble() * 2 - 1) * EXTENT, (random.nextDouble() * 2 - 1) * EXTENT,
+          SpatialReferences.getWebMercator()));
+      hitTester.update(graphic);
+    }
+    System.out.printf("update   %8.1f us/graphic%n", (System.nanoTime() - start) / 1e3 / UPDATES);
+    Platform.exit();
+  }
+
+  /**
+   * Stops and releases all resources used in application.
+   */
+  @Override
+  public void stop() {
+
+    if (hitTester != null) {
+      hitTester.close();
+    }
+    if (mapView != null) {
+      mapView.dispose();
+    }
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args arguments passed to this application
+   */
+  public static void main(String[] args) {
+
+    Application.launch(args);
+  }
+}
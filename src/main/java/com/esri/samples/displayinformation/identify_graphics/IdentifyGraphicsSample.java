@@ -18,7 +18,6 @@ package com.esri.samples.displayinformation.identify_graphics;
 
 import java.util.List;
 
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.PointCollection;
 import com.esri.arcgisruntime.geometry.Polygon;
@@ -26,12 +25,11 @@ import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.Graphic;
 import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
-import com.esri.arcgisruntime.mapping.view.IdentifyGraphicsOverlayResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.symbology.SimpleFillSymbol;
+import com.esri.samples.util.GraphicsHitTester;
 
 import javafx.application.Application;
-import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
@@ -44,7 +42,7 @@ public class IdentifyGraphicsSample extends Application {
 
   private MapView mapView;
   private GraphicsOverlay graphicsOverlay;
-  private ListenableFuture<IdentifyGraphicsOverlayResult> identifyGraphics;
+  private GraphicsHitTester hitTester;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -74,6 +72,9 @@ public class IdentifyGraphicsSample extends Application {
       // add graphics overlay to the map view
       mapView.getGraphicsOverlays().add(graphicsOverlay);
 
+      // index the overlay's graphics, following them as they are added
+      hitTester = new GraphicsHitTester(mapView, graphicsOverlay);
+
       // work with the MapView after it has loaded
       mapView.addSpatialReferenceChangedListener(src -> addGraphicsOverlay());
 
@@ -82,10 +83,8 @@ public class IdentifyGraphicsSample extends Application {
           // create a point from location clicked
           Point2D mapViewPoint = new Point2D(e.getX(), e.getY());
 
-          // identify graphics on the graphics overlay
-          identifyGraphics = mapView.identifyGraphicsOverlayAsync(graphicsOverlay, mapViewPoint, 10, false);
-
-          identifyGraphics.addDoneListener(() -> Platform.runLater(this::createGraphicDialog));
+          // find the graphics at the location right away, rather than with an identify
+          createGraphicDialog(hitTester.hitTest(mapViewPoint, 10, Integer.MAX_VALUE));
         }
       });
 
@@ -122,14 +121,12 @@ public class IdentifyGraphicsSample extends Application {
 
   /**
    * Indicates when a graphic is clicked by showing an Alert.
+   *
+   * @param graphics graphics at the clicked location
    */
-  private void createGraphicDialog() {
+  private void createGraphicDialog(List<Graphic> graphics) {
 
     try {
-      // get the list of graphics returned by identify
-      IdentifyGraphicsOverlayResult result = identifyGraphics.get();
-      List<Graphic> graphics = result.getGraphics();
-
       if (!graphics.isEmpty()) {
         // show a alert dialog box if a graphic was returned
         Alert dialog = new Alert(AlertType.INFORMATION);
@@ -150,6 +147,9 @@ public class IdentifyGraphicsSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    if (hitTester != null) {
+      hitTester.close();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
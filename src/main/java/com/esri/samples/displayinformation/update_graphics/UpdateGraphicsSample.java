@@ -20,16 +20,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.SpatialReference;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.Graphic;
 import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
-import com.esri.arcgisruntime.mapping.view.IdentifyGraphicsOverlayResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
+import com.esri.samples.util.GraphicsHitTester;
 
 import javafx.application.Application;
 import javafx.geometry.Insets;
@@ -53,7 +52,7 @@ public class UpdateGraphicsSample extends Application {
   private MapView mapView;
   private Graphic selectedGraphic;
   private GraphicsOverlay graphicsOverlay;
-  private ListenableFuture<IdentifyGraphicsOverlayResult> identifyGraphics;
+  private GraphicsHitTester hitTester;
 
   // colors for symbols
   private static final int PURPLE = 0xFF800080;
@@ -132,6 +131,7 @@ public class UpdateGraphicsSample extends Application {
       symbolBox.showingProperty().addListener((obs, wasShowing, isShowing) -> {
         if (selectedGraphic.isSelected() && !isShowing) {
           selectedGraphic.setSymbol(markers.get(symbolBox.getSelectionModel().getSelectedIndex()));
+          hitTester.update(selectedGraphic);
         }
       });
 
@@ -159,6 +159,9 @@ public class UpdateGraphicsSample extends Application {
       // add graphics overlay to the map view
       mapView.getGraphicsOverlays().add(graphicsOverlay);
 
+      // index the overlay's graphics, to find the one clicked without an identify
+      hitTester = new GraphicsHitTester(mapView, graphicsOverlay);
+
       // create default graphics for graphics overlay
       createGraphics();
 
@@ -174,25 +177,18 @@ public class UpdateGraphicsSample extends Application {
             // add new location to selected graphic
             Point mapPoint = mapView.screenToLocation(mapViewPoint);
             selectedGraphic.setGeometry(mapPoint);
+            hitTester.update(selectedGraphic);
             isUpdateLocationActive = false;
           } else {
-            // identify the graphic that was selected
-            identifyGraphics = mapView.identifyGraphicsOverlayAsync(graphicsOverlay, mapViewPoint, 10, false);
-
-            identifyGraphics.addDoneListener(() -> {
-              try {
-                if (!identifyGraphics.get().getGraphics().isEmpty()) {
-                  // store the selected graphic
-                  selectedGraphic = identifyGraphics.get().getGraphics().get(0);
-                  selectedGraphic.setSelected(true);
-                  String style = ((SimpleMarkerSymbol) selectedGraphic.getSymbol()).getStyle().toString();
-                  symbolBox.getSelectionModel().select(style);
-                }
-              } catch (Exception x) {
-                // on any error, display the stack trace
-                x.printStackTrace();
-              }
-            });
+            // find the topmost graphic that was selected
+            List<Graphic> graphics = hitTester.hitTest(mapViewPoint, 10, 1);
+            if (!graphics.isEmpty()) {
+              // store the selected graphic
+              selectedGraphic = graphics.get(0);
+              selectedGraphic.setSelected(true);
+              String style = ((SimpleMarkerSymbol) selectedGraphic.getSymbol()).getStyle().toString();
+              symbolBox.getSelectionModel().select(style);
+            }
           }
         }
       });
@@ -260,6 +256,9 @@ public class UpdateGraphicsSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    if (hitTester != null) {
+      hitTester.close();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
@@ -17,21 +17,21 @@
 package com.esri.samples.editing.add_features;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Label;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.data.FeatureEditResult;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
@@ -41,15 +41,20 @@ import com.esri.arcgisruntime.layers.FeatureLayer;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.samples.util.EditSession;
 
 public class AddFeaturesSample extends Application {
 
   private MapView mapView;
 
   private ServiceFeatureTable featureTable;
+  private EditSession editSession;
 
   private static final String SERVICE_LAYER_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/DamageAssessment/FeatureServer/0";
+  // edits are sent once this many are queued, or this long after the first of them
+  private static final int EDIT_BATCH_SIZE = 20;
+  private static final long EDIT_WINDOW_MILLIS = 2000;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -58,6 +63,7 @@ public class AddFeaturesSample extends Application {
       // create stack pane and application scene
       StackPane stackPane = new StackPane();
       Scene scene = new Scene(stackPane);
+      scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // set title, size, and add scene to stage
       stage.setTitle("Add Features Sample");
@@ -66,6 +72,15 @@ public class AddFeaturesSample extends Application {
       stage.setScene(scene);
       stage.show();
 
+      // create a label to display how edits are sent to the server
+      Label editsLabel = new Label("No edits sent");
+      editsLabel.getStyleClass().add("panel-region");
+      editsLabel.setMaxSize(Label.USE_PREF_SIZE, Label.USE_PREF_SIZE);
+
+      // send edits to the server in batches, journaled until the server has them
+      editSession = EditSession.openJournaled("add_features", EDIT_BATCH_SIZE, EDIT_WINDOW_MILLIS);
+      editSession.setOnFlushed(statistics -> Platform.runLater(() -> editsLabel.setText(statistics.toString())));
+
       // create a map with streets basemap
       ArcGISMap map = new ArcGISMap(Basemap.Type.STREETS, 40, -95, 4);
 
@@ -75,6 +90,13 @@ public class AddFeaturesSample extends Application {
       // create service feature table from URL
       featureTable = new ServiceFeatureTable(SERVICE_LAYER_URL);
 
+      // make any edits left in the journal by a previous run again
+      editSession.replayJournalAsync(featureTable).whenComplete((replayed, error) -> {
+        if (error != null) {
+          error.printStackTrace();
+        }
+      });
+
       // create a feature layer from table
       FeatureLayer featureLayer = new FeatureLayer(featureTable);
 
@@ -102,8 +124,10 @@ public class AddFeaturesSample extends Application {
       // set ArcGISMap to be displayed in map view
       mapView.setMap(map);
 
-      // add the map view to stack pane
-      stackPane.getChildren().addAll(mapView);
+      // add the map view and label to stack pane
+      stackPane.getChildren().addAll(mapView, editsLabel);
+      StackPane.setAlignment(editsLabel, Pos.BOTTOM_LEFT);
+      StackPane.setMargin(editsLabel, new Insets(0, 0, 30, 10));
 
     } catch (Exception e) {
       // on any error, display the stack trace
@@ -130,34 +154,27 @@ public class AddFeaturesSample extends Application {
 
     // check if feature can be added to feature table
     if (featureTable.canAdd()) {
-      // add the new feature to the feature table
-      ListenableFuture<Void> addResult = featureTable.addFeatureAsync(feature);
-      addResult.addDoneListener(() -> applyEdits(featureTable));
+      // add the new feature to the feature table, sending it to the server along with any others added shortly after
+      editSession.addFeatureAsync(featureTable, feature).whenComplete(this::checkEditResult);
     } else {
       displayMessage(null, "Cannot add a feature to this feature table");
     }
   }
 
   /**
-   * Sends any edits on the ServiceFeatureTable to the server.
+   * Reports a feature's edit that failed, locally or on the server.
    *
-   * @param featureTable service feature table
+   * @param result server's result for the feature
+   * @param error  error of the edit, or null
    */
-  private void applyEdits(ServiceFeatureTable featureTable) {
-
-    // apply the changes to the server
-    ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
-    editResult.addDoneListener(() -> {
-      try {
-        List<FeatureEditResult> edits = editResult.get();
-        // check if the server edit was successful
-        if (edits != null && edits.size() > 0 && edits.get(0).hasCompletedWithErrors()) {
-          throw edits.get(0).getError();
-        }
-      } catch (InterruptedException | ExecutionException e) {
-        displayMessage("Exception applying edits on server", e.getCause().getMessage());
-      }
-    });
+  private void checkEditResult(FeatureEditResult result, Throwable error) {
+
+    if (error != null) {
+      displayMessage("Error applying edits on server", (error.getCause() != null ? error.getCause() : error)
+          .getMessage());
+    } else if (result != null && result.hasCompletedWithErrors()) {
+      displayMessage("Error applying edits on server", result.getError().getMessage());
+    }
   }
 
   /**
@@ -182,6 +199,11 @@ public class AddFeaturesSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    // send any edits still queued, waiting briefly so the journal has their results before the application exits
+    if (editSession != null) {
+      editSession.closeAndWait();
+    }
+
     if (mapView != null) {
       mapView.dispose();
     }
@@ -0,0 +1,523 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.editing.delete_features;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.security.Credential;
+import com.esri.samples.util.FeatureServiceQuery;
+import com.esri.samples.util.JsonPullReader;
+import com.esri.samples.util.ServiceToken;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Deletes every feature of a layer matching a where clause and geometry filter, in chunks sent a few at a time.
+ * <p>
+ * The runtime's {@code FeatureTable.deleteFeaturesAsync} needs the features themselves, and sends every delete of a
+ * table in one applyEdits request, which times out on the server long before millions of features are deleted. Instead,
+ * the matching object IDs are paged through in order, each page starting after the last ID of the one before, so no
+ * page is larger than the service's max record count and deleted features don't shift the pages. Each page is split
+ * into chunks that are posted to the layer's deleteFeatures REST endpoint, with at most a fixed number of chunks in
+ * flight. The next page is only queried once its chunks can be sent, so the object IDs waiting in memory are bounded.
+ * <p>
+ * A request that fails or times out is sent again a few times, waiting twice as long before each try. Features the
+ * server answers as not deleted are counted as failed and not sent again. Requests are signed with a token for the
+ * layer's credential, if it has one. Only one delete runs at a time.
+ */
+public class BulkFeatureDeleter {
+
+  // object IDs per page, no more than most services' max record count
+  private static final int PAGE_SIZE = 1000;
+  private static final long RETRY_DELAY_MILLIS = 1000;
+
+  private final String layerUrl;
+  private final String objectIdField;
+  private final int chunkSize;
+  private final int maxConcurrent;
+  private final int maxRetries;
+  private final FeatureServiceQuery query;
+  private final ServiceToken token;
+  private final ExecutorService executor;
+  private final AtomicInteger threadCount = new AtomicInteger();
+  private final AtomicBoolean running = new AtomicBoolean();
+  private volatile boolean cancelled;
+
+  /**
+   * Creates a deleter.
+   *
+   * @param layerUrl      URL of the feature service layer, e.g. ".../FeatureServer/0"
+   * @param credential    credential of the layer's feature table, or null
+   * @param objectIdField name of the layer's object ID field
+   * @param chunkSize     features deleted per request
+   * @param maxConcurrent most delete requests in flight at once
+   * @param maxRetries    times a failed request is sent again before giving up on it
+   */
+  public BulkFeatureDeleter(String layerUrl, Credential credential, String objectIdField, int chunkSize,
+      int maxConcurrent, int maxRetries) {
+
+    this.layerUrl = layerUrl;
+    this.objectIdField = objectIdField;
+    this.chunkSize = chunkSize;
+    this.maxConcurrent = maxConcurrent;
+    this.maxRetries = maxRetries;
+    query = new FeatureServiceQuery(layerUrl, credential);
+    token = new ServiceToken(layerUrl, credential);
+    // one thread pages through the object IDs while the others send the chunks
+    executor = Executors.newFixedThreadPool(maxConcurrent + 1, r -> {
+      Thread thread = new Thread(r, "bulk-delete-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Counts the features matching a filter, such as to confirm a delete before starting it.
+   *
+   * @param whereClause where clause selecting the features
+   * @param filter      geometry the features must intersect, or null
+   * @return future of the number of matching features
+   */
+  public CompletableFuture<Integer> countAsync(String whereClause, Geometry filter) {
+
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return count(whereClause, filter);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to count features", e);
+      }
+    }, executor);
+  }
+
+  /**
+   * Deletes the features matching a filter. Only one delete runs at a time, so this fails while another is running.
+   *
+   * @param whereClause where clause selecting the features
+   * @param filter      geometry the features must intersect, or null
+   * @param onProgress  called after each chunk, on the thread that sent it
+   * @return future of the final progress, completing once every chunk sent has its result
+   */
+  public CompletableFuture<Progress> deleteAsync(String whereClause, Geometry filter, Consumer<Progress> onProgress) {
+
+    CompletableFuture<Progress> progress = new CompletableFuture<>();
+    if (!running.compareAndSet(false, true)) {
+      progress.completeExceptionally(new IllegalStateException("Another delete is running"));
+      return progress;
+    }
+    cancelled = false;
+    try {
+      delete(whereClause, filter, onProgress).whenComplete((result, error) -> {
+        running.set(false);
+        if (error != null) {
+          progress.completeExceptionally(error);
+        } else {
+          progress.complete(result);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // shut down
+      running.set(false);
+      progress.completeExceptionally(e);
+    }
+    return progress;
+  }
+
+  private CompletableFuture<Progress> delete(String whereClause, Geometry filter, Consumer<Progress> onProgress) {
+
+    return CompletableFuture.supplyAsync(() -> {
+      Run run = new Run(onProgress);
+      Semaphore permits = new Semaphore(maxConcurrent);
+      try {
+        run.total = withRetries(run, () -> count(whereClause, filter));
+        long lastId = Long.MIN_VALUE;
+        while (!cancelled) {
+          long after = lastId;
+          List<Long> page = withRetries(run, () -> page(whereClause, filter, after));
+          if (page.isEmpty()) {
+            break;
+          }
+          lastId = page.get(page.size() - 1);
+          for (int i = 0; i < page.size() && !cancelled; i += chunkSize) {
+            List<Long> chunk = page.subList(i, Math.min(page.size(), i + chunkSize));
+            // wait for one of the chunks in flight to finish
+            permits.acquire();
+            try {
+              executor.execute(() -> {
+                try {
+                  run.delete(chunk);
+                } finally {
+                  permits.release();
+                }
+              });
+            } catch (RejectedExecutionException e) {
+              // shut down, so the chunk is never sent
+              permits.release();
+              throw e;
+            }
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to query the features to delete", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Bulk delete interrupted", e);
+      } finally {
+        // chunks already sent finish either way
+        permits.acquireUninterruptibly(maxConcurrent);
+      }
+      return run.progress();
+    }, executor);
+  }
+
+  /**
+   * Stops sending chunks. Chunks already sent still finish.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Stops the deleter's threads. Chunks being sent are abandoned.
+   */
+  public void shutdown() {
+
+    cancelled = true;
+    executor.shutdownNow();
+  }
+
+  private int count(String whereClause, Geometry filter) throws IOException {
+
+    Map<String, String> parameters = filter(whereClause, filter);
+    parameters.put("returnCountOnly", "true");
+    return ((Number) query.query(parameters).get("count")).intValue();
+  }
+
+  /**
+   * Queries the next page of matching object IDs, in order.
+   *
+   * @param after object ID the page starts after
+   * @return up to a page of object IDs, empty once there are no more
+   */
+  @SuppressWarnings("unchecked")
+  private List<Long> page(String whereClause, Geometry filter, long after) throws IOException {
+
+    // ids-only queries ignore the record count, so query the object ID field instead
+    Map<String, String> parameters = filter(after == Long.MIN_VALUE ? whereClause : "(" + whereClause + ") AND "
+        + objectIdField + " > " + after, filter);
+    parameters.put("outFields", objectIdField);
+    parameters.put("returnGeometry", "false");
+    parameters.put("orderByFields", objectIdField + " ASC");
+    parameters.put("resultRecordCount", String.valueOf(PAGE_SIZE));
+    List<Object> features = (List<Object>) query.query(parameters).get("features");
+
+    List<Long> objectIds = new ArrayList<>();
+    if (features != null) {
+      for (Object feature : features) {
+        Map<String, Object> attributes = (Map<String, Object>) ((Map<String, Object>) feature).get("attributes");
+        objectIds.add(((Number) attributes.get(objectIdField)).longValue());
+      }
+    }
+    return objectIds;
+  }
+
+  private static Map<String, String> filter(String whereClause, Geometry filter) {
+
+    Map<String, String> parameters = FeatureServiceQuery.where(whereClause);
+    if (filter != null) {
+      // the geometry's JSON includes its spatial reference, which the service projects from
+      parameters.put("geometry", filter.toJson());
+      parameters.put("geometryType", geometryType(filter));
+      parameters.put("spatialRel", "esriSpatialRelIntersects");
+    }
+    return parameters;
+  }
+
+  private static String geometryType(Geometry geometry) {
+
+    switch (geometry.getGeometryType()) {
+      case ENVELOPE:
+        return "esriGeometryEnvelope";
+      case POINT:
+        return "esriGeometryPoint";
+      case MULTIPOINT:
+        return "esriGeometryMultipoint";
+      case POLYLINE:
+        return "esriGeometryPolyline";
+      default:
+        return "esriGeometryPolygon";
+    }
+  }
+
+  /**
+   * Posts object IDs to the layer's deleteFeatures endpoint.
+   *
+   * @return the response's deleteResults
+   */
+  @SuppressWarnings("unchecked")
+  private List<Object> postDelete(List<Long> objectIds) throws IOException {
+
+    String tokenValue = token.get();
+    byte[] body = ("f=json&objectIds=" + objectIds.stream().map(String::valueOf).collect(Collectors.joining("%2C"))
+        + (tokenValue != null ? "&token=" + URLEncoder.encode(tokenValue, StandardCharsets.UTF_8.name()) : ""))
+        .getBytes(StandardCharsets.UTF_8);
+    HttpURLConnection connection = ServiceToken.open(layerUrl + "/deleteFeatures");
+    try {
+      connection.setRequestMethod("POST");
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+      connection.setFixedLengthStreamingMode(body.length);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body);
+      }
+
+      String response;
+      try (InputStream in = connection.getInputStream()) {
+        response = new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+      }
+      Map<String, Object> members = JsonPullReader.parseObject(response);
+      if (!(members.get("deleteResults") instanceof List)) {
+        throw new IOException("Deleting features failed: " + (members.containsKey("error") ? members.get("error")
+            : response));
+      }
+      return (List<Object>) members.get("deleteResults");
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Calls a request, calling it again after a delay each time it fails, up to the deleter's number of retries.
+   */
+  private <T> T withRetries(Run run, Request<T> request) throws IOException {
+
+    for (int attempt = 0; ; attempt++) {
+      try {
+        return request.send();
+      } catch (IOException e) {
+        if (attempt >= maxRetries) {
+          throw e;
+        }
+        run.retried();
+        try {
+          Thread.sleep(RETRY_DELAY_MILLIS << attempt);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted before retrying");
+        }
+      }
+    }
+  }
+
+  /**
+   * A request to the service.
+   */
+  private interface Request<T> {
+
+    T send() throws IOException;
+  }
+
+  /**
+   * The counts of one delete so far.
+   */
+  private class Run {
+
+    final Consumer<Progress> onProgress;
+    final long startNanos = System.nanoTime();
+    int total;
+    int deleted;
+    int failed;
+    int chunks;
+    int retries;
+    long lastChunkNanos;
+    long maxChunkNanos;
+    long totalChunkNanos;
+
+    Run(Consumer<Progress> onProgress) {
+      this.onProgress = onProgress;
+    }
+
+    /**
+     * Deletes a chunk, counting the features the server deleted and those it didn't.
+     */
+    void delete(List<Long> chunk) {
+
+      long start = System.nanoTime();
+      int succeeded = 0;
+      try {
+        for (Object result : withRetries(this, () -> postDelete(chunk))) {
+          if (Boolean.TRUE.equals(((Map<?, ?>) result).get("success"))) {
+            succeeded++;
+          }
+        }
+      } catch (IOException e) {
+        // out of retries, so the whole chunk failed
+        e.printStackTrace();
+      }
+      long nanos = System.nanoTime() - start;
+      synchronized (this) {
+        deleted += succeeded;
+        failed += chunk.size() - succeeded;
+        chunks++;
+        lastChunkNanos = nanos;
+        maxChunkNanos = Math.max(maxChunkNanos, nanos);
+        totalChunkNanos += nanos;
+      }
+      onProgress.accept(progress());
+    }
+
+    synchronized void retried() {
+      retries++;
+    }
+
+    synchronized Progress progress() {
+      return new Progress(total, deleted, failed, chunks, retries, lastChunkNanos / 1e6, maxChunkNanos / 1e6,
+          chunks > 0 ? totalChunkNanos / 1e6 / chunks : 0, (System.nanoTime() - startNanos) / 1e9, cancelled);
+    }
+  }
+
+  /**
+   * Counts of a delete so far, and how long its chunks took.
+   */
+  public static class Progress {
+
+    private final int total;
+    private final int deleted;
+    private final int failed;
+    private final int chunks;
+    private final int retries;
+    private final double lastChunkMillis;
+    private final double maxChunkMillis;
+    private final double meanChunkMillis;
+    private final double seconds;
+    private final boolean cancelled;
+
+    Progress(int total, int deleted, int failed, int chunks, int retries, double lastChunkMillis,
+        double maxChunkMillis, double meanChunkMillis, double seconds, boolean cancelled) {
+
+      this.total = total;
+      this.deleted = deleted;
+      this.failed = failed;
+      this.chunks = chunks;
+      this.retries = retries;
+      this.lastChunkMillis = lastChunkMillis;
+      this.maxChunkMillis = maxChunkMillis;
+      this.meanChunkMillis = meanChunkMillis;
+      this.seconds = seconds;
+      this.cancelled = cancelled;
+    }
+
+    /**
+     * Gets the number of features that matched the filter when the delete started.
+     *
+     * @return matching features
+     */
+    public int getTotal() {
+      return total;
+    }
+
+    public int getDeleted() {
+      return deleted;
+    }
+
+    /**
+     * Gets the number of features not deleted, because the server refused them or their chunk ran out of retries.
+     *
+     * @return failed features
+     */
+    public int getFailed() {
+      return failed;
+    }
+
+    public int getChunks() {
+      return chunks;
+    }
+
+    /**
+     * Gets the number of requests sent again after failing.
+     *
+     * @return retries
+     */
+    public int getRetries() {
+      return retries;
+    }
+
+    /**
+     * Gets how long the latest chunk took, including its retries.
+     *
+     * @return milliseconds
+     */
+    public double getLastChunkMillis() {
+      return lastChunkMillis;
+    }
+
+    public double getMaxChunkMillis() {
+      return maxChunkMillis;
+    }
+
+    public double getMeanChunkMillis() {
+      return meanChunkMillis;
+    }
+
+    /**
+     * Gets the rate of deleting features since the delete started.
+     *
+     * @return features deleted per second
+     */
+    public double getFeaturesPerSecond() {
+      return seconds > 0 ? deleted / seconds : 0;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Gets the part of the matching features deleted or failed.
+     *
+     * @return 0 to 1
+     */
+    public double getFraction() {
+      return total > 0 ? Math.min(1, (double) (deleted + failed) / total) : 1;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d of %d deleted, %d failed, %.0f features/s%n%d chunks: %.0f ms last, %.0f ms mean, "
+          + "%.0f ms max, %d retries%s", deleted, total, failed, getFeaturesPerSecond(), chunks, lastChunkMillis,
+          meanChunkMillis, maxChunkMillis, retries, cancelled ? ", cancelled" : "");
+    }
+  }
+}
@@ -16,7 +16,9 @@
 
 package com.esri.samples.editing.delete_features;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -24,12 +26,17 @@ import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.data.FeatureEditResult;
 import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.Field;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
 import com.esri.arcgisruntime.layers.FeatureLayer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.IdentifyLayerResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.samples.util.EditSession;
+import com.esri.samples.util.FeatureSpatialIndex;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -40,8 +47,15 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextField;
 import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 public class DeleteFeaturesSample extends Application {
@@ -51,9 +65,19 @@ public class DeleteFeaturesSample extends Application {
   private ServiceFeatureTable featureTable;
   private Button deleteButton;
   private ListenableFuture<FeatureQueryResult> selectionResult;
+  private FeatureSpatialIndex spatialIndex;
+  private EditSession editSession;
+  private BulkFeatureDeleter bulkDeleter;
 
   private static final String FEATURE_LAYER_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/DamageAssessment/FeatureServer/0";
+  // edits are sent once this many are queued, or this long after the first of them
+  private static final int EDIT_BATCH_SIZE = 20;
+  private static final long EDIT_WINDOW_MILLIS = 2000;
+  // features per bulk delete request, requests in flight at once and times a failed request is sent again
+  private static final int DELETE_CHUNK_SIZE = 250;
+  private static final int DELETE_CHUNKS_IN_FLIGHT = 4;
+  private static final int DELETE_RETRIES = 3;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -62,6 +86,7 @@ public class DeleteFeaturesSample extends Application {
       // create stack pane and application scene
       StackPane stackPane = new StackPane();
       Scene scene = new Scene(stackPane);
+      scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // set title, size, and add scene to stage
       stage.setTitle("Delete Features Sample");
@@ -90,6 +115,88 @@ public class DeleteFeaturesSample extends Application {
         });
       });
 
+      // create controls to delete every feature matching a where clause
+      Label bulkLabel = new Label("Delete all features where:");
+      bulkLabel.getStyleClass().add("panel-label");
+      // no default, since the service is shared and a clause left as it is would delete other people's features
+      TextField whereField = new TextField();
+      whereField.setPromptText("e.g. typdamage = 'Inaccessible'");
+      CheckBox visibleAreaBox = new CheckBox("Only in the visible area");
+      visibleAreaBox.getStyleClass().add("panel-label");
+      Button bulkDeleteButton = new Button("Delete All");
+      bulkDeleteButton.setDisable(true);
+      Button cancelButton = new Button("Cancel");
+      cancelButton.setDisable(true);
+      ProgressBar bulkProgressBar = new ProgressBar(0);
+      bulkProgressBar.setMaxWidth(Double.MAX_VALUE);
+      Label bulkStatusLabel = new Label();
+      bulkStatusLabel.getStyleClass().add("panel-label");
+      bulkStatusLabel.setWrapText(true);
+      VBox bulkBox = new VBox(6, bulkLabel, whereField, visibleAreaBox, new HBox(6, bulkDeleteButton, cancelButton),
+          bulkProgressBar, bulkStatusLabel);
+      bulkBox.getStyleClass().add("panel-region");
+      bulkBox.setMaxSize(260, 220);
+
+      // count the matching features, and delete them once confirmed
+      bulkDeleteButton.setOnAction(event -> {
+        String whereClause = whereField.getText().trim();
+        if (whereClause.isEmpty()) {
+          displayMessage(null, "Enter a where clause selecting the features to delete.");
+          return;
+        }
+        Geometry filter = visibleAreaBox.isSelected() ? mapView.getVisibleArea().getExtent() : null;
+        bulkDeleteButton.setDisable(true);
+        bulkDeleter.countAsync(whereClause, filter).whenComplete((count, countError) -> Platform.runLater(() -> {
+          if (countError != null) {
+            bulkDeleteButton.setDisable(false);
+            displayMessage("Cannot count features", (countError.getCause() != null ? countError.getCause() :
+                countError).getMessage());
+            return;
+          }
+          Alert confirm = new Alert(AlertType.CONFIRMATION, "Delete " + count + " features where " + whereClause
+              + (filter != null ? " in the visible area" : "") + " from the service? This can't be undone.");
+          confirm.setHeaderText(null);
+          if (count == 0 || confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            bulkDeleteButton.setDisable(false);
+            return;
+          }
+
+          cancelButton.setDisable(false);
+          bulkProgressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+          bulkDeleter.deleteAsync(whereClause, filter, progress -> Platform.runLater(() -> {
+            bulkProgressBar.setProgress(progress.getFraction());
+            bulkStatusLabel.setText(progress.toString());
+          })).whenComplete((progress, error) -> Platform.runLater(() -> {
+            bulkDeleteButton.setDisable(false);
+            cancelButton.setDisable(true);
+            if (error != null) {
+              bulkProgressBar.setProgress(0);
+              displayMessage("Bulk delete failed", (error.getCause() != null ? error.getCause() : error)
+                  .getMessage());
+            } else {
+              bulkProgressBar.setProgress(progress.getFraction());
+              bulkStatusLabel.setText(progress.toString());
+            }
+            // the features were deleted behind the table's back, so fetch them again, keeping edits not yet sent
+            featureLayer.clearSelection();
+            deleteButton.setDisable(true);
+            featureTable.clearCache(true);
+            spatialIndex = null;
+            buildSpatialIndex();
+          }));
+        }));
+      });
+      cancelButton.setOnAction(event -> bulkDeleter.cancel());
+
+      // create a label to display how edits are sent to the server
+      Label editsLabel = new Label("No edits sent");
+      editsLabel.getStyleClass().add("panel-region");
+      editsLabel.setMaxSize(Label.USE_PREF_SIZE, Label.USE_PREF_SIZE);
+
+      // send edits to the server in batches, journaled until the server has them
+      editSession = EditSession.openJournaled("delete_features", EDIT_BATCH_SIZE, EDIT_WINDOW_MILLIS);
+      editSession.setOnFlushed(statistics -> Platform.runLater(() -> editsLabel.setText(statistics.toString())));
+
       // create a map with streets basemap
       ArcGISMap map = new ArcGISMap(Basemap.Type.STREETS, 40, -95, 4);
 
@@ -99,18 +206,53 @@ public class DeleteFeaturesSample extends Application {
       // create service feature table from URL
       featureTable = new ServiceFeatureTable(FEATURE_LAYER_URL);
 
+      // make any edits left in the journal by a previous run again
+      editSession.replayJournalAsync(featureTable).whenComplete((replayed, error) -> {
+        if (error != null) {
+          error.printStackTrace();
+        }
+      });
+
       // create a feature layer from table
       featureLayer = new FeatureLayer(featureTable);
 
       // add the layer to the ArcGISMap
       map.getOperationalLayers().add(featureLayer);
 
+      // index the features locally, so clicks don't need a request to the server
+      buildSpatialIndex();
+
+      // delete in bulk through the layer's REST endpoint once the table's object ID field is known
+      featureTable.addDoneLoadingListener(() -> {
+        if (featureTable.getLoadStatus() == LoadStatus.LOADED) {
+          String objectIdField = featureTable.getFields().stream().filter(f -> f.getFieldType() == Field.Type.OID)
+              .map(Field::getName).findFirst().orElse("objectid");
+          BulkFeatureDeleter deleter = new BulkFeatureDeleter(FEATURE_LAYER_URL, featureTable.getCredential(),
+              objectIdField, DELETE_CHUNK_SIZE, DELETE_CHUNKS_IN_FLIGHT, DELETE_RETRIES);
+          Platform.runLater(() -> {
+            bulkDeleter = deleter;
+            bulkDeleteButton.setDisable(false);
+          });
+        }
+      });
+
       mapView.setOnMouseClicked(event -> {
         // check for primary or secondary mouse click
         if (event.isStillSincePress() && event.getButton() == MouseButton.PRIMARY) {
           // create a point from where the user clicked
           Point2D point = new Point2D(event.getX(), event.getY());
-          // identify the clicked feature
+
+          // hit test the local index once it is built, allowing for the size of the feature's symbol
+          if (spatialIndex != null) {
+            List<Feature> features = spatialIndex.hitTest(mapView, point, 10, 1);
+            if (features.size() > 0) {
+              featureLayer.selectFeatures(features);
+              deleteButton.setDisable(false);
+              return;
+            }
+          }
+
+          // identify the clicked feature, which finds features added since the index was built
           ListenableFuture<IdentifyLayerResult> results = mapView.identifyLayerAsync(featureLayer, point, 1, false);
           results.addDoneListener(() -> {
             try {
@@ -134,9 +276,13 @@ public class DeleteFeaturesSample extends Application {
       mapView.setMap(map);
 
       // add the map view and control box to stack pane
-      stackPane.getChildren().addAll(mapView, deleteButton);
+      stackPane.getChildren().addAll(mapView, deleteButton, bulkBox, editsLabel);
       StackPane.setAlignment(deleteButton, Pos.TOP_LEFT);
       StackPane.setMargin(deleteButton, new Insets(10, 0, 0, 10));
+      StackPane.setAlignment(bulkBox, Pos.TOP_RIGHT);
+      StackPane.setMargin(bulkBox, new Insets(10, 10, 0, 0));
+      StackPane.setAlignment(editsLabel, Pos.BOTTOM_LEFT);
+      StackPane.setMargin(editsLabel, new Insets(0, 0, 30, 10));
 
     } catch (Exception e) {
       // on any error, display the stack trace
@@ -144,42 +290,63 @@ public class DeleteFeaturesSample extends Application {
     }
   }
 
+  /**
+   * Indexes the table's features locally, replacing the previous index once it is built.
+   */
+  private void buildSpatialIndex() {
+
+    FeatureSpatialIndex.buildAsync(featureTable).whenComplete((index, error) -> {
+      if (error != null) {
+        error.printStackTrace();
+      } else {
+        Platform.runLater(() -> spatialIndex = index);
+      }
+    });
+  }
+
   /**
    * Deletes features from a ServiceFeatureTable and applies the changes to the
    * server.
    */
   private void deleteFeatures(FeatureQueryResult features, ServiceFeatureTable featureTable) {
 
-    // delete feature from the feature table
-    featureTable.deleteFeaturesAsync(features).addDoneListener(() -> {
-      // apply changes to the server
-      ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
-      editResult.addDoneListener(() -> applyEdits(featureTable));
+    // delete feature from the feature table once the deletes are journaled, through the index to keep it up to date,
+    // and send the deletes to the server along with any other edits made shortly after them
+    List<Feature> deleted = new ArrayList<>();
+    features.forEach(deleted::add);
+    FeatureSpatialIndex index = spatialIndex;
+    List<CompletableFuture<FeatureEditResult>> results = editSession.trackAll(featureTable, EditSession.EditType.DELETE,
+        deleted, () -> index != null ? index.deleteFeaturesAsync(deleted) : featureTable.deleteFeaturesAsync(deleted));
+    CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()])).whenComplete((done, error) -> {
+      if (error != null) {
+        checkEditResult(null, error);
+        return;
+      }
+      // check if the server edits were successful
+      for (CompletableFuture<FeatureEditResult> result : results) {
+        if (result.join() != null && result.join().hasCompletedWithErrors()) {
+          checkEditResult(result.join(), null);
+          return;
+        }
+      }
+      displayMessage(null, "Feature successfully deleted");
     });
   }
 
   /**
-   * Sends any edits on the ServiceFeatureTable to the server.
+   * Reports a feature's edit that failed, locally or on the server.
    *
-   * @param featureTable service feature table
+   * @param result server's result for the feature
+   * @param error  error of the edit, or null
    */
-  private void applyEdits(ServiceFeatureTable featureTable) {
-
-    // apply the changes to the server
-    ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
-    editResult.addDoneListener(() -> {
-      try {
-        List<FeatureEditResult> edits = editResult.get();
-        // check if the server edit was successful
-        if (edits != null && edits.size() > 0 && !edits.get(0).hasCompletedWithErrors()) {
-          displayMessage(null, "Feature successfully deleted");
-        } else if (edits != null && edits.size() > 0) {
-          throw edits.get(0).getError();
-        }
-      } catch (InterruptedException | ExecutionException e) {
-        displayMessage("Exception applying edits on server", e.getCause().getMessage());
-      }
-    });
+  private void checkEditResult(FeatureEditResult result, Throwable error) {
+
+    if (error != null) {
+      displayMessage("Error applying edits on server", (error.getCause() != null ? error.getCause() : error)
+          .getMessage());
+    } else if (result != null && result.hasCompletedWithErrors()) {
+      displayMessage("Error applying edits on server", result.getError().getMessage());
+    }
   }
 
   /**
@@ -204,6 +371,15 @@ public class DeleteFeaturesSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    if (bulkDeleter != null) {
+      bulkDeleter.shutdown();
+    }
+
+    // send any edits still queued, waiting briefly so the journal has their results before the application exits
+    if (editSession != null) {
+      editSession.closeAndWait();
+    }
+
     if (mapView != null) {
       mapView.dispose();
     }
@@ -0,0 +1,583 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.editing.edit_feature_attachments;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Disk cache of the attachments of features: their metadata, their data and thumbnails of images.
+ * <p>
+ * The metadata of a feature's attachments is stored under a hash of the feature's key, such as its global ID. A
+ * feature's edit date doesn't change when only its attachments do, so the cached list is shown as it is and replaced
+ * once the feature's attachments are fetched again. Data is stored under the SHA-256 of its content, so identical
+ * files attached to several features are stored once, and each attachment's metadata refers to its data by that hash.
+ * The data and thumbnail of an attachment are kept while the server lists an attachment with the same ID, name, type
+ * and size, and dropped from its metadata once it doesn't. Image thumbnails are decoded with subsampling, so a large
+ * photo never needs its full size in memory.
+ * <p>
+ * Files are evicted least recently used first once the cache grows past its size. Their modified times record when
+ * they were last used, so the order survives restarts. Temporary files left by a download or write that didn't finish
+ * are deleted when the cache is opened.
+ */
+public class AttachmentCache {
+
+  private static final int MAGIC = 0x41544332; // "ATC2"
+  private static final int THUMBNAIL_SIZE = 48;
+
+  private static final String DOWNLOAD_PREFIX = "download-";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final Path directory;
+  private final Path metaDirectory;
+  private final Path dataDirectory;
+  private final Path thumbnailDirectory;
+  private final long maxBytes;
+  // size of each file in the cache, least recently used first
+  private final LinkedHashMap<Path, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+  private int hitCount;
+  private int missCount;
+
+  /**
+   * Opens a cache, creating its directory if needed.
+   *
+   * @param directory directory of the cache
+   * @param maxBytes  size the cache's files are kept under
+   * @throws IOException if the directory can't be created or read
+   */
+  public AttachmentCache(Path directory, long maxBytes) throws IOException {
+
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    metaDirectory = Files.createDirectories(directory.resolve("meta"));
+    dataDirectory = Files.createDirectories(directory.resolve("data"));
+    thumbnailDirectory = Files.createDirectories(directory.resolve("thumbnails"));
+
+    // delete what a download or write left behind when the sample stopped in the middle of it
+    try (Stream<Path> paths = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) paths::iterator) {
+        if (file.getFileName().toString().startsWith(DOWNLOAD_PREFIX)) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+    List<Path> existing = new ArrayList<>();
+    for (Path subdirectory : new Path[] {metaDirectory, dataDirectory, thumbnailDirectory}) {
+      try (Stream<Path> paths = Files.list(subdirectory)) {
+        for (Path file : (Iterable<Path>) paths::iterator) {
+          if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+            Files.deleteIfExists(file);
+          } else {
+            existing.add(file);
+          }
+        }
+      }
+    }
+    Map<Path, FileTime> lastUsed = new HashMap<>();
+    for (Path file : existing) {
+      lastUsed.put(file, Files.getLastModifiedTime(file));
+    }
+    existing.sort(Comparator.comparing(lastUsed::get));
+    for (Path file : existing) {
+      long size = Files.size(file);
+      files.put(file, size);
+      totalBytes += size;
+    }
+    evict(Collections.emptyList());
+  }
+
+  /**
+   * Gets the cached attachments of a feature, as the server last listed them.
+   *
+   * @param featureKey key of the feature, such as its global ID
+   * @return the attachments, or null if they aren't cached
+   */
+  public synchronized List<Entry> getAttachments(String featureKey) {
+
+    Meta meta = readMeta(featureKey);
+    if (meta == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return meta.attachments;
+  }
+
+  /**
+   * Caches the attachments of a feature as the server lists them, keeping the data and thumbnails already cached for
+   * any attachment whose metadata is unchanged.
+   *
+   * @param featureKey  key of the feature, such as its global ID
+   * @param attachments the feature's attachments
+   * @return the entries now cached, or null if they are the same as the ones cached before
+   */
+  public synchronized List<Entry> putAttachments(String featureKey, List<Entry> attachments) {
+
+    Meta previous = readMeta(featureKey);
+    List<Entry> entries = new ArrayList<>();
+    for (Entry attachment : attachments) {
+      Entry cached = previous != null ? previous.find(attachment.id) : null;
+      // an attachment replaced under the same ID has other data, so it gets no cached data
+      entries.add(cached != null && cached.hasMetadataOf(attachment) ? attachment.withData(cached.dataHash,
+          cached.thumbnailHash) : attachment);
+    }
+    if (previous != null && previous.hasMetadataOf(entries)) {
+      return null;
+    }
+    entries = Collections.unmodifiableList(entries);
+    writeMeta(new Meta(featureKey, entries));
+    return entries;
+  }
+
+  /**
+   * Gets the cached data of an attachment.
+   *
+   * @param featureKey   key of the feature
+   * @param attachmentId ID of the attachment
+   * @return file of the data, or null if it isn't cached
+   */
+  public synchronized Path getData(String featureKey, long attachmentId) {
+
+    Meta meta = readMeta(featureKey);
+    Entry entry = meta != null ? meta.find(attachmentId) : null;
+    Path file = entry != null && entry.dataHash != null ? dataDirectory.resolve(entry.dataHash) : null;
+    if (file == null || !files.containsKey(file)) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    touch(file);
+    return file;
+  }
+
+  /**
+   * Gets the cached thumbnail of an image attachment.
+   *
+   * @param featureKey   key of the feature
+   * @param attachmentId ID of the attachment
+   * @return file of the PNG thumbnail, or null if there is none
+   */
+  public synchronized Path getThumbnail(String featureKey, long attachmentId) {
+
+    Meta meta = readMeta(featureKey);
+    Entry entry = meta != null ? meta.find(attachmentId) : null;
+    Path file = entry != null && entry.thumbnailHash != null ? thumbnailDirectory.resolve(entry.thumbnailHash) : null;
+    if (file == null || !files.containsKey(file)) {
+      return null;
+    }
+    touch(file);
+    return file;
+  }
+
+  /**
+   * Caches the data of an attachment, streaming it to disk, and makes a thumbnail of it if it's an image.
+   *
+   * @param featureKey   key of the feature
+   * @param attachmentId ID of the attachment
+   * @param contentType  MIME type of the data
+   * @param data         data, read to its end but not closed
+   * @return file of the data
+   * @throws IOException if the data can't be read or written
+   */
+  public Path putData(String featureKey, long attachmentId, String contentType, InputStream data)
+      throws IOException {
+
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    Path temp = directory.resolve(DOWNLOAD_PREFIX + UUID.randomUUID());
+    String dataHash;
+    Path file;
+    Path thumbnail;
+    try {
+      try (OutputStream out = Files.newOutputStream(temp)) {
+        byte[] buffer = new byte[64 * 1024];
+        DigestInputStream in = new DigestInputStream(data, digest);
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+      }
+      dataHash = toHex(digest.digest());
+      file = dataDirectory.resolve(dataHash);
+      thumbnail = thumbnailDirectory.resolve(dataHash + ".png");
+      if (contentType != null && contentType.startsWith("image/") && !Files.exists(thumbnail)) {
+        writeThumbnail(temp, thumbnail);
+      }
+    } catch (IOException | RuntimeException e) {
+      // don't leave a partial download behind
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+
+    synchronized (this) {
+      if (files.containsKey(file)) {
+        // the same content is already cached for another attachment
+        Files.delete(temp);
+        touch(file);
+      } else {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        add(file);
+      }
+      boolean hasThumbnail = Files.exists(thumbnail);
+      if (hasThumbnail && !files.containsKey(thumbnail)) {
+        add(thumbnail);
+      }
+      Meta meta = readMeta(featureKey);
+      if (meta != null && meta.find(attachmentId) != null) {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : meta.attachments) {
+          entries.add(entry.id == attachmentId ? entry.withData(dataHash, hasThumbnail ? thumbnail.getFileName()
+              .toString() : null) : entry);
+        }
+        writeMeta(new Meta(featureKey, entries));
+      }
+      evict(hasThumbnail ? Arrays.asList(file, thumbnail) : Collections.singletonList(file));
+    }
+    return file;
+  }
+
+  /**
+   * Gets the total size of the cached files.
+   *
+   * @return bytes on disk
+   */
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Gets the number of lookups of attachments and data that were cached.
+   *
+   * @return hits
+   */
+  public synchronized int getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of lookups of attachments and data that weren't cached.
+   *
+   * @return misses
+   */
+  public synchronized int getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Decodes an image at about the thumbnail's size, reading only every nth pixel of a large one, and writes it scaled
+   * to the thumbnail's size as PNG. Files that aren't decodable images get no thumbnail.
+   */
+  private static void writeThumbnail(Path image, Path thumbnail) throws IOException {
+
+    BufferedImage decoded = null;
+    try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+      Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+      if (!readers.hasNext()) {
+        return;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        int subsampling = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / (THUMBNAIL_SIZE * 2));
+        ImageReadParam parameters = reader.getDefaultReadParam();
+        parameters.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        decoded = reader.read(0, parameters);
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      // not an image after all
+      return;
+    }
+
+    double scale = Math.min(1, (double) THUMBNAIL_SIZE / Math.max(decoded.getWidth(), decoded.getHeight()));
+    int width = Math.max(1, (int) Math.round(decoded.getWidth() * scale));
+    int height = Math.max(1, (int) Math.round(decoded.getHeight() * scale));
+    BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = scaled.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    graphics.drawImage(decoded, 0, 0, width, height, null);
+    graphics.dispose();
+
+    Path temp = thumbnail.resolveSibling(thumbnail.getFileName() + TEMP_SUFFIX);
+    ImageIO.write(scaled, "png", temp.toFile());
+    Files.move(temp, thumbnail, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private Meta readMeta(String featureKey) {
+
+    Path file = metaDirectory.resolve(hash(featureKey));
+    if (!files.containsKey(file)) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || !in.readUTF().equals(featureKey)) {
+        return null;
+      }
+      int count = in.readInt();
+      List<Entry> attachments = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        long id = in.readLong();
+        String name = in.readUTF();
+        String contentType = in.readUTF();
+        long size = in.readLong();
+        String dataHash = in.readBoolean() ? in.readUTF() : null;
+        String thumbnailHash = in.readBoolean() ? in.readUTF() : null;
+        attachments.add(new Entry(id, name, contentType, size).withData(dataHash, thumbnailHash));
+      }
+      touch(file);
+      return new Meta(featureKey, Collections.unmodifiableList(attachments));
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private void writeMeta(Meta meta) {
+
+    Path file = metaDirectory.resolve(hash(meta.featureKey));
+    Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeUTF(meta.featureKey);
+        out.writeInt(meta.attachments.size());
+        for (Entry entry : meta.attachments) {
+          out.writeLong(entry.id);
+          out.writeUTF(entry.name);
+          out.writeUTF(entry.contentType);
+          out.writeLong(entry.size);
+          out.writeBoolean(entry.dataHash != null);
+          if (entry.dataHash != null) {
+            out.writeUTF(entry.dataHash);
+          }
+          out.writeBoolean(entry.thumbnailHash != null);
+          if (entry.thumbnailHash != null) {
+            out.writeUTF(entry.thumbnailHash);
+          }
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      remove(file);
+      add(file);
+      evict(Collections.singletonList(file));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void add(Path file) throws IOException {
+
+    long size = Files.size(file);
+    files.put(file, size);
+    totalBytes += size;
+  }
+
+  private void remove(Path file) {
+
+    Long size = files.remove(file);
+    if (size != null) {
+      totalBytes -= size;
+    }
+  }
+
+  /**
+   * Marks a file as just used, in memory and on disk.
+   */
+  private void touch(Path file) {
+
+    files.get(file);
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // only the order after a restart is affected
+    }
+  }
+
+  /**
+   * Deletes the least recently used files until the cache is under its size, keeping the given ones.
+   */
+  private void evict(List<Path> keep) {
+
+    Iterator<Map.Entry<Path, Long>> it = files.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<Path, Long> file = it.next();
+      if (keep.contains(file.getKey())) {
+        continue;
+      }
+      try {
+        Files.deleteIfExists(file.getKey());
+        totalBytes -= file.getValue();
+        it.remove();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private static String hash(String key) {
+
+    try {
+      return toHex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * Cached metadata of one attachment.
+   */
+  public static class Entry {
+
+    private final long id;
+    private final String name;
+    private final String contentType;
+    private final long size;
+    private final String dataHash;
+    private final String thumbnailHash;
+
+    /**
+     * Creates an entry for an attachment.
+     *
+     * @param id          ID of the attachment
+     * @param name        file name
+     * @param contentType MIME type
+     * @param size        size in bytes
+     */
+    public Entry(long id, String name, String contentType, long size) {
+      this(id, name, contentType, size, null, null);
+    }
+
+    private Entry(long id, String name, String contentType, long size, String dataHash, String thumbnailHash) {
+
+      this.id = id;
+      this.name = name != null ? name : "";
+      this.contentType = contentType != null ? contentType : "";
+      this.size = size;
+      this.dataHash = dataHash;
+      this.thumbnailHash = thumbnailHash;
+    }
+
+    Entry withData(String dataHash, String thumbnailHash) {
+      return new Entry(id, name, contentType, size, dataHash, thumbnailHash);
+    }
+
+    /**
+     * Checks whether another entry is for the same attachment as the server lists it, whatever data is cached for it.
+     */
+    boolean hasMetadataOf(Entry other) {
+      return id == other.id && size == other.size && name.equals(other.name) && contentType.equals(other.contentType);
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public long getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * The attachments of a feature.
+   */
+  private static class Meta {
+
+    final String featureKey;
+    final List<Entry> attachments;
+
+    Meta(String featureKey, List<Entry> attachments) {
+
+      this.featureKey = featureKey;
+      this.attachments = attachments;
+    }
+
+    /**
+     * Checks whether the attachments are the same ones, in the same order, as some entries.
+     */
+    boolean hasMetadataOf(List<Entry> entries) {
+
+      if (attachments.size() != entries.size()) {
+        return false;
+      }
+      for (int i = 0; i < entries.size(); i++) {
+        if (!attachments.get(i).hasMetadataOf(entries.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    Entry find(long id) {
+      return attachments.stream().filter(entry -> entry.id == id).findFirst().orElse(null);
+    }
+  }
+}
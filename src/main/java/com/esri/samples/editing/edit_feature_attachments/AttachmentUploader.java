@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.editing.edit_feature_attachments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.esri.arcgisruntime.security.Credential;
+import com.esri.samples.util.JsonPullReader;
+import com.esri.samples.util.ServiceToken;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Uploads files from disk as attachments of features, streaming each one in fixed size chunks.
+ * <p>
+ * The runtime's {@code ArcGISFeature.addAttachmentAsync} takes the whole attachment as a byte array, so a video of a
+ * few hundred megabytes needs as much heap. Instead, each file is posted to the layer's addAttachment REST endpoint as
+ * multipart form data with a fixed length, so the connection sends it as it is read rather than buffering it, and only
+ * one chunk per upload is in memory at a time. Uploads run on a pool of a fixed number of threads, so at most that
+ * many are sent at once and the rest wait their turn.
+ * <p>
+ * Since the uploads bypass the runtime, they are signed with a token for the feature table's credential, if it has
+ * one, and give up on a server that doesn't connect or answer in time instead of holding an upload thread forever.
+ */
+public class AttachmentUploader {
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+  // bytes sent between progress reports, so large files don't report thousands of times
+  private static final long PROGRESS_INTERVAL = 1024 * 1024;
+  // the server stores a large file before it answers, so wait longer for it than for other requests
+  private static final int RESPONSE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+  private final String layerUrl;
+  private final ServiceToken token;
+  private final ExecutorService executor;
+  private final AtomicInteger threadCount = new AtomicInteger();
+
+  private long firstStartNanos;
+  private long lastEndNanos;
+  private long bytesSent;
+  private int uploadCount;
+  private int activeCount;
+
+  /**
+   * Creates an uploader.
+   *
+   * @param layerUrl      URL of the feature service layer, e.g. ".../FeatureServer/0"
+   * @param credential    credential of the layer's feature table, or null
+   * @param maxConcurrent most uploads sent at once
+   */
+  public AttachmentUploader(String layerUrl, Credential credential, int maxConcurrent) {
+
+    this.layerUrl = layerUrl;
+    token = new ServiceToken(layerUrl, credential);
+    executor = Executors.newFixedThreadPool(maxConcurrent, r -> {
+      Thread thread = new Thread(r, "attachment-upload-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Uploads a file as an attachment of a feature, once one of the upload threads is free.
+   *
+   * @param objectId   object ID of the feature
+   * @param file       file to attach
+   * @param onProgress called on the upload thread as the file is sent
+   * @return future of the new attachment's ID
+   */
+  public CompletableFuture<Long> uploadAsync(long objectId, Path file, Consumer<Progress> onProgress) {
+
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return upload(objectId, file, onProgress);
+      } catch (IOException e) {
+        throw new RuntimeException("Uploading " + file.getFileName() + " failed", e);
+      }
+    }, executor);
+  }
+
+  private long upload(long objectId, Path file, Consumer<Progress> onProgress) throws IOException {
+
+    String fileName = file.getFileName().toString();
+    String contentType = Files.probeContentType(file);
+    long size = Files.size(file);
+    String boundary = "----" + UUID.randomUUID().toString().replace("-", "");
+    String tokenValue = token.get();
+    byte[] head = ("--" + boundary + "\r\n"
+        + "Content-Disposition: form-data; name=\"f\"\r\n\r\njson\r\n"
+        + (tokenValue != null ? "--" + boundary + "\r\n"
+        + "Content-Disposition: form-data; name=\"token\"\r\n\r\n" + tokenValue + "\r\n" : "")
+        + "--" + boundary + "\r\n"
+        + "Content-Disposition: form-data; name=\"attachment\"; filename=\"" + fileName.replace("\"", "") + "\"\r\n"
+        + "Content-Type: " + (contentType != null ? contentType : "application/octet-stream") + "\r\n\r\n")
+        .getBytes(StandardCharsets.UTF_8);
+    byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+    HttpURLConnection connection = ServiceToken.open(layerUrl + "/" + objectId + "/addAttachment");
+    connection.setReadTimeout(RESPONSE_TIMEOUT_MILLIS);
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+    // without a fixed length the connection buffers the whole body to work it out
+    connection.setFixedLengthStreamingMode(head.length + size + tail.length);
+
+    started();
+    long sent = 0;
+    try {
+      onProgress.accept(new Progress(fileName, 0, size));
+      byte[] chunk = new byte[CHUNK_SIZE];
+      long reported = 0;
+      try (InputStream in = Files.newInputStream(file); OutputStream out = connection.getOutputStream()) {
+        out.write(head);
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+          out.write(chunk, 0, read);
+          sent += read;
+          synchronized (this) {
+            bytesSent += read;
+          }
+          if (sent - reported >= PROGRESS_INTERVAL) {
+            reported = sent;
+            onProgress.accept(new Progress(fileName, sent, size));
+          }
+        }
+        out.write(tail);
+      }
+
+      String body;
+      try (InputStream in = connection.getInputStream()) {
+        body = new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+      }
+      Map<String, Object> response = JsonPullReader.parseObject(body);
+      Object result = response.get("addAttachmentResult");
+      if (!(result instanceof Map) || !Boolean.TRUE.equals(((Map<?, ?>) result).get("success"))) {
+        throw new IOException("Adding attachment failed: " + (response.containsKey("error") ? response.get("error")
+            : body));
+      }
+      onProgress.accept(new Progress(fileName, size, size));
+      return ((Number) ((Map<?, ?>) result).get("objectId")).longValue();
+    } finally {
+      connection.disconnect();
+      finished();
+    }
+  }
+
+  private synchronized void started() {
+
+    if (activeCount++ == 0 && uploadCount == 0) {
+      firstStartNanos = System.nanoTime();
+    }
+  }
+
+  private synchronized void finished() {
+
+    activeCount--;
+    uploadCount++;
+    lastEndNanos = System.nanoTime();
+  }
+
+  /**
+   * Gets the average rate of all uploads so far, from the first one starting to the last one ending or now.
+   *
+   * @return bytes sent per second
+   */
+  public synchronized double getBytesPerSecond() {
+
+    if (uploadCount == 0 && activeCount == 0) {
+      return 0;
+    }
+    long end = activeCount > 0 ? System.nanoTime() : lastEndNanos;
+    return end > firstStartNanos ? bytesSent / ((end - firstStartNanos) / 1e9) : 0;
+  }
+
+  /**
+   * Gets the number of uploads being sent.
+   *
+   * @return active uploads
+   */
+  public synchronized int getActiveCount() {
+    return activeCount;
+  }
+
+  /**
+   * Stops the upload threads. Uploads waiting their turn are not sent, and those being sent are abandoned.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * How much of a file has been sent.
+   */
+  public static class Progress {
+
+    private final String fileName;
+    private final long bytesSent;
+    private final long totalBytes;
+
+    Progress(String fileName, long bytesSent, long totalBytes) {
+
+      this.fileName = fileName;
+      this.bytesSent = bytesSent;
+      this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Gets the name of the file being sent.
+     *
+     * @return file name, without its directory
+     */
+    public String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * Gets the bytes of the file sent so far.
+     *
+     * @return bytes sent
+     */
+    public long getBytesSent() {
+      return bytesSent;
+    }
+
+    /**
+     * Gets the size of the file.
+     *
+     * @return bytes in the file
+     */
+    public long getTotalBytes() {
+      return totalBytes;
+    }
+
+    /**
+     * Gets the part of the file sent.
+     *
+     * @return 0 to 1
+     */
+    public double getFraction() {
+      return totalBytes > 0 ? (double) bytesSent / totalBytes : 1;
+    }
+  }
+}
@@ -16,13 +16,24 @@
 
 package com.esri.samples.editing.edit_feature_attachments;
 
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.ArcGISFeature;
 import com.esri.arcgisruntime.data.Attachment;
 import com.esri.arcgisruntime.data.FeatureEditResult;
+import com.esri.arcgisruntime.data.Field;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
 import com.esri.arcgisruntime.layers.FeatureLayer;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
@@ -30,6 +41,7 @@ import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.GeoElement;
 import com.esri.arcgisruntime.mapping.view.IdentifyLayerResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.samples.util.EditSession;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -40,17 +52,20 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
-import org.apache.commons.io.IOUtils;
-
 public class EditFeatureAttachmentsSample extends Application {
 
-  private ListView<String> attachmentList;
+  private ListView<AttachmentCache.Entry> attachmentList;
   private Label attachmentsLabel;
   private Button addAttachmentButton;
   private Button deleteAttachmentButton;
@@ -59,11 +74,37 @@ public class EditFeatureAttachmentsSample extends Application {
   private FeatureLayer featureLayer;
   private ServiceFeatureTable featureTable;
 
-  private ArcGISFeature selected;
-  private List<Attachment> attachments;
+  private volatile ArcGISFeature selected;
+  // the selected feature's attachments, fetched when they are needed, guarded by this
+  private CompletableFuture<List<Attachment>> attachments;
+  private AttachmentCache attachmentCache;
+  private String displayedKey;
+  // thumbnails of the attachments shown lately, by feature key and attachment ID, null for those without one
+  private final Map<String, Image> thumbnails = new LinkedHashMap<String, Image>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+      return size() > MAX_THUMBNAILS;
+    }
+  };
+  // thumbnails being read from the cache
+  private final Set<String> thumbnailsLoading = new HashSet<>();
+  private EditSession editSession;
+  private AttachmentUploader uploader;
+  private VBox uploadsBox;
+  private Label throughputLabel;
 
   private static final String SERVICE_FEATURE_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/DamageAssessment/FeatureServer/0";
+  // edits are sent once this many are queued, or this long after the first of them
+  private static final int EDIT_BATCH_SIZE = 20;
+  private static final long EDIT_WINDOW_MILLIS = 2000;
+  private static final int MAX_CONCURRENT_UPLOADS = 3;
+  private static final long CACHE_MAX_BYTES = 200 * 1024 * 1024;
+  // images up to this size are downloaded with their feature's attachments, for their thumbnails
+  private static final long THUMBNAIL_MAX_BYTES = 10 * 1024 * 1024;
+  // thumbnails kept in memory, so scrolling the list doesn't read them from disk again
+  private static final int MAX_THUMBNAILS = 200;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -83,7 +124,7 @@ public class EditFeatureAttachmentsSample extends Application {
 
       // create a control panel
       VBox vBoxControl = new VBox(6);
-      vBoxControl.setMaxSize(180, 250);
+      vBoxControl.setMaxSize(220, 460);
       vBoxControl.getStyleClass().add("panel-region");
 
       // create a list to show selected feature's attachments
@@ -94,6 +135,41 @@ public class EditFeatureAttachmentsSample extends Application {
         deleteAttachmentButton.setDisable(attachmentList.getSelectionModel().getSelectedIndex() == -1)
       );
 
+      // cache attachments on disk, so features visited before show theirs without a request
+      attachmentCache = new AttachmentCache(Paths.get(System.getProperty("java.io.tmpdir"), "attachment_cache"),
+          CACHE_MAX_BYTES);
+
+      // show each attachment's name, and a thumbnail of images once one is cached, read from disk off the JavaFX
+      // thread the first time it's shown
+      attachmentList.setCellFactory(list -> new ListCell<AttachmentCache.Entry>() {
+
+        @Override
+        protected void updateItem(AttachmentCache.Entry entry, boolean empty) {
+
+          super.updateItem(entry, empty);
+          if (empty || entry == null) {
+            setText(null);
+            setGraphic(null);
+            return;
+          }
+          setText(entry.getName());
+          String thumbnailKey = displayedKey + "/" + entry.getId();
+          Image thumbnail = thumbnails.get(thumbnailKey);
+          setGraphic(thumbnail != null ? new ImageView(thumbnail) : null);
+          if (!thumbnails.containsKey(thumbnailKey)) {
+            loadThumbnail(displayedKey, entry.getId());
+          }
+        }
+      });
+
+      // double click an attachment to open it
+      attachmentList.setOnMouseClicked(event -> {
+        AttachmentCache.Entry entry = attachmentList.getSelectionModel().getSelectedItem();
+        if (event.getClickCount() == 2 && entry != null) {
+          openAttachment(selected, entry);
+        }
+      });
+
       // create add/delete buttons
       addAttachmentButton = new Button("Add Attachment");
       addAttachmentButton.setMaxWidth(Double.MAX_VALUE);
@@ -103,17 +179,36 @@ public class EditFeatureAttachmentsSample extends Application {
       deleteAttachmentButton.setMaxWidth(Double.MAX_VALUE);
       deleteAttachmentButton.setDisable(true);
 
-      // get image attachment
-      byte[] image= IOUtils.toByteArray(getClass().getResourceAsStream("/symbols/destroyed.png"));
-
-      // button click to add image attachment to selected feature
-      addAttachmentButton.setOnAction(e -> addAttachment(image));
+      // button click to choose files to attach to the selected feature
+      FileChooser fileChooser = new FileChooser();
+      fileChooser.setTitle("Add Attachments");
+      addAttachmentButton.setOnAction(e -> {
+        List<File> files = fileChooser.showOpenMultipleDialog(stage);
+        if (files != null) {
+          files.forEach(file -> addAttachment(selected, file));
+        }
+      });
 
       // button click to delete selected attachment
-      deleteAttachmentButton.setOnAction(e -> deleteAttachment(attachmentList.getSelectionModel().getSelectedIndex()));
+      deleteAttachmentButton.setOnAction(e -> deleteAttachment(attachmentList.getSelectionModel().getSelectedItem()));
+
+      // create a label to display how edits are sent to the server
+      Label editsLabel = new Label();
+      editsLabel.getStyleClass().add("panel-label");
+      editsLabel.setWrapText(true);
+
+      // create a box showing the progress of each upload, and a label for their total throughput
+      uploadsBox = new VBox(4);
+      throughputLabel = new Label();
+      throughputLabel.getStyleClass().add("panel-label");
+
+      // send attachment edits as soon as they are made, since the list shows them once the server has them
+      editSession = new EditSession(EDIT_BATCH_SIZE, EDIT_WINDOW_MILLIS);
+      editSession.setOnFlushed(statistics -> Platform.runLater(() -> editsLabel.setText(statistics.toString())));
 
       // add controls to the panel
-      vBoxControl.getChildren().addAll(addAttachmentButton, deleteAttachmentButton, attachmentsLabel, attachmentList);
+      vBoxControl.getChildren().addAll(addAttachmentButton, deleteAttachmentButton, attachmentsLabel, attachmentList,
+          uploadsBox, throughputLabel, editsLabel);
 
       // create a map with streets basemap
       ArcGISMap map = new ArcGISMap(Basemap.Type.STREETS, 40, -95, 4);
@@ -121,6 +216,9 @@ public class EditFeatureAttachmentsSample extends Application {
       // create service feature table from URL
       featureTable = new ServiceFeatureTable(SERVICE_FEATURE_URL);
 
+      // stream files to the server a chunk at a time, a few at once, signed with the table's credential if it has one
+      uploader = new AttachmentUploader(SERVICE_FEATURE_URL, featureTable.getCredential(), MAX_CONCURRENT_UPLOADS);
+
       // create a feature layer from service feature table
       featureLayer = new FeatureLayer(featureTable);
 
@@ -157,7 +255,7 @@ public class EditFeatureAttachmentsSample extends Application {
                 GeoElement element = identified.get(0);
                 // get selected feature
                 if (element instanceof ArcGISFeature) {
-                  selected = (ArcGISFeature) element;
+                  select((ArcGISFeature) element);
                   featureLayer.selectFeature(selected);
                   selected.loadAsync();
                   selected.addDoneLoadingListener(() -> fetchAttachments(selected));
@@ -181,66 +279,263 @@ public class EditFeatureAttachmentsSample extends Application {
   }
 
   /**
-   * Updates the UI with a list of a feature's attachments.
+   * Updates the UI with a list of a feature's attachments, showing the cached list right away if there is one, and
+   * the server's list once it is fetched if it differs.
    */
   private void fetchAttachments(ArcGISFeature feature) {
 
+    String key = featureKey(feature);
+    // this is called on the JavaFX thread too, so read the cache off it
+    CompletableFuture.runAsync(() -> {
+      List<AttachmentCache.Entry> cached = attachmentCache.getAttachments(key);
+      if (cached != null) {
+        Platform.runLater(() -> showAttachments(key, cached));
+      }
+    }).thenCompose(cachedShown -> fetchAttachmentsAsync(feature)).whenComplete((fetched, error) -> {
+      if (error != null) {
+        displayMessage("Exception getting feature attachments", (error.getCause() != null ? error.getCause() : error)
+            .getMessage());
+        return;
+      }
+      List<AttachmentCache.Entry> entries = new ArrayList<>();
+      fetched.forEach(attachment -> entries.add(new AttachmentCache.Entry(attachment.getId(), attachment.getName(),
+          attachment.getContentType(), attachment.getSize())));
+
+      // update UI attachments list, unless the cached one shown is still right
+      List<AttachmentCache.Entry> changed = attachmentCache.putAttachments(key, entries);
+      if (changed != null) {
+        Platform.runLater(() -> showAttachments(key, changed));
+      }
+
+      // download small images once, for their thumbnails
+      for (Attachment attachment : fetched) {
+        if (attachment.getContentType().startsWith("image/") && attachment.getSize() <= THUMBNAIL_MAX_BYTES
+            && attachmentCache.getThumbnail(key, attachment.getId()) == null) {
+          downloadAsync(key, attachment).thenRun(() -> Platform.runLater(() -> {
+            // read the new thumbnail the next time the attachment is shown
+            thumbnails.remove(key + "/" + attachment.getId());
+            attachmentList.refresh();
+          }));
+        }
+      }
+    });
+  }
+
+  /**
+   * Selects a feature, forgetting the attachments fetched for the one selected before.
+   *
+   * @param feature feature to select
+   */
+  private synchronized void select(ArcGISFeature feature) {
+
+    selected = feature;
+    attachments = null;
+  }
+
+  /**
+   * Forgets the attachments fetched for a feature once they have changed, so they are fetched again.
+   *
+   * @param feature feature whose attachments changed
+   */
+  private synchronized void forgetAttachments(ArcGISFeature feature) {
+
+    if (feature == selected) {
+      attachments = null;
+    }
+  }
+
+  /**
+   * Fetches the selected feature's attachments from the server, once per selection.
+   */
+  private synchronized CompletableFuture<List<Attachment>> fetchAttachmentsAsync(ArcGISFeature feature) {
+
+    if (feature == selected && attachments != null) {
+      return attachments;
+    }
+    CompletableFuture<List<Attachment>> fetched = new CompletableFuture<>();
     ListenableFuture<List<Attachment>> attachmentResults = feature.fetchAttachmentsAsync();
     attachmentResults.addDoneListener(() -> {
       try {
-        attachments = attachmentResults.get();
-
-        // update UI attachments list
-        Platform.runLater(() -> {
-          attachmentList.getItems().clear();
-          attachments.forEach(attachment -> attachmentList.getItems().add(attachment.getName()));
-          if (!attachments.isEmpty()) {
-            attachmentsLabel.setText("Attachments: ");
-          } else {
-            attachmentsLabel.setText("No Attachments!");
-          }
-        });
+        fetched.complete(attachmentResults.get());
       } catch (InterruptedException | ExecutionException e) {
-        displayMessage("Exception getting feature attachments", e.getCause().getMessage());
+        fetched.completeExceptionally(e);
       }
     });
+    if (feature == selected) {
+      attachments = fetched;
+    }
+    return fetched;
   }
 
   /**
-   * Adds an attachment to a Feature.
-   * 
-   * @param attachment byte array of attachment
+   * Shows a feature's attachments in the list.
    */
-  private void addAttachment(byte[] attachment) {
-
-      if (selected.canEditAttachments()) {
-        ListenableFuture<Attachment> addResult = selected.addAttachmentAsync(attachment, "image/png",
-            "symbols/destroyed.png");
-        addResult.addDoneListener(() -> {
-          // update feature table
-          ListenableFuture<Void> tableResult = featureTable.updateFeatureAsync(selected);
-
-          // apply update to server when new feature is added, and update the
-          // displayed list of attachments
-          tableResult.addDoneListener(() -> applyEdits(featureTable));
-        });
+  private void showAttachments(String key, List<AttachmentCache.Entry> entries) {
+
+    displayedKey = key;
+    // the feature's attachments changed, so read their thumbnails again
+    thumbnails.keySet().removeIf(thumbnailKey -> thumbnailKey.startsWith(key + "/"));
+    attachmentList.getItems().setAll(entries);
+    if (!entries.isEmpty()) {
+      attachmentsLabel.setText("Attachments: ");
+    } else {
+      attachmentsLabel.setText("No Attachments!");
+    }
+  }
+
+  /**
+   * Reads an attachment's thumbnail from the cache off the JavaFX thread, and shows it once it's in memory.
+   */
+  private void loadThumbnail(String key, long attachmentId) {
+
+    String thumbnailKey = key + "/" + attachmentId;
+    if (!thumbnailsLoading.add(thumbnailKey)) {
+      return;
+    }
+    CompletableFuture.supplyAsync(() -> {
+      Path thumbnail = attachmentCache.getThumbnail(key, attachmentId);
+      return thumbnail != null ? new Image(thumbnail.toUri().toString()) : null;
+    }).whenComplete((image, error) -> Platform.runLater(() -> {
+      thumbnailsLoading.remove(thumbnailKey);
+      if (error != null) {
+        error.printStackTrace();
+      }
+      thumbnails.put(thumbnailKey, image);
+      attachmentList.refresh();
+    }));
+  }
+
+  /**
+   * Downloads an attachment's data into the cache.
+   */
+  private CompletableFuture<Path> downloadAsync(String key, Attachment attachment) {
+
+    CompletableFuture<Path> downloaded = new CompletableFuture<>();
+    ListenableFuture<InputStream> data = attachment.fetchDataAsync();
+    data.addDoneListener(() -> {
+      try (InputStream in = data.get()) {
+        downloaded.complete(attachmentCache.putData(key, attachment.getId(), attachment.getContentType(), in));
+      } catch (Exception e) {
+        downloaded.completeExceptionally(e);
+      }
+    });
+    return downloaded;
+  }
+
+  /**
+   * Opens an attachment with the application the system uses for its type, downloading it first unless it's cached.
+   */
+  private void openAttachment(ArcGISFeature feature, AttachmentCache.Entry entry) {
+
+    String key = featureKey(feature);
+    // this is called on the JavaFX thread, so look in the cache off it
+    CompletableFuture<Path> file = CompletableFuture.supplyAsync(() -> attachmentCache.getData(key, entry.getId()))
+        .thenCompose(cached -> cached != null ? CompletableFuture.completedFuture(cached) :
+            fetchAttachmentsAsync(feature).thenCompose(fetched -> downloadAsync(key, find(fetched, entry))));
+    file.whenComplete((path, error) -> {
+      if (error != null) {
+        displayMessage("Exception opening attachment", (error.getCause() != null ? error.getCause() : error)
+            .getMessage());
       } else {
-        displayMessage(null, "Cannot add attachment.");
+        getHostServices().showDocument(path.toUri().toString());
       }
+    });
+  }
+
+  /**
+   * Gets the key a feature's attachments are cached under, its global ID if it has one.
+   */
+  private String featureKey(ArcGISFeature feature) {
+
+    String keyField = fieldName(Field.Type.GLOBALID);
+    return SERVICE_FEATURE_URL + "/" + feature.getAttributes().get(keyField != null ? keyField : fieldName(Field.Type
+        .OID));
+  }
+
+  /**
+   * Gets the name of the table's field of a type, such as its object ID field.
+   *
+   * @param type field type
+   * @return name of the first field of the type, or null if there is none
+   */
+  private String fieldName(Field.Type type) {
+
+    return featureTable.getFields().stream().filter(field -> field.getFieldType() == type).map(Field::getName)
+        .findFirst().orElse(null);
+  }
+
+  private static Attachment find(List<Attachment> attachments, AttachmentCache.Entry entry) {
+
+    return attachments.stream().filter(attachment -> attachment.getId() == entry.getId()).findFirst().orElseThrow(
+        () -> new IllegalStateException(entry.getName() + " is no longer attached"));
+  }
+
+  /**
+   * Uploads a file as an attachment of a Feature, showing its progress until the server has it.
+   * 
+   * @param feature feature to attach the file to
+   * @param file file to attach
+   */
+  private void addAttachment(ArcGISFeature feature, File file) {
+
+    if (feature.canEditAttachments()) {
+      // show the upload's progress
+      Label uploadLabel = new Label(file.getName());
+      uploadLabel.getStyleClass().add("panel-label");
+      ProgressBar progressBar = new ProgressBar(0);
+      progressBar.setMaxWidth(Double.MAX_VALUE);
+      VBox uploadBox = new VBox(2, uploadLabel, progressBar);
+      uploadsBox.getChildren().add(uploadBox);
+
+      long objectId = ((Number) feature.getAttributes().get(fieldName(Field.Type.OID))).longValue();
+      uploader.uploadAsync(objectId, file.toPath(), progress -> Platform.runLater(() -> {
+        progressBar.setProgress(progress.getFraction());
+        showThroughput();
+      })).whenComplete((attachmentId, error) -> Platform.runLater(() -> {
+        uploadsBox.getChildren().remove(uploadBox);
+        showThroughput();
+        if (error != null) {
+          displayMessage("Error adding attachment", (error.getCause() != null ? error.getCause() : error)
+              .getMessage());
+        } else {
+          if (feature == selected) {
+            // update the displayed list of attachments
+            forgetAttachments(feature);
+            fetchAttachments(feature);
+          }
+        }
+      }));
+    } else {
+      displayMessage(null, "Cannot add attachment.");
+    }
+  }
+
+  /**
+   * Shows the throughput of the uploads so far.
+   */
+  private void showThroughput() {
+
+    throughputLabel.setText(String.format("%d uploading, %.1f MB/s", uploader.getActiveCount(), uploader
+        .getBytesPerSecond() / 1e6));
   }
 
   /**
    * Deletes a selected attachment from a Feature.
    */
-  private void deleteAttachment(int attachmentIndex) {
+  private void deleteAttachment(AttachmentCache.Entry entry) {
 
     if (selected.canEditAttachments()) {
-      ListenableFuture<Void> deleteResult = selected.deleteAttachmentAsync(attachments.get(attachmentIndex));
-      deleteResult.addDoneListener(() -> {
-        // update feature table
-        ListenableFuture<Void> tableResult = featureTable.updateFeatureAsync(selected);
-        // apply update to server when new feature is deleted
-        tableResult.addDoneListener(() -> applyEdits(featureTable));
+      ArcGISFeature feature = selected;
+      fetchAttachmentsAsync(feature).thenAccept(fetched -> {
+        ListenableFuture<Void> deleteResult = feature.deleteAttachmentAsync(find(fetched, entry));
+        deleteResult.addDoneListener(() -> {
+          // update feature table, and apply update to server when new feature is deleted
+          editSession.trackAndCommit(featureTable, EditSession.EditType.UPDATE, feature, () -> featureTable
+              .updateFeatureAsync(feature)).whenComplete(this::attachmentsApplied);
+        });
+      }).exceptionally(error -> {
+        displayMessage("Cannot delete attachment", error.getMessage());
+        return null;
       });
     } else {
       displayMessage(null, "Cannot delete attachment");
@@ -248,27 +543,24 @@ public class EditFeatureAttachmentsSample extends Application {
   }
 
   /**
-   * Sends any edits on the ServiceFeatureTable to the server.
+   * Updates the displayed list of attachments once the server has the edit, or reports why it failed.
    *
-   * @param featureTable service feature table
+   * @param result server's result for the feature
+   * @param error  error of the edit, or null
    */
-  private void applyEdits(ServiceFeatureTable featureTable) {
+  private void attachmentsApplied(FeatureEditResult result, Throwable error) {
 
-    // apply the changes to the server
-    ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
-    editResult.addDoneListener(() -> {
-      try {
-        List<FeatureEditResult> edits = editResult.get();
-        // check if the server edit was successful
-        if (edits != null && edits.size() > 0 && edits.get(0).hasCompletedWithErrors()) {
-          throw edits.get(0).getError();
-        }
-        // update the displayed list of attachments
-        fetchAttachments(selected);
-      } catch (InterruptedException | ExecutionException e) {
-        displayMessage("Error applying edits on server ", e.getCause().getMessage());
-      }
-    });
+    if (error != null) {
+      displayMessage("Error applying edits on server ", (error.getCause() != null ? error.getCause() : error)
+          .getMessage());
+    } else if (result != null && result.hasCompletedWithErrors()) {
+      displayMessage("Error applying edits on server ", result.getError().getMessage());
+    } else {
+      // update the displayed list of attachments
+      ArcGISFeature feature = selected;
+      forgetAttachments(feature);
+      fetchAttachments(feature);
+    }
   }
 
   /**
@@ -293,6 +585,16 @@ public class EditFeatureAttachmentsSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    // send any edits still queued, without holding up closing
+    if (editSession != null) {
+      editSession.close();
+    }
+
+    // abandon any uploads still in progress
+    if (uploader != null) {
+      uploader.shutdown();
+    }
+
     // release resources when the application closes
     if (mapView != null) {
       mapView.dispose();
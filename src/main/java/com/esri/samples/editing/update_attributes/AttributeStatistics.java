@@ -0,0 +1,351 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.editing.update_attributes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Live counts of a table's features by the values of category fields, such as a damage type.
+ * <p>
+ * The counts are seeded once from the table's features, then kept up to date by passing each successful update to
+ * {@link #featureUpdated}, instead of querying the table again. The previous values of the tracked fields are kept by
+ * object ID, so an update only moves its own feature between categories, and the counts themselves are kept in arrays
+ * by category number. The results are published as JavaFX properties on the application thread, at most once per
+ * pulse however many edits arrive, for dashboards to bind to.
+ */
+public class AttributeStatistics {
+
+  private final String objectIdField;
+  // tracked fields in the order of the stored values, and the statistics of each by the same index
+  private final List<String> fields = new ArrayList<>();
+  private final List<CategoryStatistics> fieldCategories = new ArrayList<>();
+  private final Map<String, CategoryStatistics> categories = new LinkedHashMap<>();
+  // values of the tracked fields by object ID, as they were last counted
+  private final Map<Long, Object[]> values = new HashMap<>();
+  private final ReadOnlyIntegerWrapper featureCount = new ReadOnlyIntegerWrapper();
+  private final AtomicBoolean publishPending = new AtomicBoolean();
+
+  /**
+   * Creates statistics. Choose the fields to track, then seed them with {@link #loadAsync} or {@link #addAll}.
+   *
+   * @param objectIdField name of the table's object ID field
+   */
+  public AttributeStatistics(String objectIdField) {
+    this.objectIdField = objectIdField;
+  }
+
+  /**
+   * Counts features by the values of a field, such as a type or status.
+   *
+   * @param field name of the field
+   * @return counts of the field's values
+   */
+  public synchronized CategoryStatistics trackCategories(String field) {
+
+    checkNotSeeded();
+    CategoryStatistics statistics = new CategoryStatistics();
+    fields.add(field);
+    fieldCategories.add(statistics);
+    categories.put(field, statistics);
+    return statistics;
+  }
+
+  /**
+   * Gets the counts of a tracked category field.
+   *
+   * @param field name of the field
+   * @return counts, or null if the field isn't tracked as categories
+   */
+  public synchronized CategoryStatistics getCategories(String field) {
+    return categories.get(field);
+  }
+
+  /**
+   * Gets the number of features counted.
+   *
+   * @return feature count property
+   */
+  public ReadOnlyIntegerProperty featureCountProperty() {
+    return featureCount.getReadOnlyProperty();
+  }
+
+  /**
+   * Seeds the statistics with all features of a table. Features of a service feature table are fully loaded, so all
+   * fields are available. They are queried in pages of ascending object ID, so a service's maximum record count
+   * doesn't leave any out.
+   *
+   * @param featureTable table to query
+   * @return future completing once the features are counted
+   */
+  public CompletableFuture<Void> loadAsync(FeatureTable featureTable) {
+
+    CompletableFuture<Void> loaded = new CompletableFuture<>();
+    queryPage(featureTable, -1, loaded);
+    return loaded;
+  }
+
+  /**
+   * Counts the features with an object ID above the highest one counted so far, then queries the next page, until a
+   * page comes back empty.
+   */
+  private void queryPage(FeatureTable featureTable, long lastObjectId, CompletableFuture<Void> loaded) {
+
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause(objectIdField + " > " + lastObjectId);
+    queryParams.getOrderByFields().add(new QueryParameters.OrderBy(objectIdField, QueryParameters.SortOrder
+        .ASCENDING));
+    ListenableFuture<FeatureQueryResult> result = featureTable instanceof ServiceFeatureTable ?
+        ((ServiceFeatureTable) featureTable).queryFeaturesAsync(queryParams,
+            ServiceFeatureTable.QueryFeatureFields.LOAD_ALL) : featureTable.queryFeaturesAsync(queryParams);
+    result.addDoneListener(() -> {
+      try {
+        long last = lastObjectId;
+        List<Feature> page = new ArrayList<>();
+        for (Feature feature : result.get()) {
+          Long id = objectId(feature);
+          if (id != null) {
+            last = Math.max(last, id);
+            page.add(feature);
+          }
+        }
+        addAll(page);
+        if (last > lastObjectId) {
+          queryPage(featureTable, last, loaded);
+        } else {
+          loaded.complete(null);
+        }
+      } catch (Exception e) {
+        loaded.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Seeds the statistics with features already at hand, such as those of a query made for another purpose.
+   *
+   * @param features features to count
+   */
+  public synchronized void addAll(Iterable<Feature> features) {
+
+    for (Feature feature : features) {
+      add(feature);
+    }
+    schedulePublish();
+  }
+
+  /**
+   * Moves an updated feature from the categories of its previous values to those of its current values.
+   *
+   * @param feature updated feature
+   */
+  public synchronized void featureUpdated(Feature feature) {
+
+    Long id = objectId(feature);
+    if (id == null) {
+      return;
+    }
+    Object[] previous = values.get(id);
+    if (previous == null) {
+      add(feature);
+    } else {
+      Object[] current = read(feature);
+      for (int f = 0; f < current.length; f++) {
+        if (previous[f] == null ? current[f] != null : !previous[f].equals(current[f])) {
+          count(f, previous[f], -1);
+          count(f, current[f], 1);
+        }
+      }
+      values.put(id, current);
+    }
+    schedulePublish();
+  }
+
+  private void add(Feature feature) {
+
+    Long id = objectId(feature);
+    if (id == null || values.containsKey(id)) {
+      return;
+    }
+    Object[] current = read(feature);
+    for (int f = 0; f < current.length; f++) {
+      count(f, current[f], 1);
+    }
+    values.put(id, current);
+  }
+
+  private void count(int fieldIndex, Object value, int change) {
+
+    if (value == null) {
+      return;
+    }
+    fieldCategories.get(fieldIndex).count(value.toString(), change);
+  }
+
+  private Object[] read(Feature feature) {
+
+    Object[] current = new Object[fields.size()];
+    for (int f = 0; f < current.length; f++) {
+      current[f] = feature.getAttributes().get(fields.get(f));
+    }
+    return current;
+  }
+
+  private Long objectId(Feature feature) {
+
+    Object id = feature.getAttributes().get(objectIdField);
+    return id instanceof Number ? ((Number) id).longValue() : null;
+  }
+
+  private void checkNotSeeded() {
+
+    if (!values.isEmpty()) {
+      throw new IllegalStateException("Fields must be tracked before features are counted");
+    }
+  }
+
+  /**
+   * Publishes the changes on the JavaFX application thread, once for all edits made until it runs.
+   */
+  private void schedulePublish() {
+
+    if (publishPending.compareAndSet(false, true)) {
+      Platform.runLater(this::publish);
+    }
+  }
+
+  private synchronized void publish() {
+
+    publishPending.set(false);
+    featureCount.set(values.size());
+    categories.values().forEach(CategoryStatistics::publish);
+  }
+
+  /**
+   * Counts of the values of a field.
+   */
+  public class CategoryStatistics {
+
+    // category number by value, then counts and properties by category number
+    private final Map<String, Integer> categoryNumbers = new HashMap<>();
+    private int[] counts = new int[8];
+    private ReadOnlyIntegerWrapper[] countProperties = new ReadOnlyIntegerWrapper[8];
+    private final ObservableList<String> values = FXCollections.observableArrayList();
+    // categories changed since the last publish
+    private boolean[] dirty = new boolean[8];
+    private int[] dirtyNumbers = new int[8];
+    private int dirtyCount;
+    private final List<String> addedValues = new ArrayList<>();
+
+    /**
+     * Gets the number of features with a value. The property of a value not seen yet starts at zero.
+     *
+     * @param value value of the field
+     * @return count property
+     */
+    public ReadOnlyIntegerProperty countProperty(String value) {
+
+      synchronized (AttributeStatistics.this) {
+        return countProperties[categoryNumber(value)].getReadOnlyProperty();
+      }
+    }
+
+    /**
+     * Gets the values seen so far, in the order they were first seen.
+     *
+     * @return observable list of values
+     */
+    public ObservableList<String> getValues() {
+      return FXCollections.unmodifiableObservableList(values);
+    }
+
+    /**
+     * Gets the current number of features with a value.
+     *
+     * @param value value of the field
+     * @return count
+     */
+    public int getCount(String value) {
+
+      synchronized (AttributeStatistics.this) {
+        Integer number = categoryNumbers.get(value);
+        return number == null ? 0 : counts[number];
+      }
+    }
+
+    private void count(String value, int change) {
+
+      int number = categoryNumber(value);
+      counts[number] += change;
+      if (!dirty[number]) {
+        dirty[number] = true;
+        dirtyNumbers[dirtyCount++] = number;
+      }
+    }
+
+    private int categoryNumber(String value) {
+
+      Integer number = categoryNumbers.get(value);
+      if (number == null) {
+        number = categoryNumbers.size();
+        if (number == counts.length) {
+          counts = Arrays.copyOf(counts, number * 2);
+          countProperties = Arrays.copyOf(countProperties, number * 2);
+          dirty = Arrays.copyOf(dirty, number * 2);
+          dirtyNumbers = Arrays.copyOf(dirtyNumbers, number * 2);
+        }
+        categoryNumbers.put(value, number);
+        countProperties[number] = new ReadOnlyIntegerWrapper();
+        addedValues.add(value);
+      }
+      return number;
+    }
+
+    /**
+     * Copies the changed counts to their properties.
+     */
+    private void publish() {
+
+      for (int i = 0; i < dirtyCount; i++) {
+        countProperties[dirtyNumbers[i]].set(counts[dirtyNumbers[i]]);
+        dirty[dirtyNumbers[i]] = false;
+      }
+      dirtyCount = 0;
+      values.addAll(addedValues);
+      addedValues.clear();
+    }
+  }
+}
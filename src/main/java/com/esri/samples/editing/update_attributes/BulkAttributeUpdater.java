@@ -0,0 +1,423 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.editing.update_attributes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureEditResult;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.samples.util.EditSession;
+import com.esri.samples.util.FeatureServiceQuery;
+
+/**
+ * Changes the attributes of every feature matching a query, for reclassifying many features at once.
+ * <p>
+ * The object IDs matching the query's where clause are fetched first with a single ids-only query, which the server
+ * doesn't cap at its max record count, and narrowed to the query's object IDs if it has any. They are then split into
+ * pages that are queried, transformed and updated locally with one call each, a few pages at a time. The updates are
+ * sent through an {@link EditSession}, committed a page at a time. A page counts as done once the server has its
+ * results, so no more than a few pages of features are in memory however many match.
+ * <p>
+ * An applyEditsAsync call sends every local edit of the table, so the session must be the only one the table's edits
+ * are made through, the same one any other edits of the table go through, or the server's results for one session's
+ * edits are returned to the other's call.
+ * <p>
+ * A dry run queries and transforms copies of the attributes in the same way, counting the features that would change
+ * without changing any.
+ */
+public class BulkAttributeUpdater {
+
+  /**
+   * Changes the attributes of a feature.
+   */
+  public interface AttributeTransform {
+
+    /**
+     * Changes a feature's attributes in place.
+     *
+     * @param attributes attributes of the feature
+     * @return true if any attribute was changed
+     */
+    boolean apply(Map<String, Object> attributes);
+  }
+
+  private final ServiceFeatureTable featureTable;
+  private final EditSession session;
+  private final int pageSize;
+  private final int maxPagesInFlight;
+  private Consumer<List<Feature>> onUpdated = features -> {};
+  private volatile boolean cancelled;
+
+  /**
+   * Creates an updater for a table.
+   *
+   * @param featureTable     loaded table to update
+   * @param session          the session every edit of the table is sent with
+   * @param pageSize         features per page, should not exceed the service's max record count
+   * @param maxPagesInFlight most pages being queried, updated or sent at once
+   */
+  public BulkAttributeUpdater(ServiceFeatureTable featureTable, EditSession session, int pageSize,
+      int maxPagesInFlight) {
+
+    this.featureTable = featureTable;
+    this.session = session;
+    this.pageSize = pageSize;
+    this.maxPagesInFlight = maxPagesInFlight;
+  }
+
+  /**
+   * Sets a callback called with the features of each page once they are updated locally, on the thread that updated
+   * them, such as for keeping statistics of the table up to date. A page the table fails to update isn't reported.
+   *
+   * @param onUpdated receives the changed features of a page
+   */
+  public void setOnUpdated(Consumer<List<Feature>> onUpdated) {
+    this.onUpdated = onUpdated;
+  }
+
+  /**
+   * Counts the features matching a query, without querying the features.
+   *
+   * @param query query selecting the features by where clause and object IDs
+   * @return future of the number of matching features
+   */
+  public CompletableFuture<Integer> countAsync(QueryParameters query) {
+    return queryObjectIdsAsync(query).thenApply(List::size);
+  }
+
+  /**
+   * Transforms the attributes of the features matching a query, and sends the changed features to the server.
+   *
+   * @param query      query selecting the features by where clause and object IDs
+   * @param transform  change to make to each feature's attributes
+   * @param dryRun     true to only count the features that would change
+   * @param onProgress called after each page, on the thread that completed it
+   * @return future of the final progress, completing once every page is done or, after {@link #cancel()}, every page
+   * already started
+   */
+  public CompletableFuture<Progress> runAsync(QueryParameters query, AttributeTransform transform, boolean dryRun,
+      Consumer<Progress> onProgress) {
+
+    cancelled = false;
+    return queryObjectIdsAsync(query).thenCompose(objectIds -> {
+      List<List<Long>> pages = new ArrayList<>();
+      for (int i = 0; i < objectIds.size(); i += pageSize) {
+        pages.add(objectIds.subList(i, Math.min(objectIds.size(), i + pageSize)));
+      }
+
+      Run run = new Run(pages, transform, dryRun, onProgress, objectIds.size());
+      if (pages.isEmpty()) {
+        run.done.complete(run.progress());
+      }
+      for (int i = 0; i < Math.min(maxPagesInFlight, pages.size()); i++) {
+        run.nextPage();
+      }
+      return run.done;
+    });
+  }
+
+  /**
+   * Stops starting pages. Pages already started still send their updates, since they are made locally.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private CompletableFuture<List<Long>> queryObjectIdsAsync(QueryParameters query) {
+
+    String whereClause = query.getWhereClause() != null && !query.getWhereClause().isEmpty() ? query
+        .getWhereClause() : "1=1";
+    Set<Long> onlyIds = query.getObjectIds().isEmpty() ? null : new HashSet<>(query.getObjectIds());
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        Map<String, String> parameters = FeatureServiceQuery.where(whereClause);
+        parameters.put("returnIdsOnly", "true");
+        List<Object> ids = (List<Object>) new FeatureServiceQuery(featureTable.getUri()).query(parameters).get(
+            "objectIds");
+
+        List<Long> objectIds = new ArrayList<>();
+        if (ids != null) {
+          ids.forEach(id -> objectIds.add(((Number) id).longValue()));
+        }
+        if (onlyIds != null) {
+          objectIds.retainAll(onlyIds);
+        }
+        Collections.sort(objectIds);
+        return objectIds;
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to query object IDs", e);
+      }
+    });
+  }
+
+  /**
+   * The pages of one run and its counts so far.
+   */
+  private class Run {
+
+    final List<List<Long>> pages;
+    final AttributeTransform transform;
+    final boolean dryRun;
+    final Consumer<Progress> onProgress;
+    final int total;
+    final long startNanos = System.nanoTime();
+    final CompletableFuture<Progress> done = new CompletableFuture<>();
+    final AtomicInteger nextPage = new AtomicInteger();
+    int pagesInFlight;
+    boolean finished;
+    int scanned;
+    int changed;
+    int committed;
+    int failed;
+
+    Run(List<List<Long>> pages, AttributeTransform transform, boolean dryRun, Consumer<Progress> onProgress,
+        int total) {
+
+      this.pages = pages;
+      this.transform = transform;
+      this.dryRun = dryRun;
+      this.onProgress = onProgress;
+      this.total = total;
+    }
+
+    /**
+     * Starts the next page, unless every page is started or the run is cancelled. Once it is done, the page after it
+     * is started, so at most the initial number of pages are in flight.
+     */
+    void nextPage() {
+
+      int index = nextPage.getAndIncrement();
+      synchronized (this) {
+        if (index >= pages.size() || cancelled || done.isDone()) {
+          if (pagesInFlight == 0 && !finished) {
+            finished = true;
+            finish();
+          }
+          return;
+        }
+        pagesInFlight++;
+      }
+
+      QueryParameters pageQuery = new QueryParameters();
+      pageQuery.getObjectIds().addAll(pages.get(index));
+      ListenableFuture<FeatureQueryResult> result = featureTable.queryFeaturesAsync(pageQuery,
+          ServiceFeatureTable.QueryFeatureFields.LOAD_ALL);
+      result.addDoneListener(() -> {
+        List<Feature> features = new ArrayList<>();
+        try {
+          result.get().forEach(features::add);
+        } catch (Exception e) {
+          done.completeExceptionally(e);
+          return;
+        }
+        updatePage(features).whenComplete((v, error) -> {
+          if (error != null) {
+            done.completeExceptionally(error);
+            return;
+          }
+          synchronized (this) {
+            pagesInFlight--;
+          }
+          onProgress.accept(progress());
+          nextPage();
+        });
+      });
+    }
+
+    /**
+     * Transforms a page of features and updates the changed ones.
+     *
+     * @return future completing once the server has the page's results
+     */
+    private CompletableFuture<Void> updatePage(List<Feature> features) {
+
+      List<Feature> changedFeatures = new ArrayList<>();
+      for (Feature feature : features) {
+        Map<String, Object> attributes = dryRun ? new HashMap<>(feature.getAttributes()) : feature.getAttributes();
+        if (transform.apply(attributes)) {
+          changedFeatures.add(feature);
+        }
+      }
+      synchronized (this) {
+        scanned += features.size();
+        changed += changedFeatures.size();
+      }
+      if (dryRun || changedFeatures.isEmpty()) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      // one local update for the whole page, sent in one round trip together with any other queued edits
+      List<CompletableFuture<FeatureEditResult>> featureResults = session.trackAll(featureTable, EditSession.EditType
+          .UPDATE, changedFeatures, () -> {
+        ListenableFuture<Void> localEdit = featureTable.updateFeaturesAsync(changedFeatures);
+        localEdit.addDoneListener(() -> {
+          try {
+            localEdit.get();
+          } catch (InterruptedException | ExecutionException e) {
+            // the table kept none of the page, and the session fails its edits, so they are counted as failed
+            return;
+          }
+          onUpdated.accept(changedFeatures);
+        });
+        return localEdit;
+      });
+      session.commit();
+      List<CompletableFuture<Void>> results = new ArrayList<>();
+      for (CompletableFuture<FeatureEditResult> featureResult : featureResults) {
+        results.add(featureResult.handle((result, error) -> {
+          synchronized (this) {
+            if (error != null || (result != null && result.hasCompletedWithErrors())) {
+              failed++;
+            } else {
+              committed++;
+            }
+          }
+          return null;
+        }));
+      }
+      return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]));
+    }
+
+    private void finish() {
+
+      // send any updates still waiting for the session's batch to fill
+      session.commit().whenComplete((v, error) -> done.complete(progress()));
+    }
+
+    synchronized Progress progress() {
+      return new Progress(total, scanned, changed, committed, failed, dryRun, cancelled, (System.nanoTime()
+          - startNanos) / 1e9);
+    }
+  }
+
+  /**
+   * Counts of a run so far.
+   */
+  public static class Progress {
+
+    private final int total;
+    private final int scanned;
+    private final int changed;
+    private final int committed;
+    private final int failed;
+    private final boolean dryRun;
+    private final boolean cancelled;
+    private final double seconds;
+
+    Progress(int total, int scanned, int changed, int committed, int failed, boolean dryRun, boolean cancelled,
+        double seconds) {
+
+      this.total = total;
+      this.scanned = scanned;
+      this.changed = changed;
+      this.committed = committed;
+      this.failed = failed;
+      this.dryRun = dryRun;
+      this.cancelled = cancelled;
+      this.seconds = seconds;
+    }
+
+    /**
+     * Gets the number of features matching the query.
+     *
+     * @return matching features
+     */
+    public int getTotal() {
+      return total;
+    }
+
+    /**
+     * Gets the number of features queried and transformed so far.
+     *
+     * @return scanned features
+     */
+    public int getScanned() {
+      return scanned;
+    }
+
+    /**
+     * Gets the number of features the transform changed, or would change in a dry run.
+     *
+     * @return changed features
+     */
+    public int getChanged() {
+      return changed;
+    }
+
+    /**
+     * Gets the number of updates the server accepted.
+     *
+     * @return committed updates
+     */
+    public int getCommitted() {
+      return committed;
+    }
+
+    /**
+     * Gets the number of updates that failed, locally or on the server.
+     *
+     * @return failed updates
+     */
+    public int getFailed() {
+      return failed;
+    }
+
+    public boolean isDryRun() {
+      return dryRun;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Gets the part of the matching features scanned.
+     *
+     * @return 0 to 1
+     */
+    public double getFraction() {
+      return total > 0 ? (double) scanned / total : 1;
+    }
+
+    @Override
+    public String toString() {
+
+      if (dryRun) {
+        return String.format("%d of %d scanned, %d would change%s", scanned, total, changed, cancelled ? ", cancelled"
+            : "");
+      }
+      return String.format("%d of %d scanned, %d changed, %d committed, %d failed in %.1f s%s", scanned, total,
+          changed, committed, failed, seconds, cancelled ? ", cancelled" : "");
+    }
+  }
+}
@@ -16,12 +16,17 @@
 
 package com.esri.samples.editing.update_attributes;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.ArcGISFeature;
+import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.data.FeatureEditResult;
+import com.esri.arcgisruntime.data.QueryParameters;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
 import com.esri.arcgisruntime.layers.FeatureLayer;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
@@ -29,9 +34,15 @@ import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.GeoElement;
 import com.esri.arcgisruntime.mapping.view.IdentifyLayerResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.samples.util.EditSession;
+import com.esri.samples.util.FeatureServiceQuery;
+import com.esri.samples.util.FeatureSpatialIndex;
 
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -39,10 +50,14 @@ import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
 import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
@@ -55,9 +70,21 @@ public class UpdateAttributesSample extends Application {
   private FeatureLayer featureLayer;
   private ServiceFeatureTable featureTable;
   private ComboBox<String> comboBox;
+  private FeatureSpatialIndex spatialIndex;
+  private AttributeStatistics statistics;
+  // number of features on the server, -1 until known
+  private final LongProperty serverCount = new SimpleLongProperty(-1);
+  private EditSession editSession;
+  private BulkAttributeUpdater bulkUpdater;
 
   private static final String FEATURE_LAYER_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/DamageAssessment/FeatureServer/0";
+  // edits are sent once this many are queued, or this long after the first of them
+  private static final int EDIT_BATCH_SIZE = 20;
+  private static final long EDIT_WINDOW_MILLIS = 2000;
+  // features per page of a bulk update, also sent in one round trip, and pages in flight at once
+  private static final int BULK_PAGE_SIZE = 500;
+  private static final int BULK_PAGES_IN_FLIGHT = 3;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -77,7 +104,7 @@ public class UpdateAttributesSample extends Application {
 
       // create a control panel
       VBox vBoxControl = new VBox(6);
-      vBoxControl.setMaxSize(180, 80);
+      vBoxControl.setMaxSize(220, 560);
       vBoxControl.getStyleClass().add("panel-region");
 
       // create damage type label
@@ -110,6 +137,95 @@ public class UpdateAttributesSample extends Application {
       // add damage type label and comboBox to the control panel
       vBoxControl.getChildren().addAll(typeDamageLabel, comboBox);
 
+      // count features by damage type, kept up to date by each edit instead of querying again
+      statistics = new AttributeStatistics("objectid");
+      AttributeStatistics.CategoryStatistics damageCounts = statistics.trackCategories("typdamage");
+
+      // create labels bound to the count of each damage type
+      Label countsLabel = new Label();
+      countsLabel.getStyleClass().add("panel-label");
+      countsLabel.textProperty().bind(Bindings.createStringBinding(() -> {
+        int counted = statistics.featureCountProperty().get();
+        // the seeding query may have returned fewer features than the server has, say so rather than show a wrong count
+        return serverCount.get() > counted ? String.format("Features: %d of %d (partial)", counted, serverCount.get())
+            : String.format("Features: %d", counted);
+      }, statistics.featureCountProperty(), serverCount));
+      vBoxControl.getChildren().add(countsLabel);
+      for (String damageType : damageList) {
+        Label countLabel = new Label();
+        countLabel.getStyleClass().add("panel-label");
+        countLabel.textProperty().bind(Bindings.format("%s: %d", damageType, damageCounts.countProperty(damageType)));
+        vBoxControl.getChildren().add(countLabel);
+      }
+
+      // create a label to display how edits are sent to the server
+      Label editsLabel = new Label();
+      editsLabel.getStyleClass().add("panel-label");
+      editsLabel.setWrapText(true);
+      vBoxControl.getChildren().add(editsLabel);
+
+      // send edits to the server in batches, journaled until the server has them
+      editSession = EditSession.openJournaled("update_attributes", EDIT_BATCH_SIZE, EDIT_WINDOW_MILLIS);
+      editSession.setOnFlushed(editStatistics -> Platform.runLater(() -> editsLabel.setText(editStatistics
+          .toString())));
+
+      // create controls to reclassify every feature matching a where clause
+      Label bulkLabel = new Label("Reclassify features where:");
+      bulkLabel.getStyleClass().add("panel-label");
+      TextField whereField = new TextField("typdamage = 'Minor'");
+      ComboBox<String> bulkTypeBox = new ComboBox<>(damageList);
+      bulkTypeBox.setMaxWidth(Double.MAX_VALUE);
+      bulkTypeBox.getSelectionModel().select("Affected");
+      Button dryRunButton = new Button("Dry Run");
+      Button bulkUpdateButton = new Button("Update All");
+      Button cancelButton = new Button("Cancel");
+      cancelButton.setDisable(true);
+      ProgressBar bulkProgressBar = new ProgressBar(0);
+      bulkProgressBar.setMaxWidth(Double.MAX_VALUE);
+      Label bulkStatusLabel = new Label();
+      bulkStatusLabel.getStyleClass().add("panel-label");
+      bulkStatusLabel.setWrapText(true);
+      vBoxControl.getChildren().addAll(bulkLabel, whereField, bulkTypeBox, new HBox(6, dryRunButton, bulkUpdateButton,
+          cancelButton), bulkProgressBar, bulkStatusLabel);
+
+      // run a bulk update, or a dry run counting the features it would change
+      for (Button button : new Button[] {dryRunButton, bulkUpdateButton}) {
+        button.setOnAction(e -> {
+          boolean dryRun = button == dryRunButton;
+          dryRunButton.setDisable(true);
+          bulkUpdateButton.setDisable(true);
+          cancelButton.setDisable(false);
+          bulkProgressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+
+          QueryParameters query = new QueryParameters();
+          query.setWhereClause(whereField.getText());
+          String damageType = bulkTypeBox.getValue();
+          bulkUpdater.runAsync(query, attributes -> {
+            if (damageType.equals(attributes.get("typdamage"))) {
+              return false;
+            }
+            attributes.put("typdamage", damageType);
+            return true;
+          }, dryRun, progress -> Platform.runLater(() -> {
+            bulkProgressBar.setProgress(progress.getFraction());
+            bulkStatusLabel.setText(progress.toString());
+          })).whenComplete((progress, error) -> Platform.runLater(() -> {
+            dryRunButton.setDisable(false);
+            bulkUpdateButton.setDisable(false);
+            cancelButton.setDisable(true);
+            if (error != null) {
+              bulkProgressBar.setProgress(0);
+              displayMessage("Bulk update failed", (error.getCause() != null ? error.getCause() : error)
+                  .getMessage());
+            } else {
+              bulkProgressBar.setProgress(progress.getFraction());
+              bulkStatusLabel.setText(progress.toString());
+            }
+          }));
+        });
+      }
+      cancelButton.setOnAction(e -> bulkUpdater.cancel());
+
       // create a map with streets basemap
       ArcGISMap map = new ArcGISMap(Basemap.Type.STREETS, 40, -95, 4);
 
@@ -119,12 +235,34 @@ public class UpdateAttributesSample extends Application {
       // create service feature table from URL
       featureTable = new ServiceFeatureTable(FEATURE_LAYER_URL);
 
+      // update many features at once, keeping the counts of damage types up to date as they change
+      bulkUpdater = new BulkAttributeUpdater(featureTable, editSession, BULK_PAGE_SIZE, BULK_PAGES_IN_FLIGHT);
+      bulkUpdater.setOnUpdated(features -> features.forEach(statistics::featureUpdated));
+
       // create a feature layer from table
       featureLayer = new FeatureLayer(featureTable);
 
       // add the layer to the ArcGISMap
       map.getOperationalLayers().add(featureLayer);
 
+      // make any edits left in the journal by a previous run again, then index the features locally, so clicks don't
+      // need a request to the server, and count the same features
+      editSession.replayJournalAsync(featureTable).whenComplete((replayed, replayError) -> {
+        if (replayError != null) {
+          replayError.printStackTrace();
+        }
+        FeatureSpatialIndex.buildAsync(featureTable).whenComplete((index, error) -> {
+          if (error != null) {
+            error.printStackTrace();
+            statistics.loadAsync(featureTable).whenComplete((loaded, loadError) -> checkCount());
+          } else {
+            statistics.addAll(index.query(new QueryParameters()));
+            Platform.runLater(() -> spatialIndex = index);
+            checkCount();
+          }
+        });
+      });
+
       mapView.setOnMouseClicked(event -> {
         // accept only primary mouse click
         if (event.isStillSincePress() && event.getButton() == MouseButton.PRIMARY) {
@@ -135,22 +273,23 @@ public class UpdateAttributesSample extends Application {
           featureLayer.clearSelection();
           comboBox.setDisable(true);
 
-          // get the clicked feature
+          // hit test the local index once it is built, allowing for the size of the feature's symbol
+          if (spatialIndex != null) {
+            List<Feature> hits = spatialIndex.hitTest(mapView, point, 10, 1);
+            if (hits.size() > 0) {
+              select(hits.get(0));
+              return;
+            }
+          }
+
+          // get the clicked feature, which finds features added since the index was built
           ListenableFuture<IdentifyLayerResult> results = mapView.identifyLayerAsync(featureLayer, point, 1, false);
           results.addDoneListener(() -> {
             try {
               IdentifyLayerResult layer = results.get();
               List<GeoElement> identified = layer.getElements();
               if (identified.size() > 0) {
-                GeoElement element = identified.get(0);
-                // get selected feature
-                if (element instanceof ArcGISFeature) {
-                  selected = (ArcGISFeature) element;
-                  featureLayer.selectFeature(selected);
-                  selected.loadAsync();
-                  selected.addDoneLoadingListener(() -> selectAttribute(selected));
-                  comboBox.setDisable(false);
-                }
+                select(identified.get(0));
               }
             } catch (InterruptedException | ExecutionException e) {
               displayMessage("Exception getting identify result", e.getCause().getMessage());
@@ -172,6 +311,23 @@ public class UpdateAttributesSample extends Application {
     }
   }
 
+  /**
+   * Selects a clicked feature and enables choosing its damage type.
+   *
+   * @param element clicked element
+   */
+  private void select(GeoElement element) {
+
+    // get selected feature
+    if (element instanceof ArcGISFeature) {
+      selected = (ArcGISFeature) element;
+      featureLayer.selectFeature(selected);
+      selected.loadAsync();
+      selected.addDoneLoadingListener(() -> selectAttribute(selected));
+      comboBox.setDisable(false);
+    }
+  }
+
   private void selectAttribute(ArcGISFeature feature) {
 
     Platform.runLater(() -> comboBox.getSelectionModel().select((String) feature.getAttributes().get("typdamage")));
@@ -186,36 +342,67 @@ public class UpdateAttributesSample extends Application {
       // update attribute
       selected.getAttributes().put("typdamage", comboBox.getValue());
 
-      // update feature in the feature table
-      ListenableFuture<Void> editResult = featureTable.updateFeatureAsync(feature);
-      editResult.addDoneListener(() -> applyEdits(featureTable));
+      // update feature in the feature table once the update is journaled, through the index to keep it up to date,
+      // and send the update to the server along with any others made shortly after it
+      FeatureSpatialIndex index = spatialIndex;
+      editSession.track(featureTable, EditSession.EditType.UPDATE, feature, () -> {
+        ListenableFuture<Void> editResult = index != null ? index.updateFeatureAsync(feature) : featureTable
+            .updateFeatureAsync(feature);
+        editResult.addDoneListener(() -> {
+          try {
+            editResult.get();
+            // move the feature to its new damage type's count
+            statistics.featureUpdated(feature);
+          } catch (InterruptedException | ExecutionException e) {
+            displayMessage("Cannot update attributes", e.getCause().getMessage());
+          }
+        });
+        return editResult;
+      }).whenComplete(this::checkEditResult);
     } else {
       displayMessage(null, "Cannot update this feature.");
     }
   }
 
   /**
-   * Sends any edits on the ServiceFeatureTable to the server.
-   *
-   * @param featureTable service feature table
+   * Asks the server how many features the layer has with a count-only query, so the counts label can tell whether
+   * the statistics were seeded with all of them.
    */
-  private void applyEdits(ServiceFeatureTable featureTable) {
+  private void checkCount() {
 
-    // apply the changes to the server
-    ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
-    editResult.addDoneListener(() -> {
+    CompletableFuture.supplyAsync(() -> {
       try {
-        List<FeatureEditResult> edits = editResult.get();
-        // check if the server edit was successful
-        if (edits != null && edits.size() > 0 && edits.get(0).hasCompletedWithErrors()) {
-          throw edits.get(0).getError();
-        }
-      } catch (InterruptedException | ExecutionException e) {
-        displayMessage("Error applying edits on server", e.getCause().getMessage());
+        Map<String, String> parameters = FeatureServiceQuery.where("1=1");
+        parameters.put("returnCountOnly", "true");
+        return ((Number) new FeatureServiceQuery(FEATURE_LAYER_URL).query(parameters).get("count")).longValue();
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to count features", e);
+      }
+    }).whenComplete((count, error) -> {
+      if (error != null) {
+        error.printStackTrace();
+      } else {
+        Platform.runLater(() -> serverCount.set(count));
       }
     });
   }
 
+  /**
+   * Reports a feature's edit that failed, locally or on the server.
+   *
+   * @param result server's result for the feature
+   * @param error  error of the edit, or null
+   */
+  private void checkEditResult(FeatureEditResult result, Throwable error) {
+
+    if (error != null) {
+      displayMessage("Error applying edits on server", (error.getCause() != null ? error.getCause() : error)
+          .getMessage());
+    } else if (result != null && result.hasCompletedWithErrors()) {
+      displayMessage("Error applying edits on server", result.getError().getMessage());
+    }
+  }
+
   /**
    * Shows a message in an alert dialog.
    *
@@ -238,6 +425,12 @@ public class UpdateAttributesSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    // send any edits still queued, waiting briefly so the journal has their results before the application exits
+    if (editSession != null) {
+      bulkUpdater.cancel();
+      editSession.closeAndWait();
+    }
+
     // release resources when the application closes
     if (mapView != null) {
       mapView.dispose();
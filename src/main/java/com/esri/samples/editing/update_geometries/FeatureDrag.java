@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.editing.update_geometries;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureEditResult;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.samples.util.EditSession;
+
+/**
+ * One drag of a point feature, moving it locally as the mouse moves and sending the move to the server when it ends.
+ * <p>
+ * Mouse events arrive faster than the table can update a feature, so only the latest location is kept: one local
+ * update is in flight at a time, and the location the mouse reached meanwhile is applied once it is done. Nothing is
+ * sent to the server while the feature moves, except for a sync every so often during a long drag. On release, the
+ * final location is sent with {@link EditSession#trackAndCommit}, a single round trip however far the feature went.
+ * <p>
+ * If the server rejects a sync, or the table rejects a local update, the drag stops and the feature is moved back to
+ * the last location the server accepted. A round trip that fails altogether leaves the feature where it is, since the
+ * session's journal sends the move again on the next start.
+ */
+public class FeatureDrag {
+
+  private final Feature feature;
+  private final Function<Feature, ListenableFuture<Void>> localUpdate;
+  private final ServiceFeatureTable featureTable;
+  private final EditSession session;
+  private final long syncIntervalNanos;
+  private final BiConsumer<FeatureEditResult, Throwable> onSynced;
+
+  // last geometry the server accepted, to move back to if it rejects a later one
+  private Geometry accepted;
+  // latest location the mouse reached while a local update was in flight
+  private Point pending;
+  private ListenableFuture<Void> lastLocalEdit;
+  private long lastSyncNanos = System.nanoTime();
+  private boolean updating;
+  private boolean syncing;
+  // moved locally since the last sync
+  private boolean dirty;
+  private boolean released;
+  private boolean rejected;
+  private boolean reverted;
+
+  /**
+   * Starts a drag of a feature.
+   *
+   * @param feature            feature to move
+   * @param localUpdate        updates the feature in its table, such as through an index that keeps itself up to date
+   * @param featureTable       table of the feature
+   * @param session            session to send the moves with
+   * @param syncIntervalMillis time between syncs during a drag, or 0 to only send the move on release
+   * @param onSynced           called with the result of each sync, or the error of a failed sync or local update
+   */
+  public FeatureDrag(Feature feature, Function<Feature, ListenableFuture<Void>> localUpdate,
+      ServiceFeatureTable featureTable, EditSession session, long syncIntervalMillis,
+      BiConsumer<FeatureEditResult, Throwable> onSynced) {
+
+    this.feature = feature;
+    this.localUpdate = localUpdate;
+    this.featureTable = featureTable;
+    this.session = session;
+    this.syncIntervalNanos = syncIntervalMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis) :
+        Long.MAX_VALUE;
+    this.onSynced = onSynced;
+    accepted = feature.getGeometry();
+  }
+
+  /**
+   * Gets the dragged feature.
+   *
+   * @return feature
+   */
+  public Feature getFeature() {
+    return feature;
+  }
+
+  /**
+   * Moves the feature to a location, right away if no local update is in flight, or else once it is done.
+   *
+   * @param location new location of the feature
+   */
+  public synchronized void moveTo(Point location) {
+
+    if (location == null || released || rejected) {
+      return;
+    }
+    pending = location;
+    if (!updating) {
+      next();
+    }
+  }
+
+  /**
+   * Ends the drag, sending the feature's final location to the server once it is moved there locally.
+   */
+  public synchronized void release() {
+
+    released = true;
+    if (!updating) {
+      next();
+    }
+  }
+
+  /**
+   * Checks whether the drag has ended and the server has a result for its last move.
+   *
+   * @return true if nothing is left to update or send
+   */
+  public synchronized boolean isSettled() {
+    return (released || rejected) && !updating && !syncing && pending == null && (rejected ? reverted : !dirty);
+  }
+
+  /**
+   * Starts whatever is due next: moving the feature back after a rejection, a sync, or applying the latest location.
+   * Called with the lock held and no local update in flight.
+   */
+  private void next() {
+
+    if (rejected) {
+      if (!reverted) {
+        reverted = true;
+        dirty = false;
+        update(accepted);
+      }
+      return;
+    }
+    // during a long drag the mouse is always ahead of the table, so check for a sync before catching up with it
+    if (!syncing && dirty && ((released && pending == null) || System.nanoTime() - lastSyncNanos >=
+        syncIntervalNanos)) {
+      sync();
+    }
+    if (pending != null) {
+      Point location = pending;
+      pending = null;
+      dirty = true;
+      update(location);
+    }
+  }
+
+  private void update(Geometry geometry) {
+
+    updating = true;
+    feature.setGeometry(geometry);
+    ListenableFuture<Void> localEdit = localUpdate.apply(feature);
+    lastLocalEdit = localEdit;
+    localEdit.addDoneListener(() -> localUpdated(localEdit));
+  }
+
+  private void localUpdated(ListenableFuture<Void> localEdit) {
+
+    Throwable error = null;
+    try {
+      localEdit.get();
+    } catch (Exception e) {
+      error = e;
+    }
+    synchronized (this) {
+      updating = false;
+      if (error != null) {
+        rejected = true;
+        pending = null;
+      }
+      next();
+    }
+    if (error != null) {
+      onSynced.accept(null, error);
+    }
+  }
+
+  private void sync() {
+
+    syncing = true;
+    dirty = false;
+    lastSyncNanos = System.nanoTime();
+    Geometry sent = feature.getGeometry();
+    // the feature was moved locally during the drag, so only the location being sent is journaled, before it is sent
+    ListenableFuture<Void> localEdit = lastLocalEdit;
+    session.trackAndCommit(featureTable, EditSession.EditType.UPDATE, feature, () -> localEdit).whenComplete((result,
+        error) -> synced(sent, result, error));
+  }
+
+  private void synced(Geometry sent, FeatureEditResult result, Throwable error) {
+
+    synchronized (this) {
+      syncing = false;
+      if (result != null && result.hasCompletedWithErrors()) {
+        rejected = true;
+        pending = null;
+      } else if (error == null) {
+        accepted = sent;
+        // a later geometry was accepted after moving back, so move back to that one
+        reverted = false;
+      }
+      if (!updating) {
+        next();
+      }
+    }
+    onSynced.accept(result, error);
+  }
+}
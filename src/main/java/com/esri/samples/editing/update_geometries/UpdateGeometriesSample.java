@@ -24,6 +24,7 @@ import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.ArcGISFeature;
 import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.data.FeatureEditResult;
+import com.esri.arcgisruntime.data.Field;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.layers.FeatureLayer;
@@ -32,13 +33,19 @@ import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.GeoElement;
 import com.esri.arcgisruntime.mapping.view.IdentifyLayerResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.samples.util.EditSession;
+import com.esri.samples.util.FeatureSpatialIndex;
 
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
 import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
@@ -48,9 +55,18 @@ public class UpdateGeometriesSample extends Application {
   private static ServiceFeatureTable featureTable;
   private static FeatureLayer featureLayer;
   private static Feature selected;
+  private static EditSession editSession;
+  private static FeatureSpatialIndex spatialIndex;
+  private static FeatureDrag drag;
+  private static FeatureDrag lastDrag;
 
   private static final String FEATURE_LAYER_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/DamageAssessment/FeatureServer/0";
+  // edits are sent once this many are queued, or this long after the first of them
+  private static final int EDIT_BATCH_SIZE = 20;
+  private static final long EDIT_WINDOW_MILLIS = 2000;
+  // time between syncs to the server during a long drag
+  private static final long DRAG_SYNC_MILLIS = 1000;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -59,6 +75,7 @@ public class UpdateGeometriesSample extends Application {
       // create stack pane and application scene
       StackPane stackPane = new StackPane();
       Scene scene = new Scene(stackPane);
+      scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // set title, size, and add scene to stage
       stage.setTitle("Update Geometries Sample");
@@ -67,6 +84,15 @@ public class UpdateGeometriesSample extends Application {
       stage.setScene(scene);
       stage.show();
 
+      // create a label to display how edits are sent to the server
+      Label editsLabel = new Label("No edits sent");
+      editsLabel.getStyleClass().add("panel-region");
+      editsLabel.setMaxSize(Label.USE_PREF_SIZE, Label.USE_PREF_SIZE);
+
+      // send edits to the server in batches, journaled until the server has them
+      editSession = EditSession.openJournaled("update_geometries", EDIT_BATCH_SIZE, EDIT_WINDOW_MILLIS);
+      editSession.setOnFlushed(statistics -> Platform.runLater(() -> editsLabel.setText(statistics.toString())));
+
       // create a map with streets basemap
       ArcGISMap map = new ArcGISMap(Basemap.Type.STREETS, 40, -95, 4);
 
@@ -76,6 +102,21 @@ public class UpdateGeometriesSample extends Application {
       // create service feature table from URL
       featureTable = new ServiceFeatureTable(FEATURE_LAYER_URL);
 
+      // make any edits left in the journal by a previous run again, then index the features locally, so features can
+      // be hit tested as the mouse is pressed, without waiting for a request to the server
+      editSession.replayJournalAsync(featureTable).whenComplete((replayed, replayError) -> {
+        if (replayError != null) {
+          replayError.printStackTrace();
+        }
+        FeatureSpatialIndex.buildAsync(featureTable).whenComplete((index, error) -> {
+          if (error != null) {
+            error.printStackTrace();
+          } else {
+            Platform.runLater(() -> spatialIndex = index);
+          }
+        });
+      });
+
       // create a feature layer from table
       featureLayer = new FeatureLayer(featureTable);
 
@@ -85,6 +126,26 @@ public class UpdateGeometriesSample extends Application {
       // set ArcGISMap to be displayed in view
       mapView.setMap(map);
 
+      // drag the selected feature to move it, instead of panning the map
+      mapView.addEventFilter(MouseEvent.MOUSE_PRESSED, event -> {
+        if (event.getButton() == MouseButton.PRIMARY && startDrag(new Point2D(event.getX(), event.getY()))) {
+          event.consume();
+        }
+      });
+      mapView.addEventFilter(MouseEvent.MOUSE_DRAGGED, event -> {
+        if (drag != null) {
+          drag.moveTo(mapView.screenToLocation(new Point2D(event.getX(), event.getY())));
+          event.consume();
+        }
+      });
+      mapView.addEventFilter(MouseEvent.MOUSE_RELEASED, event -> {
+        if (drag != null) {
+          drag.release();
+          drag = null;
+          event.consume();
+        }
+      });
+
       mapView.setOnMouseClicked(event -> {
         // check for primary or secondary mouse click
         if (event.isStillSincePress() && event.getButton() == MouseButton.PRIMARY) {
@@ -95,18 +156,23 @@ public class UpdateGeometriesSample extends Application {
           // create map point from point
           Point mapPoint = mapView.screenToLocation(point);
 
-          // identify the clicked feature
+          // hit test the local index once it is built, allowing for the size of the feature's symbol
+          if (spatialIndex != null) {
+            List<Feature> hits = spatialIndex.hitTest(mapView, point, 10, 1);
+            if (hits.size() > 0) {
+              select(hits.get(0));
+              return;
+            }
+          }
+
+          // identify the clicked feature, which finds features added since the index was built
           ListenableFuture<IdentifyLayerResult> results = mapView.identifyLayerAsync(featureLayer, point, 1, false);
           results.addDoneListener(() -> {
             try {
               // get selected feature
               List<GeoElement> elements = results.get().getElements();
               if (elements.size() > 0 && elements.get(0) instanceof Feature) {
-                selected = (Feature) elements.get(0);
-
-                // replace the previous selection
-                featureLayer.clearSelection();
-                featureLayer.selectFeature(selected);
+                select((Feature) elements.get(0));
               } else {
                 // move selected features
                 moveSelected(mapPoint);
@@ -121,8 +187,10 @@ public class UpdateGeometriesSample extends Application {
         }
       });
 
-      // add the map view to stack pane
-      stackPane.getChildren().add(mapView);
+      // add the map view and label to stack pane
+      stackPane.getChildren().addAll(mapView, editsLabel);
+      StackPane.setAlignment(editsLabel, Pos.BOTTOM_LEFT);
+      StackPane.setMargin(editsLabel, new Insets(0, 0, 30, 10));
 
     } catch (Exception e) {
       // on any error, display the stack trace
@@ -130,6 +198,47 @@ public class UpdateGeometriesSample extends Application {
     }
   }
 
+  /**
+   * Selects a feature, replacing the previous selection.
+   *
+   * @param feature feature to select
+   */
+  private static void select(Feature feature) {
+
+    selected = feature;
+    featureLayer.clearSelection();
+    featureLayer.selectFeature(selected);
+  }
+
+  /**
+   * Starts dragging the selected feature if it is at a location, once the previous drag has its result.
+   *
+   * @param point location in the view where the mouse was pressed
+   * @return true if a drag started
+   */
+  private boolean startDrag(Point2D point) {
+
+    if (spatialIndex == null || selected == null || (lastDrag != null && !lastDrag.isSettled())) {
+      return false;
+    }
+    String objectIdField = featureTable.getFields().stream().filter(f -> f.getFieldType() == Field.Type.OID).map(
+        Field::getName).findFirst().orElse("objectid");
+    Object selectedId = selected.getAttributes().get(objectIdField);
+    for (Feature hit : spatialIndex.hitTest(mapView, point, 10, 1)) {
+      // the identified feature may be another instance of the same feature, so compare by object ID
+      Object hitId = hit.getAttributes().get(objectIdField);
+      if (hitId instanceof Number && selectedId instanceof Number && ((Number) hitId).longValue() == ((Number)
+          selectedId).longValue() && ((ArcGISFeature) hit).canUpdateGeometry()) {
+        select(hit);
+        drag = new FeatureDrag(hit, spatialIndex::updateFeatureAsync, featureTable, editSession, DRAG_SYNC_MILLIS,
+            UpdateGeometriesSample::checkEditResult);
+        lastDrag = drag;
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Updates the location of the selected features.
    * 
@@ -142,30 +251,32 @@ public class UpdateGeometriesSample extends Application {
       // update position
       f.setGeometry(newPoint);
 
-      // update the feature to display on map view
-      ListenableFuture<Void> featureTableResult = featureTable.updateFeatureAsync(f);
-      featureTableResult.addDoneListener(UpdateGeometriesSample::applyEdits);
+      // update the feature to display on map view, through the index to keep it up to date, sending it to the server
+      // along with any other moves shortly after
+      FeatureSpatialIndex index = spatialIndex;
+      if (index != null) {
+        editSession.track(featureTable, EditSession.EditType.UPDATE, f, () -> index.updateFeatureAsync(f))
+            .whenComplete(UpdateGeometriesSample::checkEditResult);
+      } else {
+        editSession.updateFeatureAsync(featureTable, f).whenComplete(UpdateGeometriesSample::checkEditResult);
+      }
     });
   }
 
   /**
-   * Sends any edits on the ServiceFeatureTable to the server.
+   * Reports a feature's edit that failed, locally or on the server.
+   *
+   * @param result server's result for the feature
+   * @param error  error of the edit, or null
    */
-  private static void applyEdits() {
-
-    // apply the changes to the server
-    ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
-    editResult.addDoneListener(() -> {
-      try {
-        List<FeatureEditResult> edits = editResult.get();
-        // check if the server edit was successful
-        if (edits != null && edits.size() > 0 && edits.get(0).hasCompletedWithErrors()) {
-          throw edits.get(0).getError();
-        }
-      } catch (InterruptedException | ExecutionException e) {
-        displayMessage("Error applying edits on server", e.getCause().getMessage());
-      }
-    });
+  private static void checkEditResult(FeatureEditResult result, Throwable error) {
+
+    if (error != null) {
+      displayMessage("Error applying edits on server", (error.getCause() != null ? error.getCause() : error)
+          .getMessage());
+    } else if (result != null && result.hasCompletedWithErrors()) {
+      displayMessage("Error applying edits on server", result.getError().getMessage());
+    }
   }
 
   /**
@@ -190,6 +301,11 @@ public class UpdateGeometriesSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    // send any edits still queued, waiting briefly so the journal has their results before the application exits
+    if (editSession != null) {
+      editSession.closeAndWait();
+    }
+
     if (mapView != null) {
       mapView.dispose();
     }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_collection_layer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams point records from CSV text with a header row, one record at a time.
+ * <p>
+ * Quoted values may contain commas, doubled quotes and line breaks. The x and y columns are found by their header:
+ * x, lon, long, longitude or lng, and y, lat or latitude. Every other column becomes an attribute holding its text.
+ */
+public class CsvRecordReader implements SourceRecordReader {
+
+  private static final List<String> X_NAMES = Arrays.asList("x", "lon", "long", "longitude", "lng");
+  private static final List<String> Y_NAMES = Arrays.asList("y", "lat", "latitude");
+
+  private final BufferedReader reader;
+  private final List<String> header;
+  private final int xColumn;
+  private final int yColumn;
+
+  /**
+   * Creates a reader and reads the header row.
+   *
+   * @param reader source of CSV text
+   * @throws IOException if reading fails or the header has no x and y columns
+   */
+  public CsvRecordReader(Reader reader) throws IOException {
+
+    this.reader = new BufferedReader(reader);
+    header = readRow();
+    if (header == null) {
+      throw new IOException("Empty CSV");
+    }
+    xColumn = findColumn(X_NAMES);
+    yColumn = findColumn(Y_NAMES);
+    if (xColumn < 0 || yColumn < 0) {
+      throw new IOException("CSV has no x and y columns");
+    }
+  }
+
+  @Override
+  public SourceRecord next() throws IOException {
+
+    List<String> row;
+    do {
+      row = readRow();
+    } while (row != null && row.size() == 1 && row.get(0).isEmpty());
+    if (row == null) {
+      return null;
+    }
+
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      if (i != xColumn && i != yColumn) {
+        String value = i < row.size() ? row.get(i) : "";
+        attributes.put(header.get(i), value.isEmpty() ? null : value);
+      }
+    }
+    try {
+      double x = Double.parseDouble(row.get(xColumn).trim());
+      double y = Double.parseDouble(row.get(yColumn).trim());
+      return new SourceRecord(attributes, SourceRecord.GeometryKind.POINT, Arrays.<Object> asList(x, y));
+    } catch (RuntimeException e) {
+      // a row without a usable location is kept as an attribute-only record
+      return new SourceRecord(attributes, null, null);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private int findColumn(List<String> names) {
+
+    for (int i = 0; i < header.size(); i++) {
+      if (names.contains(header.get(i).trim().toLowerCase(Locale.ROOT))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads one row, which may span lines if a quoted value contains a line break.
+   *
+   * @return the row's values, or null at the end of the text
+   */
+  private List<String> readRow() throws IOException {
+
+    String line = reader.readLine();
+    if (line == null) {
+      return null;
+    }
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    while (true) {
+      if (i == line.length()) {
+        if (!quoted) {
+          break;
+        }
+        // the quoted value continues on the next line
+        line = reader.readLine();
+        if (line == null) {
+          throw new IOException("Unterminated quoted value");
+        }
+        value.append('\n');
+        i = 0;
+        continue;
+      }
+      char c = line.charAt(i++);
+      if (quoted) {
+        if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+          value.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          value.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        values.add(value.toString());
+        value.setLength(0);
+      } else {
+        value.append(c);
+      }
+    }
+    values.add(value.toString());
+    return values;
+  }
+}
@@ -15,14 +15,22 @@
  */
 package com.esri.samples.featurelayers.feature_collection_layer;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.data.Feature;
@@ -48,8 +56,12 @@ import com.esri.arcgisruntime.symbology.SimpleRenderer;
 public class FeatureCollectionLayerSample extends Application {
 
   private MapView mapView;
+  private FeatureCollection featureCollection;
 
   private static final SpatialReference WGS84 = SpatialReferences.getWgs84();
+  // features added per call when loading a file, and records fields are inferred from
+  private static final int BATCH_SIZE = 5000;
+  private static final int SAMPLE_SIZE = 1000;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -58,6 +70,7 @@ public class FeatureCollectionLayerSample extends Application {
       // create stack pane and application scene
       StackPane stackPane = new StackPane();
       Scene scene = new Scene(stackPane);
+      scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // set title, size, and add scene to stage
       stage.setTitle("Feature Collection Layer Sample");
@@ -75,7 +88,7 @@ public class FeatureCollectionLayerSample extends Application {
       mapView.setViewpointCenterAsync(new Point(-79.497238, 8.849289, WGS84), 1000000);
 
       // create feature collection and add to the map as a layer
-      FeatureCollection featureCollection = new FeatureCollection();
+      featureCollection = new FeatureCollection();
       FeatureCollectionLayer featureCollectionLayer = new FeatureCollectionLayer(featureCollection);
       map.getOperationalLayers().add(featureCollectionLayer);
 
@@ -84,8 +97,43 @@ public class FeatureCollectionLayerSample extends Application {
       createPolylineTable(featureCollection);
       createPolygonTables(featureCollection);
 
-      // add the map view to stack pane
-      stackPane.getChildren().addAll(mapView);
+      // create a control panel to load features from a CSV or GeoJSON file
+      VBox vBoxControl = new VBox(6);
+      vBoxControl.setMaxSize(260, 120);
+      vBoxControl.getStyleClass().add("panel-region");
+      Button loadButton = new Button("Load CSV or GeoJSON...");
+      loadButton.setMaxWidth(Double.MAX_VALUE);
+      Label statsLabel = new Label();
+      vBoxControl.getChildren().addAll(loadButton, statsLabel);
+
+      FileChooser fileChooser = new FileChooser();
+      fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV or GeoJSON", "*.csv", "*.geojson",
+          "*.json"));
+      FeatureCollectionLoader loader = new FeatureCollectionLoader(BATCH_SIZE, SAMPLE_SIZE, WGS84);
+      loadButton.setOnAction(e -> {
+        File file = fileChooser.showOpenDialog(stage);
+        if (file != null) {
+          loadButton.setDisable(true);
+          statsLabel.setText("Loading " + file.getName() + "...");
+          loader.loadAsync(file).whenComplete((result, error) -> Platform.runLater(() -> {
+            loadButton.setDisable(false);
+            if (error != null) {
+              statsLabel.setText("Failed to load " + file.getName());
+              error.printStackTrace();
+            } else {
+              addLoadedTable(result.getTable());
+              statsLabel.setText(String.format("Features: %d (skipped %d)%n%.0f features/s in %.0f ms%n" +
+                  "Peak heap: %d MB", result.getFeatureCount(), result.getSkippedCount(), result
+                      .getFeaturesPerSecond(), result.getMillis(), result.getPeakHeapBytes() / (1024 * 1024)));
+            }
+          }));
+        }
+      });
+
+      // add the map view and control panel to stack pane
+      stackPane.getChildren().addAll(mapView, vBoxControl);
+      StackPane.setAlignment(vBoxControl, Pos.TOP_LEFT);
+      StackPane.setMargin(vBoxControl, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
@@ -194,6 +242,29 @@ public class FeatureCollectionLayerSample extends Application {
     polygonTable.addFeatureAsync(addedFeature);
   }
 
+  /**
+   * Sets a default symbol for a table loaded from a file and adds it to the feature collection.
+   *
+   * @param table loaded feature collection table
+   */
+  private void addLoadedTable(FeatureCollectionTable table) {
+
+    SimpleLineSymbol lineSymbol = new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, 0xFFFF8800, 1);
+    switch (table.getGeometryType()) {
+      case POINT:
+      case MULTIPOINT:
+        table.setRenderer(new SimpleRenderer(new SimpleMarkerSymbol(Style.CIRCLE, 0xFFFF8800, 6)));
+        break;
+      case POLYLINE:
+        table.setRenderer(new SimpleRenderer(lineSymbol));
+        break;
+      default:
+        table.setRenderer(new SimpleRenderer(new SimpleFillSymbol(SimpleFillSymbol.Style.SOLID, 0x66FF8800,
+            lineSymbol)));
+    }
+    featureCollection.getTables().add(table);
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_collection_layer;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureCollectionTable;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.GeometryType;
+import com.esri.arcgisruntime.geometry.Multipoint;
+import com.esri.arcgisruntime.geometry.Part;
+import com.esri.arcgisruntime.geometry.PartCollection;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.Polyline;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+
+/**
+ * Loads a CSV or GeoJSON file into a new {@link FeatureCollectionTable}.
+ * <p>
+ * The file is streamed, so only a batch of features is in memory at a time. Field definitions and the geometry type
+ * are inferred from the first records. Features are added with one {@link FeatureCollectionTable#addFeaturesAsync}
+ * call per batch, and the next batch is built while the previous one is being added.
+ */
+public class FeatureCollectionLoader {
+
+  private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "feature-collection-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final int batchSize;
+  private final int sampleSize;
+  private final SpatialReference spatialReference;
+
+  /**
+   * Creates a loader.
+   *
+   * @param batchSize        features added per call
+   * @param sampleSize       records fields are inferred from
+   * @param spatialReference spatial reference of the coordinates in the files
+   */
+  public FeatureCollectionLoader(int batchSize, int sampleSize, SpatialReference spatialReference) {
+
+    this.batchSize = batchSize;
+    this.sampleSize = sampleSize;
+    this.spatialReference = spatialReference;
+  }
+
+  /**
+   * Loads a file on a background thread. Files ending in .csv are read as CSV, any other file as GeoJSON.
+   *
+   * @param file file to load
+   * @return future of the loaded table and ingest statistics
+   */
+  public CompletableFuture<Result> loadAsync(File file) {
+
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return load(file);
+      } catch (Exception e) {
+        throw new RuntimeException("Failed to load " + file, e);
+      }
+    }, EXECUTOR);
+  }
+
+  private Result load(File file) throws Exception {
+
+    resetPeakHeap();
+    long start = System.nanoTime();
+    try (SourceRecordReader reader = open(file)) {
+      // buffer a prefix of the records to infer the fields from
+      List<SourceRecord> sample = new ArrayList<>();
+      SourceRecord record;
+      while (sample.size() < sampleSize && (record = reader.next()) != null) {
+        sample.add(record);
+      }
+      List<FieldInference.InferredField> inferredFields = FieldInference.infer(sample);
+      SourceRecord.GeometryKind kind = sample.stream().map(SourceRecord::getGeometryKind).filter(k -> k != null)
+          .findFirst().orElseThrow(() -> new IOException("No geometry in the first " + sample.size() + " records"));
+
+      List<Field> fields = new ArrayList<>();
+      inferredFields.forEach(field -> fields.add(toField(field)));
+      FeatureCollectionTable table = new FeatureCollectionTable(fields, toGeometryType(kind), spatialReference);
+
+      int added = 0;
+      int skipped = 0;
+      ListenableFuture<Void> inFlight = null;
+      List<Feature> batch = new ArrayList<>(batchSize);
+      int sampleIndex = 0;
+      while (true) {
+        record = sampleIndex < sample.size() ? sample.set(sampleIndex++, null) : reader.next();
+        if (record == null || batch.size() == batchSize) {
+          if (inFlight != null) {
+            inFlight.get();
+          }
+          inFlight = batch.isEmpty() ? null : table.addFeaturesAsync(batch);
+          added += batch.size();
+          batch = new ArrayList<>(batchSize);
+        }
+        if (record == null) {
+          break;
+        }
+        if (record.getGeometryKind() != kind) {
+          // a table has one geometry type, records of any other are left out
+          skipped++;
+          continue;
+        }
+        Map<String, Object> attributes = new HashMap<>();
+        for (FieldInference.InferredField field : inferredFields) {
+          Object value = field.convert(record.getAttributes().get(field.getSourceName()));
+          if (value != null) {
+            attributes.put(field.getName(), value);
+          }
+        }
+        batch.add(table.createFeature(attributes, toGeometry(kind, record.getCoordinates())));
+      }
+      if (inFlight != null) {
+        inFlight.get();
+      }
+      long nanos = System.nanoTime() - start;
+      return new Result(table, added, skipped, nanos, peakHeap());
+    }
+  }
+
+  private static SourceRecordReader open(File file) throws IOException {
+
+    Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(file)), StandardCharsets.UTF_8);
+    try {
+      return file.getName().toLowerCase(Locale.ROOT).endsWith(".csv") ? new CsvRecordReader(reader) :
+          new GeoJsonRecordReader(reader);
+    } catch (IOException e) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  private static Field toField(FieldInference.InferredField field) {
+
+    switch (field.getType()) {
+      case INTEGER:
+        return Field.createInteger(field.getName(), field.getSourceName());
+      case DOUBLE:
+        return Field.createDouble(field.getName(), field.getSourceName());
+      case DATE:
+        return Field.createDate(field.getName(), field.getSourceName());
+      default:
+        return Field.createString(field.getName(), field.getSourceName(), field.getLength());
+    }
+  }
+
+  private static GeometryType toGeometryType(SourceRecord.GeometryKind kind) {
+
+    switch (kind) {
+      case POINT:
+        return GeometryType.POINT;
+      case MULTIPOINT:
+        return GeometryType.MULTIPOINT;
+      case POLYLINE:
+        return GeometryType.POLYLINE;
+      default:
+        return GeometryType.POLYGON;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Geometry toGeometry(SourceRecord.GeometryKind kind, Object coordinates) {
+
+    switch (kind) {
+      case POINT:
+        List<Object> position = (List<Object>) coordinates;
+        return new Point(((Number) position.get(0)).doubleValue(), ((Number) position.get(1)).doubleValue(),
+            spatialReference);
+      case MULTIPOINT:
+        return new Multipoint(toPoints((List<Object>) coordinates));
+      case POLYLINE:
+        return new Polyline(toParts((List<Object>) coordinates));
+      default:
+        // GeoJSON outer rings are counter-clockwise and holes clockwise, the other way around to the runtime's, so
+        // the rings are reoriented and any self-intersections fixed
+        return GeometryEngine.simplify(new Polygon(toParts((List<Object>) coordinates)));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private PartCollection toParts(List<Object> lines) {
+
+    PartCollection parts = new PartCollection(spatialReference);
+    lines.forEach(line -> parts.add(new Part(toPoints((List<Object>) line))));
+    return parts;
+  }
+
+  @SuppressWarnings("unchecked")
+  private PointCollection toPoints(List<Object> positions) {
+
+    PointCollection points = new PointCollection(spatialReference);
+    for (Object position : positions) {
+      List<Object> xy = (List<Object>) position;
+      points.add(new Point(((Number) xy.get(0)).doubleValue(), ((Number) xy.get(1)).doubleValue()));
+    }
+    return points;
+  }
+
+  /**
+   * Starts measuring the peak usage of the heap's memory pools from now.
+   */
+  private static void resetPeakHeap() {
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * Gets the sum of the peak usage of the heap's memory pools since they were reset. The pools may peak at different
+   * times, so this is an upper bound of the heap in use at once.
+   */
+  private static long peakHeap() {
+
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /**
+   * A loaded table and how the load went.
+   */
+  public static class Result {
+
+    private final FeatureCollectionTable table;
+    private final int featureCount;
+    private final int skippedCount;
+    private final long nanos;
+    private final long peakHeapBytes;
+
+    Result(FeatureCollectionTable table, int featureCount, int skippedCount, long nanos, long peakHeapBytes) {
+
+      this.table = table;
+      this.featureCount = featureCount;
+      this.skippedCount = skippedCount;
+      this.nanos = nanos;
+      this.peakHeapBytes = peakHeapBytes;
+    }
+
+    /**
+     * Gets the loaded table.
+     *
+     * @return table holding the file's features
+     */
+    public FeatureCollectionTable getTable() {
+      return table;
+    }
+
+    /**
+     * Gets the number of features added.
+     *
+     * @return feature count
+     */
+    public int getFeatureCount() {
+      return featureCount;
+    }
+
+    /**
+     * Gets the number of records left out because their geometry type differs from the table's.
+     *
+     * @return skipped record count
+     */
+    public int getSkippedCount() {
+      return skippedCount;
+    }
+
+    /**
+     * Gets the time from opening the file to the last feature being added.
+     *
+     * @return load time in milliseconds
+     */
+    public double getMillis() {
+      return nanos / 1e6;
+    }
+
+    /**
+     * Gets the ingest throughput.
+     *
+     * @return features added per second
+     */
+    public double getFeaturesPerSecond() {
+      return nanos == 0 ? 0 : featureCount / (nanos / 1e9);
+    }
+
+    /**
+     * Gets the most heap in use while loading, including garbage not yet collected, without forcing a collection.
+     *
+     * @return peak heap bytes
+     */
+    public long getPeakHeapBytes() {
+      return peakHeapBytes;
+    }
+  }
+}
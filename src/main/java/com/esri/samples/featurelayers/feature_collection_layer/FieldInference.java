@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_collection_layer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+/**
+ * Infers field definitions from a sample of records.
+ * <p>
+ * A column is an integer if every sampled value is a whole number that fits in 32 bits, a double if every value is a
+ * number, a date if every value is an ISO 8601 date or date-time, and text otherwise. Text with a leading zero, such as
+ * a zip code or an ID, is not a number, since converting it would lose the zero, and neither is a column named like a
+ * postal code or phone number, whose sample may happen to have no such value. Text fields are sized with room
+ * to spare over the longest sampled value, since later records may be longer. Names are made safe for a field name
+ * and unique.
+ */
+public class FieldInference {
+
+  // smallest text field length, and the factor sampled lengths are scaled by
+  private static final int MIN_TEXT_LENGTH = 50;
+  private static final int TEXT_LENGTH_FACTOR = 2;
+  // names of columns holding codes made of digits, which are kept as text
+  private static final Pattern CODE_NAME = Pattern.compile("zip|postal|postcode|fips|phone",
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Type of an inferred field.
+   */
+  public enum Type {
+    TEXT, INTEGER, DOUBLE, DATE
+  }
+
+  /**
+   * Infers one field per attribute name, in the order the names first appear.
+   *
+   * @param sample records to infer from
+   * @return inferred fields
+   */
+  public static List<InferredField> infer(List<SourceRecord> sample) {
+
+    Map<String, Column> columns = new LinkedHashMap<>();
+    for (SourceRecord record : sample) {
+      record.getAttributes().forEach((name, value) -> columns.computeIfAbsent(name, n -> new Column()).add(value));
+    }
+
+    List<InferredField> fields = new ArrayList<>();
+    Set<String> usedNames = new HashSet<>();
+    columns.forEach((sourceName, column) -> {
+      String name = uniqueName(safeName(sourceName), usedNames);
+      Type type = column.type();
+      if ((type == Type.INTEGER || type == Type.DOUBLE) && CODE_NAME.matcher(sourceName).find()) {
+        type = Type.TEXT;
+      }
+      fields.add(new InferredField(name, sourceName, type, column.textLength()));
+    });
+    return fields;
+  }
+
+  private static String safeName(String sourceName) {
+
+    String name = sourceName.trim().replaceAll("[^A-Za-z0-9_]", "_");
+    if (name.isEmpty() || !Character.isLetter(name.charAt(0))) {
+      name = "f_" + name;
+    }
+    return name;
+  }
+
+  private static String uniqueName(String name, Set<String> usedNames) {
+
+    String unique = name;
+    for (int i = 2; !usedNames.add(unique.toLowerCase(Locale.ROOT)); i++) {
+      unique = name + "_" + i;
+    }
+    return unique;
+  }
+
+  /**
+   * Tracks which types every sampled value of a column could be.
+   */
+  private static class Column {
+
+    private boolean integer = true;
+    private boolean number = true;
+    private boolean date = true;
+    private boolean sawValue;
+    private int maxLength;
+
+    void add(Object value) {
+
+      if (value == null) {
+        return;
+      }
+      sawValue = true;
+      String text = String.valueOf(value);
+      maxLength = Math.max(maxLength, text.length());
+      Double parsed = toDouble(value);
+      number &= parsed != null;
+      integer &= parsed != null && parsed == Math.rint(parsed) && Math.abs(parsed) <= Integer.MAX_VALUE;
+      date &= !(value instanceof Number) && toCalendar(text) != null;
+    }
+
+    Type type() {
+
+      if (!sawValue) {
+        return Type.TEXT;
+      }
+      if (integer) {
+        return Type.INTEGER;
+      }
+      if (number) {
+        return Type.DOUBLE;
+      }
+      return date ? Type.DATE : Type.TEXT;
+    }
+
+    int textLength() {
+      return Math.max(MIN_TEXT_LENGTH, maxLength * TEXT_LENGTH_FACTOR);
+    }
+  }
+
+  private static Double toDouble(Object value) {
+
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    try {
+      String text = String.valueOf(value).trim();
+      if (text.matches("[+-]?0\\d.*")) {
+        return null;
+      }
+      double parsed = Double.parseDouble(text);
+      // NaN, Infinity and hex are valid for Java but not numbers in a CSV
+      return Double.isFinite(parsed) && !text.matches(".*[xXpPdDfF].*") ? parsed : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static Calendar toCalendar(String text) {
+
+    try {
+      OffsetDateTime dateTime;
+      if (text.length() == 10) {
+        dateTime = LocalDate.parse(text).atStartOfDay().atOffset(ZoneOffset.UTC);
+      } else if (text.endsWith("Z") || text.matches(".*[+-]\\d\\d:\\d\\d$")) {
+        dateTime = OffsetDateTime.parse(text);
+      } else {
+        dateTime = LocalDateTime.parse(text).atOffset(ZoneOffset.UTC);
+      }
+      Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+      calendar.setTimeInMillis(dateTime.toInstant().toEpochMilli());
+      return calendar;
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A field inferred from a column.
+   */
+  public static class InferredField {
+
+    private final String name;
+    private final String sourceName;
+    private final Type type;
+    private final int length;
+
+    InferredField(String name, String sourceName, Type type, int length) {
+
+      this.name = name;
+      this.sourceName = sourceName;
+      this.type = type;
+      this.length = length;
+    }
+
+    /**
+     * Gets the field name.
+     *
+     * @return name safe for a field
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets the attribute name in the file.
+     *
+     * @return source attribute name
+     */
+    public String getSourceName() {
+      return sourceName;
+    }
+
+    /**
+     * Gets the field type.
+     *
+     * @return inferred type
+     */
+    public Type getType() {
+      return type;
+    }
+
+    /**
+     * Gets the length of a text field.
+     *
+     * @return maximum text length
+     */
+    public int getLength() {
+      return length;
+    }
+
+    /**
+     * Converts a value read from the file to this field's type. Values that don't convert, such as text in a column
+     * sampled as numbers, become null; text longer than the field is truncated.
+     *
+     * @param value value as read
+     * @return an Integer, Double, Calendar or String, or null
+     */
+    public Object convert(Object value) {
+
+      if (value == null) {
+        return null;
+      }
+      switch (type) {
+        case INTEGER:
+          Double whole = toDouble(value);
+          return whole != null && whole == Math.rint(whole) && Math.abs(whole) <= Integer.MAX_VALUE ? whole
+              .intValue() : null;
+        case DOUBLE:
+          return toDouble(value);
+        case DATE:
+          return toCalendar(String.valueOf(value));
+        default:
+          // JSON numbers are read as doubles, which would otherwise add ".0" to a whole number
+          String text = value instanceof Double && (Double) value == Math.rint((Double) value) && Math.abs(
+              (Double) value) < 1e15 ? String.valueOf(((Double) value).longValue()) : String.valueOf(value);
+          return text.length() > length ? text.substring(0, length) : text;
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_collection_layer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.esri.samples.util.JsonPullReader;
+
+/**
+ * Streams records from a GeoJSON FeatureCollection, one feature at a time.
+ * <p>
+ * Only the feature being read is held in memory, so files far larger than the heap can be read. Multi-part geometries
+ * are read as one record with every part; nested property values are kept as their text.
+ */
+public class GeoJsonRecordReader implements SourceRecordReader {
+
+  private final JsonPullReader json;
+  private boolean inFeatures;
+  private boolean done;
+
+  /**
+   * Creates a reader.
+   *
+   * @param reader source of GeoJSON text
+   * @throws IOException if reading fails or the text isn't a JSON object
+   */
+  public GeoJsonRecordReader(Reader reader) throws IOException {
+
+    json = new JsonPullReader(reader);
+    json.beginObject();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public SourceRecord next() throws IOException {
+
+    if (done || !moveToFeature()) {
+      return null;
+    }
+    Object feature = json.readValue();
+    if (!(feature instanceof Map)) {
+      throw new IOException("Feature is not an object");
+    }
+    Map<String, Object> members = (Map<String, Object>) feature;
+
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    Object properties = members.get("properties");
+    if (properties instanceof Map) {
+      ((Map<String, Object>) properties).forEach((name, value) -> attributes.put(name, value instanceof Map ||
+          value instanceof List ? String.valueOf(value) : value));
+    }
+
+    Object geometry = members.get("geometry");
+    if (!(geometry instanceof Map)) {
+      return new SourceRecord(attributes, null, null);
+    }
+    Object type = ((Map<String, Object>) geometry).get("type");
+    Object coordinates = ((Map<String, Object>) geometry).get("coordinates");
+    if (coordinates == null) {
+      return new SourceRecord(attributes, null, null);
+    }
+    switch (String.valueOf(type)) {
+      case "Point":
+        return new SourceRecord(attributes, SourceRecord.GeometryKind.POINT, coordinates);
+      case "MultiPoint":
+        return new SourceRecord(attributes, SourceRecord.GeometryKind.MULTIPOINT, coordinates);
+      case "LineString":
+        List<Object> line = new ArrayList<>();
+        line.add(coordinates);
+        return new SourceRecord(attributes, SourceRecord.GeometryKind.POLYLINE, line);
+      case "MultiLineString":
+        return new SourceRecord(attributes, SourceRecord.GeometryKind.POLYLINE, coordinates);
+      case "Polygon":
+        return new SourceRecord(attributes, SourceRecord.GeometryKind.POLYGON, coordinates);
+      case "MultiPolygon":
+        // the rings of every polygon make up one multi-part polygon
+        List<Object> rings = new ArrayList<>();
+        ((List<Object>) coordinates).forEach(polygon -> rings.addAll((List<Object>) polygon));
+        return new SourceRecord(attributes, SourceRecord.GeometryKind.POLYGON, rings);
+      default:
+        return new SourceRecord(attributes, null, null);
+    }
+  }
+
+  /**
+   * Skips top level members until the features array is entered, or positions on the next feature within it.
+   *
+   * @return true if a feature is next
+   */
+  private boolean moveToFeature() throws IOException {
+
+    while (true) {
+      if (inFeatures) {
+        if (json.hasNext()) {
+          return true;
+        }
+        json.endArray();
+        inFeatures = false;
+      }
+      if (!json.hasNext()) {
+        done = true;
+        return false;
+      }
+      if (json.nextName().equals("features")) {
+        json.beginArray();
+        inFeatures = true;
+      } else {
+        json.skipValue();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    json.close();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_collection_layer;
+
+import java.util.Map;
+
+/**
+ * One record read from a CSV or GeoJSON file, before it becomes a feature.
+ * <p>
+ * Coordinates are kept as GeoJSON nests them: a position is a list of numbers, and a line or ring is a list of
+ * positions.
+ */
+public class SourceRecord {
+
+  /**
+   * Kind of geometry a record has.
+   */
+  public enum GeometryKind {
+    /** Coordinates are a position. */
+    POINT,
+    /** Coordinates are a list of positions. */
+    MULTIPOINT,
+    /** Coordinates are a list of lines. */
+    POLYLINE,
+    /** Coordinates are a list of rings. */
+    POLYGON
+  }
+
+  private final Map<String, Object> attributes;
+  private final GeometryKind geometryKind;
+  private final Object coordinates;
+
+  /**
+   * Creates a record.
+   *
+   * @param attributes   attribute values by name, as read from the file
+   * @param geometryKind kind of geometry, or null if the record has none
+   * @param coordinates  nested coordinate lists, or null if the record has no geometry
+   */
+  public SourceRecord(Map<String, Object> attributes, GeometryKind geometryKind, Object coordinates) {
+
+    this.attributes = attributes;
+    this.geometryKind = geometryKind;
+    this.coordinates = coordinates;
+  }
+
+  /**
+   * Gets the attribute values.
+   *
+   * @return attribute values by name
+   */
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  /**
+   * Gets the kind of geometry.
+   *
+   * @return geometry kind, or null if the record has none
+   */
+  public GeometryKind getGeometryKind() {
+    return geometryKind;
+  }
+
+  /**
+   * Gets the coordinates.
+   *
+   * @return nested coordinate lists, or null if the record has no geometry
+   */
+  public Object getCoordinates() {
+    return coordinates;
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_collection_layer;
+
+import java.io.IOException;
+
+/**
+ * Streams records from a file one at a time.
+ */
+public interface SourceRecordReader extends AutoCloseable {
+
+  /**
+   * Reads the next record.
+   *
+   * @return the record, or null once every record is read
+   * @throws IOException if reading fails or the file is malformed
+   */
+  SourceRecord next() throws IOException;
+
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_layer_definition_expression;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.layers.FeatureLayer;
+
+/**
+ * Loads the features of a layer into its table once, then switches the layer between named filters without asking
+ * the server again.
+ * <p>
+ * The table is put in {@link ServiceFeatureTable.FeatureRequestMode#MANUAL_CACHE} mode and filled with every feature,
+ * a page at a time, each page asking for the object IDs above the highest one loaded so far, so no page is capped by
+ * the service's max record count. Each filter's expression is then evaluated once against the local table, and the
+ * features it selects are kept as a bitset of their positions in load order. Object IDs are mapped to positions rather
+ * than used as bit indexes, so IDs of any size fit.
+ * <p>
+ * Filters are combined with bitset AND/OR. What the layer shows is driven by the resulting object IDs: they are set as
+ * the layer's definition expression, written as ranges of consecutive IDs, which a table in manual cache mode evaluates
+ * against its local features.
+ */
+public class DefinitionFilterManager {
+
+  private final FeatureLayer featureLayer;
+  private final ServiceFeatureTable featureTable;
+  private final Map<String, String> expressions = new LinkedHashMap<>();
+  private final Map<String, BitSet> results = new HashMap<>();
+  // object ID of each loaded feature, by its position in load order, ascending
+  private final List<Long> objectIds = new ArrayList<>();
+  private final Map<Long, Integer> positions = new HashMap<>();
+  private String objectIdField;
+
+  /**
+   * Creates a manager for a feature layer of a service feature table.
+   *
+   * @param featureLayer layer to filter
+   */
+  public DefinitionFilterManager(FeatureLayer featureLayer) {
+
+    this.featureLayer = featureLayer;
+    this.featureTable = (ServiceFeatureTable) featureLayer.getFeatureTable();
+    // the features are loaded once, by this manager, and the layer's filters are evaluated against them
+    featureTable.setFeatureRequestMode(ServiceFeatureTable.FeatureRequestMode.MANUAL_CACHE);
+  }
+
+  /**
+   * Adds a named filter. Filters must be added before {@link #loadAsync()}.
+   *
+   * @param name       name to apply the filter by
+   * @param expression definition expression
+   */
+  public void addFilter(String name, String expression) {
+    expressions.put(name, expression);
+  }
+
+  /**
+   * Loads every feature of the table, then evaluates each filter against them.
+   *
+   * @return future completed once every filter is evaluated
+   */
+  public CompletableFuture<Void> loadAsync() {
+
+    CompletableFuture<Void> loaded = new CompletableFuture<>();
+    featureTable.loadAsync();
+    featureTable.addDoneLoadingListener(() -> {
+      if (featureTable.getLoadError() != null) {
+        loaded.completeExceptionally(featureTable.getLoadError());
+        return;
+      }
+      objectIdField = featureTable.getFields().stream().filter(field -> field.getFieldType() == Field.Type.OID).map(
+          Field::getName).findFirst().orElse("objectid");
+      populate(-1, loaded);
+    });
+    return loaded;
+  }
+
+  /**
+   * Populates the table with a page of features, then the next page, or evaluates the filters once a page comes back
+   * empty.
+   */
+  private void populate(long lastObjectId, CompletableFuture<Void> loaded) {
+
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause(objectIdField + " > " + lastObjectId);
+    queryParams.getOrderByFields().add(new QueryParameters.OrderBy(objectIdField, QueryParameters.SortOrder
+        .ASCENDING));
+    ListenableFuture<FeatureQueryResult> page = featureTable.populateFromServiceAsync(queryParams, false,
+        Collections.singletonList("*"));
+    page.addDoneListener(() -> {
+      try {
+        long last = lastObjectId;
+        synchronized (this) {
+          for (Feature feature : page.get()) {
+            long objectId = ((Number) feature.getAttributes().get(objectIdField)).longValue();
+            if (!positions.containsKey(objectId)) {
+              positions.put(objectId, objectIds.size());
+              objectIds.add(objectId);
+            }
+            last = Math.max(last, objectId);
+          }
+        }
+        if (last > lastObjectId) {
+          populate(last, loaded);
+        } else {
+          evaluate(new ArrayList<>(expressions.keySet()), 0, loaded);
+        }
+      } catch (Exception e) {
+        loaded.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Evaluates a filter against the loaded features, then the next one. A table in manual cache mode answers queries
+   * from its local features, however many match.
+   */
+  private void evaluate(List<String> names, int index, CompletableFuture<Void> loaded) {
+
+    if (index == names.size()) {
+      loaded.complete(null);
+      return;
+    }
+    String name = names.get(index);
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause(expressions.get(name));
+    ListenableFuture<FeatureQueryResult> result = featureTable.queryFeaturesAsync(queryParams);
+    result.addDoneListener(() -> {
+      try {
+        BitSet selected = new BitSet();
+        synchronized (this) {
+          for (Feature feature : result.get()) {
+            Integer position = positions.get(((Number) feature.getAttributes().get(objectIdField)).longValue());
+            if (position != null) {
+              selected.set(position);
+            }
+          }
+          results.put(name, selected);
+        }
+        evaluate(names, index + 1, loaded);
+      } catch (Exception e) {
+        loaded.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Gets the number of features loaded, those the layer shows without a filter.
+   *
+   * @return feature count
+   */
+  public synchronized int getFeatureCount() {
+    return objectIds.size();
+  }
+
+  /**
+   * Gets the features a filter selects.
+   *
+   * @param name filter name
+   * @return copy of the filter's bitset of feature positions
+   */
+  public synchronized BitSet get(String name) {
+
+    BitSet selected = results.get(name);
+    if (selected == null) {
+      throw new IllegalArgumentException("Filter not evaluated: " + name);
+    }
+    return (BitSet) selected.clone();
+  }
+
+  /**
+   * Gets the features all of the given filters select.
+   *
+   * @param names filter names
+   * @return intersection of the filters' bitsets
+   */
+  public BitSet and(List<String> names) {
+
+    BitSet combined = null;
+    for (String name : names) {
+      if (combined == null) {
+        combined = get(name);
+      } else {
+        combined.and(get(name));
+      }
+    }
+    return combined != null ? combined : new BitSet();
+  }
+
+  /**
+   * Gets the features any of the given filters select.
+   *
+   * @param names filter names
+   * @return union of the filters' bitsets
+   */
+  public BitSet or(List<String> names) {
+
+    BitSet combined = new BitSet();
+    names.forEach(name -> combined.or(get(name)));
+    return combined;
+  }
+
+  /**
+   * Shows only the features of a filter.
+   *
+   * @param name filter name
+   */
+  public void apply(String name) {
+    show(get(name));
+  }
+
+  /**
+   * Shows only the features all of the given filters select.
+   *
+   * @param names filter names
+   */
+  public void applyAnd(List<String> names) {
+    show(and(names));
+  }
+
+  /**
+   * Shows the features any of the given filters select.
+   *
+   * @param names filter names
+   */
+  public void applyOr(List<String> names) {
+    show(or(names));
+  }
+
+  /**
+   * Shows every feature.
+   */
+  public void clear() {
+    featureLayer.setDefinitionExpression("");
+  }
+
+  /**
+   * Shows the features at the given positions, by an expression of their object IDs.
+   *
+   * @param selected bitset of feature positions, as returned by {@link #get}, {@link #and} or {@link #or}
+   */
+  public void show(BitSet selected) {
+    featureLayer.setDefinitionExpression(toExpression(selected));
+  }
+
+  /**
+   * Writes the object IDs of some features as an expression, with runs of consecutive IDs as ranges and the rest in
+   * one IN list, so a filter of most of the features stays short.
+   */
+  private synchronized String toExpression(BitSet selected) {
+
+    if (selected.cardinality() == objectIds.size()) {
+      return "";
+    }
+    List<String> terms = new ArrayList<>();
+    StringBuilder singles = new StringBuilder();
+    for (int start = selected.nextSetBit(0); start >= 0; ) {
+      // extend the run while the next loaded feature is selected and has the next object ID
+      int end = start;
+      while (selected.get(end + 1) && objectIds.get(end + 1) == objectIds.get(end) + 1) {
+        end++;
+      }
+      if (end - start >= 2) {
+        terms.add(objectIdField + " BETWEEN " + objectIds.get(start) + " AND " + objectIds.get(end));
+      } else {
+        for (int position = start; position <= end; position++) {
+          singles.append(singles.length() > 0 ? "," : "").append(objectIds.get(position));
+        }
+      }
+      start = selected.nextSetBit(end + 1);
+    }
+    if (singles.length() > 0) {
+      terms.add(objectIdField + " IN (" + singles + ")");
+    }
+    return terms.isEmpty() ? "1=0" : String.join(" OR ", terms);
+  }
+}
@@ -27,9 +27,11 @@ import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.MapView;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
@@ -38,9 +40,11 @@ public class FeatureLayerDefinitionExpressionSample extends Application {
 
   private MapView mapView;
   private FeatureLayer featureLayer;
+  private DefinitionFilterManager filterManager;
 
   private final static String FEATURE_SERVICE_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/SF311/FeatureServer/0";
+  private static final String TREE_FILTER = "trees";
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -60,25 +64,29 @@ public class FeatureLayerDefinitionExpressionSample extends Application {
 
       // create a control panel
       VBox vBoxControl = new VBox();
-      vBoxControl.setMaxSize(150, 40);
+      vBoxControl.setMaxSize(180, 60);
       vBoxControl.getStyleClass().add("panel-region");
 
       // create renderer toggle switch
       ToggleSwitch definitionSwitch = new ToggleSwitch();
       definitionSwitch.setText("expression");
+      definitionSwitch.setDisable(true);
+      Label countLabel = new Label("Loading features...");
 
-      // set the definition expression
+      // switch the filter locally, its features were evaluated once up front
       definitionSwitch.selectedProperty().addListener((observable, oldValue, newValue) -> {
         if (definitionSwitch.isSelected()) {
-          featureLayer.setDefinitionExpression("req_Type = 'Tree Maintenance or Damage'");
+          filterManager.apply(TREE_FILTER);
+          countLabel.setText("Showing: " + filterManager.get(TREE_FILTER).cardinality());
         } else {
           // reset the definition expression
-          featureLayer.setDefinitionExpression("");
+          filterManager.clear();
+          countLabel.setText("Showing: " + filterManager.getFeatureCount());
         }
       });
 
       // add buttons to the control panel
-      vBoxControl.getChildren().addAll(definitionSwitch);
+      vBoxControl.getChildren().addAll(definitionSwitch, countLabel);
 
       // create service feature table
       final ServiceFeatureTable featureTable = new ServiceFeatureTable(FEATURE_SERVICE_URL);
@@ -86,6 +94,19 @@ public class FeatureLayerDefinitionExpressionSample extends Application {
       // create feature layer from service feature table
       featureLayer = new FeatureLayer(featureTable);
 
+      // load the features once and evaluate the filter against them, so switching it doesn't ask the server again
+      filterManager = new DefinitionFilterManager(featureLayer);
+      filterManager.addFilter(TREE_FILTER, "req_Type = 'Tree Maintenance or Damage'");
+      filterManager.loadAsync().whenComplete((result, error) -> Platform.runLater(() -> {
+        if (error != null) {
+          countLabel.setText("Features failed to load");
+          error.printStackTrace();
+        } else {
+          definitionSwitch.setDisable(false);
+          countLabel.setText("Showing: " + filterManager.getFeatureCount());
+        }
+      }));
+
       // create a ArcGISMap using the basemap topographic
       final ArcGISMap map = new ArcGISMap(Basemap.createTopographic());
 
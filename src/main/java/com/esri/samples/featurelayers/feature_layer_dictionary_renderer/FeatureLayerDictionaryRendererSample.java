@@ -16,16 +16,19 @@
 
 package com.esri.samples.featurelayers.feature_layer_dictionary_renderer;
 
-import com.esri.arcgisruntime.data.Geodatabase;
-import com.esri.arcgisruntime.layers.FeatureLayer;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.symbology.DictionaryRenderer;
 import com.esri.arcgisruntime.symbology.DictionarySymbolStyle;
+import com.esri.samples.util.GeodatabaseLoader;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
@@ -39,6 +42,7 @@ public class FeatureLayerDictionaryRendererSample extends Application {
     mapView = new MapView();
     StackPane appWindow = new StackPane(mapView);
     Scene scene = new Scene(appWindow);
+    scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
     // set title, size, and add scene to stage
     stage.setTitle("Feature Layer Dictionary Renderer Sample");
@@ -50,33 +54,41 @@ public class FeatureLayerDictionaryRendererSample extends Application {
     ArcGISMap map = new ArcGISMap(Basemap.createTopographic());
     mapView.setMap(map);
 
-    // load geo-database from local location
-    Geodatabase geodatabase = new Geodatabase("./samples-data/dictionary/militaryoverlay.geodatabase");
-    geodatabase.loadAsync();
+    // shows how long each table took to load
+    Label timingsLabel = new Label("Loading...");
+    timingsLabel.getStyleClass().add("panel-region");
+    timingsLabel.setMaxSize(Label.USE_PREF_SIZE, Label.USE_PREF_SIZE);
+    appWindow.getChildren().add(timingsLabel);
+    StackPane.setAlignment(timingsLabel, Pos.TOP_LEFT);
+    StackPane.setMargin(timingsLabel, new Insets(10, 0, 0, 10));
 
     // render tells layer what symbols to apply to what features
     DictionarySymbolStyle symbolDictionary = new DictionarySymbolStyle("mil2525d");
     symbolDictionary.loadAsync();
 
-    geodatabase.addDoneLoadingListener(() -> {
-      geodatabase.getGeodatabaseFeatureTables().forEach(table -> {
-        // add each layer to map
-        FeatureLayer featureLayer = new FeatureLayer(table);
-        featureLayer.loadAsync();
-        // Features no longer show after this scale
-        featureLayer.setMinScale(1000000);
-        map.getOperationalLayers().add(featureLayer);
-
-        // displays features from layer using mil2525d symbols
-        DictionaryRenderer dictionaryRenderer = new DictionaryRenderer(symbolDictionary);
-        featureLayer.setRenderer(dictionaryRenderer);
-
-        featureLayer.addDoneLoadingListener(() -> {
-          // initial viewpoint to encompass all graphics displayed on the map view 
-          mapView.setViewpointGeometryAsync(featureLayer.getFullExtent());
-        });
-      });
-    });
+    // load geo-database from local location, with a layer for every table loading at the same time
+    GeodatabaseLoader.loadAsync("./samples-data/dictionary/militaryoverlay.geodatabase", featureLayer -> {
+      // Features no longer show after this scale
+      featureLayer.setMinScale(1000000);
+
+      // displays features from layer using mil2525d symbols
+      DictionaryRenderer dictionaryRenderer = new DictionaryRenderer(symbolDictionary);
+      featureLayer.setRenderer(dictionaryRenderer);
+    }).whenComplete((result, error) -> Platform.runLater(() -> {
+      if (error != null) {
+        timingsLabel.setText("Failed to load geodatabase");
+        error.printStackTrace();
+        return;
+      }
+      // add all layers at once
+      map.getOperationalLayers().addAll(result.getLayers());
+
+      // initial viewpoint to encompass all graphics displayed on the map view, set once for all layers
+      if (result.getExtent() != null) {
+        mapView.setViewpointGeometryAsync(result.getExtent());
+      }
+      timingsLabel.setText(result.describeTimings());
+    }));
   }
 
   /**
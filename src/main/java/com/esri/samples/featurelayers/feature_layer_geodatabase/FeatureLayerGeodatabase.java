@@ -19,16 +19,18 @@ package com.esri.samples.featurelayers.feature_layer_geodatabase;
 import java.io.File;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
-import com.esri.arcgisruntime.data.Geodatabase;
-import com.esri.arcgisruntime.data.GeodatabaseFeatureTable;
-import com.esri.arcgisruntime.layers.FeatureLayer;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.samples.util.GeodatabaseLoader;
 
 public class FeatureLayerGeodatabase extends Application {
 
@@ -42,6 +44,7 @@ public class FeatureLayerGeodatabase extends Application {
       // create stack pane and JavaFX app scene
       StackPane stackPane = new StackPane();
       Scene fxScene = new Scene(stackPane);
+      fxScene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // set title, size, and add JavaFX scene to stage
       stage.setTitle("Feature Layer Geodatabase Sample");
@@ -55,27 +58,33 @@ public class FeatureLayerGeodatabase extends Application {
       mapView = new MapView();
       mapView.setMap(map);
 
-      // create geodatabase from local resource
+      // shows how long the table took to load
+      Label timingsLabel = new Label("Loading...");
+      timingsLabel.getStyleClass().add("panel-region");
+      timingsLabel.setMaxSize(Label.USE_PREF_SIZE, Label.USE_PREF_SIZE);
+
+      // create geodatabase from local resource and load a layer for its feature table Trailheads
       String geodatabaseUrl = new File("samples-data/los_angeles/LA_Trails.geodatabase").getAbsolutePath();
-      Geodatabase geodatabase = new Geodatabase(geodatabaseUrl);
-      geodatabase.addDoneLoadingListener(() -> {
-        // access the geodatabase's feature table Trailheads
-        GeodatabaseFeatureTable geodatabaseFeatureTable = geodatabase.getGeodatabaseFeatureTable("Trailheads");
-        geodatabaseFeatureTable.loadAsync();
-        // create a layer from the geodatabase feature table above and add to map
-        FeatureLayer featureLayer = new FeatureLayer(geodatabaseFeatureTable);
-        featureLayer.addDoneLoadingListener(() -> {
-          // set viewpoint to the location of feature layer's features
-          mapView.setViewpointCenterAsync(featureLayer.getFullExtent().getCenter(), 1000000);
-        });
-        // display feature layer to the map view
-        map.getOperationalLayers().add(featureLayer);
-      });
-      // load geodatabase
-      geodatabase.loadAsync();
+      GeodatabaseLoader.loadAsync(geodatabaseUrl, "Trailheads"::equals, featureLayer -> {})
+          .whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error != null) {
+              timingsLabel.setText("Failed to load geodatabase");
+              error.printStackTrace();
+              return;
+            }
+            // display feature layer to the map view
+            map.getOperationalLayers().addAll(result.getLayers());
+            // set viewpoint to the location of feature layer's features
+            if (result.getExtent() != null) {
+              mapView.setViewpointCenterAsync(result.getExtent().getCenter(), 1000000);
+            }
+            timingsLabel.setText(result.describeTimings());
+          }));
 
       // add the map view to stack pane
-      stackPane.getChildren().addAll(mapView);
+      stackPane.getChildren().addAll(mapView, timingsLabel);
+      StackPane.setAlignment(timingsLabel, Pos.TOP_LEFT);
+      StackPane.setMargin(timingsLabel, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_layer_query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sorted, case-folded index of one attribute's values, mapping each value to the object IDs of the features that
+ * have it.
+ * <p>
+ * Exact and prefix lookups are binary searches. Fuzzy lookups compare the query with every distinct value, which is
+ * fast for the few thousand distinct values an attribute like a state name has.
+ */
+public class AttributeIndex {
+
+  private final String[] keys;
+  private final long[] objectIds;
+
+  /**
+   * Builds an index.
+   *
+   * @param valuesById attribute value of each feature by object ID, null values are not indexed
+   */
+  public AttributeIndex(Map<Long, String> valuesById) {
+
+    List<Map.Entry<Long, String>> entries = new ArrayList<>();
+    valuesById.entrySet().stream().filter(e -> e.getValue() != null).forEach(entries::add);
+    entries.sort(Comparator.comparing((Map.Entry<Long, String> e) -> fold(e.getValue())).thenComparing(
+        Map.Entry::getKey));
+
+    keys = new String[entries.size()];
+    objectIds = new long[entries.size()];
+    for (int i = 0; i < entries.size(); i++) {
+      keys[i] = fold(entries.get(i).getValue());
+      objectIds[i] = entries.get(i).getKey();
+    }
+  }
+
+  /**
+   * Gets the number of indexed features.
+   *
+   * @return indexed feature count
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  /**
+   * Finds the features whose value equals the query, ignoring case and surrounding whitespace.
+   *
+   * @param query value to find
+   * @return matching object IDs
+   */
+  public long[] exact(String query) {
+
+    String key = fold(query);
+    int from = lowerBound(key);
+    int to = from;
+    while (to < keys.length && keys[to].equals(key)) {
+      to++;
+    }
+    return Arrays.copyOfRange(objectIds, from, to);
+  }
+
+  /**
+   * Finds the features whose value starts with the query, ignoring case and surrounding whitespace.
+   *
+   * @param query prefix to find
+   * @return matching object IDs, ordered by value
+   */
+  public long[] prefix(String query) {
+
+    String key = fold(query);
+    int from = lowerBound(key);
+    int to = from;
+    while (to < keys.length && keys[to].startsWith(key)) {
+      to++;
+    }
+    return Arrays.copyOfRange(objectIds, from, to);
+  }
+
+  /**
+   * Finds the features whose value is closest to the query by edit distance, ignoring case.
+   *
+   * @param query       value to find
+   * @param maxDistance largest number of inserted, deleted or replaced characters to accept
+   * @return object IDs of the closest values, empty if none is within the distance
+   */
+  public long[] fuzzy(String query, int maxDistance) {
+
+    String key = fold(query);
+    int best = maxDistance + 1;
+    List<Long> matches = new ArrayList<>();
+    String lastKey = null;
+    int distance = best;
+    for (int i = 0; i < keys.length; i++) {
+      // identical keys are adjacent, so the distance is computed once per distinct value
+      if (!keys[i].equals(lastKey)) {
+        lastKey = keys[i];
+        distance = editDistance(key, lastKey, best);
+      }
+      if (distance > maxDistance) {
+        continue;
+      }
+      if (distance < best) {
+        best = distance;
+        matches.clear();
+      }
+      if (distance == best) {
+        matches.add(objectIds[i]);
+      }
+    }
+    return matches.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  private int lowerBound(String key) {
+
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static String fold(String value) {
+    return value.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Levenshtein distance, giving up once every path exceeds the limit.
+   */
+  private static int editDistance(String a, String b, int limit) {
+
+    if (Math.abs(a.length() - b.length()) > limit) {
+      return limit + 1;
+    }
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int rowMin = current[0];
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (rowMin > limit) {
+        return limit + 1;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+}
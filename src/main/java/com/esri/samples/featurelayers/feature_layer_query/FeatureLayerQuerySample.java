@@ -16,9 +16,14 @@
 
 package com.esri.samples.featurelayers.feature_layer_query;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.Field;
 import com.esri.arcgisruntime.data.QueryParameters;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
 import com.esri.arcgisruntime.geometry.Envelope;
@@ -56,10 +61,12 @@ public class FeatureLayerQuerySample extends Application {
   private ServiceFeatureTable featureTable;
   private Point startPoint;
   private ListenableFuture<FeatureQueryResult> tableQueryResult;
+  private AttributeIndex stateIndex;
 
   private static final String SERVICE_FEATURE_URL =
       "https://sampleserver6.arcgisonline.com/arcgis/rest/services/USA/MapServer/2";
   private static final int SCALE = 100000000;
+  private static final String STATE_NAME = "STATE_NAME";
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -128,8 +135,9 @@ public class FeatureLayerQuerySample extends Application {
       featureLayer = new FeatureLayer(featureTable);
       featureLayer.setOpacity(0.8f);
 
-      // enable search once the feature layer is loaded
-      featureLayer.addDoneLoadingListener(() -> searchBox.setDisable(false));
+      // index the state names once the feature layer is loaded, then enable search, with or without the index
+      featureLayer.addDoneLoadingListener(() -> buildStateIndex(() -> Platform.runLater(() -> searchBox.setDisable(
+          false))));
 
       // set renderer for feature layer
       featureLayer.setRenderer(new SimpleRenderer(fillSymbol));
@@ -158,15 +166,108 @@ public class FeatureLayerQuerySample extends Application {
   }
 
   /**
-   * Searches for a US state inside the current ServiceFeatureTable.
+   * Loads the state name of every feature, without geometry, into an in-memory index. If that fails, the error is
+   * reported and searches query the server instead.
+   *
+   * @param onDone called once the index is built or failed to be
+   */
+  private void buildStateIndex(Runnable onDone) {
+
+    QueryParameters query = new QueryParameters();
+    query.setWhereClause("1=1");
+    query.setReturnGeometry(false);
+
+    ListenableFuture<FeatureQueryResult> allStates = featureTable.queryFeaturesAsync(query,
+        ServiceFeatureTable.QueryFeatureFields.LOAD_ALL);
+    allStates.addDoneListener(() -> {
+      try {
+        String objectIdField = featureTable.getFields().stream().filter(field -> field.getFieldType() == Field.Type
+            .OID).map(Field::getName).findFirst().orElse("OBJECTID");
+
+        Map<Long, String> stateNames = new HashMap<>();
+        for (Feature feature : allStates.get()) {
+          Map<String, Object> attributes = feature.getAttributes();
+          stateNames.put(((Number) attributes.get(objectIdField)).longValue(), (String) attributes.get(STATE_NAME));
+        }
+        stateIndex = new AttributeIndex(stateNames);
+      } catch (Exception e) {
+        // on any error, display the stack trace and search without the index
+        e.printStackTrace();
+        Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+        Platform.runLater(() -> {
+          dialog.setContentText("Could not index the state names, searching the server instead: " + cause
+              .getMessage());
+          dialog.show();
+        });
+      }
+      onDone.run();
+    });
+  }
+
+  /**
+   * Searches for a US state in the state name index, then fetches only the matching feature.
    * 
    * @param state a US state that is being searched
    */
   private void searchForState(String state) {
 
+    if (stateIndex == null) {
+      searchServerForState(state);
+      return;
+    }
+
+    // look for an exact match, then a state starting with the text, then the closest spelling
+    long[] matches = stateIndex.exact(state);
+    if (matches.length == 0) {
+      matches = stateIndex.prefix(state);
+    }
+    if (matches.length == 0) {
+      matches = stateIndex.fuzzy(state, 2);
+    }
+    if (matches.length == 0) {
+      dialog.setContentText("State Not Found! Add a valid state name.");
+      dialog.showAndWait();
+      mapView.setViewpointCenterAsync(startPoint, SCALE);
+      return;
+    }
+
+    // query the matched state feature by object ID
+    QueryParameters query = new QueryParameters();
+    query.getObjectIds().add(matches[0]);
+
+    // get the state feature from the feature table
+    tableQueryResult = featureTable.queryFeaturesAsync(query);
+
+    tableQueryResult.addDoneListener(() -> {
+      try {
+        // get the result from the query
+        FeatureQueryResult result = tableQueryResult.get();
+        if (result.iterator().hasNext()) {
+          // get state feature and zoom to it
+          Feature feature = result.iterator().next();
+          Envelope envelope = feature.getGeometry().getExtent();
+          mapView.setViewpointGeometryAsync(envelope, 200);
+
+          // set the state feature to be selected
+          featureLayer.selectFeature(feature);
+        }
+      } catch (Exception e) {
+        // on any error, display the stack trace
+        e.printStackTrace();
+      }
+    });
+  }
+
+  /**
+   * Searches for a US state by name with a where clause, for when the state names couldn't be indexed.
+   *
+   * @param state a US state that is being searched
+   */
+  private void searchServerForState(String state) {
+
     // create a query for the state that was entered
     QueryParameters query = new QueryParameters();
-    query.setWhereClause("upper(STATE_NAME) LIKE '" + state.toUpperCase() + "'");
+    query.setWhereClause("upper(" + STATE_NAME + ") LIKE '" + state.toUpperCase().replace("'", "''") + "'");
 
     // search for the state feature in the feature table
     tableQueryResult = featureTable.queryFeaturesAsync(query);
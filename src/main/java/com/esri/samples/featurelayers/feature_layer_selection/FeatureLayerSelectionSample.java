@@ -30,17 +30,27 @@ import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.Viewpoint;
 import com.esri.arcgisruntime.mapping.view.IdentifyLayerResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.samples.util.FeatureSpatialIndex;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.RadioButton;
+import javafx.scene.control.ToggleGroup;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 public class FeatureLayerSelectionSample extends Application {
 
   private MapView mapView;
+  private FeatureSpatialIndex spatialIndex;
+  private SelectionTool selectionTool;
 
   private final String DAMAGE_ASSESSMENT_FEATURE_SERVICE =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/DamageAssessment/FeatureServer/0";
@@ -52,6 +62,7 @@ public class FeatureLayerSelectionSample extends Application {
       // create stack pane and application scene
       StackPane stackPane = new StackPane();
       Scene scene = new Scene(stackPane);
+      scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // size the stage, add a title, and set scene to stage
       stage.setTitle("Feature Layer Selection Sample");
@@ -85,6 +96,41 @@ public class FeatureLayerSelectionSample extends Application {
       // add the layer to the ArcGISMap
       map.getOperationalLayers().add(featureLayer);
 
+      // index the features locally, so clicks don't need a request to the server
+      FeatureSpatialIndex.buildAsync(serviceFeatureTable).whenComplete((index, error) -> {
+        if (error != null) {
+          error.printStackTrace();
+        } else {
+          Platform.runLater(() -> {
+            spatialIndex = index;
+            selectionTool.setSpatialIndex(index);
+          });
+        }
+      });
+
+      // create a control panel to choose what dragging on the map does
+      VBox vBoxControl = new VBox(6);
+      vBoxControl.setMaxSize(220, 140);
+      vBoxControl.getStyleClass().add("panel-region");
+      Label latencyLabel = new Label("Drag to select");
+      ToggleGroup modeGroup = new ToggleGroup();
+      for (SelectionTool.Mode mode : SelectionTool.Mode.values()) {
+        RadioButton modeButton = new RadioButton(mode == SelectionTool.Mode.PAN ? "Pan" : mode ==
+            SelectionTool.Mode.RECTANGLE ? "Rectangle select" : "Lasso select");
+        modeButton.setUserData(mode);
+        modeButton.setToggleGroup(modeGroup);
+        modeButton.setSelected(mode == SelectionTool.Mode.PAN);
+        vBoxControl.getChildren().add(modeButton);
+      }
+      vBoxControl.getChildren().add(latencyLabel);
+
+      // select the features inside a dragged rectangle or lasso, and report how long it took
+      selectionTool = new SelectionTool(mapView, featureLayer, result -> latencyLabel.setText(String.format(
+          "Selected: %d%nQuery: %.1f ms%nSelect: %.1f ms", result.getFeatures().size(), result.getQueryMillis(),
+          result.getSelectMillis())));
+      modeGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> selectionTool.setMode(
+          (SelectionTool.Mode) newValue.getUserData()));
+
       mapView.setOnMouseClicked(event -> {
         // check for primary or secondary mouse click
         if (event.isStillSincePress() && event.getButton() == MouseButton.PRIMARY) {
@@ -94,6 +140,12 @@ public class FeatureLayerSelectionSample extends Application {
           // create a point from where the user clicked
           Point2D point = new Point2D(event.getX(), event.getY());
 
+          // hit test the local index once it is built
+          if (spatialIndex != null) {
+            featureLayer.selectFeatures(spatialIndex.hitTest(mapView, point, 10, 10));
+            return;
+          }
+
           // identify the clicked features
           final ListenableFuture<IdentifyLayerResult> results = mapView.identifyLayerAsync(featureLayer, point, 10,
               false, 10);
@@ -116,8 +168,10 @@ public class FeatureLayerSelectionSample extends Application {
         }
       });
 
-      // add the map view to stack pane
-      stackPane.getChildren().add(mapView);
+      // add the map view and control panel to stack pane
+      stackPane.getChildren().addAll(mapView, vBoxControl);
+      StackPane.setAlignment(vBoxControl, Pos.TOP_LEFT);
+      StackPane.setMargin(vBoxControl, new Insets(10, 0, 0, 10));
 
     } catch (Exception e) {
       // on any error, display exception
@@ -132,6 +186,9 @@ public class FeatureLayerSelectionSample extends Application {
   public void stop() throws Exception {
 
     // release resources when the application closes
+    if (selectionTool != null) {
+      selectionTool.dispose();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
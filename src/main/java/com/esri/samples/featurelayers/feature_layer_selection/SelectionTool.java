@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_layer_selection;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.layers.FeatureLayer;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.symbology.SimpleFillSymbol;
+import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
+import com.esri.samples.util.FeatureSpatialIndex;
+
+import javafx.application.Platform;
+import javafx.event.EventHandler;
+import javafx.geometry.Point2D;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+
+/**
+ * Selects the features of a layer inside a rectangle or a freehand lasso dragged on a map view.
+ * <p>
+ * While a mode is active, dragging draws the shape instead of panning the map. On release, the shape becomes the
+ * geometry of {@link QueryParameters}, which are evaluated against a {@link FeatureSpatialIndex} of the cached
+ * features on a background thread, so the map stays responsive however many features are inside. The result is
+ * selected with a single {@link FeatureLayer#selectFeatures} call.
+ */
+public class SelectionTool {
+
+  /**
+   * Shape dragged to select.
+   */
+  public enum Mode {
+    /** Dragging pans the map. */
+    PAN,
+    /** Dragging draws a rectangle. */
+    RECTANGLE,
+    /** Dragging draws a freehand lasso. */
+    LASSO
+  }
+
+  // lasso vertices closer than this in pixels are skipped, and drags shorter than this are ignored
+  private static final double MIN_LASSO_STEP = 3;
+
+  private final MapView mapView;
+  private final FeatureLayer featureLayer;
+  private final Consumer<Result> onSelected;
+  private final GraphicsOverlay overlay = new GraphicsOverlay();
+  private final Graphic shapeGraphic;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "selection-tool");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final EventHandler<MouseEvent> mouseFilter = this::handleMouse;
+
+  private FeatureSpatialIndex spatialIndex;
+  private Mode mode = Mode.PAN;
+  private Point2D start;
+  private Point2D last;
+  private PointCollection lasso;
+
+  /**
+   * Creates a tool. Selection starts once an index is set.
+   *
+   * @param mapView      view to drag on
+   * @param featureLayer layer to select features of
+   * @param onSelected   called on the JavaFX application thread after each selection
+   */
+  public SelectionTool(MapView mapView, FeatureLayer featureLayer, Consumer<Result> onSelected) {
+
+    this.mapView = mapView;
+    this.featureLayer = featureLayer;
+    this.onSelected = onSelected;
+
+    SimpleLineSymbol outline = new SimpleLineSymbol(SimpleLineSymbol.Style.DASH, 0xFF00FFFF, 2);
+    shapeGraphic = new Graphic();
+    shapeGraphic.setSymbol(new SimpleFillSymbol(SimpleFillSymbol.Style.SOLID, 0x2200FFFF, outline));
+    overlay.getGraphics().add(shapeGraphic);
+    mapView.getGraphicsOverlays().add(overlay);
+    mapView.addEventFilter(MouseEvent.ANY, mouseFilter);
+  }
+
+  /**
+   * Sets the index of the layer's features to select from.
+   *
+   * @param spatialIndex index of the cached features
+   */
+  public void setSpatialIndex(FeatureSpatialIndex spatialIndex) {
+    this.spatialIndex = spatialIndex;
+  }
+
+  /**
+   * Sets the shape dragging draws.
+   *
+   * @param mode selection mode
+   */
+  public void setMode(Mode mode) {
+    this.mode = mode;
+  }
+
+  /**
+   * Stops handling mouse events and the background thread.
+   */
+  public void dispose() {
+
+    mapView.removeEventFilter(MouseEvent.ANY, mouseFilter);
+    executor.shutdownNow();
+  }
+
+  private void handleMouse(MouseEvent event) {
+
+    boolean drag = event.getEventType() == MouseEvent.MOUSE_PRESSED || event.getEventType() == MouseEvent
+        .MOUSE_DRAGGED || event.getEventType() == MouseEvent.MOUSE_RELEASED;
+    if (!drag || mode == Mode.PAN || spatialIndex == null || event.getButton() != MouseButton.PRIMARY) {
+      return;
+    }
+    // consumed so the map view doesn't pan
+    event.consume();
+    Point2D point = new Point2D(event.getX(), event.getY());
+    if (event.getEventType() == MouseEvent.MOUSE_PRESSED) {
+      start = point;
+      last = point;
+      lasso = new PointCollection(mapView.getSpatialReference());
+      addLassoPoint(point);
+    } else if (event.getEventType() == MouseEvent.MOUSE_DRAGGED && start != null) {
+      if (mode == Mode.RECTANGLE) {
+        shapeGraphic.setGeometry(rectanglePolygon(start, point));
+      } else if (point.distance(last) >= MIN_LASSO_STEP) {
+        last = point;
+        addLassoPoint(point);
+        if (lasso.size() >= 3) {
+          shapeGraphic.setGeometry(new Polygon(lasso));
+        }
+      }
+    } else if (event.getEventType() == MouseEvent.MOUSE_RELEASED && start != null) {
+      QueryParameters queryParams = new QueryParameters();
+      if (point.distance(start) < MIN_LASSO_STEP) {
+        // a click rather than a drag, left to the map view's click handling
+      } else if (mode == Mode.RECTANGLE) {
+        Point corner = mapView.screenToLocation(start);
+        Point opposite = mapView.screenToLocation(point);
+        if (corner != null && opposite != null) {
+          queryParams.setGeometry(new Envelope(corner, opposite));
+        }
+      } else if (lasso.size() >= 3) {
+        queryParams.setGeometry(new Polygon(lasso));
+      }
+      start = null;
+      shapeGraphic.setGeometry(null);
+      if (queryParams.getGeometry() != null) {
+        select(queryParams);
+      }
+    }
+  }
+
+  private void addLassoPoint(Point2D screenPoint) {
+
+    Point location = mapView.screenToLocation(screenPoint);
+    if (location != null) {
+      lasso.add(location);
+    }
+  }
+
+  private Polygon rectanglePolygon(Point2D corner, Point2D opposite) {
+
+    PointCollection points = new PointCollection(mapView.getSpatialReference());
+    for (Point2D screenPoint : new Point2D[] {corner, new Point2D(opposite.getX(), corner.getY()), opposite,
+        new Point2D(corner.getX(), opposite.getY())}) {
+      Point location = mapView.screenToLocation(screenPoint);
+      if (location != null) {
+        points.add(location);
+      }
+    }
+    return new Polygon(points);
+  }
+
+  /**
+   * Evaluates the query against the index off the JavaFX application thread, then selects the result in one batch.
+   */
+  private void select(QueryParameters queryParams) {
+
+    FeatureSpatialIndex index = spatialIndex;
+    long released = System.nanoTime();
+    CompletableFuture.supplyAsync(() -> index.query(queryParams), executor).whenComplete((features, error) ->
+        Platform.runLater(() -> {
+          if (error != null) {
+            error.printStackTrace();
+            return;
+          }
+          long queried = System.nanoTime();
+          featureLayer.clearSelection();
+          featureLayer.selectFeatures(features);
+          long selected = System.nanoTime();
+          onSelected.accept(new Result(features, (queried - released) / 1e6, (selected - queried) / 1e6));
+        }));
+  }
+
+  /**
+   * Features selected by a drag and how long it took.
+   */
+  public static class Result {
+
+    private final List<Feature> features;
+    private final double queryMillis;
+    private final double selectMillis;
+
+    Result(List<Feature> features, double queryMillis, double selectMillis) {
+
+      this.features = features;
+      this.queryMillis = queryMillis;
+      this.selectMillis = selectMillis;
+    }
+
+    /**
+     * Gets the selected features.
+     *
+     * @return selected features
+     */
+    public List<Feature> getFeatures() {
+      return features;
+    }
+
+    /**
+     * Gets the time from releasing the mouse to the query result, including the hand off between threads.
+     *
+     * @return query latency in milliseconds
+     */
+    public double getQueryMillis() {
+      return queryMillis;
+    }
+
+    /**
+     * Gets the time the selectFeatures call took.
+     *
+     * @return select latency in milliseconds
+     */
+    public double getSelectMillis() {
+      return selectMillis;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.feature_layer_selection;
+
+import java.util.Random;
+
+import com.esri.samples.util.FeatureSpatialIndex;
+import com.esri.samples.util.PolygonRings;
+import com.esri.samples.util.SpatialIndex;
+
+/**
+ * Measures building and searching a {@link SpatialIndex} of one million features against a linear scan.
+ * <p>
+ * Features are small boxes scattered over the web mercator extent of the world. Point hit tests use a box of ten
+ * pixels at a city scale, rectangle hit tests a box of a few hundred pixels, and lasso hit tests check the candidates
+ * within a lasso's extent against the lasso with {@link PolygonRings}, as {@link FeatureSpatialIndex} does. Each lasso
+ * selects about 100k features. Edits replace and remove boxes until the
+ * overlay is packed into a new tree.
+ * <p>
+ * Run with <code>./gradlew run -PmainClass="com.esri.samples.featurelayers.feature_layer_selection
+ * .SpatialIndexBenchmark"</code>.
+ */
+public class SpatialIndexBenchmark {
+
+  private static final int FEATURES = 1000000;
+  private static final int QUERIES = 10000;
+  private static final int LINEAR_QUERIES = 100;
+  private static final int EDITS = 100000;
+  private static final double WORLD = 20037508.34;
+  // map units per pixel at about 1:72000, and a rectangle of 300 pixels at about 1:7000000
+  private static final double PIXEL = 19.1;
+  private static final double RECTANGLE = 300 * 1910;
+  // a lasso of this radius holds about 100k of the features
+  private static final double LASSO_RADIUS = 7.1e6;
+  private static final int LASSO_VERTICES = 256;
+  private static final int LASSOS = 20;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+
+    Random random = new Random(42);
+    long[] ids = new long[FEATURES];
+    double[] boxes = new double[FEATURES * 4];
+    for (int i = 0; i < FEATURES; i++) {
+      ids[i] = i + 1;
+      double x = (random.nextDouble() * 2 - 1) * WORLD;
+      double y = (random.nextDouble() * 2 - 1) * WORLD;
+      double size = random.nextDouble() * 200;
+      boxes[i * 4] = x;
+      boxes[i * 4 + 1] = y;
+      boxes[i * 4 + 2] = x + size;
+      boxes[i * 4 + 3] = y + size;
+    }
+
+    long start = System.nanoTime();
+    SpatialIndex index = new SpatialIndex(ids, boxes);
+    System.out.printf("build %d features: %.0f ms%n", FEATURES, (System.nanoTime() - start) / 1e6);
+
+    double[][] points = randomBoxes(random, QUERIES, 10 * PIXEL);
+    double[][] rectangles = randomBoxes(random, QUERIES, RECTANGLE);
+    report("point", index, boxes, points);
+    report("rectangle", index, boxes, rectangles);
+
+    // lasso: candidates by extent, then a point in polygon check of each, sized to select about 100k features
+    long selected = 0;
+    start = System.nanoTime();
+    for (int q = 0; q < LASSOS; q++) {
+      double centerX = (random.nextDouble() - 0.5) * WORLD;
+      double centerY = (random.nextDouble() - 0.5) * WORLD;
+      double[][] xs = new double[1][LASSO_VERTICES];
+      double[][] ys = new double[1][LASSO_VERTICES];
+      for (int v = 0; v < LASSO_VERTICES; v++) {
+        // a wobbly circle, like a hand drawn lasso
+        double radius = LASSO_RADIUS * (1 + 0.1 * Math.sin(v * 0.7));
+        xs[0][v] = centerX + radius * Math.cos(2 * Math.PI * v / LASSO_VERTICES);
+        ys[0][v] = centerY + radius * Math.sin(2 * Math.PI * v / LASSO_VERTICES);
+      }
+      PolygonRings lasso = new PolygonRings(xs, ys);
+      for (long id : index.search(centerX - LASSO_RADIUS * 1.1, centerY - LASSO_RADIUS * 1.1, centerX + LASSO_RADIUS
+          * 1.1, centerY + LASSO_RADIUS * 1.1)) {
+        int i = (int) (id - 1);
+        selected += lasso.contains(boxes[i * 4], boxes[i * 4 + 1]) ? 1 : 0;
+      }
+    }
+    System.out.printf("%-10s index %8.3f ms/query (%d selected per lasso)%n", "lasso", (System.nanoTime() - start)
+        / 1e6 / LASSOS, selected / LASSOS);
+
+    start = System.nanoTime();
+    for (int e = 0; e < EDITS; e++) {
+      long id = 1 + random.nextInt(FEATURES);
+      if (e % 2 == 0) {
+        double x = (random.nextDouble() * 2 - 1) * WORLD;
+        double y = (random.nextDouble() * 2 - 1) * WORLD;
+        index.put(id, x, y, x + 10, y + 10);
+      } else {
+        index.remove(id);
+      }
+    }
+    System.out.printf("%d edits: %.0f ms, %d rebuilds, %d features%n", EDITS, (System.nanoTime() - start) / 1e6,
+        index.getRebuildCount(), index.size());
+    report("point", index, boxes, points);
+  }
+
+  private static void report(String name, SpatialIndex index, double[] boxes, double[][] queries) {
+
+    long hits = 0;
+    long start = System.nanoTime();
+    for (double[] query : queries) {
+      hits += index.search(query[0], query[1], query[2], query[3]).length;
+    }
+    double indexMillis = (System.nanoTime() - start) / 1e6 / queries.length;
+
+    long linearHits = 0;
+    start = System.nanoTime();
+    for (int q = 0; q < LINEAR_QUERIES; q++) {
+      double[] query = queries[q];
+      for (int i = 0; i < boxes.length; i += 4) {
+        if (boxes[i] <= query[2] && boxes[i + 1] <= query[3] && boxes[i + 2] >= query[0] && boxes[i + 3] >= query[1]) {
+          linearHits++;
+        }
+      }
+    }
+    double linearMillis = (System.nanoTime() - start) / 1e6 / LINEAR_QUERIES;
+    System.out.printf("%-10s index %8.3f ms/query, linear %8.3f ms/query, %6.0fx (%d hits, %d linear)%n", name,
+        indexMillis, linearMillis, linearMillis / indexMillis, hits, linearHits);
+  }
+
+  private static double[][] randomBoxes(Random random, int count, double size) {
+
+    double[][] queries = new double[count][];
+    for (int i = 0; i < count; i++) {
+      double x = (random.nextDouble() * 2 - 1) * WORLD;
+      double y = (random.nextDouble() * 2 - 1) * WORLD;
+      queries[i] = new double[] {x, y, x + size, y + size};
+    }
+    return queries;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_cache;
+
+/**
+ * Estimates the pan velocity of a map view from successive view centers.
+ * <p>
+ * The velocity is exponentially smoothed, so a single jerky frame does not swing the prediction. A change of scale
+ * (zooming) resets the estimate, because the previous velocity no longer applies.
+ */
+public class PanPredictor {
+
+  // weight of the newest sample in the smoothed velocity
+  private static final double SMOOTHING = 0.4;
+  // samples further apart than this are not treated as one continuous pan
+  private static final double MAX_SAMPLE_GAP_SECONDS = 0.5;
+  // relative change in view width treated as a zoom
+  private static final double ZOOM_TOLERANCE = 0.01;
+
+  private double lastX = Double.NaN;
+  private double lastY;
+  private double lastWidth;
+  private long lastNanos;
+  private double velocityX;
+  private double velocityY;
+
+  /**
+   * Adds an observation of the view.
+   *
+   * @param centerX view center x in map units
+   * @param centerY view center y in map units
+   * @param width   view width in map units
+   * @param nanos   time of the observation from {@link System#nanoTime()}
+   */
+  public void update(double centerX, double centerY, double width, long nanos) {
+
+    double seconds = (nanos - lastNanos) / 1e9;
+    boolean zoomed = Math.abs(width - lastWidth) > lastWidth * ZOOM_TOLERANCE;
+    if (Double.isNaN(lastX) || zoomed || seconds > MAX_SAMPLE_GAP_SECONDS) {
+      velocityX = 0;
+      velocityY = 0;
+    } else if (seconds > 0) {
+      velocityX = SMOOTHING * (centerX - lastX) / seconds + (1 - SMOOTHING) * velocityX;
+      velocityY = SMOOTHING * (centerY - lastY) / seconds + (1 - SMOOTHING) * velocityY;
+    }
+    lastX = centerX;
+    lastY = centerY;
+    lastWidth = width;
+    lastNanos = nanos;
+  }
+
+  /**
+   * Gets the smoothed velocity along x.
+   *
+   * @return map units per second
+   */
+  public double getVelocityX() {
+    return velocityX;
+  }
+
+  /**
+   * Gets the smoothed velocity along y.
+   *
+   * @return map units per second
+   */
+  public double getVelocityY() {
+    return velocityY;
+  }
+
+  /**
+   * Gets the smoothed speed.
+   *
+   * @return map units per second
+   */
+  public double getSpeed() {
+    return Math.hypot(velocityX, velocityY);
+  }
+
+  /**
+   * Predicts where the view center will be.
+   *
+   * @param seconds time ahead to predict
+   * @return predicted center as {x, y}
+   */
+  public double[] predictCenter(double seconds) {
+    return new double[] {lastX + velocityX * seconds, lastY + velocityY * seconds};
+  }
+}
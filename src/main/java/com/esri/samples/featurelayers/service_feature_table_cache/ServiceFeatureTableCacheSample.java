@@ -26,13 +26,17 @@ import com.esri.arcgisruntime.mapping.Viewpoint;
 import com.esri.arcgisruntime.mapping.view.MapView;
 
 import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 public class ServiceFeatureTableCacheSample extends Application {
 
   private MapView mapView;
+  private ViewportPrefetcher prefetcher;
 
   private static final String FEATURE_SERVICE_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/PoolPermits/FeatureServer/0";
@@ -44,6 +48,7 @@ public class ServiceFeatureTableCacheSample extends Application {
       // create stack pane and application scene
       StackPane stackPane = new StackPane();
       Scene scene = new Scene(stackPane);
+      scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // size the stage, add a title, and set scene to stage
       stage.setTitle("Service Feature Table Cache Sample");
@@ -79,8 +84,22 @@ public class ServiceFeatureTableCacheSample extends Application {
       // set ArcGISMap to be displayed in ArcGISMap view
       mapView.setMap(map);
 
-      // add the map view to stack pane
-      stackPane.getChildren().addAll(mapView);
+      // request features ahead of the pan direction, at most 30 requests a minute
+      prefetcher = new ViewportPrefetcher(mapView, serviceFeatureTable, 30);
+      prefetcher.start();
+
+      // show how well the prefetching works
+      Label prefetchLabel = new Label();
+      prefetchLabel.getStyleClass().add("panel-region");
+      mapView.addViewpointChangedListener(e -> prefetchLabel.setText(String.format(
+          "Prefetches: %d, hit rate: %.0f%%, newly shown area prefetched: %.0f%%, wasted: ~%d KB", prefetcher
+              .getPrefetchCount(), prefetcher.getHitRate() * 100, prefetcher.getCoverage() * 100, prefetcher
+                  .getWastedBytes() / 1024)));
+
+      // add the map view and label to stack pane
+      stackPane.getChildren().addAll(mapView, prefetchLabel);
+      StackPane.setAlignment(prefetchLabel, Pos.TOP_LEFT);
+      StackPane.setMargin(prefetchLabel, new Insets(10, 0, 0, 10));
 
     } catch (Exception e) {
       // on any error, display stack trace
@@ -98,6 +117,9 @@ public class ServiceFeatureTableCacheSample extends Application {
   public void stop() throws Exception {
 
     // release resources when the application closes
+    if (prefetcher != null) {
+      prefetcher.stop();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.Part;
+import com.esri.arcgisruntime.geometry.PartCollection;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.mapping.view.ViewpointChangedListener;
+
+/**
+ * Requests features ahead of a pan for a {@link ServiceFeatureTable} in
+ * {@link ServiceFeatureTable.FeatureRequestMode#ON_INTERACTION_CACHE} mode.
+ * <p>
+ * The pan velocity is estimated from viewpoint changes. While the user pans, the strip of the extent the view is
+ * predicted to show shortly that lies outside the current view is queried, which adds its features to the table's
+ * cache before the view gets there. Requests are limited by a per minute budget.
+ * <p>
+ * Each time the view moves, the area it newly shows, outside the previous view, is compared with the strips
+ * prefetched. A prefetch counts as a hit once part of that area falls in its strip within a time window, otherwise
+ * its features count as wasted. The coverage is the fraction of all newly shown area that was prefetched.
+ */
+public class ViewportPrefetcher {
+
+  // how far ahead the view is predicted
+  private static final double LOOKAHEAD_SECONDS = 1.0;
+  // pans slower than this fraction of the view width per second are not prefetched
+  private static final double MIN_SPEED_WIDTHS_PER_SECOND = 0.25;
+  // a prefetched strip the view hasn't shown by then is counted as wasted
+  private static final long HIT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final long BUDGET_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final MapView mapView;
+  private final ServiceFeatureTable featureTable;
+  private final int maxRequestsPerMinute;
+  private final PanPredictor predictor = new PanPredictor();
+  private final ViewpointChangedListener viewpointListener = e -> viewpointChanged();
+
+  private final Deque<Long> requestTimes = new ArrayDeque<>();
+  private final List<Prefetch> pending = new ArrayList<>();
+  // xmin, ymin, xmax, ymax of the view at the previous viewpoint change
+  private double[] previousView;
+  private boolean requestInFlight;
+  private int prefetchCount;
+  private int hitCount;
+  private int missCount;
+  private long wastedBytes;
+  private long prefetchedBytes;
+  private double shownArea;
+  private double coveredArea;
+
+  /**
+   * Creates a prefetcher. Call {@link #start()} to begin watching the view.
+   *
+   * @param mapView              view whose viewpoint is watched
+   * @param featureTable         table to prefetch features for
+   * @param maxRequestsPerMinute request budget
+   */
+  public ViewportPrefetcher(MapView mapView, ServiceFeatureTable featureTable, int maxRequestsPerMinute) {
+
+    this.mapView = mapView;
+    this.featureTable = featureTable;
+    this.maxRequestsPerMinute = maxRequestsPerMinute;
+  }
+
+  /**
+   * Starts watching viewpoint changes.
+   */
+  public void start() {
+    mapView.addViewpointChangedListener(viewpointListener);
+  }
+
+  /**
+   * Stops watching viewpoint changes.
+   */
+  public void stop() {
+    mapView.removeViewpointChangedListener(viewpointListener);
+  }
+
+  private void viewpointChanged() {
+
+    if (mapView.getVisibleArea() == null) {
+      return;
+    }
+    Envelope visible = mapView.getVisibleArea().getExtent();
+    double[] view = {visible.getXMin(), visible.getYMin(), visible.getXMax(), visible.getYMax()};
+    long now = System.nanoTime();
+    double width = visible.getWidth();
+    predictor.update(visible.getCenter().getX(), visible.getCenter().getY(), width, now);
+    if (previousView != null) {
+      checkHits(subtract(view, previousView), now);
+    }
+    previousView = view;
+
+    if (predictor.getSpeed() < MIN_SPEED_WIDTHS_PER_SECOND * width) {
+      return;
+    }
+
+    // the view's extent moved to the predicted center, less what the view already shows
+    double[] center = predictor.predictCenter(LOOKAHEAD_SECONDS);
+    double height = visible.getHeight();
+    double[] predicted = {center[0] - width / 2, center[1] - height / 2, center[0] + width / 2, center[1] + height / 2};
+    List<double[]> strips = subtract(predicted, view);
+    if (!strips.isEmpty() && reserveRequest(now)) {
+      prefetch(strips, visible.getSpatialReference(), now);
+    }
+  }
+
+  /**
+   * Takes a request from the budget, unless a request is in flight or the budget is spent.
+   */
+  private synchronized boolean reserveRequest(long now) {
+
+    while (!requestTimes.isEmpty() && now - requestTimes.peekFirst() > BUDGET_WINDOW_NANOS) {
+      requestTimes.removeFirst();
+    }
+    if (requestInFlight || requestTimes.size() >= maxRequestsPerMinute) {
+      return false;
+    }
+    requestInFlight = true;
+    requestTimes.addLast(now);
+    return true;
+  }
+
+  private void prefetch(List<double[]> strips, SpatialReference spatialReference, long now) {
+
+    // one request for all strips, as a polygon with a part for each
+    PartCollection parts = new PartCollection(spatialReference);
+    for (double[] strip : strips) {
+      PointCollection points = new PointCollection(spatialReference);
+      points.add(new Point(strip[0], strip[1]));
+      points.add(new Point(strip[0], strip[3]));
+      points.add(new Point(strip[2], strip[3]));
+      points.add(new Point(strip[2], strip[1]));
+      parts.add(new Part(points));
+    }
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setGeometry(new Polygon(parts));
+
+    // in on interaction cache mode, queried features are added to the table's cache
+    ListenableFuture<FeatureQueryResult> result = featureTable.queryFeaturesAsync(queryParams);
+    result.addDoneListener(() -> {
+      long bytes = 0;
+      boolean succeeded = false;
+      try {
+        for (Feature feature : result.get()) {
+          bytes += estimateBytes(feature);
+        }
+        succeeded = true;
+      } catch (Exception e) {
+        // a failed prefetch costs nothing but budget, the layer requests the features itself
+      }
+      synchronized (this) {
+        requestInFlight = false;
+        if (succeeded) {
+          prefetchCount++;
+          prefetchedBytes += bytes;
+          pending.add(new Prefetch(strips, now, bytes));
+        }
+      }
+    });
+  }
+
+  /**
+   * Adds up how much of the newly shown area was prefetched, and settles prefetches the view showed (hits) or didn't
+   * show in time (misses).
+   *
+   * @param shown parts of the view outside the previous view
+   */
+  private synchronized void checkHits(List<double[]> shown, long now) {
+
+    for (double[] box : shown) {
+      double total = area(box);
+      double covered = 0;
+      for (Prefetch prefetch : pending) {
+        for (double[] strip : prefetch.strips) {
+          double overlap = area(intersect(box, strip));
+          if (overlap > 0) {
+            covered += overlap;
+            if (!prefetch.shown) {
+              prefetch.shown = true;
+              hitCount++;
+            }
+          }
+        }
+      }
+      shownArea += total;
+      // successive prefetches may overlap, so don't count the same area twice
+      coveredArea += Math.min(covered, total);
+    }
+
+    Iterator<Prefetch> iterator = pending.iterator();
+    while (iterator.hasNext()) {
+      Prefetch prefetch = iterator.next();
+      if (now - prefetch.nanos > HIT_WINDOW_NANOS) {
+        if (!prefetch.shown) {
+          missCount++;
+          wastedBytes += prefetch.bytes;
+        }
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of prefetches that completed.
+   *
+   * @return prefetch count
+   */
+  public synchronized int getPrefetchCount() {
+    return prefetchCount;
+  }
+
+  /**
+   * Gets the fraction of settled prefetches whose strip the view went on to show.
+   *
+   * @return hit rate between 0 and 1
+   */
+  public synchronized double getHitRate() {
+    return hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount);
+  }
+
+  /**
+   * Gets the fraction of the area newly shown by the view that had been prefetched.
+   *
+   * @return coverage between 0 and 1
+   */
+  public synchronized double getCoverage() {
+    return shownArea == 0 ? 0 : coveredArea / shownArea;
+  }
+
+  /**
+   * Gets the estimated size of prefetched features whose strip the view never showed.
+   *
+   * @return estimated wasted bytes
+   */
+  public synchronized long getWastedBytes() {
+    return wastedBytes;
+  }
+
+  /**
+   * Gets the estimated size of all prefetched features.
+   *
+   * @return estimated prefetched bytes
+   */
+  public synchronized long getPrefetchedBytes() {
+    return prefetchedBytes;
+  }
+
+  /**
+   * Splits the part of box a outside box b into at most four boxes: the full height columns left and right of b,
+   * then the rows below and above it. Boxes are xmin, ymin, xmax, ymax.
+   */
+  private static List<double[]> subtract(double[] a, double[] b) {
+
+    List<double[]> boxes = new ArrayList<>(4);
+    double[] overlap = intersect(a, b);
+    if (overlap == null) {
+      boxes.add(a);
+      return boxes;
+    }
+    if (a[0] < overlap[0]) {
+      boxes.add(new double[] {a[0], a[1], overlap[0], a[3]});
+    }
+    if (overlap[2] < a[2]) {
+      boxes.add(new double[] {overlap[2], a[1], a[2], a[3]});
+    }
+    if (a[1] < overlap[1]) {
+      boxes.add(new double[] {overlap[0], a[1], overlap[2], overlap[1]});
+    }
+    if (overlap[3] < a[3]) {
+      boxes.add(new double[] {overlap[0], overlap[3], overlap[2], a[3]});
+    }
+    return boxes;
+  }
+
+  /**
+   * Gets the box two boxes share, or null if they don't overlap.
+   */
+  private static double[] intersect(double[] a, double[] b) {
+
+    double xmin = Math.max(a[0], b[0]);
+    double ymin = Math.max(a[1], b[1]);
+    double xmax = Math.min(a[2], b[2]);
+    double ymax = Math.min(a[3], b[3]);
+    return xmin < xmax && ymin < ymax ? new double[] {xmin, ymin, xmax, ymax} : null;
+  }
+
+  private static double area(double[] box) {
+    return box == null ? 0 : (box[2] - box[0]) * (box[3] - box[1]);
+  }
+
+  /**
+   * Estimates the size of a feature in a JSON response from its geometry JSON and attribute text.
+   */
+  private static long estimateBytes(Feature feature) {
+
+    long bytes = feature.getGeometry() != null ? feature.getGeometry().toJson().length() : 0;
+    for (Object value : feature.getAttributes().values()) {
+      bytes += 8 + String.valueOf(value).length();
+    }
+    return bytes;
+  }
+
+  private static class Prefetch {
+
+    private final List<double[]> strips;
+    private final long nanos;
+    private final long bytes;
+    private boolean shown;
+
+    Prefetch(List<double[]> strips, long nanos, long bytes) {
+
+      this.strips = strips;
+      this.nanos = nanos;
+      this.bytes = bytes;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.util.Random;
+
+/**
+ * Measures the time and memory of clustering one million points with a {@link PointClusterer}.
+ * <p>
+ * Points are scattered around a few hundred hot spots over the extent of San Francisco in web mercator, like the
+ * requests of the SF311 service. For each level from a street to a regional scale, it reports the time to compute the
+ * level's cells (a recluster after zooming to a new level) and the time to find the clusters of a 1280 by 800 pixel
+ * view as it pans (a recluster within a level), and the memory the level's cells hold.
+ * <p>
+ * Run with <code>./gradlew run -PmainClass="com.esri.samples.featurelayers.service_feature_table_manual_cache
+ * .ClusterBenchmark"</code>.
+ */
+public class ClusterBenchmark {
+
+  private static final int POINTS = 1000000;
+  private static final int HOT_SPOTS = 300;
+  private static final double CENTER_X = -13627000;
+  private static final double CENTER_Y = 4547000;
+  private static final double EXTENT = 15000;
+  private static final double CELL_PIXELS = 60;
+  private static final int VIEW_WIDTH = 1280;
+  private static final int VIEW_HEIGHT = 800;
+  private static final int PANS = 1000;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+
+    Random random = new Random(42);
+    double[] spotXs = new double[HOT_SPOTS];
+    double[] spotYs = new double[HOT_SPOTS];
+    for (int s = 0; s < HOT_SPOTS; s++) {
+      spotXs[s] = CENTER_X + (random.nextDouble() - 0.5) * EXTENT;
+      spotYs[s] = CENTER_Y + (random.nextDouble() - 0.5) * EXTENT;
+    }
+    double[] xs = new double[POINTS];
+    double[] ys = new double[POINTS];
+    for (int i = 0; i < POINTS; i++) {
+      int spot = random.nextInt(HOT_SPOTS);
+      xs[i] = spotXs[spot] + random.nextGaussian() * 300;
+      ys[i] = spotYs[spot] + random.nextGaussian() * 300;
+    }
+
+    for (PointClusterer.CellShape shape : PointClusterer.CellShape.values()) {
+      PointClusterer clusterer = new PointClusterer(xs, ys, shape, CELL_PIXELS);
+      // about 1:4000 to 1:500000, as many levels as are cached
+      for (int level = 0; level <= 7; level++) {
+        double unitsPerPixel = Math.scalb(1.0, level);
+        long bytesBefore = clusterer.getCachedBytes();
+        long start = System.nanoTime();
+        clusterer.prepare(level);
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+        long levelBytes = clusterer.getCachedBytes() - bytesBefore;
+
+        double width = VIEW_WIDTH * unitsPerPixel;
+        double height = VIEW_HEIGHT * unitsPerPixel;
+        long clusters = 0;
+        start = System.nanoTime();
+        for (int p = 0; p < PANS; p++) {
+          double x = CENTER_X + (random.nextDouble() - 0.5) * EXTENT;
+          double y = CENTER_Y + (random.nextDouble() - 0.5) * EXTENT;
+          clusters += clusterer.query(level, x - width / 2, y - height / 2, x + width / 2, y + height / 2).size();
+        }
+        double panMillis = (System.nanoTime() - start) / 1e6 / PANS;
+        System.out.printf("%-4s level %d: %6d cells, %7.1f KB, build %6.1f ms, pan %6.3f ms (%d clusters per view)%n",
+            shape, level, clusterer.getCellCount(level), levelBytes / 1e3, buildMillis, panMillis, clusters / PANS);
+      }
+      System.out.printf("%-4s all levels %.1f MB%n", shape, clusterer.getCachedBytes() / 1e6);
+    }
+  }
+}
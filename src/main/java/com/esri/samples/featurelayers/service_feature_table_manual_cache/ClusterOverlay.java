@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.mapping.view.ViewpointChangedListener;
+import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
+import com.esri.arcgisruntime.symbology.TextSymbol;
+
+import javafx.application.Platform;
+
+/**
+ * Shows the clusters of a {@link PointClusterer} in a {@link GraphicsOverlay}, following the map view.
+ * <p>
+ * On every viewpoint change the clusters of the visible cells are looked up and compared with those shown: only
+ * clusters that scrolled into view are added and only those that left it are removed, so panning moves a handful of
+ * graphics. A level that isn't cached yet is computed on a background thread while the view keeps the clusters it
+ * shows, and the levels above and below are computed after it, ready for the next zoom.
+ */
+public class ClusterOverlay {
+
+  private static final int CLUSTER_COLOR = 0xDDE8590C;
+  private static final int POINT_COLOR = 0xFF0070C0;
+  private static final int LABEL_COLOR = 0xFFFFFFFF;
+
+  private final MapView mapView;
+  private final PointClusterer clusterer;
+  private final SpatialReference spatialReference;
+  private final Consumer<Update> onUpdate;
+  private final GraphicsOverlay overlay = new GraphicsOverlay();
+  private final ViewpointChangedListener viewpointListener = e -> update();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "cluster-overlay");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // graphics shown by cell key, a marker and for clusters of more than one point a label
+  private final Map<Long, Graphic[]> shown = new HashMap<>();
+  // marker symbols by size, shared by all clusters of similar counts
+  private final Map<Integer, SimpleMarkerSymbol> markerSymbols = new HashMap<>();
+  private final SimpleMarkerSymbol pointSymbol = new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, POINT_COLOR,
+      6);
+  private int shownLevel = Integer.MIN_VALUE;
+  private int buildingLevel = Integer.MIN_VALUE;
+
+  /**
+   * Creates an overlay. Call {@link #start()} to show it.
+   *
+   * @param mapView          view to show the clusters in
+   * @param clusterer        clusters of the points
+   * @param spatialReference spatial reference of the clustered points, the map view's
+   * @param onUpdate         called on the JavaFX application thread after each update
+   */
+  public ClusterOverlay(MapView mapView, PointClusterer clusterer, SpatialReference spatialReference,
+      Consumer<Update> onUpdate) {
+
+    this.mapView = mapView;
+    this.clusterer = clusterer;
+    this.spatialReference = spatialReference;
+    this.onUpdate = onUpdate;
+  }
+
+  /**
+   * Adds the overlay to the view and starts following its viewpoint.
+   */
+  public void start() {
+
+    mapView.getGraphicsOverlays().add(overlay);
+    mapView.addViewpointChangedListener(viewpointListener);
+    update();
+  }
+
+  /**
+   * Removes the overlay from the view and stops the background thread.
+   */
+  public void stop() {
+
+    mapView.removeViewpointChangedListener(viewpointListener);
+    mapView.getGraphicsOverlays().remove(overlay);
+    executor.shutdownNow();
+  }
+
+  private void update() {
+
+    if (mapView.getVisibleArea() == null || mapView.getWidth() <= 0) {
+      return;
+    }
+    Envelope visible = mapView.getVisibleArea().getExtent();
+    int level = clusterer.levelFor(visible.getWidth() / mapView.getWidth());
+    if (!clusterer.isCached(level)) {
+      build(level);
+      return;
+    }
+
+    long start = System.nanoTime();
+    List<PointClusterer.Cluster> clusters = clusterer.query(level, visible.getXMin(), visible.getYMin(), visible
+        .getXMax(), visible.getYMax());
+    if (level != shownLevel) {
+      // cell keys of another level mean other cells
+      overlay.getGraphics().clear();
+      shown.clear();
+      shownLevel = level;
+    }
+
+    Map<Long, Graphic[]> visibleGraphics = new HashMap<>();
+    List<Graphic> added = new ArrayList<>();
+    for (PointClusterer.Cluster cluster : clusters) {
+      Graphic[] graphics = shown.remove(cluster.getKey());
+      if (graphics == null) {
+        graphics = createGraphics(cluster);
+        for (Graphic graphic : graphics) {
+          added.add(graphic);
+        }
+      }
+      visibleGraphics.put(cluster.getKey(), graphics);
+    }
+    List<Graphic> removed = new ArrayList<>();
+    // whatever wasn't found in view has left it
+    for (Graphic[] graphics : shown.values()) {
+      for (Graphic graphic : graphics) {
+        removed.add(graphic);
+      }
+    }
+    overlay.getGraphics().removeAll(removed);
+    overlay.getGraphics().addAll(added);
+    shown.clear();
+    shown.putAll(visibleGraphics);
+
+    onUpdate.accept(new Update(level, clusters.size(), added.size(), removed.size(), clusterer.getBuildMillis(level),
+        (System.nanoTime() - start) / 1e6, clusterer.getCachedBytes()));
+  }
+
+  /**
+   * Computes a level in the background, then updates the view and computes the levels next to it.
+   */
+  private void build(int level) {
+
+    if (level == buildingLevel || executor.isShutdown()) {
+      return;
+    }
+    buildingLevel = level;
+    CompletableFuture<Void> prepared;
+    try {
+      prepared = CompletableFuture.runAsync(() -> clusterer.prepare(level), executor);
+    } catch (RejectedExecutionException e) {
+      // stopped
+      return;
+    }
+    prepared.whenComplete((result, error) -> {
+      if (error != null) {
+        if (!executor.isShutdown()) {
+          error.printStackTrace();
+        }
+        return;
+      }
+      Platform.runLater(() -> {
+        buildingLevel = Integer.MIN_VALUE;
+        if (!executor.isShutdown()) {
+          update();
+        }
+      });
+      // ready for zooming in or out
+      execute(() -> clusterer.prepare(level - 1));
+      execute(() -> clusterer.prepare(level + 1));
+    });
+  }
+
+  /**
+   * Runs a task on the background thread unless the overlay has been stopped, which may happen at any time.
+   */
+  private void execute(Runnable task) {
+
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      // stopped, nothing to prepare for
+    }
+  }
+
+  private Graphic[] createGraphics(PointClusterer.Cluster cluster) {
+
+    Point location = new Point(cluster.getX(), cluster.getY(), spatialReference);
+    if (cluster.getCount() == 1) {
+      return new Graphic[] {new Graphic(location, pointSymbol)};
+    }
+    // grows with the number of digits of the count
+    int size = 16 + 6 * (int) Math.log10(cluster.getCount());
+    SimpleMarkerSymbol markerSymbol = markerSymbols.computeIfAbsent(size, s -> {
+      SimpleMarkerSymbol symbol = new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, CLUSTER_COLOR, s);
+      symbol.setOutline(new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, LABEL_COLOR, 1));
+      return symbol;
+    });
+    TextSymbol labelSymbol = new TextSymbol(10, String.valueOf(cluster.getCount()), LABEL_COLOR,
+        TextSymbol.HorizontalAlignment.CENTER, TextSymbol.VerticalAlignment.MIDDLE);
+    return new Graphic[] {new Graphic(location, markerSymbol), new Graphic(location, labelSymbol)};
+  }
+
+  /**
+   * Clusters shown after a viewpoint change and how long it took.
+   */
+  public static class Update {
+
+    private final int level;
+    private final int clusterCount;
+    private final int addedCount;
+    private final int removedCount;
+    private final double buildMillis;
+    private final double updateMillis;
+    private final long cachedBytes;
+
+    Update(int level, int clusterCount, int addedCount, int removedCount, double buildMillis, double updateMillis,
+        long cachedBytes) {
+
+      this.level = level;
+      this.clusterCount = clusterCount;
+      this.addedCount = addedCount;
+      this.removedCount = removedCount;
+      this.buildMillis = buildMillis;
+      this.updateMillis = updateMillis;
+      this.cachedBytes = cachedBytes;
+    }
+
+    /**
+     * Gets the level of the view's scale.
+     *
+     * @return level
+     */
+    public int getLevel() {
+      return level;
+    }
+
+    /**
+     * Gets the number of clusters in view.
+     *
+     * @return cluster count
+     */
+    public int getClusterCount() {
+      return clusterCount;
+    }
+
+    /**
+     * Gets the number of graphics added by the update.
+     *
+     * @return added graphics
+     */
+    public int getAddedCount() {
+      return addedCount;
+    }
+
+    /**
+     * Gets the number of graphics removed by the update.
+     *
+     * @return removed graphics
+     */
+    public int getRemovedCount() {
+      return removedCount;
+    }
+
+    /**
+     * Gets the time it took to compute the level's cells.
+     *
+     * @return build time in milliseconds
+     */
+    public double getBuildMillis() {
+      return buildMillis;
+    }
+
+    /**
+     * Gets the time it took to find the clusters in view and update the graphics.
+     *
+     * @return update time in milliseconds
+     */
+    public double getUpdateMillis() {
+      return updateMillis;
+    }
+
+    /**
+     * Gets the memory held by the cached levels.
+     *
+     * @return approximate bytes of all cached cells
+     */
+    public long getCachedBytes() {
+      return cachedBytes;
+    }
+  }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureCollectionTable;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryType;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+
+/**
+ * Persists the manual cache of a {@link ServiceFeatureTable} to a {@link FeatureSnapshot} file.
+ * <p>
+ * On a warm start the snapshot is shown straight away from a {@link FeatureCollectionTable}, and only rows edited on
+ * the server since the snapshot's sync time are populated into the service table. Rows deleted on the server are not
+ * detected by the refresh; they disappear with the next full request.
+ * <p>
+ * Saves and refreshes may finish in any order. Their snapshots are written one at a time, and one older than the file
+ * already written is dropped.
+ */
+public class FeatureCacheStore {
+
+  // server and client clocks may disagree, so refresh a little further back than the last sync
+  private static final long CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private final ServiceFeatureTable featureTable;
+  private final Path file;
+  private final String editDateField;
+  private final Object writeLock = new Object();
+  private long writtenSyncTime = Long.MIN_VALUE;
+
+  /**
+   * Creates a store for a table.
+   *
+   * @param featureTable  loaded table in manual cache mode
+   * @param file          snapshot file
+   * @param editDateField the service's editor tracking field holding the last edit date
+   */
+  public FeatureCacheStore(ServiceFeatureTable featureTable, Path file, String editDateField) {
+
+    this.featureTable = featureTable;
+    this.file = file;
+    this.editDateField = editDateField;
+  }
+
+  /**
+   * Checks if a snapshot was saved before.
+   *
+   * @return true if a snapshot file exists
+   */
+  public boolean hasSnapshot() {
+    return Files.isRegularFile(file);
+  }
+
+  /**
+   * Reads the snapshot file in the background.
+   *
+   * @return future snapshot
+   */
+  public CompletableFuture<FeatureSnapshot> loadAsync() {
+
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return FeatureSnapshot.read(file);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Snapshots every feature currently in the table's cache and writes it to the file.
+   *
+   * @param syncTime epoch milliseconds at which the cache was requested from the service
+   * @return future snapshot, completed once written
+   */
+  public CompletableFuture<FeatureSnapshot> saveAsync(long syncTime) {
+
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause("1=1");
+    ListenableFuture<FeatureQueryResult> cached = featureTable.queryFeaturesAsync(queryParams);
+
+    CompletableFuture<FeatureSnapshot> saved = new CompletableFuture<>();
+    cached.addDoneListener(() -> CompletableFuture.runAsync(() -> {
+      try {
+        List<Feature> features = new ArrayList<>();
+        cached.get().forEach(features::add);
+        FeatureSnapshot snapshot = merge(syncTime, null, features);
+        write(snapshot);
+        saved.complete(snapshot);
+      } catch (Exception e) {
+        saved.completeExceptionally(e);
+      }
+    }));
+    return saved;
+  }
+
+  /**
+   * Populates the table's cache with the rows edited since the snapshot's sync time, then writes a new snapshot
+   * combining the unchanged and the edited rows. The rows already in the cache are kept. The table is loaded first
+   * if it isn't yet, so the refresh can be started as soon as the snapshot is shown.
+   *
+   * @param snapshot    snapshot loaded at startup
+   * @param whereClause where clause the snapshot was taken with
+   * @param outFields   fields to populate
+   * @return future object IDs of the edited rows, which the table's cache now holds
+   */
+  public CompletableFuture<Set<Long>> refreshAsync(FeatureSnapshot snapshot, String whereClause,
+      List<String> outFields) {
+
+    long syncTime = System.currentTimeMillis();
+    SimpleDateFormat timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    timestamp.setTimeZone(TimeZone.getTimeZone("UTC"));
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause("(" + whereClause + ") AND " + editDateField + " > timestamp '" + timestamp.format(
+        new Date(snapshot.getSyncTime() - CLOCK_SKEW_MILLIS)) + "'");
+
+    CompletableFuture<Set<Long>> refreshed = new CompletableFuture<>();
+    featureTable.addDoneLoadingListener(() -> {
+      if (featureTable.getLoadStatus() != LoadStatus.LOADED) {
+        refreshed.completeExceptionally(featureTable.getLoadError());
+        return;
+      }
+
+      // don't clear the cache, it may already hold features requested since
+      ListenableFuture<FeatureQueryResult> changed = featureTable.populateFromServiceAsync(queryParams, false,
+          outFields);
+      changed.addDoneListener(() -> CompletableFuture.runAsync(() -> {
+        try {
+          List<Feature> features = new ArrayList<>();
+          changed.get().forEach(features::add);
+          FeatureSnapshot merged = merge(syncTime, snapshot, features);
+          write(merged);
+
+          Set<Long> changedIds = new HashSet<>();
+          String objectIdField = getObjectIdField();
+          features.forEach(feature -> changedIds.add(((Number) feature.getAttributes().get(objectIdField))
+              .longValue()));
+          refreshed.complete(changedIds);
+        } catch (Exception e) {
+          refreshed.completeExceptionally(e);
+        }
+      }));
+    });
+    featureTable.loadAsync();
+    return refreshed;
+  }
+
+  /**
+   * Creates a feature collection table holding a snapshot's rows. The features are added in a single batch. The
+   * service table doesn't need to be loaded.
+   *
+   * @param snapshot   snapshot to show
+   * @param excludeIds object IDs of rows to leave out, because the service table shows a newer version
+   * @return table to add to a feature collection
+   */
+  public FeatureCollectionTable createTable(FeatureSnapshot snapshot, Set<Long> excludeIds) {
+
+    List<Field> fields = new ArrayList<>();
+    for (FeatureSnapshot.Column column : snapshot.getColumns()) {
+      switch (column.getType()) {
+        case STRING:
+          fields.add(Field.createString(column.getName(), column.getAlias(), 255));
+          break;
+        case INTEGER:
+          fields.add(Field.createInteger(column.getName(), column.getAlias()));
+          break;
+        case DOUBLE:
+          fields.add(Field.createDouble(column.getName(), column.getAlias()));
+          break;
+        case DATE:
+          fields.add(Field.createDate(column.getName(), column.getAlias()));
+          break;
+      }
+    }
+
+    SpatialReference spatialReference = SpatialReference.create(snapshot.getWkid());
+    FeatureCollectionTable table = new FeatureCollectionTable(fields, getGeometryType(snapshot), spatialReference);
+
+    List<Feature> features = new ArrayList<>(snapshot.getRowCount());
+    for (int row = 0; row < snapshot.getRowCount(); row++) {
+      if (excludeIds.contains(snapshot.getObjectId(row))) {
+        continue;
+      }
+      Map<String, Object> attributes = new HashMap<>();
+      for (FeatureSnapshot.Column column : snapshot.getColumns()) {
+        Object value = column.getValue(row);
+        if (value != null) {
+          if (column.getType() == FeatureSnapshot.ColumnType.DATE) {
+            Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+            calendar.setTimeInMillis((Long) value);
+            value = calendar;
+          }
+          attributes.put(column.getName(), value);
+        }
+      }
+      Geometry geometry = snapshot.isPoints() ? new Point(snapshot.getX(row), snapshot.getY(row), spatialReference)
+          : snapshot.getGeometryJson(row) != null ? Geometry.fromJson(snapshot.getGeometryJson(row)) : null;
+      features.add(table.createFeature(attributes, geometry));
+    }
+    table.addFeaturesAsync(features);
+    return table;
+  }
+
+  /**
+   * Gets the geometry type of a snapshot's rows from the first geometry stored.
+   */
+  private static GeometryType getGeometryType(FeatureSnapshot snapshot) {
+
+    if (snapshot.isPoints()) {
+      return GeometryType.POINT;
+    }
+    for (int row = 0; row < snapshot.getRowCount(); row++) {
+      if (snapshot.getGeometryJson(row) != null) {
+        return Geometry.fromJson(snapshot.getGeometryJson(row)).getGeometryType();
+      }
+    }
+    return GeometryType.UNKNOWN;
+  }
+
+  /**
+   * Writes a snapshot unless one synced later was written already.
+   */
+  private void write(FeatureSnapshot snapshot) throws IOException {
+
+    synchronized (writeLock) {
+      if (snapshot.getSyncTime() >= writtenSyncTime) {
+        snapshot.write(file);
+        writtenSyncTime = snapshot.getSyncTime();
+      }
+    }
+  }
+
+  /**
+   * Builds a snapshot of the given features plus the rows of a previous snapshot they do not replace.
+   */
+  private FeatureSnapshot merge(long syncTime, FeatureSnapshot previous, List<Feature> features) {
+
+    String objectIdField = getObjectIdField();
+    List<Field> fields = new ArrayList<>();
+    for (Field field : featureTable.getFields()) {
+      if (toColumnType(field) != null) {
+        fields.add(field);
+      }
+    }
+
+    Set<Long> replaced = new HashSet<>();
+    features.forEach(feature -> replaced.add(((Number) feature.getAttributes().get(objectIdField)).longValue()));
+    List<Integer> keptRows = new ArrayList<>();
+    if (previous != null) {
+      for (int row = 0; row < previous.getRowCount(); row++) {
+        if (!replaced.contains(previous.getObjectId(row))) {
+          keptRows.add(row);
+        }
+      }
+    }
+
+    int rows = keptRows.size() + features.size();
+    boolean points = featureTable.getGeometryType() == GeometryType.POINT;
+    long[] objectIds = new long[rows];
+    double[] xs = points ? new double[rows] : null;
+    double[] ys = points ? new double[rows] : null;
+    String[] geometryJson = points ? null : new String[rows];
+    Map<String, Object[]> values = new HashMap<>();
+    fields.forEach(field -> values.put(field.getName(), new Object[rows]));
+
+    int row = 0;
+    for (int keptRow : keptRows) {
+      objectIds[row] = previous.getObjectId(keptRow);
+      if (points) {
+        xs[row] = previous.getX(keptRow);
+        ys[row] = previous.getY(keptRow);
+      } else {
+        geometryJson[row] = previous.getGeometryJson(keptRow);
+      }
+      for (FeatureSnapshot.Column column : previous.getColumns()) {
+        Object[] columnValues = values.get(column.getName());
+        if (columnValues != null) {
+          columnValues[row] = column.getValue(keptRow);
+        }
+      }
+      row++;
+    }
+    for (Feature feature : features) {
+      Map<String, Object> attributes = feature.getAttributes();
+      objectIds[row] = ((Number) attributes.get(objectIdField)).longValue();
+      if (points) {
+        Point point = (Point) feature.getGeometry();
+        xs[row] = point != null ? point.getX() : Double.NaN;
+        ys[row] = point != null ? point.getY() : Double.NaN;
+      } else {
+        geometryJson[row] = feature.getGeometry() != null ? feature.getGeometry().toJson() : null;
+      }
+      for (Field field : fields) {
+        Object value = attributes.get(field.getName());
+        values.get(field.getName())[row] = value instanceof Calendar ? ((Calendar) value).getTimeInMillis() : value;
+      }
+      row++;
+    }
+
+    List<FeatureSnapshot.Column> columns = new ArrayList<>();
+    fields.forEach(field -> columns.add(new FeatureSnapshot.Column(field.getName(), field.getAlias(), toColumnType(
+        field), values.get(field.getName()))));
+    int wkid = featureTable.getSpatialReference().getWkid();
+    return points ? new FeatureSnapshot(syncTime, wkid, objectIds, xs, ys, columns)
+        : new FeatureSnapshot(syncTime, wkid, objectIds, geometryJson, columns);
+  }
+
+  private String getObjectIdField() {
+
+    return featureTable.getFields().stream().filter(field -> field.getFieldType() == Field.Type.OID).map(
+        Field::getName).findFirst().orElse("objectid");
+  }
+
+  /**
+   * Gets the column type a field is stored as, or null for fields that are not stored, like the object ID which the
+   * snapshot keeps separately.
+   */
+  private static FeatureSnapshot.ColumnType toColumnType(Field field) {
+
+    switch (field.getFieldType()) {
+      case TEXT:
+      case GLOBALID:
+      case GUID:
+        return FeatureSnapshot.ColumnType.STRING;
+      case SHORT:
+      case INTEGER:
+        return FeatureSnapshot.ColumnType.INTEGER;
+      case FLOAT:
+      case DOUBLE:
+        return FeatureSnapshot.ColumnType.DOUBLE;
+      case DATE:
+        return FeatureSnapshot.ColumnType.DATE;
+      default:
+        return null;
+    }
+  }
+}
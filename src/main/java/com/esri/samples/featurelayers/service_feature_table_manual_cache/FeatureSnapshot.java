@@ -0,0 +1,375 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact column oriented snapshot of a feature table's rows.
+ * <p>
+ * Every attribute is stored as one column of values with a null bitmap. Point geometries are stored as two columns of
+ * coordinates, any other geometry as one column of JSON. The file is gzipped and written to a temporary file first,
+ * so a crash while saving never corrupts the previous snapshot.
+ */
+public class FeatureSnapshot {
+
+  private static final int MAGIC = 0x46435332; // "FCS2"
+
+  /**
+   * Value types a column can hold. Dates are stored as epoch milliseconds.
+   */
+  public enum ColumnType {
+    STRING, INTEGER, DOUBLE, DATE
+  }
+
+  /**
+   * A named column of values.
+   */
+  public static class Column {
+
+    private final String name;
+    private final String alias;
+    private final ColumnType type;
+    private final Object[] values;
+
+    /**
+     * Creates a column.
+     *
+     * @param name   field name
+     * @param alias  field alias
+     * @param type   value type
+     * @param values one value per row, null for missing values
+     */
+    public Column(String name, String alias, ColumnType type, Object[] values) {
+
+      this.name = name;
+      this.alias = alias;
+      this.type = type;
+      this.values = values;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getAlias() {
+      return alias;
+    }
+
+    public ColumnType getType() {
+      return type;
+    }
+
+    /**
+     * Gets the value of a row.
+     *
+     * @param row row index
+     * @return value, a Long of epoch milliseconds for dates
+     */
+    public Object getValue(int row) {
+      return values[row];
+    }
+  }
+
+  private final long syncTime;
+  private final int wkid;
+  private final long[] objectIds;
+  private final double[] xs;
+  private final double[] ys;
+  private final String[] geometryJson;
+  private final List<Column> columns;
+
+  /**
+   * Creates a snapshot of point features.
+   *
+   * @param syncTime  epoch milliseconds at which the rows were known to be current
+   * @param wkid      well known ID of the coordinates' spatial reference
+   * @param objectIds object ID of each row
+   * @param xs        x coordinate of each row
+   * @param ys        y coordinate of each row
+   * @param columns   attribute columns
+   */
+  public FeatureSnapshot(long syncTime, int wkid, long[] objectIds, double[] xs, double[] ys, List<Column> columns) {
+    this(syncTime, wkid, objectIds, xs, ys, null, columns);
+  }
+
+  /**
+   * Creates a snapshot of features with any type of geometry.
+   *
+   * @param syncTime     epoch milliseconds at which the rows were known to be current
+   * @param wkid         well known ID of the geometries' spatial reference
+   * @param objectIds    object ID of each row
+   * @param geometryJson JSON of each row's geometry
+   * @param columns      attribute columns
+   */
+  public FeatureSnapshot(long syncTime, int wkid, long[] objectIds, String[] geometryJson, List<Column> columns) {
+    this(syncTime, wkid, objectIds, null, null, geometryJson, columns);
+  }
+
+  private FeatureSnapshot(long syncTime, int wkid, long[] objectIds, double[] xs, double[] ys, String[] geometryJson,
+      List<Column> columns) {
+
+    this.syncTime = syncTime;
+    this.wkid = wkid;
+    this.objectIds = objectIds;
+    this.xs = xs;
+    this.ys = ys;
+    this.geometryJson = geometryJson;
+    this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+  }
+
+  public long getSyncTime() {
+    return syncTime;
+  }
+
+  public int getWkid() {
+    return wkid;
+  }
+
+  public int getRowCount() {
+    return objectIds.length;
+  }
+
+  public long getObjectId(int row) {
+    return objectIds[row];
+  }
+
+  /**
+   * Checks if geometries are stored as point coordinates.
+   *
+   * @return true for points, false for geometry JSON
+   */
+  public boolean isPoints() {
+    return geometryJson == null;
+  }
+
+  public double getX(int row) {
+    return xs[row];
+  }
+
+  public double getY(int row) {
+    return ys[row];
+  }
+
+  public String getGeometryJson(int row) {
+    return geometryJson[row];
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Writes the snapshot, replacing any existing file only once the new one is complete.
+   *
+   * @param file file to write
+   * @throws IOException if writing fails
+   */
+  public void write(Path file) throws IOException {
+
+    // a temporary file of its own, so writers never share one
+    Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files
+          .newOutputStream(temp))))) {
+        write(out);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+  }
+
+  private void write(DataOutputStream out) throws IOException {
+
+    out.writeInt(MAGIC);
+    out.writeLong(syncTime);
+    out.writeInt(wkid);
+    out.writeInt(objectIds.length);
+    for (long objectId : objectIds) {
+      out.writeLong(objectId);
+    }
+
+    out.writeBoolean(isPoints());
+    if (isPoints()) {
+      for (double x : xs) {
+        out.writeDouble(x);
+      }
+      for (double y : ys) {
+        out.writeDouble(y);
+      }
+    } else {
+      for (String json : geometryJson) {
+        writeString(out, json);
+      }
+    }
+
+    out.writeInt(columns.size());
+    for (Column column : columns) {
+      out.writeUTF(column.name);
+      out.writeUTF(column.alias != null ? column.alias : column.name);
+      out.writeByte(column.type.ordinal());
+      BitSet present = new BitSet(objectIds.length);
+      for (int row = 0; row < objectIds.length; row++) {
+        present.set(row, column.values[row] != null);
+      }
+      byte[] bitmap = present.toByteArray();
+      out.writeInt(bitmap.length);
+      out.write(bitmap);
+      for (int row = 0; row < objectIds.length; row++) {
+        if (present.get(row)) {
+          writeValue(out, column.type, column.values[row]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a snapshot.
+   *
+   * @param file file to read
+   * @return the snapshot
+   * @throws IOException if the file is missing, unreadable or not a snapshot
+   */
+  public static FeatureSnapshot read(Path file) throws IOException {
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(
+        file))))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a feature snapshot: " + file);
+      }
+      long syncTime = in.readLong();
+      int wkid = in.readInt();
+      int rows = in.readInt();
+      long[] objectIds = new long[rows];
+      for (int row = 0; row < rows; row++) {
+        objectIds[row] = in.readLong();
+      }
+
+      boolean points = in.readBoolean();
+      double[] xs = null;
+      double[] ys = null;
+      String[] geometryJson = null;
+      if (points) {
+        xs = new double[rows];
+        ys = new double[rows];
+        for (int row = 0; row < rows; row++) {
+          xs[row] = in.readDouble();
+        }
+        for (int row = 0; row < rows; row++) {
+          ys[row] = in.readDouble();
+        }
+      } else {
+        geometryJson = new String[rows];
+        for (int row = 0; row < rows; row++) {
+          geometryJson[row] = readString(in);
+        }
+      }
+
+      int columnCount = in.readInt();
+      List<Column> columns = new ArrayList<>(columnCount);
+      for (int c = 0; c < columnCount; c++) {
+        String name = in.readUTF();
+        String alias = in.readUTF();
+        ColumnType type = ColumnType.values()[in.readByte()];
+        byte[] bitmap = new byte[in.readInt()];
+        in.readFully(bitmap);
+        BitSet present = BitSet.valueOf(bitmap);
+        Object[] values = new Object[rows];
+        for (int row = 0; row < rows; row++) {
+          if (present.get(row)) {
+            values[row] = readValue(in, type);
+          }
+        }
+        columns.add(new Column(name, alias, type, values));
+      }
+      return new FeatureSnapshot(syncTime, wkid, objectIds, xs, ys, geometryJson, columns);
+    }
+  }
+
+  private static void writeValue(DataOutputStream out, ColumnType type, Object value) throws IOException {
+
+    switch (type) {
+      case STRING:
+        writeString(out, value.toString());
+        break;
+      case INTEGER:
+        out.writeInt(((Number) value).intValue());
+        break;
+      case DATE:
+        out.writeLong(((Number) value).longValue());
+        break;
+      case DOUBLE:
+        out.writeDouble(((Number) value).doubleValue());
+        break;
+    }
+  }
+
+  private static Object readValue(DataInputStream in, ColumnType type) throws IOException {
+
+    switch (type) {
+      case STRING:
+        return readString(in);
+      case INTEGER:
+        return in.readInt();
+      case DATE:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      default:
+        throw new IOException("Unknown column type " + type);
+    }
+  }
+
+  // writeUTF is limited to 64 KB, which long text and polygon JSON can exceed
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
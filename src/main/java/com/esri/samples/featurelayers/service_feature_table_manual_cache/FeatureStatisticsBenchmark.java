@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.esri.samples.util.FeatureServiceQuery;
+
+/**
+ * Compares the bytes and time of fetching every feature to count them with the server side queries used by
+ * {@link FeatureTableStatistics}. The features are fetched in pages of ascending object ID, since one query returns at
+ * most the service's maximum record count.
+ * <p>
+ * Run with <code>./gradlew run -PmainClass="com.esri.samples.featurelayers.service_feature_table_manual_cache
+ * .FeatureStatisticsBenchmark"</code>.
+ */
+public class FeatureStatisticsBenchmark {
+
+  private static final String SERVICE_FEATURE_URL =
+      "http://sampleserver6.arcgisonline.com/arcgis/rest/services/SF311/FeatureServer/0";
+  private static final String WHERE_CLAUSE = "req_type = 'Tree Maintenance or Damage'";
+  private static final int RUNS = 5;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args unused
+   * @throws IOException if a request fails
+   */
+  public static void main(String[] args) throws IOException {
+
+    Map<String, String> count = FeatureServiceQuery.where(WHERE_CLAUSE);
+    count.put("returnCountOnly", "true");
+
+    Map<String, String> extent = FeatureServiceQuery.where(WHERE_CLAUSE);
+    extent.put("returnExtentOnly", "true");
+
+    Map<String, String> grouped = FeatureServiceQuery.where("1=1");
+    grouped.put("outStatistics",
+        "[{\"statisticType\":\"count\",\"onStatisticField\":\"objectid\",\"outStatisticFieldName\":\"stat_value\"}]");
+    grouped.put("groupByFieldsForStatistics", "req_type");
+
+    Result baseline = run("all features", FeatureStatisticsBenchmark::queryAllFeatures);
+    System.out.println(baseline);
+    for (Result result : new Result[] {run("count only", query -> query.query(count)), run("extent only", query -> query
+        .query(extent)), run("grouped counts", query -> query.query(grouped))}) {
+      System.out.println(result + String.format("  saved %d bytes (%.1f%%), %.1f ms per query", baseline.bytes -
+          result.bytes, 100.0 * (baseline.bytes - result.bytes) / baseline.bytes, baseline.millis - result.millis));
+    }
+  }
+
+  private static Result run(String name, Request request) throws IOException {
+
+    // warm up the connection
+    request.send(new FeatureServiceQuery(SERVICE_FEATURE_URL));
+
+    FeatureServiceQuery query = new FeatureServiceQuery(SERVICE_FEATURE_URL);
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      request.send(query);
+    }
+    return new Result(name, query.getBytesReceived() / RUNS, query.getRequestCount() / RUNS, (System.nanoTime()
+        - start) / 1e6 / RUNS);
+  }
+
+  /**
+   * Fetches every matching feature with its attributes and geometry, querying the features with an object ID above
+   * the highest one fetched so far until the server says there are no more.
+   */
+  private static void queryAllFeatures(FeatureServiceQuery query) throws IOException {
+
+    long lastObjectId = -1;
+    while (true) {
+      Map<String, String> page = FeatureServiceQuery.where("(" + WHERE_CLAUSE + ") AND objectid > " + lastObjectId);
+      page.put("outFields", "*");
+      page.put("returnGeometry", "true");
+      page.put("orderByFields", "objectid ASC");
+      Map<String, Object> response = query.query(page);
+      List<?> features = (List<?>) response.get("features");
+      if (features == null || features.isEmpty()) {
+        return;
+      }
+      for (Object feature : features) {
+        Object objectId = ((Map<?, ?>) ((Map<?, ?>) feature).get("attributes")).get("objectid");
+        lastObjectId = Math.max(lastObjectId, ((Number) objectId).longValue());
+      }
+      if (!Boolean.TRUE.equals(response.get("exceededTransferLimit"))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Requests whose bytes and time are measured.
+   */
+  private interface Request {
+
+    void send(FeatureServiceQuery query) throws IOException;
+  }
+
+  private static class Result {
+
+    private final String name;
+    private final long bytes;
+    private final int requests;
+    private final double millis;
+
+    Result(String name, long bytes, int requests, double millis) {
+
+      this.name = name;
+      this.bytes = bytes;
+      this.requests = requests;
+      this.millis = millis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-15s %10d bytes %4d requests %9.1f ms", name, bytes, requests, millis);
+    }
+  }
+}
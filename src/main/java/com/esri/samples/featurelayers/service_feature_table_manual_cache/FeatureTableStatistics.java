@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.data.GeodatabaseFeatureTable;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.samples.util.FeatureServiceQuery;
+
+/**
+ * Count, extent and grouped statistics queries over a feature table.
+ * <p>
+ * For a {@link ServiceFeatureTable} the work is done by the server, which returns only the numbers instead of every
+ * feature and geometry. For a {@link GeodatabaseFeatureTable} (or any other local table) the features are read from
+ * disk and summarized on the client. Results are cached per query until {@link #invalidate()} is called.
+ * <p>
+ * The runtime doesn't notify edits to a table, so whoever edits, refreshes or repopulates the table must call
+ * {@link #invalidate()}, or results computed before the change are returned.
+ */
+public class FeatureTableStatistics {
+
+  /**
+   * Statistic to compute per group.
+   */
+  public enum StatisticType {
+    COUNT, SUM, MIN, MAX, AVG
+  }
+
+  private final FeatureTable featureTable;
+  private final FeatureServiceQuery serviceQuery;
+  private final Map<String, CompletableFuture<?>> cache = new ConcurrentHashMap<>();
+  private final AtomicInteger cacheHits = new AtomicInteger();
+
+  /**
+   * Creates statistics for a loaded table.
+   *
+   * @param featureTable service or geodatabase feature table
+   */
+  public FeatureTableStatistics(FeatureTable featureTable) {
+
+    this.featureTable = featureTable;
+    this.serviceQuery = featureTable instanceof ServiceFeatureTable ? new FeatureServiceQuery(((ServiceFeatureTable)
+        featureTable).getUri()) : null;
+  }
+
+  /**
+   * Counts the features matching a where clause.
+   *
+   * @param whereClause where clause selecting the features
+   * @return future feature count
+   */
+  public CompletableFuture<Long> countAsync(String whereClause) {
+
+    return cached("count|" + whereClause, () -> {
+      if (serviceQuery != null) {
+        return supplyRemote(() -> {
+          Map<String, String> parameters = FeatureServiceQuery.where(whereClause);
+          parameters.put("returnCountOnly", "true");
+          return ((Number) query(parameters).get("count")).longValue();
+        });
+      }
+      return queryLocal(whereClause).thenApply(features -> {
+        long count = 0;
+        for (Feature ignored : features) {
+          count++;
+        }
+        return count;
+      });
+    });
+  }
+
+  /**
+   * Gets the extent of the features matching a where clause.
+   *
+   * @param whereClause where clause selecting the features
+   * @return future extent, completed with null if no feature matches
+   */
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<Envelope> extentAsync(String whereClause) {
+
+    return cached("extent|" + whereClause, () -> {
+      if (serviceQuery != null) {
+        return supplyRemote(() -> {
+          Map<String, String> parameters = FeatureServiceQuery.where(whereClause);
+          parameters.put("returnExtentOnly", "true");
+          Map<String, Object> extent = (Map<String, Object>) query(parameters).get("extent");
+          if (extent == null || extent.get("xmin") == null) {
+            return null;
+          }
+          Map<String, Object> spatialReference = (Map<String, Object>) extent.get("spatialReference");
+          return new Envelope(number(extent, "xmin"), number(extent, "ymin"), number(extent, "xmax"), number(extent,
+              "ymax"), spatialReference != null && spatialReference.get("wkid") != null ? SpatialReference.create(
+                  (int) number(spatialReference, "wkid")) : featureTable.getSpatialReference());
+        });
+      }
+      return queryLocal(whereClause).thenApply(features -> {
+        double xmin = Double.POSITIVE_INFINITY;
+        double ymin = Double.POSITIVE_INFINITY;
+        double xmax = Double.NEGATIVE_INFINITY;
+        double ymax = Double.NEGATIVE_INFINITY;
+        for (Feature feature : features) {
+          if (feature.getGeometry() != null && !feature.getGeometry().isEmpty()) {
+            Envelope envelope = feature.getGeometry().getExtent();
+            xmin = Math.min(xmin, envelope.getXMin());
+            ymin = Math.min(ymin, envelope.getYMin());
+            xmax = Math.max(xmax, envelope.getXMax());
+            ymax = Math.max(ymax, envelope.getYMax());
+          }
+        }
+        return xmin > xmax ? null : new Envelope(xmin, ymin, xmax, ymax, featureTable.getSpatialReference());
+      });
+    });
+  }
+
+  /**
+   * Computes a statistic of a field per distinct value of another field.
+   *
+   * @param whereClause  where clause selecting the features
+   * @param groupByField field whose values form the groups
+   * @param type         statistic to compute
+   * @param onField      field the statistic is computed on
+   * @return future statistic per group value
+   */
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<Map<Object, Double>> groupedAsync(String whereClause, String groupByField,
+      StatisticType type, String onField) {
+
+    String key = "grouped|" + whereClause + "|" + groupByField + "|" + type + "|" + onField;
+    return cached(key, () -> {
+      if (serviceQuery != null) {
+        return supplyRemote(() -> {
+          Map<String, String> parameters = FeatureServiceQuery.where(whereClause);
+          parameters.put("outStatistics", "[{\"statisticType\":\"" + type.name().toLowerCase() +
+              "\",\"onStatisticField\":\"" + onField + "\",\"outStatisticFieldName\":\"stat_value\"}]");
+          parameters.put("groupByFieldsForStatistics", groupByField);
+          Map<Object, Double> groups = new LinkedHashMap<>();
+          for (Object feature : (List<Object>) query(parameters).get("features")) {
+            Map<String, Object> attributes = (Map<String, Object>) ((Map<String, Object>) feature).get("attributes");
+            Object value = attributes.get("stat_value");
+            groups.put(attributes.get(groupByField), value != null ? ((Number) value).doubleValue() : null);
+          }
+          return Collections.unmodifiableMap(groups);
+        });
+      }
+      return queryLocal(whereClause).thenApply(features -> {
+        Map<Object, double[]> accumulators = new HashMap<>();
+        for (Feature feature : features) {
+          Object value = feature.getAttributes().get(onField);
+          if (value == null && type != StatisticType.COUNT) {
+            continue;
+          }
+          double number = value instanceof Number ? ((Number) value).doubleValue() : 0;
+          // count, sum, min, max
+          double[] accumulator = accumulators.computeIfAbsent(feature.getAttributes().get(groupByField), g ->
+              new double[] {0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+          accumulator[0]++;
+          accumulator[1] += number;
+          accumulator[2] = Math.min(accumulator[2], number);
+          accumulator[3] = Math.max(accumulator[3], number);
+        }
+        Map<Object, Double> groups = new LinkedHashMap<>();
+        accumulators.forEach((group, accumulator) -> groups.put(group, type == StatisticType.COUNT ? accumulator[0]
+            : type == StatisticType.SUM ? accumulator[1] : type == StatisticType.MIN ? accumulator[2]
+            : type == StatisticType.MAX ? accumulator[3] : accumulator[1] / accumulator[0]));
+        return Collections.unmodifiableMap(groups);
+      });
+    });
+  }
+
+  /**
+   * Forgets all cached results, e.g. after the table was edited or repopulated.
+   */
+  public void invalidate() {
+    cache.clear();
+  }
+
+  /**
+   * Gets the number of queries answered from the cache.
+   *
+   * @return cache hits
+   */
+  public int getCacheHits() {
+    return cacheHits.get();
+  }
+
+  /**
+   * Gets the bytes received for server side queries.
+   *
+   * @return bytes received, 0 for local tables
+   */
+  public long getBytesReceived() {
+    return serviceQuery != null ? serviceQuery.getBytesReceived() : 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> CompletableFuture<T> cached(String key, Supplier<CompletableFuture<T>> compute) {
+
+    // only one of several concurrent callers with the same key starts the query
+    boolean[] computed = new boolean[1];
+    CompletableFuture<T> result = (CompletableFuture<T>) cache.computeIfAbsent(key, k -> {
+      computed[0] = true;
+      return compute.get();
+    });
+    if (!computed[0]) {
+      cacheHits.incrementAndGet();
+      return result;
+    }
+    // don't keep failures, so the query is tried again next time. This runs outside computeIfAbsent, since a result
+    // that already failed would remove itself while the map is being updated.
+    result.whenComplete((value, error) -> {
+      if (error != null) {
+        cache.remove(key, result);
+      }
+    });
+    return result;
+  }
+
+  private Map<String, Object> query(Map<String, String> parameters) {
+
+    try {
+      return serviceQuery.query(parameters);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static <T> CompletableFuture<T> supplyRemote(Supplier<T> request) {
+    return CompletableFuture.supplyAsync(request);
+  }
+
+  private CompletableFuture<FeatureQueryResult> queryLocal(String whereClause) {
+
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause(whereClause);
+    ListenableFuture<FeatureQueryResult> query = featureTable.queryFeaturesAsync(queryParams);
+    CompletableFuture<FeatureQueryResult> result = new CompletableFuture<>();
+    query.addDoneListener(() -> {
+      try {
+        result.complete(query.get());
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  private static double number(Map<String, Object> json, String name) {
+    return ((Number) json.get(name)).doubleValue();
+  }
+}
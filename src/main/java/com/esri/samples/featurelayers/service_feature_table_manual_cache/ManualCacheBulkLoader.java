@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.samples.util.FeatureServiceQuery;
+
+/**
+ * Populates a {@link ServiceFeatureTable} in manual cache mode with several concurrent requests.
+ * <p>
+ * The object IDs matching the where clause are fetched first with a single ids-only query, which the server does not
+ * cap at its max record count. The IDs are then split into ranges that are each requested with
+ * {@link ServiceFeatureTable#populateFromServiceAsync} without clearing the cache, so the results merge.
+ */
+public class ManualCacheBulkLoader {
+
+  private final ServiceFeatureTable featureTable;
+  private final int rangeSize;
+  private final int maxConcurrentRequests;
+
+  /**
+   * Creates a loader for a feature table.
+   *
+   * @param featureTable          loaded table in manual cache mode
+   * @param rangeSize             object IDs per request, should not exceed the service's max record count
+   * @param maxConcurrentRequests maximum number of requests in flight at once
+   */
+  public ManualCacheBulkLoader(ServiceFeatureTable featureTable, int rangeSize, int maxConcurrentRequests) {
+
+    this.featureTable = featureTable;
+    this.rangeSize = rangeSize;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  /**
+   * Clears the cache and populates it with every feature matching a where clause.
+   *
+   * @param whereClause where clause selecting the features
+   * @param outFields   fields to populate, "*" for all
+   * @return future statistics of the load, completed when every range was populated
+   */
+  public CompletableFuture<Statistics> loadAsync(String whereClause, List<String> outFields) {
+
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return queryObjectIds(whereClause);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to query object IDs", e);
+      }
+    }).thenCompose(objectIds -> populateRanges(objectIds, outFields));
+  }
+
+  /**
+   * Asks the service for the object IDs matching a where clause.
+   *
+   * @param whereClause where clause selecting the features
+   * @return sorted object IDs
+   * @throws IOException if the request fails
+   */
+  @SuppressWarnings("unchecked")
+  List<Long> queryObjectIds(String whereClause) throws IOException {
+
+    Map<String, String> parameters = FeatureServiceQuery.where(whereClause);
+    parameters.put("returnIdsOnly", "true");
+    FeatureServiceQuery serviceQuery = new FeatureServiceQuery(featureTable.getUri());
+    List<Object> ids = (List<Object>) serviceQuery.query(parameters).get("objectIds");
+
+    List<Long> objectIds = new ArrayList<>();
+    if (ids != null) {
+      ids.forEach(id -> objectIds.add(((Number) id).longValue()));
+    }
+    Collections.sort(objectIds);
+    return objectIds;
+  }
+
+  private CompletableFuture<Statistics> populateRanges(List<Long> objectIds, List<String> outFields) {
+
+    List<List<Long>> ranges = new ArrayList<>();
+    for (int i = 0; i < objectIds.size(); i += rangeSize) {
+      ranges.add(objectIds.subList(i, Math.min(objectIds.size(), i + rangeSize)));
+    }
+
+    Statistics statistics = new Statistics(ranges.size());
+    CompletableFuture<Statistics> done = new CompletableFuture<>();
+    if (ranges.isEmpty()) {
+      done.complete(statistics.finish());
+      return done;
+    }
+
+    // clear once up front, every range request then merges into the cache
+    featureTable.clearCache(false);
+    AtomicInteger nextRange = new AtomicInteger();
+    AtomicInteger remaining = new AtomicInteger(ranges.size());
+    for (int i = 0; i < Math.min(maxConcurrentRequests, ranges.size()); i++) {
+      populateNext(ranges, nextRange, remaining, outFields, statistics, done);
+    }
+    return done;
+  }
+
+  /**
+   * Requests the next unrequested range. When the request finishes, the following range is requested, so at most
+   * the initial number of requests are in flight.
+   */
+  private void populateNext(List<List<Long>> ranges, AtomicInteger nextRange, AtomicInteger remaining,
+      List<String> outFields, Statistics statistics, CompletableFuture<Statistics> done) {
+
+    int index = nextRange.getAndIncrement();
+    if (index >= ranges.size() || done.isDone()) {
+      return;
+    }
+
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.getObjectIds().addAll(ranges.get(index));
+
+    long start = System.nanoTime();
+    ListenableFuture<FeatureQueryResult> result = featureTable.populateFromServiceAsync(queryParams, false, outFields);
+    result.addDoneListener(() -> {
+      try {
+        int count = 0;
+        for (Object ignored : result.get()) {
+          count++;
+        }
+        statistics.record(count, System.nanoTime() - start);
+      } catch (Exception e) {
+        done.completeExceptionally(e);
+        return;
+      }
+
+      if (remaining.decrementAndGet() == 0) {
+        done.complete(statistics.finish());
+      } else {
+        populateNext(ranges, nextRange, remaining, outFields, statistics, done);
+      }
+    });
+  }
+
+  /**
+   * Throughput and latency of a bulk load.
+   */
+  public static class Statistics {
+
+    private final int requestCount;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong features = new AtomicLong();
+    private final List<Long> requestNanos = Collections.synchronizedList(new ArrayList<>());
+    private volatile long elapsedNanos;
+
+    private Statistics(int requestCount) {
+      this.requestCount = requestCount;
+    }
+
+    private void record(int featureCount, long nanos) {
+
+      features.addAndGet(featureCount);
+      requestNanos.add(nanos);
+    }
+
+    private Statistics finish() {
+
+      elapsedNanos = System.nanoTime() - startNanos;
+      return this;
+    }
+
+    /**
+     * Gets the number of features populated.
+     *
+     * @return feature count
+     */
+    public long getFeatureCount() {
+      return features.get();
+    }
+
+    /**
+     * Gets the number of ranged requests made.
+     *
+     * @return request count
+     */
+    public int getRequestCount() {
+      return requestCount;
+    }
+
+    /**
+     * Gets the features populated per second over the whole load.
+     *
+     * @return features per second
+     */
+    public double getFeaturesPerSecond() {
+      return elapsedNanos == 0 ? 0 : features.get() / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Gets the time of each ranged request, in the order they finished.
+     *
+     * @return request latencies in milliseconds
+     */
+    public List<Double> getRequestLatenciesMillis() {
+
+      List<Double> millis = new ArrayList<>();
+      synchronized (requestNanos) {
+        requestNanos.forEach(nanos -> millis.add(nanos / 1e6));
+      }
+      return millis;
+    }
+
+    /**
+     * Gets the mean time of a ranged request.
+     *
+     * @return mean request latency in milliseconds
+     */
+    public double getMeanRequestMillis() {
+      return getRequestLatenciesMillis().stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    }
+
+    /**
+     * Gets the slowest ranged request.
+     *
+     * @return max request latency in milliseconds
+     */
+    public double getMaxRequestMillis() {
+      return getRequestLatenciesMillis().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+    }
+  }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.featurelayers.service_feature_table_manual_cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates points into square or hexagonal cells of a fixed size on screen.
+ * <p>
+ * Scales are snapped to levels a power of two apart, and a level's cells are computed once for all points: each point
+ * is hashed into its cell, then the cells are sorted by row and column. Showing the clusters of a view then only looks
+ * up the rows it covers, so panning and zooming within a level never touch the points again. Recently used levels are
+ * kept, so zooming back and forth is as cheap as panning.
+ */
+public class PointClusterer {
+
+  /**
+   * Shape of the cells points are aggregated into.
+   */
+  public enum CellShape {
+    /** Square cells. */
+    GRID,
+    /** Hexagonal cells, with pointy tops. */
+    HEX
+  }
+
+  // levels kept for zooming back, the finest levels hold about one cell per point
+  private static final int MAX_CACHED_LEVELS = 8;
+  // levels finer than this would give cells smaller than a map unit for a typical cell size
+  private static final int MIN_LEVEL = -10;
+  // bytes per cell: key, count, and centroid
+  private static final int CELL_BYTES = 8 + 4 + 8 + 8;
+  private static final double SQRT3 = Math.sqrt(3);
+
+  private final double[] xs;
+  private final double[] ys;
+  private final CellShape shape;
+  private final double cellPixels;
+  private final Map<Integer, Level> levels = new LinkedHashMap<Integer, Level>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, Level> eldest) {
+      return size() > MAX_CACHED_LEVELS;
+    }
+  };
+
+  /**
+   * Creates a clusterer. The coordinates are not copied.
+   *
+   * @param xs         x of each point, in map units
+   * @param ys         y of each point, in map units
+   * @param shape      shape of the cells
+   * @param cellPixels width of a cell on screen
+   */
+  public PointClusterer(double[] xs, double[] ys, CellShape shape, double cellPixels) {
+
+    if (xs.length != ys.length || cellPixels <= 0) {
+      throw new IllegalArgumentException("Expected one y per x and a positive cell size");
+    }
+    this.xs = xs;
+    this.ys = ys;
+    this.shape = shape;
+    this.cellPixels = cellPixels;
+  }
+
+  /**
+   * Gets the level of a scale, the power of two at or below its map units per pixel.
+   *
+   * @param unitsPerPixel map units per pixel of the view
+   * @return level
+   */
+  public int levelFor(double unitsPerPixel) {
+    return Math.max(MIN_LEVEL, (int) Math.floor(Math.log(unitsPerPixel) / Math.log(2)));
+  }
+
+  /**
+   * Checks whether a level's cells are computed, so {@link #query} returns without aggregating the points.
+   *
+   * @param level level to check
+   * @return true if the level is cached
+   */
+  public synchronized boolean isCached(int level) {
+    return levels.containsKey(level);
+  }
+
+  /**
+   * Computes a level's cells, unless they are cached.
+   *
+   * @param level level to compute
+   */
+  public void prepare(int level) {
+    level(level);
+  }
+
+  /**
+   * Gets the clusters of the cells intersecting an extent, computing the level's cells first if needed.
+   *
+   * @param level level of the view's scale
+   * @param minX  extent min x
+   * @param minY  extent min y
+   * @param maxX  extent max x
+   * @param maxY  extent max y
+   * @return clusters of at least one point
+   */
+  public List<Cluster> query(int level, double minX, double minY, double maxX, double maxY) {
+
+    Level cells = level(level);
+    List<Cluster> clusters = new ArrayList<>();
+    // a hexagon reaches into the rows and columns next to its own
+    int fromRow = row(minY, cells.size) - 1;
+    int toRow = row(maxY, cells.size) + 1;
+    int fromColumn = column(minX, cells.size) - 1;
+    int toColumn = column(maxX, cells.size) + 1;
+    for (int row = fromRow; row <= toRow; row++) {
+      long last = key(row, toColumn);
+      int i = Arrays.binarySearch(cells.keys, key(row, fromColumn));
+      for (i = i < 0 ? -i - 1 : i; i < cells.keys.length && cells.keys[i] <= last; i++) {
+        clusters.add(new Cluster(cells.keys[i], cells.counts[i], cells.centerXs[i], cells.centerYs[i]));
+      }
+    }
+    return clusters;
+  }
+
+  /**
+   * Gets the memory held by the cached levels.
+   *
+   * @return approximate bytes of all cached cells
+   */
+  public synchronized long getCachedBytes() {
+
+    long bytes = 0;
+    for (Level level : levels.values()) {
+      bytes += (long) level.keys.length * CELL_BYTES;
+    }
+    return bytes;
+  }
+
+  /**
+   * Gets the number of cells of a cached level.
+   *
+   * @param level level to check
+   * @return cell count, or -1 if the level isn't cached
+   */
+  public synchronized int getCellCount(int level) {
+
+    Level cells = levels.get(level);
+    return cells == null ? -1 : cells.keys.length;
+  }
+
+  /**
+   * Gets the time it took to compute a cached level's cells.
+   *
+   * @param level level to check
+   * @return build time in milliseconds, or -1 if the level isn't cached
+   */
+  public synchronized double getBuildMillis(int level) {
+
+    Level cells = levels.get(level);
+    return cells == null ? -1 : cells.buildMillis;
+  }
+
+  private Level level(int level) {
+
+    synchronized (this) {
+      Level cells = levels.get(level);
+      if (cells != null) {
+        return cells;
+      }
+    }
+    // built outside the lock, so queries of cached levels aren't held up by a build
+    Level cells = build(cellPixels * Math.scalb(1.0, level));
+    synchronized (this) {
+      levels.put(level, cells);
+    }
+    return cells;
+  }
+
+  /**
+   * Hashes every point into its cell, then sorts the cells by row and column.
+   */
+  private Level build(double size) {
+
+    long start = System.nanoTime();
+    CellTable table = new CellTable(Math.max(16, xs.length / 4));
+    for (int i = 0; i < xs.length; i++) {
+      table.add(cellKey(xs[i], ys[i], size), xs[i], ys[i]);
+    }
+
+    long[] keys = table.keys();
+    Arrays.sort(keys);
+    int[] counts = new int[keys.length];
+    double[] centerXs = new double[keys.length];
+    double[] centerYs = new double[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      int slot = table.slot(keys[i]);
+      counts[i] = table.counts[slot];
+      centerXs[i] = table.sumXs[slot] / counts[i];
+      centerYs[i] = table.sumYs[slot] / counts[i];
+    }
+    return new Level(size, keys, counts, centerXs, centerYs, (System.nanoTime() - start) / 1e6);
+  }
+
+  /**
+   * Gets the key of the cell holding a point.
+   */
+  private long cellKey(double x, double y, double size) {
+
+    if (shape == CellShape.GRID) {
+      return key((int) Math.floor(y / size), (int) Math.floor(x / size));
+    }
+    // rows of hexagons of the given width, odd rows shifted by half a hexagon; the point is in the hexagon of the
+    // nearest center, one of the two nearest on the row and the rows above or below
+    double dy = hexRowHeight(size);
+    double py = y / dy;
+    int row = (int) Math.round(py);
+    double px = x / size - (row & 1) / 2.0;
+    int column = (int) Math.round(px);
+    double offsetY = py - row;
+    if (Math.abs(offsetY) * 3 > 1) {
+      double offsetX = px - column;
+      int otherRow = row + (py < row ? -1 : 1);
+      double otherPx = x / size - (otherRow & 1) / 2.0;
+      int otherColumn = (int) Math.round(otherPx);
+      double otherOffsetX = otherPx - otherColumn;
+      double otherOffsetY = py - otherRow;
+      // distances in units of a row, where a column is sqrt(3) / 1.5 rows wide
+      double scale = size / dy;
+      if (offsetX * offsetX * scale * scale + offsetY * offsetY > otherOffsetX * otherOffsetX * scale * scale
+          + otherOffsetY * otherOffsetY) {
+        row = otherRow;
+        column = otherColumn;
+      }
+    }
+    return key(row, column);
+  }
+
+  private int row(double y, double size) {
+    return (int) Math.floor(y / (shape == CellShape.GRID ? size : hexRowHeight(size)));
+  }
+
+  private int column(double x, double size) {
+    return (int) Math.floor(x / size);
+  }
+
+  /**
+   * Gets the distance between rows of hexagons whose width is the cell size: three quarters of their height.
+   */
+  private static double hexRowHeight(double size) {
+    return size / SQRT3 * 1.5;
+  }
+
+  /**
+   * Combines a row and column into a key that sorts by row, then column.
+   */
+  private static long key(int row, int column) {
+    return ((long) row << 32) | ((column ^ 0x80000000) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Points aggregated into a cell.
+   */
+  public static class Cluster {
+
+    private final long key;
+    private final int count;
+    private final double x;
+    private final double y;
+
+    Cluster(long key, int count, double x, double y) {
+
+      this.key = key;
+      this.count = count;
+      this.x = x;
+      this.y = y;
+    }
+
+    /**
+     * Gets the key of the cell, unique within a level.
+     *
+     * @return cell key
+     */
+    public long getKey() {
+      return key;
+    }
+
+    /**
+     * Gets the number of points in the cell.
+     *
+     * @return point count
+     */
+    public int getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the x of the centroid of the cell's points.
+     *
+     * @return centroid x
+     */
+    public double getX() {
+      return x;
+    }
+
+    /**
+     * Gets the y of the centroid of the cell's points.
+     *
+     * @return centroid y
+     */
+    public double getY() {
+      return y;
+    }
+  }
+
+  /**
+   * Cells of a level, sorted by key.
+   */
+  private static class Level {
+
+    final double size;
+    final long[] keys;
+    final int[] counts;
+    final double[] centerXs;
+    final double[] centerYs;
+    final double buildMillis;
+
+    Level(double size, long[] keys, int[] counts, double[] centerXs, double[] centerYs, double buildMillis) {
+
+      this.size = size;
+      this.keys = keys;
+      this.counts = counts;
+      this.centerXs = centerXs;
+      this.centerYs = centerYs;
+      this.buildMillis = buildMillis;
+    }
+  }
+
+  /**
+   * Open addressing hash table of cell sums by key.
+   */
+  private static class CellTable {
+
+    private long[] slotKeys;
+    private int[] counts;
+    private double[] sumXs;
+    private double[] sumYs;
+    private int size;
+
+    CellTable(int expected) {
+      allocate(Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) * 2);
+    }
+
+    void add(long key, double x, double y) {
+
+      int slot = slot(key);
+      if (counts[slot] == 0) {
+        slotKeys[slot] = key;
+        size++;
+      }
+      counts[slot]++;
+      sumXs[slot] += x;
+      sumYs[slot] += y;
+      if (size * 2 > slotKeys.length) {
+        grow();
+      }
+    }
+
+    /**
+     * Gets the slot of a key, or the empty slot it would go in.
+     */
+    int slot(long key) {
+
+      int mask = slotKeys.length - 1;
+      int slot = (int) (mix(key) & mask);
+      while (counts[slot] != 0 && slotKeys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    long[] keys() {
+
+      long[] keys = new long[size];
+      int next = 0;
+      for (int slot = 0; slot < slotKeys.length; slot++) {
+        if (counts[slot] != 0) {
+          keys[next++] = slotKeys[slot];
+        }
+      }
+      return keys;
+    }
+
+    private void grow() {
+
+      long[] oldKeys = slotKeys;
+      int[] oldCounts = counts;
+      double[] oldSumXs = sumXs;
+      double[] oldSumYs = sumYs;
+      allocate(oldKeys.length * 2);
+      for (int old = 0; old < oldKeys.length; old++) {
+        if (oldCounts[old] != 0) {
+          int slot = slot(oldKeys[old]);
+          slotKeys[slot] = oldKeys[old];
+          counts[slot] = oldCounts[old];
+          sumXs[slot] = oldSumXs[old];
+          sumYs[slot] = oldSumYs[old];
+        }
+      }
+    }
+
+    private void allocate(int capacity) {
+
+      slotKeys = new long[capacity];
+      counts = new int[capacity];
+      sumXs = new double[capacity];
+      sumYs = new double[capacity];
+    }
+
+    private static long mix(long key) {
+
+      key ^= key >>> 33;
+      key *= 0xFF51AFD7ED558CCDL;
+      key ^= key >>> 33;
+      return key;
+    }
+  }
+}
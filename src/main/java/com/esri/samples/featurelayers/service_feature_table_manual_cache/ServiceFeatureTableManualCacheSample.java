@@ -16,21 +16,34 @@
 
 package com.esri.samples.featurelayers.service_feature_table_manual_cache;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureCollection;
+import com.esri.arcgisruntime.data.FeatureCollectionTable;
 import com.esri.arcgisruntime.data.FeatureQueryResult;
 import com.esri.arcgisruntime.data.QueryParameters;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
 import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.layers.FeatureCollectionLayer;
 import com.esri.arcgisruntime.layers.FeatureLayer;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.Viewpoint;
 import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
+import com.esri.arcgisruntime.symbology.SimpleRenderer;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -38,6 +51,7 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
@@ -48,10 +62,29 @@ public class ServiceFeatureTableManualCacheSample extends Application {
   private MapView mapView;
   private Label featuresReturnLabel;
   private ServiceFeatureTable featureTable;
-  private ListenableFuture<FeatureQueryResult> tableResult;
+  private FeatureCacheStore cacheStore;
+  private FeatureTableStatistics featureStatistics;
+  private FeatureCollectionLayer snapshotLayer;
+  private FeatureLayer featureLayer;
+  private ComboBox<String> clusterBox;
+  private Label clusterLabel;
+  // cached points in the map's spatial reference, and a clusterer of them per cell shape
+  private double[] pointXs;
+  private double[] pointYs;
+  private final Map<PointClusterer.CellShape, PointClusterer> clusterers = new EnumMap<>(PointClusterer.CellShape
+      .class);
+  private ClusterOverlay clusterOverlay;
 
   private static final String SERVICE_FEATURE_URL =
       "http://sampleserver6.arcgisonline.com/arcgis/rest/services/SF311/FeatureServer/0";
+  private static final String WHERE_CLAUSE = "req_type = 'Tree Maintenance or Damage'";
+  // editor tracking field of the service, used to find rows changed since the last snapshot
+  private static final String EDIT_DATE_FIELD = "last_edited_date";
+  private static final String SHOW_POINTS = "Points";
+  private static final String SHOW_GRID = "Grid clusters";
+  private static final String SHOW_HEX = "Hex clusters";
+  // width of a cluster cell on screen
+  private static final double CLUSTER_CELL_PIXELS = 60;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -71,7 +104,7 @@ public class ServiceFeatureTableManualCacheSample extends Application {
 
       // create a control panel
       VBox vBoxControl = new VBox(6);
-      vBoxControl.setMaxSize(200, 80);
+      vBoxControl.setMaxSize(280, 180);
       vBoxControl.getStyleClass().add("panel-region");
 
       // create button to request the service table's cache
@@ -85,8 +118,20 @@ public class ServiceFeatureTableManualCacheSample extends Application {
       featuresReturnLabel = new Label("Features Returned: ");
       featuresReturnLabel.getStyleClass().add("panel-label");
 
-      // add label and button to the control panel
-      vBoxControl.getChildren().addAll(featuresReturnLabel, requestCacheButton);
+      // create a combo box to cluster the cached points, enabled once the cache is populated
+      clusterBox = new ComboBox<>();
+      clusterBox.getItems().addAll(SHOW_POINTS, SHOW_GRID, SHOW_HEX);
+      clusterBox.getSelectionModel().select(SHOW_POINTS);
+      clusterBox.setMaxWidth(Double.MAX_VALUE);
+      clusterBox.setDisable(true);
+      clusterBox.setOnAction(e -> showClusters(clusterBox.getSelectionModel().getSelectedItem()));
+
+      // create a label to display how long clustering takes
+      clusterLabel = new Label();
+      clusterLabel.getStyleClass().add("panel-label");
+
+      // add labels, button and combo box to the control panel
+      vBoxControl.getChildren().addAll(featuresReturnLabel, requestCacheButton, clusterBox, clusterLabel);
 
       // create service feature table from a url
       featureTable = new ServiceFeatureTable(SERVICE_FEATURE_URL);
@@ -95,7 +140,14 @@ public class ServiceFeatureTableManualCacheSample extends Application {
       featureTable.setFeatureRequestMode(ServiceFeatureTable.FeatureRequestMode.MANUAL_CACHE);
 
       // create a feature layer from the service feature table
-      final FeatureLayer featureLayer = new FeatureLayer(featureTable);
+      featureLayer = new FeatureLayer(featureTable);
+
+      // snapshot of the cache kept between runs
+      cacheStore = new FeatureCacheStore(featureTable, Paths.get(System.getProperty("java.io.tmpdir"),
+          "sf311_tree_cache.snapshot"), EDIT_DATE_FIELD);
+
+      // count features on the server without downloading them
+      featureStatistics = new FeatureTableStatistics(featureTable);
 
       // enable button when feature layer is done loading
       featureLayer.addDoneLoadingListener(() -> requestCacheButton.setDisable(false));
@@ -117,34 +169,160 @@ public class ServiceFeatureTableManualCacheSample extends Application {
       stackPane.getChildren().addAll(mapView, vBoxControl);
       StackPane.setAlignment(vBoxControl, Pos.TOP_LEFT);
       StackPane.setMargin(vBoxControl, new Insets(10, 0, 0, 10));
+
+      // show the last snapshot without waiting for the feature layer to load
+      warmStart();
     } catch (Exception e) {
       // on any error, display the stack trace
       e.printStackTrace();
     }
   }
 
+  /**
+   * Shows the snapshot saved by a previous run, then fetches only the features changed since it was taken once the
+   * table has loaded.
+   */
+  private void warmStart() {
+
+    if (!cacheStore.hasSnapshot()) {
+      return;
+    }
+
+    cacheStore.loadAsync().thenAccept(snapshot -> {
+      // show the snapshot right away
+      Platform.runLater(() -> {
+        showSnapshot(snapshot, Collections.emptySet());
+        featuresReturnLabel.setText("Features from snapshot: " + snapshot.getRowCount());
+      });
+
+      // fetch the changed features into the cache, and stop showing their old version from the snapshot
+      cacheStore.refreshAsync(snapshot, WHERE_CLAUSE, Collections.singletonList("*")).whenComplete((changedIds,
+          error) -> {
+        if (error != null) {
+          // keep showing the snapshot, but say it may be out of date
+          error.printStackTrace();
+          Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+          Platform.runLater(() -> featuresReturnLabel.setText("Features from snapshot: " + snapshot.getRowCount()
+              + "\nRefreshing failed: " + cause.getMessage()));
+          return;
+        }
+        featureStatistics.invalidate();
+        Platform.runLater(() -> {
+          showSnapshot(snapshot, changedIds);
+          featuresReturnLabel.setText("Features from snapshot: " + snapshot.getRowCount() + "\nChanged since: "
+              + changedIds.size());
+        });
+      });
+    }).exceptionally(error -> {
+      // on any error, display the stack trace
+      error.printStackTrace();
+      return null;
+    });
+  }
+
+  /**
+   * Shows the rows of a snapshot in a feature collection layer.
+   *
+   * @param snapshot   snapshot to show
+   * @param excludeIds object IDs of rows the service table shows instead
+   */
+  private void showSnapshot(FeatureSnapshot snapshot, Set<Long> excludeIds) {
+
+    FeatureCollectionTable snapshotTable = cacheStore.createTable(snapshot, excludeIds);
+    snapshotTable.setRenderer(new SimpleRenderer(new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, 0xFF00A000,
+        8)));
+    FeatureCollection featureCollection = new FeatureCollection();
+    featureCollection.getTables().add(snapshotTable);
+
+    removeSnapshot();
+    snapshotLayer = new FeatureCollectionLayer(featureCollection);
+    mapView.getMap().getOperationalLayers().add(0, snapshotLayer);
+  }
+
+  /**
+   * Removes the snapshot layer, once the cache holds every feature.
+   */
+  private void removeSnapshot() {
+
+    if (snapshotLayer != null) {
+      mapView.getMap().getOperationalLayers().remove(snapshotLayer);
+      snapshotLayer = null;
+    }
+  }
+
   /**
    * Fetches the cache from a Service Feature Table manually.
    */
   private void fetchCacheManually() {
 
-    // create query to select all tree or damage features
-    QueryParameters queryParams = new QueryParameters();
-    queryParams.setWhereClause("req_type = 'Tree Maintenance or Damage'");
-
     // * means all features
     List<String> outfields = Collections.singletonList("*");
-    // get queried features from service feature table and clear previous cache
-    tableResult = featureTable.populateFromServiceAsync(queryParams, true, outfields);
 
-    tableResult.addDoneListener(() -> {
-      try {
-        // find the number of features returned from query
-        AtomicInteger featuresReturned = new AtomicInteger();
-        tableResult.get().forEach(feature -> featuresReturned.getAndIncrement());
+    // ask the server how many features match, which is shown before any feature arrives
+    featureStatistics.countAsync(WHERE_CLAUSE).thenAccept(count -> Platform.runLater(() -> featuresReturnLabel
+        .setText("Features Matching: " + count)));
+
+    // get the tree or damage features in concurrent ranges of object IDs, merging them into the cache
+    long syncTime = System.currentTimeMillis();
+    ManualCacheBulkLoader bulkLoader = new ManualCacheBulkLoader(featureTable, 500, 4);
+    bulkLoader.loadAsync(WHERE_CLAUSE, outfields).whenComplete((statistics, error) -> {
+      if (error != null) {
+        // on any error, display the stack trace
+        error.printStackTrace();
+        return;
+      }
+
+      // the table was repopulated, so count again on the next request
+      featureStatistics.invalidate();
+
+      // save the cache for the next run
+      cacheStore.saveAsync(syncTime);
+      Platform.runLater(this::removeSnapshot);
+      Platform.runLater(this::loadClusterPoints);
+
+      // display to user how many features where returned and how fast
+      Platform.runLater(() -> featuresReturnLabel.setText(String.format(
+          "Features Returned: %d\n%d requests, %.0f features/s, %.0f ms mean request", statistics.getFeatureCount(),
+          statistics.getRequestCount(), statistics.getFeaturesPerSecond(), statistics.getMeanRequestMillis())));
+    });
+  }
+
+  /**
+   * Reads the points of the cached features for clustering. The query is answered by the cache, so clustering never
+   * goes back to the service.
+   */
+  private void loadClusterPoints() {
 
-        // display to user how many features where returned
-        Platform.runLater(() -> featuresReturnLabel.setText("Features Returned: " + featuresReturned));
+    SpatialReference spatialReference = mapView.getSpatialReference();
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause(WHERE_CLAUSE);
+    ListenableFuture<FeatureQueryResult> result = featureTable.queryFeaturesAsync(queryParams);
+    result.addDoneListener(() -> {
+      try {
+        List<Point> points = new ArrayList<>();
+        for (Feature feature : result.get()) {
+          if (feature.getGeometry() instanceof Point) {
+            Point point = (Point) feature.getGeometry();
+            if (!spatialReference.equals(point.getSpatialReference())) {
+              point = (Point) GeometryEngine.project(point, spatialReference);
+            }
+            points.add(point);
+          }
+        }
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+          xs[i] = points.get(i).getX();
+          ys[i] = points.get(i).getY();
+        }
+
+        Platform.runLater(() -> {
+          pointXs = xs;
+          pointYs = ys;
+          clusterers.clear();
+          clusterBox.setDisable(false);
+          showClusters(clusterBox.getSelectionModel().getSelectedItem());
+        });
       } catch (Exception e) {
         // on any error, display the stack trace
         e.printStackTrace();
@@ -152,12 +330,46 @@ public class ServiceFeatureTableManualCacheSample extends Application {
     });
   }
 
+  /**
+   * Shows the cached features as points, or aggregated into grid or hex clusters.
+   *
+   * @param choice one of the combo box items
+   */
+  private void showClusters(String choice) {
+
+    if (clusterOverlay != null) {
+      clusterOverlay.stop();
+      clusterOverlay = null;
+    }
+    boolean clustered = !SHOW_POINTS.equals(choice) && pointXs != null;
+    featureLayer.setVisible(!clustered);
+    if (!clustered) {
+      clusterLabel.setText("");
+      return;
+    }
+
+    // clusterers keep their levels, so switching back to a shape doesn't recluster
+    PointClusterer.CellShape shape = SHOW_HEX.equals(choice) ? PointClusterer.CellShape.HEX
+        : PointClusterer.CellShape.GRID;
+    PointClusterer clusterer = clusterers.computeIfAbsent(shape, s -> new PointClusterer(pointXs, pointYs, s,
+        CLUSTER_CELL_PIXELS));
+    clusterOverlay = new ClusterOverlay(mapView, clusterer, mapView.getSpatialReference(), update -> clusterLabel
+        .setText(String.format("%d clusters of %d points%nLevel build: %.1f ms, update: %.1f ms%n+%d -%d graphics, "
+            + "%.0f KB cached", update.getClusterCount(), pointXs.length, update.getBuildMillis(), update
+                .getUpdateMillis(), update.getAddedCount(), update.getRemovedCount(), update.getCachedBytes() / 1e3)));
+    clusterOverlay.start();
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
   @Override
   public void stop() throws Exception {
 
+    if (clusterOverlay != null) {
+      clusterOverlay.stop();
+    }
+
     if (mapView != null) {
       mapView.dispose();
     }
@@ -33,6 +33,7 @@ import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.symbology.SimpleFillSymbol;
 import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
+import com.esri.samples.util.SymbolFactory;
 
 public class GeometryEngineSimplifySample extends Application {
 
@@ -43,6 +44,8 @@ public class GeometryEngineSimplifySample extends Application {
 
   // simple black (0xFF000000) line symbol
   private SimpleLineSymbol line = new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, 0xFF000000, 1);
+  // results share one symbol, rather than one being created per result
+  private final SymbolFactory symbolFactory = new SymbolFactory(16);
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -80,7 +83,7 @@ public class GeometryEngineSimplifySample extends Application {
         Geometry resultPolygon = GeometryEngine.simplify(polygon.getGeometry());
 
         // update result as a red (0xFFE91F1F) geometry
-        SimpleFillSymbol redSymbol = new SimpleFillSymbol(SimpleFillSymbol.Style.SOLID, 0xFFE91F1F, line);
+        SimpleFillSymbol redSymbol = symbolFactory.fill(SimpleFillSymbol.Style.SOLID, 0xFFE91F1F, line);
         resultGeomLayer.getGraphics().add(new Graphic(resultPolygon, redSymbol));
 
         resetButton.setDisable(false);
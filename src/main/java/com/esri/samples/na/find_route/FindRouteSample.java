@@ -19,12 +19,10 @@ package com.esri.samples.na.find_route;
 import java.util.List;
 
 import com.esri.arcgisruntime.geometry.Envelope;
-import com.esri.arcgisruntime.geometry.Geometry;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.SpatialReference;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
-import com.esri.arcgisruntime.mapping.view.DrawStatus;
 import com.esri.arcgisruntime.mapping.view.Graphic;
 import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
 import com.esri.arcgisruntime.mapping.view.MapView;
@@ -37,6 +35,7 @@ import com.esri.arcgisruntime.symbology.TextSymbol.VerticalAlignment;
 import com.esri.arcgisruntime.tasks.networkanalysis.*;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -52,9 +51,11 @@ public class FindRouteSample extends Application {
   private MapView mapView;
   private RouteTask routeTask;
   private RouteParameters routeParameters;
+  private RouteSolveService routeSolveService;
+  private RouteSolveService.SolveRequest solveRequest;
   private ListView<String> directionsList = new ListView<>();
 
-  private Graphic routeGraphic;
+  private RoutePresenter routePresenter;
   private GraphicsOverlay routeGraphicsOverlay = new GraphicsOverlay();
 
   private final SpatialReference ESPG_3857 = SpatialReference.create(102100);
@@ -96,42 +97,47 @@ public class FindRouteSample extends Application {
       resetButton.setMaxWidth(Double.MAX_VALUE);
       resetButton.setDisable(true);
 
-      // find route
+      // show the stage of the latest solve, and the times of all solves so far
+      Label solveLabel = new Label("Loading route task...");
+      solveLabel.getStyleClass().add("panel-label");
+      solveLabel.setWrapText(true);
+
+      // find route without blocking the JavaFX application thread
       findButton.setOnAction(e -> {
-        try {
-          RouteResult result = routeTask.solveRouteAsync(routeParameters).get();
-          List<Route> routes = result.getRoutes();
-          if (routes.size() < 1) {
-            directionsList.getItems().add("No Routes");
-          }
-          Route route = routes.get(0);
-          Geometry shape = route.getRouteGeometry();
-          routeGraphic = new Graphic(shape, new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, BLUE_COLOR, 2));
-          routeGraphicsOverlay.getGraphics().add(routeGraphic);
+        findButton.setDisable(true);
+        resetButton.setDisable(false);
+        solveRequest = routeSolveService.solve(routeParameters, new RouteSolveService.Listener() {
 
-          // get route street names
-          route.getDirectionManeuvers().stream().flatMap(mvr -> mvr.getManeuverMessages().stream()).filter(ms -> ms
-              .getType().equals(DirectionMessageType.STREET_NAME)).forEach(st -> directionsList.getItems().add(st
-                  .getText()));
+          @Override
+          public void onProgress(RouteSolveService.Progress progress) {
+            solveLabel.setText(progress + "\n" + routeSolveService.getLatency());
+          }
 
-          resetButton.setDisable(false);
-          findButton.setDisable(true);
+          @Override
+          public void onSolved(Route route, RoutePresentation presentation) {
+            routePresenter.show(presentation);
+          }
 
-        } catch (Exception ex) {
-          ex.printStackTrace();
-        }
+          @Override
+          public void onFailed(Throwable error) {
+            routePresenter.clear("No Routes");
+            error.printStackTrace();
+          }
+        });
       });
 
       // clear the route and the directions maneuver found
       resetButton.setOnAction(e -> {
-        routeGraphicsOverlay.getGraphics().remove(routeGraphic);
-        directionsList.getItems().clear();
+        if (solveRequest != null) {
+          solveRequest.cancel();
+        }
+        routePresenter.clear();
         resetButton.setDisable(true);
         findButton.setDisable(false);
       });
 
       // add buttons and direction list and label to the control panel
-      vBoxControl.getChildren().addAll(directionsLabel, directionsList, findButton, resetButton);
+      vBoxControl.getChildren().addAll(directionsLabel, directionsList, findButton, resetButton, solveLabel);
 
       // create a ArcGISMap with a streets basemap
       ArcGISMap map = new ArcGISMap(Basemap.createStreets());
@@ -140,19 +146,16 @@ public class FindRouteSample extends Application {
       mapView = new MapView();
       mapView.setMap(map);
 
-      // enable find a route button when mapview is done loading
-      mapView.addDrawStatusChangedListener(e -> {
-        if (e.getDrawStatus() == DrawStatus.COMPLETED) {
-          findButton.setDisable(false);
-        }
-      });
-
       // set the viewpoint to San Diego (U.S.)
       mapView.setViewpointGeometryAsync(new Envelope(-13067866, 3843014, -13004499, 3871296, ESPG_3857));
 
       // add the graphic overlay to the map view
       mapView.getGraphicsOverlays().add(routeGraphicsOverlay);
 
+      // show routes generalized to the map scale, with directions read as they scroll into view
+      routePresenter = new RoutePresenter(mapView, routeGraphicsOverlay, new SimpleLineSymbol(SimpleLineSymbol.Style
+          .SOLID, BLUE_COLOR, 2), directionsList);
+
       try {
         // create route task from San Diego service
         routeTask = new RouteTask(ROUTE_TASK_SANDIEGO);
@@ -166,6 +169,9 @@ public class FindRouteSample extends Application {
             routeParameters = routeTask.createDefaultParametersAsync().get();
             routeParameters.setOutputSpatialReference(ESPG_3857);
 
+            // solve routes in the background, giving up after 30 seconds
+            routeSolveService = new RouteSolveService(routeTask, 30000, 4);
+
             // set flags to return stops and directions
             routeParameters.setReturnStops(true);
             routeParameters.setReturnDirections(true);
@@ -192,7 +198,13 @@ public class FindRouteSample extends Application {
             routeGraphicsOverlay.getGraphics().add(new Graphic(stop1Loc, stop1Text));
             routeGraphicsOverlay.getGraphics().add(new Graphic(stop2Loc, stop2Text));
 
+            // enable find a route button once there is a service to solve with
+            Platform.runLater(() -> {
+              solveLabel.setText("Ready");
+              findButton.setDisable(false);
+            });
           } catch (Exception ex) {
+            Platform.runLater(() -> solveLabel.setText("Route task failed to load"));
             ex.printStackTrace();
           }
         });
@@ -218,6 +230,9 @@ public class FindRouteSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    if (routeSolveService != null) {
+      routeSolveService.close();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
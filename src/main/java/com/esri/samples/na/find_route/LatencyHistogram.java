@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.na.find_route;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe latency histogram with power of two millisecond buckets.
+ */
+public class LatencyHistogram {
+
+  // bucket i holds samples in [2^(i-1), 2^i) ms, bucket 0 holds samples under 1 ms
+  private static final int BUCKETS = 24;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Records a single latency sample.
+   *
+   * @param nanos elapsed time in nanoseconds
+   */
+  public void record(long nanos) {
+
+    long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+    int bucket = millis == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+    buckets.incrementAndGet(bucket);
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * Gets the number of recorded samples.
+   *
+   * @return sample count
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Gets the mean latency of all recorded samples.
+   *
+   * @return mean latency in milliseconds, 0 if nothing was recorded
+   */
+  public double getMeanMillis() {
+
+    long n = count.get();
+    return n == 0 ? 0 : totalNanos.get() / (n * 1e6);
+  }
+
+  /**
+   * Gets the largest recorded latency.
+   *
+   * @return max latency in milliseconds
+   */
+  public double getMaxMillis() {
+    return maxNanos.get() / 1e6;
+  }
+
+  /**
+   * Gets the upper bound of the bucket containing the given percentile.
+   *
+   * @param percentile value between 0 and 100
+   * @return latency in milliseconds below which the percentile of samples fall
+   */
+  public long getPercentileMillis(double percentile) {
+
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+    long target = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100.0);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= Math.max(1, target)) {
+        return 1L << i;
+      }
+    }
+    return 1L << (BUCKETS - 1);
+  }
+
+  /**
+   * Clears all recorded samples.
+   */
+  public void reset() {
+
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  @Override
+  public String toString() {
+
+    return String.format("n=%d mean=%.1fms p50<=%dms p90<=%dms p99<=%dms max=%.1fms", getCount(), getMeanMillis(),
+        getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99), getMaxMillis());
+  }
+}
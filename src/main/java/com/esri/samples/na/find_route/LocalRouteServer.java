@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.na.find_route;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP stand-in for an NAServer route layer.
+ * <p>
+ * Serves canned JSON bodies for the route layer's resources (for example the layer info at the root and
+ * <code>solve</code>) after a configurable delay, so the {@link RouteSolveService} can be exercised without a network
+ * connection.
+ */
+public class LocalRouteServer implements AutoCloseable {
+
+  private static final String ROUTE_PATH = "/arcgis/rest/services/NetworkAnalysis/SanDiego/NAServer/Route";
+
+  private final HttpServer server;
+  private final Map<String, String> responses = new ConcurrentHashMap<>();
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private volatile long delayMillis;
+
+  /**
+   * Starts a server on a free local port.
+   *
+   * @throws IOException if the server socket cannot be bound
+   */
+  public LocalRouteServer() throws IOException {
+
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(ROUTE_PATH, this::handle);
+    server.setExecutor(Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "local-route-server");
+      thread.setDaemon(true);
+      return thread;
+    }));
+    server.start();
+  }
+
+  /**
+   * Gets the URL to create a route task with.
+   *
+   * @return route layer URL
+   */
+  public String getUrl() {
+    return "http://localhost:" + server.getAddress().getPort() + ROUTE_PATH;
+  }
+
+  /**
+   * Sets the JSON body returned for a resource of the route layer.
+   *
+   * @param resource resource below the route layer, e.g. "" for the layer info or "solve"
+   * @param json     body to return
+   */
+  public void respond(String resource, String json) {
+    responses.put(resource, json);
+  }
+
+  /**
+   * Sets how long each response is held back, to simulate a slow server.
+   *
+   * @param delayMillis delay in milliseconds
+   */
+  public void setDelayMillis(long delayMillis) {
+    this.delayMillis = delayMillis;
+  }
+
+  /**
+   * Gets the number of requests served so far.
+   *
+   * @return request count
+   */
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+
+    requestCount.incrementAndGet();
+    try {
+      Thread.sleep(delayMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    String resource = exchange.getRequestURI().getPath().substring(ROUTE_PATH.length()).replaceAll("^/+", "");
+    String json = responses.get(resource);
+    int status = json != null ? 200 : 404;
+    byte[] body = (json != null ? json : "{\"error\":{\"code\":404,\"message\":\"Not found\"}}")
+        .getBytes(StandardCharsets.UTF_8);
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
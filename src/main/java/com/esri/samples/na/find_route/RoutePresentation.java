@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.na.find_route;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.tasks.networkanalysis.DirectionManeuver;
+import com.esri.arcgisruntime.tasks.networkanalysis.Route;
+
+/**
+ * Display ready form of a solved route.
+ * <p>
+ * The route geometry is generalized once per scale band, so a long route is only drawn with the vertices that are
+ * visible at the current scale. Maneuver text is only read when a direction is displayed. Instances are immutable
+ * and can be created off the JavaFX application thread.
+ */
+public class RoutePresentation {
+
+  // smallest map scale (1:x) each band is used for, ordered from most to least detailed
+  private static final double[] BAND_SCALES = {10000, 40000, 160000, 640000, 2560000, 10240000};
+  // ground size of one 96 dpi screen pixel at 1:1
+  private static final double METERS_PER_PIXEL = 0.0254 / 96;
+  private static final double METERS_PER_DEGREE = 111320;
+  // generalize to within half a pixel, so the simplification is invisible
+  private static final double TOLERANCE_PIXELS = 0.5;
+
+  private final Geometry geometry;
+  private final Geometry[] bandGeometries;
+  private final List<DirectionManeuver> maneuvers;
+
+  private RoutePresentation(Geometry geometry, Geometry[] bandGeometries, List<DirectionManeuver> maneuvers) {
+
+    this.geometry = geometry;
+    this.bandGeometries = bandGeometries;
+    this.maneuvers = maneuvers;
+  }
+
+  /**
+   * Creates the presentation of a route, generalizing its geometry for every scale band.
+   *
+   * @param route solved route
+   * @return route presentation
+   */
+  public static RoutePresentation create(Route route) {
+
+    Geometry geometry = route.getRouteGeometry();
+    Geometry[] bandGeometries = new Geometry[BAND_SCALES.length];
+    boolean geographic = geometry.getSpatialReference() != null && geometry.getSpatialReference().isGeographic();
+    for (int i = 0; i < BAND_SCALES.length; i++) {
+      double deviation = BAND_SCALES[i] * METERS_PER_PIXEL * TOLERANCE_PIXELS;
+      if (geographic) {
+        deviation /= METERS_PER_DEGREE;
+      }
+      // generalize from the previous band, which already has fewer vertices than the full geometry
+      Geometry source = i == 0 ? geometry : bandGeometries[i - 1];
+      bandGeometries[i] = GeometryEngine.generalize(source, deviation, true);
+    }
+    return new RoutePresentation(geometry, bandGeometries, route.getDirectionManeuvers());
+  }
+
+  /**
+   * Gets the geometry to draw at a map scale.
+   *
+   * @param scale current map scale
+   * @return the most generalized geometry that is still accurate to half a pixel at that scale
+   */
+  public Geometry getGeometry(double scale) {
+
+    int band = getBand(scale);
+    return band < 0 ? geometry : bandGeometries[band];
+  }
+
+  /**
+   * Gets the index of the scale band used for a map scale.
+   *
+   * @param scale current map scale
+   * @return band index, or -1 if the full geometry is used
+   */
+  public int getBand(double scale) {
+
+    int band = -1;
+    for (int i = 0; i < BAND_SCALES.length && scale >= BAND_SCALES[i]; i++) {
+      band = i;
+    }
+    return band;
+  }
+
+  /**
+   * Gets the direction text of every maneuver. The text of a maneuver is only read when it is accessed, so a list
+   * view only reads the directions of its visible cells.
+   *
+   * @return unmodifiable list of direction texts
+   */
+  public List<String> getDirections() {
+    return new LazyDirections(maneuvers);
+  }
+
+  /**
+   * Read-only list that reads and remembers each maneuver's text on first access.
+   */
+  private static class LazyDirections extends AbstractList<String> implements RandomAccess {
+
+    private final List<DirectionManeuver> maneuvers;
+    private final String[] texts;
+
+    LazyDirections(List<DirectionManeuver> maneuvers) {
+
+      this.maneuvers = maneuvers;
+      this.texts = new String[maneuvers.size()];
+    }
+
+    @Override
+    public String get(int index) {
+
+      if (texts[index] == null) {
+        texts[index] = maneuvers.get(index).getDirectionText();
+      }
+      return texts[index];
+    }
+
+    @Override
+    public int size() {
+      return texts.length;
+    }
+  }
+}
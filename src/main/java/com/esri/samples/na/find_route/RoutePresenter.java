@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.na.find_route;
+
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.symbology.Symbol;
+
+import javafx.collections.FXCollections;
+import javafx.scene.control.ListView;
+
+/**
+ * Shows a {@link RoutePresentation} in a map view and a list view.
+ * <p>
+ * The route graphic's geometry is swapped for the matching scale band whenever the map scale changes. The directions
+ * list is backed by the presentation's lazy directions, so only visible cells read maneuver text.
+ */
+public class RoutePresenter {
+
+  private final MapView mapView;
+  private final GraphicsOverlay routeOverlay;
+  private final ListView<String> directionsList;
+  private final Graphic routeGraphic;
+
+  private RoutePresentation presentation;
+  private int band;
+
+  /**
+   * Creates a presenter drawing into the given overlay and list.
+   *
+   * @param mapView        map view whose scale selects the geometry
+   * @param routeOverlay   overlay to add the route graphic to
+   * @param routeSymbol    symbol for the route graphic
+   * @param directionsList list to show the route directions in
+   */
+  public RoutePresenter(MapView mapView, GraphicsOverlay routeOverlay, Symbol routeSymbol,
+      ListView<String> directionsList) {
+
+    this.mapView = mapView;
+    this.routeOverlay = routeOverlay;
+    this.directionsList = directionsList;
+    this.routeGraphic = new Graphic();
+    this.routeGraphic.setSymbol(routeSymbol);
+
+    mapView.addMapScaleChangedListener(e -> updateGeometry());
+  }
+
+  /**
+   * Shows a route, replacing any route already shown. Must be called on the JavaFX application thread.
+   *
+   * @param presentation route to show
+   */
+  public void show(RoutePresentation presentation) {
+
+    this.presentation = presentation;
+    band = presentation.getBand(mapView.getMapScale());
+    routeGraphic.setGeometry(presentation.getGeometry(mapView.getMapScale()));
+    if (!routeOverlay.getGraphics().contains(routeGraphic)) {
+      routeOverlay.getGraphics().add(routeGraphic);
+    }
+    directionsList.setItems(FXCollections.observableList(presentation.getDirections()));
+  }
+
+  /**
+   * Removes the route graphic and shows the given messages in the directions list.
+   *
+   * @param messages messages to show instead of directions
+   */
+  public void clear(String... messages) {
+
+    presentation = null;
+    routeOverlay.getGraphics().remove(routeGraphic);
+    directionsList.setItems(FXCollections.observableArrayList(messages));
+  }
+
+  private void updateGeometry() {
+
+    if (presentation != null) {
+      int newBand = presentation.getBand(mapView.getMapScale());
+      if (newBand != band) {
+        band = newBand;
+        routeGraphic.setGeometry(presentation.getGeometry(mapView.getMapScale()));
+      }
+    }
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.na.find_route;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.tasks.networkanalysis.Route;
+import com.esri.arcgisruntime.tasks.networkanalysis.RouteParameters;
+import com.esri.arcgisruntime.tasks.networkanalysis.RouteResult;
+import com.esri.arcgisruntime.tasks.networkanalysis.RouteTask;
+
+import javafx.application.Platform;
+
+/**
+ * Solves routes off the JavaFX application thread.
+ * <p>
+ * Requests are queued and solved one at a time by a background worker. The route's {@link RoutePresentation} is built
+ * on the worker, so only the finished result is handed to the JavaFX thread. Every successful solve is
+ * recorded in a {@link LatencyHistogram}.
+ * <p>
+ * The service only needs a route task, so it can be run without a network against a {@link LocalRouteServer}.
+ */
+public class RouteSolveService implements AutoCloseable {
+
+  /**
+   * Stages a solve request moves through.
+   */
+  public enum Progress {
+    QUEUED, SOLVING, BUILDING_RESULT, DONE, CANCELLED, TIMED_OUT, FAILED
+  }
+
+  /**
+   * Receives the outcome of a solve request. All methods are called on the JavaFX application thread.
+   */
+  public interface Listener {
+
+    /**
+     * Called when the request moves to a new stage.
+     *
+     * @param progress the new stage
+     */
+    default void onProgress(Progress progress) {
+    }
+
+    /**
+     * Called with the solved route.
+     *
+     * @param route        first route of the result
+     * @param presentation display ready form of the route
+     */
+    void onSolved(Route route, RoutePresentation presentation);
+
+    /**
+     * Called when the request failed or timed out. Not called for cancelled requests.
+     *
+     * @param error cause of the failure
+     */
+    void onFailed(Throwable error);
+  }
+
+  private final RouteTask routeTask;
+  private final long timeoutMillis;
+  private final ThreadPoolExecutor executor;
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  /**
+   * Creates a service solving on the given route task.
+   *
+   * @param routeTask     a loaded route task
+   * @param timeoutMillis time a single solve may take before it is cancelled
+   * @param queueCapacity maximum number of requests waiting to be solved
+   */
+  public RouteSolveService(RouteTask routeTask, long timeoutMillis, int queueCapacity) {
+
+    this.routeTask = routeTask;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+        r -> {
+          Thread thread = new Thread(r, "route-solve");
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Queues a solve request.
+   *
+   * @param parameters route parameters, must not be modified until the request finishes
+   * @param listener   receives progress and the result
+   * @return handle to cancel the request
+   */
+  public SolveRequest solve(RouteParameters parameters, Listener listener) {
+
+    SolveRequest request = new SolveRequest(parameters, listener);
+    // published before the worker can publish SOLVING, since runLater keeps the order
+    request.publish(Progress.QUEUED);
+    try {
+      request.task = executor.submit(request::run);
+    } catch (RejectedExecutionException e) {
+      request.publish(Progress.FAILED);
+      Platform.runLater(() -> listener.onFailed(e));
+    }
+    return request;
+  }
+
+  /**
+   * Gets the histogram of successful solve times.
+   *
+   * @return solve latency histogram
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Gets the number of requests waiting to be solved.
+   *
+   * @return queued request count
+   */
+  public int getQueuedCount() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Cancels all queued and running requests and stops the worker.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * A queued solve request.
+   */
+  public class SolveRequest {
+
+    private final RouteParameters parameters;
+    private final Listener listener;
+    private volatile boolean cancelled;
+    private volatile Future<?> task;
+    private volatile ListenableFuture<RouteResult> solve;
+
+    private SolveRequest(RouteParameters parameters, Listener listener) {
+
+      this.parameters = parameters;
+      this.listener = listener;
+    }
+
+    /**
+     * Cancels the request. A request that is still queued is never solved; a running solve is abandoned.
+     */
+    public void cancel() {
+
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      ListenableFuture<RouteResult> running = solve;
+      if (running != null) {
+        running.cancel(true);
+      }
+      Future<?> queued = task;
+      if (queued != null) {
+        queued.cancel(false);
+      }
+      publish(Progress.CANCELLED);
+    }
+
+    /**
+     * Checks if the request was cancelled.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    private void run() {
+
+      if (cancelled) {
+        return;
+      }
+      publish(Progress.SOLVING);
+      long start = System.nanoTime();
+      try {
+        solve = routeTask.solveRouteAsync(parameters);
+        if (cancelled) {
+          solve.cancel(true);
+          return;
+        }
+        RouteResult result = solve.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        latency.record(System.nanoTime() - start);
+
+        publish(Progress.BUILDING_RESULT);
+        List<Route> routes = result.getRoutes();
+        if (routes.isEmpty()) {
+          fail(Progress.FAILED, new IllegalStateException("No routes"));
+          return;
+        }
+        Route route = routes.get(0);
+        RoutePresentation presentation = RoutePresentation.create(route);
+
+        if (!cancelled) {
+          Platform.runLater(() -> {
+            if (!cancelled) {
+              listener.onProgress(Progress.DONE);
+              listener.onSolved(route, presentation);
+            }
+          });
+        }
+      } catch (TimeoutException e) {
+        solve.cancel(true);
+        fail(Progress.TIMED_OUT, e);
+      } catch (CancellationException | InterruptedException e) {
+        // cancelled by the caller or the service was closed
+      } catch (ExecutionException e) {
+        fail(Progress.FAILED, e.getCause());
+      } catch (RuntimeException e) {
+        fail(Progress.FAILED, e);
+      }
+    }
+
+    private void fail(Progress progress, Throwable error) {
+
+      if (!cancelled) {
+        Platform.runLater(() -> {
+          listener.onProgress(progress);
+          listener.onFailed(error);
+        });
+      }
+    }
+
+    private void publish(Progress progress) {
+      Platform.runLater(() -> listener.onProgress(progress));
+    }
+  }
+}
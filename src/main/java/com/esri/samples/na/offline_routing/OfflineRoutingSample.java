@@ -11,42 +11,42 @@
 
 package com.esri.samples.na.offline_routing;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.TileCache;
 import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.layers.ArcGISTiledLayer;
-import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.Graphic;
 import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
-import com.esri.arcgisruntime.mapping.view.IdentifyGraphicsOverlayResult;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.symbology.LineSymbol;
 import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
 import com.esri.arcgisruntime.symbology.TextSymbol;
 import com.esri.arcgisruntime.tasks.networkanalysis.Route;
-import com.esri.arcgisruntime.tasks.networkanalysis.RouteParameters;
-import com.esri.arcgisruntime.tasks.networkanalysis.RouteResult;
-import com.esri.arcgisruntime.tasks.networkanalysis.RouteTask;
 import com.esri.arcgisruntime.tasks.networkanalysis.Stop;
 import com.esri.arcgisruntime.tasks.networkanalysis.TravelMode;
+import com.esri.samples.util.GraphicsHitTester;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
@@ -55,8 +55,12 @@ public class OfflineRoutingSample extends Application {
   private MapView mapView;
   private GraphicsOverlay stopsOverlay;
   private GraphicsOverlay routeOverlay;
-  private RouteTask routeTask;
-  private RouteParameters routeParameters;
+  private GraphicsHitTester stopsHitTester;
+  private RoutingEngineManager routingEngine;
+  private Label routeLabel;
+  // stops and travel mode of the route, set on a pooled task's parameters for each solve
+  private final List<Stop> stops = new ArrayList<>();
+  private TravelMode travelMode;
   private LineSymbol lineSymbol;
 
   private EventHandler<MouseEvent> mouseMovedListener;
@@ -90,12 +94,15 @@ public class OfflineRoutingSample extends Application {
       routeOverlay = new GraphicsOverlay();
       mapView.getGraphicsOverlays().addAll(Arrays.asList(routeOverlay, stopsOverlay));
 
-      // create an offline RouteTask
-      routeTask = new RouteTask("./samples-data/san_diego/sandiego.geodatabase", "Streets_ND");
-      routeTask.loadAsync();
+      // index the stops as they are added, to find the one clicked without an identify
+      stopsHitTester = new GraphicsHitTester(mapView, stopsOverlay);
 
-      // create route parameters
-      routeParameters = routeTask.createDefaultParametersAsync().get();
+      // open and warm up offline route tasks in the background, so the window shows immediately
+      List<Point> warmUpStops = Arrays.asList(new Point(-1.3018598562659847E7, 3863191.8817135547, SpatialReferences
+          .getWebMercator()), new Point(-1.3036911787723785E7, 3839935.706521739, SpatialReferences.getWebMercator()));
+      routingEngine = new RoutingEngineManager("./samples-data/san_diego/sandiego.geodatabase", "Streets_ND", 2,
+          warmUpStops);
+      routingEngine.start();
 
       // create symbol for route
       lineSymbol = new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, 0xFF0000FF, 3);
@@ -111,9 +118,10 @@ public class OfflineRoutingSample extends Application {
           // update the moving stop and graphic
           Graphic stopGraphic = stopsOverlay.getSelectedGraphics().get(0);
           stopGraphic.setGeometry(hoverPoint);
+          stopsHitTester.update(stopGraphic);
           int stopIndex = (int) stopGraphic.getAttributes().get("stopIndex");
           Stop newStop = new Stop(hoverPoint);
-          routeParameters.getStops().set(stopIndex, newStop);
+          stops.set(stopIndex, newStop);
           stopGraphic.getAttributes().put("stopIndex", stopIndex);
 
           // update route
@@ -127,7 +135,7 @@ public class OfflineRoutingSample extends Application {
       // use mouse clicks to add and move stops
       mapView.setOnMouseClicked(event -> {
 
-        if (routeTask.getLoadStatus() == LoadStatus.LOADED && event.isStillSincePress()) {
+        if (routingEngine.readyProperty().get() && event.isStillSincePress()) {
 
           // get mouse click location
           Point2D clickLocation = new Point2D(event.getX(), event.getY());
@@ -138,7 +146,7 @@ public class OfflineRoutingSample extends Application {
 
             // add stop to route parameters
             Stop stop = new Stop(point);
-            routeParameters.getStops().add(stop);
+            stops.add(stop);
 
             // create graphic for stop
             TextSymbol stopLabel = new TextSymbol(20, Integer.toString(stopsOverlay.getGraphics().size() + 1),
@@ -146,7 +154,7 @@ public class OfflineRoutingSample extends Application {
 
             // save the stop with the graphic
             HashMap<String, Object> attributes = new HashMap<>();
-            attributes.put("stopIndex", routeParameters.getStops().size() - 1);
+            attributes.put("stopIndex", stops.size() - 1);
 
             // create and add the stop graphic to the graphics overlay
             Graphic stopGraphic = new Graphic(point, attributes, stopLabel);
@@ -161,25 +169,16 @@ public class OfflineRoutingSample extends Application {
 
             // select a stop
             if (stopsOverlay.getSelectedGraphics().isEmpty()) {
-              // identify the selected graphic
-              ListenableFuture<IdentifyGraphicsOverlayResult> results = mapView.identifyGraphicsOverlayAsync(
-                  stopsOverlay, clickLocation, 10, false);
-              results.addDoneListener(() -> {
-                try {
-                  List<Graphic> graphics = results.get().getGraphics();
-                  if (graphics.size() > 0) {
-                    // set the graphic as selected
-                    Graphic graphic = graphics.get(0);
-                    graphic.setSelected(true);
-
-                    // add the mouse move event listener to update the route
-                    mapView.setOnMouseMoved(mouseMovedListener);
-                  }
-
-                } catch (InterruptedException | ExecutionException e) {
-                  e.printStackTrace();
-                }
-              });
+              // find the topmost stop at the clicked location
+              List<Graphic> graphics = stopsHitTester.hitTest(clickLocation, 10, 1);
+              if (graphics.size() > 0) {
+                // set the graphic as selected
+                Graphic graphic = graphics.get(0);
+                graphic.setSelected(true);
+
+                // add the mouse move event listener to update the route
+                mapView.setOnMouseMoved(mouseMovedListener);
+              }
             } else {
               stopsOverlay.clearSelection();
 
@@ -190,12 +189,11 @@ public class OfflineRoutingSample extends Application {
         }
       });
 
-      // create travel mode selector
-      List<TravelMode> travelModeList = routeTask.getRouteTaskInfo().getTravelModes();
+      // create travel mode selector, filled once the route tasks are ready
       ComboBox<TravelMode> travelModes = new ComboBox<>();
-      travelModes.getItems().addAll(travelModeList);
+      travelModes.setDisable(true);
       travelModes.getSelectionModel().selectedItemProperty().addListener(o -> {
-        routeParameters.setTravelMode(travelModes.getSelectionModel().getSelectedItem());
+        travelMode = travelModes.getSelectionModel().getSelectedItem();
         updateRoute();
       });
       travelModes.setConverter(new StringConverter<TravelMode>() {
@@ -212,12 +210,35 @@ public class OfflineRoutingSample extends Application {
           return null;
         }
       });
-      travelModes.getSelectionModel().select(0);
+      // show how long the route tasks took to be ready and to solve
+      routeLabel = new Label("Opening route tasks...");
+      routeLabel.getStyleClass().add("panel-region");
+      routeLabel.setMaxSize(Label.USE_PREF_SIZE, Label.USE_PREF_SIZE);
+
+      routingEngine.readyProperty().addListener((o, wasReady, isReady) -> {
+        if (isReady) {
+          travelModes.getItems().addAll(routingEngine.getRouteTaskInfo().getTravelModes());
+          travelModes.getSelectionModel().select(0);
+          travelModes.setDisable(false);
+          routeLabel.setText("Ready in " + routingEngine.getTimeToReadyMillis() + " ms");
+        }
+      });
+
+      // tell the user if no route task could be opened, rather than leaving the sample disabled
+      routingEngine.loadErrorProperty().addListener((o, oldError, error) -> {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setHeaderText("Could not open the offline network");
+        alert.setContentText(error.getMessage());
+        alert.show();
+        routeLabel.setText("No route task could be opened");
+      });
 
       // add the map view and control panel to stack pane
-      stackPane.getChildren().addAll(mapView, travelModes);
-      StackPane.setAlignment(travelModes, Pos.TOP_LEFT);
-      StackPane.setMargin(travelModes, new Insets(10, 0, 0, 10));
+      VBox controlsVBox = new VBox(6, travelModes, routeLabel);
+      controlsVBox.setMaxSize(VBox.USE_PREF_SIZE, VBox.USE_PREF_SIZE);
+      stackPane.getChildren().addAll(mapView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
 
     } catch (Exception e) {
       // on any error, display the stack trace.
@@ -230,18 +251,28 @@ public class OfflineRoutingSample extends Application {
    */
   private void updateRoute() {
 
-    if (routeParameters.getStops().size() > 1) {
+    if (stops.size() > 1) {
       // remove listener until route task is solved
       if (!stopsOverlay.getSelectedGraphics().isEmpty()) {
         mapView.setOnMouseMoved(null);
       }
 
       // solve route
-      ListenableFuture<RouteResult> results = routeTask.solveRouteAsync(routeParameters);
-      results.addDoneListener(() -> {
+      routingEngine.solve(stops, travelMode).whenComplete((result, error) -> {
         try {
-          RouteResult result = results.get();
+          if (error != null || result.getRoutes().isEmpty()) {
+            if (error != null) {
+              error.printStackTrace();
+            }
+            // no route solution, don't leave the route to the previous stops showing
+            routeOverlay.getGraphics().clear();
+            Platform.runLater(() -> routeLabel.setText("No route found"));
+            return;
+          }
           Route route = result.getRoutes().get(0);
+          Platform.runLater(() -> routeLabel.setText("Ready in " + routingEngine.getTimeToReadyMillis()
+              + " ms\nFirst route in " + routingEngine.getTimeToFirstRouteMillis() + " ms\nLast solve "
+              + routingEngine.getLastSolveMillis() + " ms"));
 
           // create graphic for route
           Graphic graphic = new Graphic(route.getRouteGeometry(), lineSymbol);
@@ -250,9 +281,6 @@ public class OfflineRoutingSample extends Application {
           routeOverlay.getGraphics().clear();
           routeOverlay.getGraphics().add(graphic);
 
-        } catch (InterruptedException | ExecutionException e) {
-          // ignore, no route solution
-
         } finally {
           // add mouse moved listener back
           if (!stopsOverlay.getSelectedGraphics().isEmpty()) {
@@ -269,6 +297,12 @@ public class OfflineRoutingSample extends Application {
   @Override
   public void stop() throws Exception {
 
+    if (routingEngine != null) {
+      routingEngine.close();
+    }
+    if (stopsHitTester != null) {
+      stopsHitTester.close();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
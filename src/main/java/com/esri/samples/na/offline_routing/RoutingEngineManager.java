@@ -0,0 +1,377 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.na.offline_routing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.tasks.networkanalysis.RouteParameters;
+import com.esri.arcgisruntime.tasks.networkanalysis.RouteResult;
+import com.esri.arcgisruntime.tasks.networkanalysis.RouteTask;
+import com.esri.arcgisruntime.tasks.networkanalysis.RouteTaskInfo;
+import com.esri.arcgisruntime.tasks.networkanalysis.Stop;
+import com.esri.arcgisruntime.tasks.networkanalysis.TravelMode;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+
+/**
+ * Opens a pool of route tasks on an offline network dataset in the background.
+ * <p>
+ * Each task is loaded, has its own default parameters created and runs one warm-up solve before it is added to the
+ * pool, so the first route the user asks for does not pay for opening the network. A solve borrows a free task with
+ * its parameters, sets the stops and travel mode on them, and returns the task when done. If every task is busy, the
+ * solve is queued and started by the next task returned, so no thread waits for a task.
+ */
+public class RoutingEngineManager implements AutoCloseable {
+
+  private final String geodatabasePath;
+  private final String networkName;
+  private final int poolSize;
+  private final List<Point> warmUpStops;
+
+  // free tasks, and solves waiting for one, guarded by this
+  private final Deque<PooledTask> freeTasks = new ArrayDeque<>();
+  private final Queue<Consumer<PooledTask>> waiting = new ArrayDeque<>();
+  private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "routing-engine-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ReadOnlyBooleanWrapper ready = new ReadOnlyBooleanWrapper(false);
+  private final ReadOnlyObjectWrapper<Throwable> loadError = new ReadOnlyObjectWrapper<>();
+
+  private volatile RouteTaskInfo routeTaskInfo;
+  private volatile long startNanos;
+  private volatile long readyNanos;
+  private volatile long warmUpNanos;
+  private volatile long firstRouteNanos;
+  private volatile long lastSolveNanos;
+  private int openedCount;
+  private int failedCount;
+  private boolean closed;
+
+  /**
+   * Creates a manager for a network dataset. Nothing is opened until {@link #start()} is called.
+   *
+   * @param geodatabasePath path to the mobile geodatabase containing the network
+   * @param networkName     name of the network dataset
+   * @param poolSize        number of route tasks to keep ready
+   * @param warmUpStops     two or more stops on the network used for the warm-up solve
+   */
+  public RoutingEngineManager(String geodatabasePath, String networkName, int poolSize, List<Point> warmUpStops) {
+
+    this.geodatabasePath = geodatabasePath;
+    this.networkName = networkName;
+    this.poolSize = poolSize;
+    this.warmUpStops = new ArrayList<>(warmUpStops);
+  }
+
+  /**
+   * Starts opening the network dataset in the background. The first task becomes available as soon as it is warmed
+   * up, the rest of the pool follows.
+   */
+  public void start() {
+
+    startNanos = System.nanoTime();
+    for (int i = 0; i < poolSize; i++) {
+      loader.execute(this::openTask);
+    }
+  }
+
+  /**
+   * Property that becomes true on the JavaFX application thread once the first task is ready.
+   *
+   * @return ready property
+   */
+  public ReadOnlyBooleanProperty readyProperty() {
+    return ready.getReadOnlyProperty();
+  }
+
+  /**
+   * Property set on the JavaFX application thread to the error of the last task that failed to open, once every task
+   * of the pool failed and none is ready.
+   *
+   * @return load error property
+   */
+  public ReadOnlyObjectProperty<Throwable> loadErrorProperty() {
+    return loadError.getReadOnlyProperty();
+  }
+
+  /**
+   * Gets information about the network, such as its travel modes. Only available once ready.
+   *
+   * @return route task info
+   */
+  public RouteTaskInfo getRouteTaskInfo() {
+    return routeTaskInfo;
+  }
+
+  /**
+   * Solves a route on the next free task of the pool, with that task's default parameters. If every task is busy, the
+   * solve starts once one is returned.
+   *
+   * @param stops      stops to visit, in order
+   * @param travelMode travel mode, or null for the network's default
+   * @return future route result
+   */
+  public CompletableFuture<RouteResult> solve(List<Stop> stops, TravelMode travelMode) {
+
+    CompletableFuture<RouteResult> result = new CompletableFuture<>();
+    if (readyNanos == 0) {
+      result.completeExceptionally(new IllegalStateException("No route task is ready"));
+      return result;
+    }
+    // the caller may change its stops while the solve waits for a task
+    List<Stop> solveStops = new ArrayList<>(stops);
+    borrow(pooled -> {
+      if (pooled == null) {
+        result.completeExceptionally(new IllegalStateException("The routing engine was closed"));
+      } else {
+        solve(pooled, solveStops, travelMode, result);
+      }
+    });
+    return result;
+  }
+
+  private void solve(PooledTask pooled, List<Stop> stops, TravelMode travelMode,
+      CompletableFuture<RouteResult> result) {
+
+    long start = System.nanoTime();
+    ListenableFuture<RouteResult> solve;
+    try {
+      pooled.parameters.getStops().clear();
+      pooled.parameters.getStops().addAll(stops);
+      if (travelMode != null) {
+        pooled.parameters.setTravelMode(travelMode);
+      }
+      solve = pooled.task.solveRouteAsync(pooled.parameters);
+    } catch (RuntimeException e) {
+      release(pooled);
+      result.completeExceptionally(e);
+      return;
+    }
+    solve.addDoneListener(() -> {
+      lastSolveNanos = System.nanoTime() - start;
+      release(pooled);
+      try {
+        RouteResult routeResult = solve.get();
+        if (firstRouteNanos == 0) {
+          firstRouteNanos = System.nanoTime() - startNanos;
+        }
+        result.complete(routeResult);
+      } catch (InterruptedException | ExecutionException e) {
+        result.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Passes a free task to a solve, right away if one is free, or else once one is returned.
+   */
+  private void borrow(Consumer<PooledTask> solve) {
+
+    PooledTask pooled;
+    synchronized (this) {
+      if (closed) {
+        pooled = null;
+      } else {
+        pooled = freeTasks.poll();
+        if (pooled == null) {
+          waiting.add(solve);
+          return;
+        }
+      }
+    }
+    solve.accept(pooled);
+  }
+
+  /**
+   * Hands a task to the next waiting solve, or returns it to the pool.
+   */
+  private void release(PooledTask pooled) {
+
+    Consumer<PooledTask> next;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      next = waiting.poll();
+      if (next == null) {
+        freeTasks.push(pooled);
+        return;
+      }
+    }
+    next.accept(pooled);
+  }
+
+  /**
+   * Gets the number of tasks currently free to solve.
+   *
+   * @return free task count
+   */
+  public synchronized int getAvailableCount() {
+    return freeTasks.size();
+  }
+
+  /**
+   * Gets the time from {@link #start()} until the first task was ready.
+   *
+   * @return time to ready in milliseconds, or -1 if not ready yet
+   */
+  public long getTimeToReadyMillis() {
+    return readyNanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(readyNanos);
+  }
+
+  /**
+   * Gets the time the first task's warm-up solve took.
+   *
+   * @return warm-up time in milliseconds, or -1 if no warm-up finished yet
+   */
+  public long getWarmUpMillis() {
+    return warmUpNanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(warmUpNanos);
+  }
+
+  /**
+   * Gets the time from {@link #start()} until the first route requested through {@link #solve} was returned.
+   *
+   * @return time to first route in milliseconds, or -1 if no route was solved yet
+   */
+  public long getTimeToFirstRouteMillis() {
+    return firstRouteNanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstRouteNanos);
+  }
+
+  /**
+   * Gets the time the most recent solve took.
+   *
+   * @return solve time in milliseconds
+   */
+  public long getLastSolveMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(lastSolveNanos);
+  }
+
+  /**
+   * Stops opening tasks and fails the solves still waiting for one.
+   */
+  @Override
+  public void close() {
+
+    loader.shutdownNow();
+    List<Consumer<PooledTask>> dropped;
+    synchronized (this) {
+      closed = true;
+      freeTasks.clear();
+      dropped = new ArrayList<>(waiting);
+      waiting.clear();
+    }
+    dropped.forEach(solve -> solve.accept(null));
+  }
+
+  /**
+   * Opens, loads and warms up one route task, then adds it to the pool.
+   */
+  private void openTask() {
+
+    try {
+      RouteTask task = new RouteTask(geodatabasePath, networkName);
+      task.loadAsync();
+      RouteParameters parameters = task.createDefaultParametersAsync().get();
+      if (task.getLoadStatus() != LoadStatus.LOADED) {
+        failed(task.getLoadError() != null ? task.getLoadError() : new IllegalStateException("Route task not "
+            + "loaded"));
+        return;
+      }
+
+      // solve once so the network's indexes are read before the user asks for a route
+      long warmUpStart = System.nanoTime();
+      RouteParameters warmUpParameters = task.createDefaultParametersAsync().get();
+      warmUpStops.forEach(point -> warmUpParameters.getStops().add(new Stop(point)));
+      try {
+        task.solveRouteAsync(warmUpParameters).get();
+      } catch (ExecutionException e) {
+        // the warm-up route does not need a solution, reading the network is enough
+      }
+
+      boolean first;
+      synchronized (this) {
+        first = openedCount++ == 0;
+        if (first) {
+          warmUpNanos = System.nanoTime() - warmUpStart;
+          routeTaskInfo = task.getRouteTaskInfo();
+          readyNanos = System.nanoTime() - startNanos;
+        }
+      }
+      release(new PooledTask(task, parameters));
+      if (first) {
+        Platform.runLater(() -> ready.set(true));
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      failed(e.getCause() != null ? e.getCause() : e);
+    } catch (RuntimeException e) {
+      // such as a missing geodatabase, counted like any other failure so the error is reported
+      failed(e);
+    }
+  }
+
+  /**
+   * Records a task that failed to open, reporting the error once no task of the pool can be ready.
+   */
+  private void failed(Throwable error) {
+
+    error.printStackTrace();
+    boolean allFailed;
+    synchronized (this) {
+      allFailed = ++failedCount == poolSize && openedCount == 0;
+    }
+    if (allFailed) {
+      Platform.runLater(() -> loadError.set(error));
+    }
+  }
+
+  /**
+   * A route task of the pool, with default parameters created by that task.
+   */
+  private static class PooledTask {
+
+    final RouteTask task;
+    final RouteParameters parameters;
+
+    PooledTask(RouteTask task, RouteParameters parameters) {
+
+      this.task = task;
+      this.parameters = parameters;
+    }
+  }
+}
@@ -34,16 +34,25 @@ import com.esri.arcgisruntime.mapping.view.*;
 import com.esri.arcgisruntime.symbology.ColorUtil;
 import com.esri.arcgisruntime.symbology.SimpleFillSymbol;
 import com.esri.arcgisruntime.symbology.SimpleRenderer;
+import com.esri.samples.util.SymbolFactory;
 
 import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
 public class ExtrudeGraphicsSample extends Application {
 
   private SceneView sceneView;
+  // graphics with the same color share one symbol
+  private final SymbolFactory symbolFactory = new SymbolFactory(16);
+  // heights are shown in this many shades, so graphics of similar height share a color
+  private static final int COLOR_STEPS = 8;
   private static final String ELEVATION_IMAGE_SERVICE =
       "http://elevation3d.arcgis.com/arcgis/rest/services/WorldElevation3D/Terrain3D/ImageServer";
 
@@ -55,6 +64,7 @@ public class ExtrudeGraphicsSample extends Application {
       // create stack pane and JavaFX app scene
       StackPane stackPane = new StackPane();
       Scene fxScene = new Scene(stackPane);
+      fxScene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
 
       // set title, squareSize, and add JavaFX scene to stage
       stage.setTitle("Extrude Graphics Sample");
@@ -100,20 +110,33 @@ public class ExtrudeGraphicsSample extends Application {
       List<Point> points = IntStream.range(0, 100).mapToObj(i -> new Point(i / 10 * squareSize + x, i % 10 *
           squareSize + y)).collect(Collectors.toList());
 
-      // create and style graphics
-      points.forEach(p -> {
+      // create and style graphics, then add them to the overlay in one call
+      List<Graphic> graphics = points.stream().map(p -> {
         double z = (int) (maxHeight * Math.random());
-        int color = ColorUtil.colorToArgb(Color.color(1.0 / maxHeight * z, 0, 0.5, 1));
+        int step = Math.min(COLOR_STEPS - 1, (int) (z / maxHeight * COLOR_STEPS));
+        int color = ColorUtil.colorToArgb(Color.color((step + 0.5) / COLOR_STEPS, 0, 0.5, 1));
         Polygon polygon = new Polygon(new PointCollection(Arrays.asList(new Point(p.getX(), p.getY(), z), new Point(p
             .getX() + squareSize, p.getY(), z), new Point(p.getX() + squareSize, p.getY() + squareSize, z), new Point(p
                 .getX(), p.getY() + squareSize, z))));
         Graphic graphic = new Graphic(polygon);
         graphic.getAttributes().put("HEIGHT", z);
-        graphic.setSymbol(new SimpleFillSymbol(SimpleFillSymbol.Style.SOLID, color, null));
-        graphicsOverlay.getGraphics().add(graphic);
-      });
+        graphic.setSymbol(symbolFactory.fill(SimpleFillSymbol.Style.SOLID, color, null));
+        return graphic;
+      }).collect(Collectors.toList());
+      graphicsOverlay.getGraphics().addAll(graphics);
 
       sceneView.getGraphicsOverlays().add(graphicsOverlay);
+
+      // show how many symbols the graphics needed
+      Label symbolsLabel = new Label(graphics.size() + " graphics\n" + symbolFactory);
+      symbolsLabel.getStyleClass().add("panel-label");
+      VBox symbolsBox = new VBox(symbolsLabel);
+      symbolsBox.getStyleClass().add("panel-region");
+      symbolsBox.setPadding(new Insets(10));
+      symbolsBox.setMaxSize(260, 60);
+      stackPane.getChildren().add(symbolsBox);
+      StackPane.setAlignment(symbolsBox, Pos.TOP_LEFT);
+      StackPane.setMargin(symbolsBox, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       // on any error, display the stack trace
       e.printStackTrace();
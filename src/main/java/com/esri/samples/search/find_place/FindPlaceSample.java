@@ -33,6 +33,7 @@ import com.esri.arcgisruntime.mapping.view.*;
 import com.esri.arcgisruntime.mapping.view.Callout.LeaderPosition;
 import com.esri.arcgisruntime.symbology.PictureMarkerSymbol;
 import com.esri.arcgisruntime.tasks.geocode.*;
+import com.esri.samples.util.GraphicsHitTester;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -61,7 +62,7 @@ public class FindPlaceSample extends Application {
   private ComboBox<String> locationBox;
   private Button searchButton;
   private Button redoButton;
-  private ListenableFuture<IdentifyGraphicsOverlayResult> identifyResults;
+  private GraphicsHitTester hitTester;
 
   @Override
   public void start(Stage stage) throws Exception {
@@ -131,6 +132,9 @@ public class FindPlaceSample extends Application {
       graphicsOverlay = new GraphicsOverlay();
       mapView.getGraphicsOverlays().add(graphicsOverlay);
 
+      // index the markers as they are added, to find the one clicked without an identify
+      hitTester = new GraphicsHitTester(mapView, graphicsOverlay);
+
       // set the callouts default style
       Callout callout = mapView.getCallout();
       callout.setLeaderPosition(LeaderPosition.BOTTOM);
@@ -222,24 +226,15 @@ public class FindPlaceSample extends Application {
           // create a point from where the user clicked
           Point2D point = new Point2D(evt.getX(), evt.getY());
 
-          // get layers with elements near the clicked location
-          identifyResults = mapView.identifyGraphicsOverlayAsync(graphicsOverlay, point, 10, false);
-          identifyResults.addDoneListener(() -> {
-            try {
-              List<Graphic> graphics = identifyResults.get().getGraphics();
-              if (graphics.size() > 0) {
-                Graphic marker = graphics.get(0);
-                // update the callout
-                Platform.runLater(() -> {
-                  callout.setTitle(marker.getAttributes().get("title").toString());
-                  callout.setDetail(marker.getAttributes().get("detail").toString());
-                  callout.showCalloutAt((Point) marker.getGeometry());
-                });
-              }
-            } catch (Exception e) {
-              e.printStackTrace();
-            }
-          });
+          // get the topmost marker near the clicked location
+          List<Graphic> graphics = hitTester.hitTest(point, 10, 1);
+          if (graphics.size() > 0) {
+            Graphic marker = graphics.get(0);
+            // update the callout
+            callout.setTitle(marker.getAttributes().get("title").toString());
+            callout.setDetail(marker.getAttributes().get("detail").toString());
+            callout.showCalloutAt((Point) marker.getGeometry());
+          }
         }
       });
 
@@ -453,6 +448,9 @@ public class FindPlaceSample extends Application {
   public void stop() throws Exception {
 
     // release resources when the application closes
+    if (hitTester != null) {
+      hitTester.close();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
@@ -0,0 +1,797 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+
+/**
+ * Append-only journal on disk of the edits an {@link EditSession} has made locally but the server has not yet
+ * acknowledged, so they survive the application closing or crashing before they are sent.
+ * <p>
+ * Each edit is written as a record of the table's URI, the feature's object and global IDs, its geometry as JSON and
+ * its attributes, framed by its length and a CRC32. An edit is appended before it is made locally, and made once its
+ * record is on disk. A background thread writes all the records appended since its last write at once and forces them
+ * to disk with a single sync, so a burst of edits waits for one sync rather than one each. Once the server has a
+ * result for an edit an acknowledgement is appended, and when acknowledged records outnumber the pending ones the file
+ * is rewritten with only those still pending.
+ * <p>
+ * A feature added locally has a temporary object ID until the server assigns its own, which an update or delete
+ * record couldn't find the feature by on replay. So an update of a feature whose add is still pending is written as a
+ * new add of the updated feature replacing the pending one, and a delete of it simply drops the pending add.
+ * <p>
+ * Opening a journal reads the edits still pending, dropping a record torn by a crash while it was being written, and
+ * {@link #replayAsync(ServiceFeatureTable, EditSession)} makes them to the table again and sends them.
+ */
+public class EditJournal {
+
+  private static final int MAGIC = 0x45444A31; // "EDJ1"
+  // acknowledged records that trigger rewriting the file, once they also outnumber the pending ones
+  private static final int COMPACT_THRESHOLD = 1000;
+  // object or global IDs in the where clause of one replay query
+  private static final int QUERY_CHUNK = 500;
+
+  // record kinds, the edit types' ordinals followed by an acknowledgement
+  private static final int ACKNOWLEDGED = EditSession.EditType.values().length;
+
+  // value tags of attributes
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int SHORT = 2;
+  private static final int INTEGER = 3;
+  private static final int LONG = 4;
+  private static final int FLOAT = 5;
+  private static final int DOUBLE = 6;
+  private static final int DATE = 7;
+
+  private final Path file;
+  // pending records by sequence number, in the order they were appended
+  private final Map<Long, Entry> pending = new LinkedHashMap<>();
+  // sequence numbers of pending adds by the table URI and temporary object ID the feature was given locally, and back
+  private final Map<String, Long> pendingAdds = new HashMap<>();
+  private final Map<Long, String> pendingAddKeys = new HashMap<>();
+  private final List<Entry> writes = new ArrayList<>();
+  private final Thread writer;
+  private FileChannel channel;
+  private long nextSequence;
+  // records appended before this sequence number were read from the file when it was opened
+  private final long firstAppended;
+  private int acknowledgedCount;
+  private long syncCount;
+  private boolean closed;
+  private final CompletableFuture<Void> writerStopped = new CompletableFuture<>();
+
+  private EditJournal(Path file, FileChannel channel, long nextSequence, int acknowledgedCount) {
+
+    this.file = file;
+    this.channel = channel;
+    this.nextSequence = nextSequence;
+    firstAppended = nextSequence;
+    this.acknowledgedCount = acknowledgedCount;
+    writer = new Thread(this::writeLoop, "edit-journal");
+    writer.setDaemon(true);
+  }
+
+  /**
+   * Opens a journal, creating it if it doesn't exist, and reads the edits still pending in it.
+   *
+   * @param file journal file
+   * @return the journal
+   * @throws IOException if the file can't be read or written, or isn't a journal
+   */
+  public static EditJournal open(Path file) throws IOException {
+
+    byte[] bytes = Files.exists(file) ? Files.readAllBytes(file) : new byte[0];
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    if (bytes.length < 4) {
+      // new, or torn before its header was synced
+      channel.truncate(0);
+      channel.write(header());
+      channel.force(true);
+      EditJournal journal = new EditJournal(file, channel, 0, 0);
+      journal.writer.start();
+      return journal;
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    if (buffer.getInt() != MAGIC) {
+      channel.close();
+      throw new IOException("Not an edit journal: " + file);
+    }
+    Map<Long, Entry> entries = new LinkedHashMap<>();
+    long nextSequence = 0;
+    int acknowledgedCount = 0;
+    CRC32 crc = new CRC32();
+    int end = buffer.position();
+    while (buffer.remaining() >= 8) {
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length < 9 || length > buffer.remaining()) {
+        break;
+      }
+      crc.reset();
+      crc.update(bytes, buffer.position(), length);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      int kind = buffer.get();
+      long sequence = buffer.getLong();
+      buffer.position(buffer.position() + length - 9);
+      if (kind == ACKNOWLEDGED) {
+        if (entries.remove(sequence) != null) {
+          acknowledgedCount++;
+        }
+      } else {
+        byte[] frame = new byte[length + 8];
+        System.arraycopy(bytes, end, frame, 0, frame.length);
+        Entry entry = new Entry(sequence, frame);
+        entry.written = true;
+        entries.put(sequence, entry);
+      }
+      nextSequence = Math.max(nextSequence, sequence + 1);
+      end = buffer.position();
+    }
+    // anything after the last whole record was torn by a crash while it was written
+    channel.truncate(end);
+    channel.position(end);
+
+    EditJournal journal = new EditJournal(file, channel, nextSequence, acknowledgedCount);
+    journal.pending.putAll(entries);
+    journal.writer.start();
+    return journal;
+  }
+
+  /**
+   * Appends an edit about to be made locally to a table. The feature is read right away, so it may change once this
+   * returns. An update or delete of a feature whose add is still pending replaces or drops that add.
+   *
+   * @param featureTable table the edit is made to
+   * @param type         kind of edit
+   * @param feature      feature to edit
+   * @return future of the record's sequence number, completing once it is on disk
+   */
+  public CompletableFuture<Long> append(ServiceFeatureTable featureTable, EditSession.EditType type, Feature feature) {
+
+    Object objectId = feature.getAttributes().get(fieldName(featureTable, Field.Type.OID));
+    String addKey = objectId instanceof Number ? featureTable.getUri() + "#" + objectId : null;
+    long sequence;
+    Long pendingAdd;
+    synchronized (this) {
+      sequence = nextSequence++;
+      pendingAdd = type != EditSession.EditType.ADD && addKey != null ? pendingAdds.get(addKey) : null;
+    }
+    // the server doesn't know the feature yet, so the add is made again with the update, or not at all
+    EditSession.EditType written = pendingAdd != null && type == EditSession.EditType.UPDATE ? EditSession.EditType
+        .ADD : type;
+    Entry entry;
+    try {
+      entry = new Entry(sequence, frame(encode(featureTable, written, feature, sequence)));
+    } catch (IOException e) {
+      CompletableFuture<Long> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+    synchronized (this) {
+      if (closed) {
+        entry.durable.completeExceptionally(new IllegalStateException("Edit journal is closed"));
+        return entry.durable;
+      }
+      pending.put(sequence, entry);
+      writes.add(entry);
+      if (pendingAdd != null) {
+        acknowledge(pendingAdd);
+        if (written == EditSession.EditType.ADD) {
+          pendingAdds.put(addKey, sequence);
+          pendingAddKeys.put(sequence, addKey);
+        }
+      }
+      notifyAll();
+    }
+    return entry.durable;
+  }
+
+  /**
+   * Notes the temporary object ID an added feature was given when it was made locally, so later edits of it are
+   * merged into its pending add.
+   *
+   * @param sequence     sequence number of the add's record
+   * @param featureTable table the feature was added to
+   * @param feature      added feature
+   */
+  synchronized void added(long sequence, ServiceFeatureTable featureTable, Feature feature) {
+
+    Object objectId = feature.getAttributes().get(fieldName(featureTable, Field.Type.OID));
+    if (objectId instanceof Number && pending.containsKey(sequence)) {
+      String addKey = featureTable.getUri() + "#" + objectId;
+      pendingAdds.put(addKey, sequence);
+      pendingAddKeys.put(sequence, addKey);
+    }
+  }
+
+  /**
+   * Marks an edit as having its result from the server, so it is no longer replayed.
+   *
+   * @param sequence sequence number of the edit's record
+   */
+  public synchronized void acknowledge(long sequence) {
+
+    String addKey = pendingAddKeys.remove(sequence);
+    if (addKey != null) {
+      pendingAdds.remove(addKey);
+    }
+    if (pending.remove(sequence) == null || closed) {
+      return;
+    }
+    acknowledgedCount++;
+    Entry entry = new Entry(sequence, frame(acknowledgement(sequence)));
+    writes.add(entry);
+    notifyAll();
+  }
+
+  /**
+   * Gets the number of edits without a result from the server.
+   *
+   * @return pending edits
+   */
+  public synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Gets the number of times records were forced to disk.
+   *
+   * @return syncs
+   */
+  public synchronized long getSyncCount() {
+    return syncCount;
+  }
+
+  /**
+   * Makes the edits left pending for a table by a previous run to it again and sends them through a session, which
+   * acknowledges them once it has their results. Only the records read when the journal was opened are replayed, since
+   * those appended since are already queued in a session. Updates of the same feature are collapsed into the last of
+   * them, since each holds all of the feature's attributes. Adds already on the server, found by their global IDs, are
+   * made again as updates of the feature there, since an update made before the add was acknowledged may have been
+   * merged into them. Updates and deletes of features no longer on the server are acknowledged without being made.
+   *
+   * @param featureTable table to replay to
+   * @param session      session to send the edits with
+   * @return future of the number of edits made again, completing once they are made locally
+   */
+  public CompletableFuture<Integer> replayAsync(ServiceFeatureTable featureTable, EditSession session) {
+
+    CompletableFuture<Integer> replayed = new CompletableFuture<>();
+    featureTable.loadAsync();
+    featureTable.addDoneLoadingListener(() -> {
+      if (featureTable.getLoadStatus() != LoadStatus.LOADED) {
+        replayed.completeExceptionally(featureTable.getLoadError());
+        return;
+      }
+      try {
+        replay(featureTable, session, replayed);
+      } catch (Exception e) {
+        replayed.completeExceptionally(e);
+      }
+    });
+    return replayed;
+  }
+
+  private void replay(ServiceFeatureTable featureTable, EditSession session, CompletableFuture<Integer> replayed)
+      throws IOException {
+
+    List<byte[]> frames = new ArrayList<>();
+    synchronized (this) {
+      pending.values().stream().filter(entry -> entry.sequence < firstAppended).forEach(entry -> frames.add(
+          entry.frame));
+    }
+    // adds by global ID, or by sequence number without one
+    Map<Object, Record> adds = new LinkedHashMap<>();
+    Map<Long, Record> latest = new LinkedHashMap<>();
+    for (byte[] frame : frames) {
+      Record record = decode(frame);
+      if (!record.tableUri.equals(featureTable.getUri())) {
+        continue;
+      }
+      if (record.type == EditSession.EditType.ADD) {
+        // an add replacing one whose acknowledgement was torn off by a crash
+        Record previous = adds.put(record.globalId != null ? record.globalId : record.sequence, record);
+        if (previous != null) {
+          acknowledge(previous.sequence);
+        }
+      } else {
+        Record previous = latest.get(record.objectId);
+        if (previous != null && previous.sequence > record.sequence) {
+          acknowledge(record.sequence);
+        } else if (previous != null) {
+          // the later update or delete holds everything the earlier one did
+          acknowledge(previous.sequence);
+          latest.put(record.objectId, record);
+        } else {
+          latest.put(record.objectId, record);
+        }
+      }
+    }
+    if (adds.isEmpty() && latest.isEmpty()) {
+      replayed.complete(0);
+      return;
+    }
+
+    String objectIdField = fieldName(featureTable, Field.Type.OID);
+    String globalIdField = fieldName(featureTable, Field.Type.GLOBALID);
+    List<String> objectIds = new ArrayList<>();
+    latest.keySet().forEach(id -> objectIds.add(String.valueOf(id)));
+    List<String> globalIds = new ArrayList<>();
+    if (globalIdField != null) {
+      adds.values().stream().filter(add -> add.globalId != null).forEach(add -> globalIds.add("'" + add.globalId
+          + "'"));
+    }
+
+    CompletableFuture<List<Feature>> existingFeatures = query(featureTable, objectIdField, objectIds);
+    CompletableFuture<List<Feature>> addedFeatures = query(featureTable, globalIdField, globalIds);
+    existingFeatures.thenCombine(addedFeatures, (existing, added) -> {
+      Map<Long, Feature> byObjectId = new HashMap<>();
+      existing.forEach(f -> byObjectId.put(((Number) f.getAttributes().get(objectIdField)).longValue(), f));
+      Map<String, Feature> byGlobalId = new HashMap<>();
+      added.forEach(f -> byGlobalId.put(String.valueOf(f.getAttributes().get(globalIdField)), f));
+
+      List<CompletableFuture<Void>> localEdits = new ArrayList<>();
+      for (Record record : adds.values()) {
+        Feature onServer = record.globalId != null ? byGlobalId.get(record.globalId) : null;
+        if (onServer != null) {
+          // the server has it, but perhaps not an update merged into the add since it was sent
+          update(onServer, featureTable, record);
+          localEdits.add(replay(session, featureTable, EditSession.EditType.UPDATE, record, onServer, featureTable
+              .updateFeatureAsync(onServer)));
+          continue;
+        }
+        Feature feature = featureTable.createFeature(editableAttributes(featureTable, record), record.geometry());
+        localEdits.add(replay(session, featureTable, record.type, record, feature, featureTable.addFeatureAsync(
+            feature)));
+      }
+      for (Record record : latest.values()) {
+        Feature feature = byObjectId.get(record.objectId);
+        if (feature == null) {
+          // deleted on the server since, either by this edit or by someone else
+          acknowledge(record.sequence);
+        } else if (record.type == EditSession.EditType.DELETE) {
+          localEdits.add(replay(session, featureTable, record.type, record, feature, featureTable.deleteFeatureAsync(
+              feature)));
+        } else {
+          update(feature, featureTable, record);
+          localEdits.add(replay(session, featureTable, record.type, record, feature, featureTable.updateFeatureAsync(
+              feature)));
+        }
+      }
+      return localEdits;
+    }).thenCompose(localEdits -> CompletableFuture.allOf(localEdits.toArray(new CompletableFuture[0]))
+        .thenApply(v -> localEdits.size())).whenComplete((count, error) -> {
+      if (error != null) {
+        replayed.completeExceptionally(error);
+      } else {
+        session.commit();
+        replayed.complete(count);
+      }
+    });
+  }
+
+  /**
+   * Tracks a replayed edit with its existing record and completes once it is made locally, whether or not it could be.
+   */
+  private static CompletableFuture<Void> replay(EditSession session, ServiceFeatureTable featureTable,
+      EditSession.EditType type, Record record, Feature feature, ListenableFuture<Void> localEdit) {
+
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    localEdit.addDoneListener(() -> done.complete(null));
+    session.replay(featureTable, type, feature, localEdit, record.sequence).whenComplete((result, error) -> {
+      if (error != null) {
+        error.printStackTrace();
+      }
+    });
+    return done;
+  }
+
+  /**
+   * Sets a feature's attributes and geometry to those of a record.
+   */
+  private static void update(Feature feature, ServiceFeatureTable featureTable, Record record) {
+
+    feature.getAttributes().putAll(editableAttributes(featureTable, record));
+    if (record.geometryJson != null) {
+      feature.setGeometry(record.geometry());
+    }
+  }
+
+  /**
+   * Gets the attributes of a record the table lets an edit set.
+   */
+  private static Map<String, Object> editableAttributes(ServiceFeatureTable featureTable, Record record) {
+
+    Map<String, Object> attributes = new HashMap<>();
+    for (Field field : featureTable.getFields()) {
+      if (field.isEditable() && field.getFieldType() != Field.Type.OID && field.getFieldType() != Field.Type.GLOBALID
+          && record.attributes.containsKey(field.getName())) {
+        attributes.put(field.getName(), record.attributes.get(field.getName()));
+      }
+    }
+    return attributes;
+  }
+
+  /**
+   * Queries the features whose field has one of the given values, in chunks to keep the where clauses short.
+   */
+  private static CompletableFuture<List<Feature>> query(ServiceFeatureTable featureTable, String field,
+      List<String> values) {
+
+    CompletableFuture<List<Feature>> all = CompletableFuture.completedFuture(new ArrayList<>());
+    for (int start = 0; start < values.size(); start += QUERY_CHUNK) {
+      QueryParameters query = new QueryParameters();
+      query.setWhereClause(field + " IN (" + String.join(",", values.subList(start, Math.min(values.size(), start
+          + QUERY_CHUNK))) + ")");
+      CompletableFuture<List<Feature>> chunk = new CompletableFuture<>();
+      ListenableFuture<FeatureQueryResult> result = featureTable.queryFeaturesAsync(query,
+          ServiceFeatureTable.QueryFeatureFields.LOAD_ALL);
+      result.addDoneListener(() -> {
+        try {
+          List<Feature> features = new ArrayList<>();
+          result.get().forEach(features::add);
+          chunk.complete(features);
+        } catch (Exception e) {
+          chunk.completeExceptionally(e);
+        }
+      });
+      all = all.thenCombine(chunk, (features, more) -> {
+        features.addAll(more);
+        return features;
+      });
+    }
+    return all;
+  }
+
+  /**
+   * Stops writing once the records appended so far are on disk, and closes the file.
+   *
+   * @return future completing once the file is closed
+   */
+  public CompletableFuture<Void> close() {
+
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    return writerStopped;
+  }
+
+  private void writeLoop() {
+
+    while (true) {
+      List<Entry> batch;
+      synchronized (this) {
+        while (writes.isEmpty() && !closed) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            closed = true;
+          }
+        }
+        if (writes.isEmpty()) {
+          break;
+        }
+        batch = new ArrayList<>(writes);
+        writes.clear();
+      }
+
+      try {
+        int size = 0;
+        for (Entry entry : batch) {
+          size += entry.frame.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        batch.forEach(entry -> buffer.put(entry.frame));
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        // one sync for every record appended while the last one ran
+        channel.force(false);
+        synchronized (this) {
+          syncCount++;
+          batch.forEach(entry -> entry.written = true);
+        }
+        batch.forEach(entry -> entry.durable.complete(entry.sequence));
+        compactIfNeeded();
+      } catch (IOException e) {
+        batch.forEach(entry -> entry.durable.completeExceptionally(e));
+        e.printStackTrace();
+      }
+    }
+
+    try {
+      channel.close();
+      writerStopped.complete(null);
+    } catch (IOException e) {
+      writerStopped.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Rewrites the file with only the pending records, once most of it is acknowledged. The new file is synced before it
+   * replaces the old one, so a crash while compacting leaves one or the other whole.
+   */
+  private void compactIfNeeded() throws IOException {
+
+    List<byte[]> frames = new ArrayList<>();
+    synchronized (this) {
+      if (acknowledgedCount < COMPACT_THRESHOLD || acknowledgedCount < pending.size()) {
+        return;
+      }
+      // records still waiting to be written are appended to the new file afterwards
+      pending.values().stream().filter(entry -> entry.written).forEach(entry -> frames.add(entry.frame));
+      acknowledgedCount = 0;
+    }
+
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      out.write(header());
+      for (byte[] frame : frames) {
+        out.write(ByteBuffer.wrap(frame));
+      }
+      out.force(true);
+    }
+    channel.close();
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private static ByteBuffer header() {
+
+    ByteBuffer header = ByteBuffer.allocate(4);
+    header.putInt(MAGIC).flip();
+    return header;
+  }
+
+  /**
+   * Frames a record with its length and checksum.
+   */
+  private static byte[] frame(byte[] record) {
+
+    CRC32 crc = new CRC32();
+    crc.update(record);
+    ByteBuffer frame = ByteBuffer.allocate(record.length + 8);
+    frame.putInt(record.length).putInt((int) crc.getValue()).put(record);
+    return frame.array();
+  }
+
+  private static byte[] acknowledgement(long sequence) {
+
+    ByteBuffer record = ByteBuffer.allocate(9);
+    record.put((byte) ACKNOWLEDGED).putLong(sequence);
+    return record.array();
+  }
+
+  private static byte[] encode(ServiceFeatureTable featureTable, EditSession.EditType type, Feature feature,
+      long sequence) throws IOException {
+
+    Map<String, Object> attributes = feature.getAttributes();
+    Object objectId = attributes.get(fieldName(featureTable, Field.Type.OID));
+    String globalIdField = fieldName(featureTable, Field.Type.GLOBALID);
+    Object globalId = globalIdField != null ? attributes.get(globalIdField) : null;
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(type.ordinal());
+    out.writeLong(sequence);
+    writeString(out, featureTable.getUri());
+    // an added feature's ID is assigned by the server
+    out.writeLong(type != EditSession.EditType.ADD && objectId instanceof Number ? ((Number) objectId).longValue()
+        : -1);
+    writeString(out, globalId != null ? globalId.toString() : null);
+    if (type == EditSession.EditType.DELETE) {
+      writeString(out, null);
+      out.writeInt(0);
+      return bytes.toByteArray();
+    }
+
+    writeString(out, feature.getGeometry() != null ? feature.getGeometry().toJson() : null);
+    out.writeInt(attributes.size());
+    for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+      out.writeUTF(attribute.getKey());
+      writeValue(out, attribute.getValue());
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Record decode(byte[] frame) throws IOException {
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame, 8, frame.length - 8));
+    EditSession.EditType type = EditSession.EditType.values()[in.readByte()];
+    long sequence = in.readLong();
+    String tableUri = readString(in);
+    long objectId = in.readLong();
+    String globalId = readString(in);
+    String geometryJson = readString(in);
+    int count = in.readInt();
+    Map<String, Object> attributes = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      String name = in.readUTF();
+      attributes.put(name, readValue(in));
+    }
+    return new Record(type, sequence, tableUri, objectId, globalId, geometryJson, attributes);
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Calendar) {
+      out.writeByte(DATE);
+      out.writeLong(((Calendar) value).getTimeInMillis());
+    } else {
+      // text, and global IDs and GUIDs in their string form
+      out.writeByte(STRING);
+      writeString(out, value.toString());
+    }
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+
+    int tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case SHORT:
+        return in.readShort();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case DATE:
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(in.readLong());
+        return calendar;
+      default:
+        throw new IOException("Unknown value tag " + tag);
+    }
+  }
+
+  // writeUTF is limited to 64 KB, which long text and polygon JSON can exceed
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String fieldName(ServiceFeatureTable featureTable, Field.Type type) {
+
+    String name = featureTable.getFields().stream().filter(field -> field.getFieldType() == type).map(Field::getName)
+        .findFirst().orElse(null);
+    return name == null && type == Field.Type.OID ? "objectid" : name;
+  }
+
+  /**
+   * A record in the file, and the future of it being on disk.
+   */
+  private static class Entry {
+
+    final long sequence;
+    final byte[] frame;
+    final CompletableFuture<Long> durable = new CompletableFuture<>();
+    boolean written;
+
+    Entry(long sequence, byte[] frame) {
+
+      this.sequence = sequence;
+      this.frame = frame;
+    }
+  }
+
+  /**
+   * A pending edit read back from its record.
+   */
+  private static class Record {
+
+    final EditSession.EditType type;
+    final long sequence;
+    final String tableUri;
+    final long objectId;
+    final String globalId;
+    final String geometryJson;
+    final Map<String, Object> attributes;
+
+    Record(EditSession.EditType type, long sequence, String tableUri, long objectId, String globalId,
+        String geometryJson, Map<String, Object> attributes) {
+
+      this.type = type;
+      this.sequence = sequence;
+      this.tableUri = tableUri;
+      this.objectId = objectId;
+      this.globalId = globalId;
+      this.geometryJson = geometryJson;
+      this.attributes = attributes;
+    }
+
+    Geometry geometry() {
+      return geometryJson != null ? Geometry.fromJson(geometryJson) : null;
+    }
+  }
+}
@@ -0,0 +1,660 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureEditResult;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+
+/**
+ * Queues local edits of service feature tables and sends them to the server in batches, instead of one
+ * {@link ServiceFeatureTable#applyEditsAsync()} round trip per edit.
+ * <p>
+ * Each edit is made to the table locally, so the map shows it, and queued once it succeeds. A table's queue
+ * is sent with a single applyEditsAsync call once it holds the batch size, once the time window since its first edit
+ * has passed, or on {@link #commit()}, whichever comes first. One call per table is in flight at a time; edits made
+ * meanwhile wait for the next. Every edit gets a future of its own {@link FeatureEditResult}. applyEditsAsync sends all
+ * of a table's local edits, so an edit made just before a call goes out with it even if it was queued for the next;
+ * such edits are completed by the call that sent them. Updates and deletes are matched to the results by object ID,
+ * and adds, whose object IDs are assigned by the server, to the results left over in the order they were made. An
+ * edit without a result fails rather than completing with none.
+ * <p>
+ * Given an {@link EditJournal}, each edit is written to it and on disk before it is made locally, so applyEditsAsync
+ * can't send an edit the journal doesn't have, and acknowledged in it once the server has a result for it, so edits
+ * still in the queue when the application dies are made again on the next start. The session therefore makes the
+ * edits itself, from the callbacks it is given.
+ */
+public class EditSession {
+
+  /**
+   * Kind of edit.
+   */
+  public enum EditType {
+    /** A new feature. */
+    ADD,
+    /** A changed feature. */
+    UPDATE,
+    /** A removed feature. */
+    DELETE
+  }
+
+  // longest time closeAndWait waits for the server, and again for the journal
+  private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+  private final int batchSize;
+  private final long windowMillis;
+  private final EditJournal journal;
+  private final Map<ServiceFeatureTable, TableQueue> queues = new HashMap<>();
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "edit-session");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private Consumer<Statistics> onFlushed = statistics -> {};
+
+  private long firstEditNanos;
+  private long lastResultNanos;
+  private int editCount;
+  private int failedCount;
+  private int roundTrips;
+
+  /**
+   * Creates a session.
+   *
+   * @param batchSize    queued edits of a table that trigger sending them
+   * @param windowMillis time after a table's first queued edit that triggers sending its edits
+   */
+  public EditSession(int batchSize, long windowMillis) {
+    this(batchSize, windowMillis, null);
+  }
+
+  /**
+   * Creates a session that journals its edits until the server has them.
+   *
+   * @param batchSize    queued edits of a table that trigger sending them
+   * @param windowMillis time after a table's first queued edit that triggers sending its edits
+   * @param journal      journal to write edits to, or null
+   */
+  public EditSession(int batchSize, long windowMillis, EditJournal journal) {
+
+    if (batchSize < 1 || windowMillis < 0) {
+      throw new IllegalArgumentException("Expected a positive batch size and a window of zero or more");
+    }
+    this.batchSize = batchSize;
+    this.windowMillis = windowMillis;
+    this.journal = journal;
+  }
+
+  /**
+   * Creates a session that journals its edits in the temporary directory until the server has them, so they aren't
+   * lost if the application closes first.
+   *
+   * @param name         name of the journal, unique to the application
+   * @param batchSize    queued edits of a table that trigger sending them
+   * @param windowMillis time after a table's first queued edit that triggers sending its edits
+   * @return the session
+   * @throws IOException if the journal can't be opened
+   */
+  public static EditSession openJournaled(String name, int batchSize, long windowMillis) throws IOException {
+
+    EditJournal journal = EditJournal.open(Paths.get(System.getProperty("java.io.tmpdir"), name + "_edits.journal"));
+    return new EditSession(batchSize, windowMillis, journal);
+  }
+
+  /**
+   * Makes the edits a previous run left in the session's journal for a table again and sends them.
+   *
+   * @param featureTable table to replay to
+   * @return future of the number of edits made again, or of 0 without a journal
+   * @see EditJournal#replayAsync(ServiceFeatureTable, EditSession)
+   */
+  public CompletableFuture<Integer> replayJournalAsync(ServiceFeatureTable featureTable) {
+    return journal != null ? journal.replayAsync(featureTable, this) : CompletableFuture.completedFuture(0);
+  }
+
+  /**
+   * Sets a callback called after each round trip, on the thread that completed it.
+   *
+   * @param onFlushed receives the session's statistics so far
+   */
+  public synchronized void setOnFlushed(Consumer<Statistics> onFlushed) {
+    this.onFlushed = onFlushed;
+  }
+
+  /**
+   * Adds a feature to a table and queues the add.
+   *
+   * @param featureTable table to add to
+   * @param feature      feature created by the table
+   * @return future of the server's result for the feature
+   */
+  public CompletableFuture<FeatureEditResult> addFeatureAsync(ServiceFeatureTable featureTable, Feature feature) {
+    return track(featureTable, EditType.ADD, feature, () -> featureTable.addFeatureAsync(feature));
+  }
+
+  /**
+   * Updates a feature in a table and queues the update.
+   *
+   * @param featureTable table of the feature
+   * @param feature      changed feature
+   * @return future of the server's result for the feature
+   */
+  public CompletableFuture<FeatureEditResult> updateFeatureAsync(ServiceFeatureTable featureTable, Feature feature) {
+    return track(featureTable, EditType.UPDATE, feature, () -> featureTable.updateFeatureAsync(feature));
+  }
+
+  /**
+   * Deletes a feature from a table and queues the delete.
+   *
+   * @param featureTable table of the feature
+   * @param feature      feature to delete
+   * @return future of the server's result for the feature
+   */
+  public CompletableFuture<FeatureEditResult> deleteFeatureAsync(ServiceFeatureTable featureTable, Feature feature) {
+    return track(featureTable, EditType.DELETE, feature, () -> featureTable.deleteFeatureAsync(feature));
+  }
+
+  /**
+   * Makes an edit some other way, such as through an index that keeps itself up to date, and queues it.
+   *
+   * @param featureTable table to edit
+   * @param type         kind of edit
+   * @param feature      feature to edit
+   * @param edit         makes the edit locally, once it is journaled
+   * @return future of the server's result for the feature
+   */
+  public CompletableFuture<FeatureEditResult> track(ServiceFeatureTable featureTable, EditType type, Feature feature,
+      Supplier<ListenableFuture<Void>> edit) {
+    return track(featureTable, type, Collections.singletonList(feature), edit, false).get(0);
+  }
+
+  /**
+   * Makes an edit of several features with one call, such as {@link ServiceFeatureTable#updateFeaturesAsync}, and
+   * queues it for each of them.
+   *
+   * @param featureTable table to edit
+   * @param type         kind of edit
+   * @param features     features to edit
+   * @param edit         makes the edit locally, once it is journaled
+   * @return futures of the server's results, one per feature in the same order
+   */
+  public List<CompletableFuture<FeatureEditResult>> trackAll(ServiceFeatureTable featureTable, EditType type,
+      List<Feature> features, Supplier<ListenableFuture<Void>> edit) {
+    return track(featureTable, type, features, edit, false);
+  }
+
+  /**
+   * Makes an edit the user waits on, and sends the table's queue as soon as the edit is made locally, without waiting
+   * for the batch to fill or the window to pass.
+   *
+   * @param featureTable table to edit
+   * @param type         kind of edit
+   * @param feature      feature to edit
+   * @param edit         makes the edit locally, once it is journaled
+   * @return future of the server's result for the feature
+   */
+  public CompletableFuture<FeatureEditResult> trackAndCommit(ServiceFeatureTable featureTable, EditType type,
+      Feature feature, Supplier<ListenableFuture<Void>> edit) {
+    return track(featureTable, type, Collections.singletonList(feature), edit, true).get(0);
+  }
+
+  /**
+   * Queues an edit made again from its record in the session's journal, which it is acknowledged in once sent.
+   */
+  CompletableFuture<FeatureEditResult> replay(ServiceFeatureTable featureTable, EditType type, Feature feature,
+      ListenableFuture<Void> localEdit, long sequence) {
+
+    Edit edit = new Edit(type, feature);
+    edit.sequence = sequence;
+    track(featureTable, edit, localEdit, false);
+    return edit.result;
+  }
+
+  private List<CompletableFuture<FeatureEditResult>> track(ServiceFeatureTable featureTable, EditType type,
+      List<Feature> features, Supplier<ListenableFuture<Void>> makeEdit, boolean commit) {
+
+    List<Edit> edits = new ArrayList<>();
+    features.forEach(feature -> edits.add(new Edit(type, feature)));
+    if (journal == null) {
+      make(featureTable, edits, makeEdit, commit);
+    } else {
+      // write ahead, so the edits are on disk before they are made
+      List<CompletableFuture<Long>> journaled = new ArrayList<>();
+      for (Edit edit : edits) {
+        journaled.add(journal.append(featureTable, type, edit.feature).whenComplete((sequence, error) -> {
+          if (error != null) {
+            error.printStackTrace();
+          } else {
+            edit.sequence = sequence;
+          }
+        }));
+      }
+      // made even if the journal failed, they just can't be replayed
+      CompletableFuture.allOf(journaled.toArray(new CompletableFuture[journaled.size()])).whenComplete((done,
+          error) -> make(featureTable, edits, makeEdit, commit));
+    }
+    List<CompletableFuture<FeatureEditResult>> results = new ArrayList<>();
+    edits.forEach(edit -> results.add(edit.result));
+    return results;
+  }
+
+  private void make(ServiceFeatureTable featureTable, List<Edit> edits, Supplier<ListenableFuture<Void>> makeEdit,
+      boolean commit) {
+
+    ListenableFuture<Void> localEdit;
+    try {
+      localEdit = makeEdit.get();
+    } catch (RuntimeException e) {
+      edits.forEach(edit -> fail(edit, e));
+      return;
+    }
+    edits.forEach(edit -> track(featureTable, edit, localEdit, commit));
+  }
+
+  private void track(ServiceFeatureTable featureTable, Edit edit, ListenableFuture<Void> localEdit, boolean commit) {
+
+    localEdit.addDoneListener(() -> {
+      try {
+        localEdit.get();
+      } catch (Exception e) {
+        fail(edit, e);
+        return;
+      }
+      edit.madeNanos = System.nanoTime();
+      if (journal != null && edit.type == EditType.ADD && edit.sequence >= 0) {
+        journal.added(edit.sequence, featureTable, edit.feature);
+      }
+      queue(featureTable, edit, commit);
+    });
+    if (journal != null) {
+      // an edit the server has answered, even by rejecting it, is done; one whose round trip failed is replayed
+      edit.result.thenRun(() -> {
+        if (edit.sequence >= 0) {
+          journal.acknowledge(edit.sequence);
+        }
+      });
+    }
+  }
+
+  /**
+   * Fails an edit that was never made locally, so there is nothing to send or replay.
+   */
+  private void fail(Edit edit, Exception error) {
+
+    if (journal != null && edit.sequence >= 0) {
+      journal.acknowledge(edit.sequence);
+    }
+    edit.result.completeExceptionally(error);
+  }
+
+  /**
+   * Sends the queued edits of every table now.
+   *
+   * @return future completing once every edit queued so far has its result
+   */
+  public CompletableFuture<Void> commit() {
+
+    List<CompletableFuture<FeatureEditResult>> results = new ArrayList<>();
+    List<ServiceFeatureTable> tables;
+    synchronized (this) {
+      for (TableQueue queue : queues.values()) {
+        queue.queued.forEach(edit -> results.add(edit.result));
+        queue.sending.forEach(edit -> results.add(edit.result));
+      }
+      tables = new ArrayList<>(queues.keySet());
+    }
+    tables.forEach(this::flush);
+    // failed edits are reported through their own futures
+    return CompletableFuture.allOf(results.stream().map(r -> r.exceptionally(e -> null)).toArray(
+        CompletableFuture[]::new));
+  }
+
+  /**
+   * Sends the queued edits and stops the session's timer once they have their results.
+   *
+   * @return future completing once the edits have their results
+   */
+  public CompletableFuture<Void> close() {
+    return commit().whenComplete((result, error) -> timer.shutdown());
+  }
+
+  /**
+   * Closes the session and then its journal, waiting a few seconds for each, for when the application is closing. The
+   * journal writes on a daemon thread, so without waiting the application could exit before the last results are
+   * acknowledged on disk. Edits the server doesn't answer in time stay in the journal and are replayed on the next
+   * start.
+   */
+  public void closeAndWait() {
+
+    try {
+      await(close());
+    } finally {
+      // closed even if the session fails to, so the records appended last reach the disk
+      if (journal != null) {
+        await(journal.close());
+      }
+    }
+  }
+
+  private static void await(CompletableFuture<Void> future) {
+
+    try {
+      future.get(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // left in the journal
+    } catch (ExecutionException e) {
+      e.printStackTrace();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the session's statistics so far.
+   *
+   * @return statistics
+   */
+  public synchronized Statistics getStatistics() {
+
+    double seconds = editCount == 0 ? 0 : (lastResultNanos - firstEditNanos) / 1e9;
+    return new Statistics(editCount, failedCount, roundTrips, seconds, journal != null ? journal.getPendingCount()
+        : -1);
+  }
+
+  private void queue(ServiceFeatureTable featureTable, Edit edit, boolean commit) {
+
+    boolean full;
+    synchronized (this) {
+      if (firstEditNanos == 0) {
+        firstEditNanos = System.nanoTime();
+      }
+      TableQueue queue = queues.computeIfAbsent(featureTable, t -> new TableQueue());
+      queue.queued.add(edit);
+      full = commit || queue.queued.size() >= batchSize;
+      if (!full && queue.timeout == null && !timer.isShutdown()) {
+        queue.timeout = timer.schedule(() -> flush(featureTable), windowMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (full) {
+      flush(featureTable);
+    }
+  }
+
+  /**
+   * Sends a table's queued edits, unless a call is in flight, in which case they are sent once it returns.
+   */
+  private void flush(ServiceFeatureTable featureTable) {
+
+    List<Edit> batch;
+    synchronized (this) {
+      TableQueue queue = queues.get(featureTable);
+      if (queue == null || queue.queued.isEmpty()) {
+        return;
+      }
+      if (!queue.sending.isEmpty()) {
+        queue.flushPending = true;
+        return;
+      }
+      if (queue.timeout != null) {
+        queue.timeout.cancel(false);
+        queue.timeout = null;
+      }
+      batch = new ArrayList<>(queue.queued);
+      queue.queued.clear();
+      queue.sending.addAll(batch);
+      roundTrips++;
+    }
+
+    long sentNanos = System.nanoTime();
+    ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
+    editResult.addDoneListener(() -> {
+      try {
+        complete(featureTable, batch, sentNanos, editResult.get());
+      } catch (Exception e) {
+        batch.forEach(edit -> edit.result.completeExceptionally(e));
+        synchronized (this) {
+          failedCount += batch.size();
+        }
+      }
+      finishFlush(featureTable);
+    });
+  }
+
+  /**
+   * Matches the results of a round trip to the edits that were sent: the batch, and any edit queued since that was
+   * made locally before the call, since applyEditsAsync sends every local edit of the table.
+   */
+  private void complete(ServiceFeatureTable featureTable, List<Edit> batch, long sentNanos,
+      List<FeatureEditResult> results) {
+
+    List<Edit> sent = new ArrayList<>(batch);
+    synchronized (this) {
+      for (Iterator<Edit> it = queues.get(featureTable).queued.iterator(); it.hasNext(); ) {
+        Edit edit = it.next();
+        if (edit.madeNanos < sentNanos) {
+          sent.add(edit);
+          it.remove();
+        }
+      }
+    }
+
+    String objectIdField = featureTable.getFields().stream().filter(f -> f.getFieldType() == Field.Type.OID).map(
+        Field::getName).findFirst().orElse("objectid");
+    Map<Long, FeatureEditResult> byObjectId = new HashMap<>();
+    results.forEach(result -> byObjectId.put(result.getObjectId(), result));
+    Set<Long> claimed = new HashSet<>();
+    List<Edit> adds = new ArrayList<>();
+    int failed = 0;
+    for (Edit edit : sent) {
+      if (edit.type == EditType.ADD) {
+        adds.add(edit);
+        continue;
+      }
+      // several edits of a feature are sent as one, and share its result
+      Object id = edit.feature.getAttributes().get(objectIdField);
+      FeatureEditResult match = id instanceof Number ? byObjectId.get(((Number) id).longValue()) : null;
+      if (match != null) {
+        claimed.add(match.getObjectId());
+      }
+      failed += resolve(edit, match);
+    }
+    // the results no update or delete claimed are the adds', which the server gave new object IDs
+    adds.sort(Comparator.comparingLong(edit -> edit.madeNanos));
+    Iterator<FeatureEditResult> remaining = results.stream().filter(result -> !claimed.contains(result
+        .getObjectId())).iterator();
+    for (Edit edit : adds) {
+      failed += resolve(edit, remaining.hasNext() ? remaining.next() : null);
+    }
+    synchronized (this) {
+      editCount += sent.size() - failed;
+      failedCount += failed;
+      lastResultNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Completes an edit's future with its result, or fails it if the server returned none for it.
+   *
+   * @return 1 if the edit failed, otherwise 0
+   */
+  private static int resolve(Edit edit, FeatureEditResult result) {
+
+    if (result == null) {
+      edit.result.completeExceptionally(new IllegalStateException("The server returned no result for the edit"));
+      return 1;
+    }
+    edit.result.complete(result);
+    return result.hasCompletedWithErrors() ? 1 : 0;
+  }
+
+  private void finishFlush(ServiceFeatureTable featureTable) {
+
+    boolean again;
+    Consumer<Statistics> callback;
+    synchronized (this) {
+      TableQueue queue = queues.get(featureTable);
+      queue.sending.clear();
+      again = !queue.queued.isEmpty() && (queue.flushPending || queue.queued.size() >= batchSize);
+      queue.flushPending = false;
+      if (!again && !queue.queued.isEmpty() && queue.timeout == null && !timer.isShutdown()) {
+        queue.timeout = timer.schedule(() -> flush(featureTable), windowMillis, TimeUnit.MILLISECONDS);
+      }
+      callback = onFlushed;
+    }
+    callback.accept(getStatistics());
+    if (again) {
+      flush(featureTable);
+    }
+  }
+
+  /**
+   * An edit waiting for its result.
+   */
+  private static class Edit {
+
+    final EditType type;
+    final Feature feature;
+    final CompletableFuture<FeatureEditResult> result = new CompletableFuture<>();
+    // sequence number of the edit's journal record, or -1
+    volatile long sequence = -1;
+    // when the edit was made locally
+    volatile long madeNanos;
+
+    Edit(EditType type, Feature feature) {
+
+      this.type = type;
+      this.feature = feature;
+    }
+  }
+
+  /**
+   * Edits of a table waiting to be sent, and being sent.
+   */
+  private static class TableQueue {
+
+    final List<Edit> queued = new ArrayList<>();
+    final List<Edit> sending = new ArrayList<>();
+    ScheduledFuture<?> timeout;
+    boolean flushPending;
+  }
+
+  /**
+   * Edits sent by a session and the round trips they took.
+   */
+  public static class Statistics {
+
+    private final int editCount;
+    private final int failedCount;
+    private final int roundTrips;
+    private final double seconds;
+    private final int journaledCount;
+
+    Statistics(int editCount, int failedCount, int roundTrips, double seconds, int journaledCount) {
+
+      this.editCount = editCount;
+      this.failedCount = failedCount;
+      this.roundTrips = roundTrips;
+      this.seconds = seconds;
+      this.journaledCount = journaledCount;
+    }
+
+    /**
+     * Gets the number of edits the server accepted.
+     *
+     * @return edit count
+     */
+    public int getEditCount() {
+      return editCount;
+    }
+
+    /**
+     * Gets the number of edits that failed on the server.
+     *
+     * @return failed edit count
+     */
+    public int getFailedCount() {
+      return failedCount;
+    }
+
+    /**
+     * Gets the number of applyEditsAsync calls made.
+     *
+     * @return round trips
+     */
+    public int getRoundTrips() {
+      return roundTrips;
+    }
+
+    /**
+     * Gets the round trips saved compared with one call per edit.
+     *
+     * @return saved round trips
+     */
+    public int getRoundTripsSaved() {
+      return Math.max(0, editCount + failedCount - roundTrips);
+    }
+
+    /**
+     * Gets the edits sent per second, from the first edit to the last result.
+     *
+     * @return edits per second
+     */
+    public double getEditsPerSecond() {
+      return seconds > 0 ? (editCount + failedCount) / seconds : 0;
+    }
+
+    /**
+     * Gets the number of edits in the session's journal without a result from the server.
+     *
+     * @return journaled edits, or -1 without a journal
+     */
+    public int getJournaledCount() {
+      return journaledCount;
+    }
+
+    @Override
+    public String toString() {
+
+      String sent = String.format("%d edits in %d round trips (%d saved), %.1f edits/s", editCount + failedCount,
+          roundTrips, getRoundTripsSaved(), getEditsPerSecond());
+      return journaledCount < 0 ? sent : sent + String.format(", %d journaled", journaledCount);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+
+import com.esri.arcgisruntime.security.Credential;
+
+/**
+ * Sends query requests to the REST endpoint of a feature service layer.
+ * <p>
+ * Used for the requests the runtime's feature table does not expose, such as ids-only, count-only, extent-only and
+ * statistics queries. Keeps track of the bytes received, so callers can compare the cost of different queries.
+ * Requests are signed with a token for the layer's credential, if it has one, and time out rather than hang.
+ */
+public class FeatureServiceQuery {
+
+  private final String layerUrl;
+  private final ServiceToken token;
+  private final AtomicLong bytesReceived = new AtomicLong();
+  private final AtomicInteger requestCount = new AtomicInteger();
+
+  /**
+   * Creates a query for a layer.
+   *
+   * @param layerUrl URL of the feature service layer, e.g. ".../FeatureServer/0"
+   */
+  public FeatureServiceQuery(String layerUrl) {
+    this(layerUrl, null);
+  }
+
+  /**
+   * Creates a query for a layer secured with a credential.
+   *
+   * @param layerUrl   URL of the feature service layer, e.g. ".../FeatureServer/0"
+   * @param credential credential of the layer's feature table, or null
+   */
+  public FeatureServiceQuery(String layerUrl, Credential credential) {
+
+    this.layerUrl = layerUrl;
+    token = new ServiceToken(layerUrl, credential);
+  }
+
+  /**
+   * Sends a query request. The response format is always JSON.
+   *
+   * @param parameters query parameters, such as where and returnCountOnly
+   * @return the response's members
+   * @throws IOException if the request fails or the service returns an error
+   */
+  public Map<String, Object> query(Map<String, String> parameters) throws IOException {
+
+    StringBuilder url = new StringBuilder(layerUrl).append("/query?f=json");
+    for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+      url.append('&').append(parameter.getKey()).append('=').append(URLEncoder.encode(parameter.getValue(),
+          StandardCharsets.UTF_8.name()));
+    }
+    String tokenValue = token.get();
+    if (tokenValue != null) {
+      url.append("&token=").append(URLEncoder.encode(tokenValue, StandardCharsets.UTF_8.name()));
+    }
+
+    byte[] body;
+    HttpURLConnection connection = ServiceToken.open(url.toString());
+    try (InputStream in = connection.getInputStream()) {
+      body = IOUtils.toByteArray(in);
+    } finally {
+      connection.disconnect();
+    }
+    requestCount.incrementAndGet();
+    bytesReceived.addAndGet(body.length);
+
+    Map<String, Object> response = JsonPullReader.parseObject(new String(body, StandardCharsets.UTF_8));
+    if (response.containsKey("error")) {
+      throw new IOException("Query failed: " + response.get("error"));
+    }
+    return response;
+  }
+
+  /**
+   * Creates a parameter map with a where clause.
+   *
+   * @param whereClause where clause selecting the features
+   * @return modifiable parameters
+   */
+  public static Map<String, String> where(String whereClause) {
+
+    Map<String, String> parameters = new LinkedHashMap<>();
+    parameters.put("where", whereClause);
+    return parameters;
+  }
+
+  /**
+   * Gets the total size of all response bodies.
+   *
+   * @return bytes received
+   */
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  /**
+   * Gets the number of requests sent.
+   *
+   * @return request count
+   */
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.GeometryType;
+import com.esri.arcgisruntime.geometry.ImmutablePart;
+import com.esri.arcgisruntime.geometry.ImmutablePartCollection;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.mapping.view.MapView;
+
+import javafx.geometry.Point2D;
+
+/**
+ * Client side spatial index of the features of a loaded table, for hit testing without a request to the server.
+ * <p>
+ * The features are queried once, in pages of ascending object ID so a service's maximum record count doesn't cut the
+ * index short, and their extents packed into a {@link SpatialIndex}. Point, rectangle and lasso hit tests search the
+ * index for candidates by extent, then check each candidate's geometry exactly. A point hit test returns the closest
+ * features first. Features added to the table by others after the build are not indexed, so a caller should fall back
+ * to identifying the layer when a hit test finds nothing. Edits made through
+ * {@link #updateFeatureAsync(Feature)} and {@link #deleteFeaturesAsync(List)} update the index once they succeed.
+ */
+public class FeatureSpatialIndex {
+
+  private final FeatureTable featureTable;
+  private final String objectIdField;
+  private final Map<Long, Feature> features;
+  private final SpatialIndex index;
+
+  private FeatureSpatialIndex(FeatureTable featureTable, String objectIdField, Map<Long, Feature> features,
+      SpatialIndex index) {
+
+    this.featureTable = featureTable;
+    this.objectIdField = objectIdField;
+    this.features = features;
+    this.index = index;
+  }
+
+  /**
+   * Loads a table, queries all its features and builds an index of them. Features of a service feature table are
+   * fully loaded, so they can be edited.
+   *
+   * @param featureTable table to index
+   * @return future of the index
+   */
+  public static CompletableFuture<FeatureSpatialIndex> buildAsync(FeatureTable featureTable) {
+
+    CompletableFuture<FeatureSpatialIndex> built = new CompletableFuture<>();
+    featureTable.loadAsync();
+    featureTable.addDoneLoadingListener(() -> {
+      if (featureTable.getLoadError() != null) {
+        built.completeExceptionally(featureTable.getLoadError());
+        return;
+      }
+      String objectIdField = featureTable.getFields().stream().filter(f -> f.getFieldType() == Field.Type.OID).map(
+          Field::getName).findFirst().orElse("objectid");
+      queryPage(featureTable, objectIdField, -1, new LinkedHashMap<>(), built);
+    });
+    return built;
+  }
+
+  /**
+   * Queries the features with an object ID above the highest one queried so far, then the next page, or builds the
+   * index once a page comes back empty.
+   */
+  private static void queryPage(FeatureTable featureTable, String objectIdField, long lastObjectId,
+      Map<Long, Feature> queried, CompletableFuture<FeatureSpatialIndex> built) {
+
+    QueryParameters queryParams = new QueryParameters();
+    queryParams.setWhereClause(objectIdField + " > " + lastObjectId);
+    queryParams.getOrderByFields().add(new QueryParameters.OrderBy(objectIdField, QueryParameters.SortOrder
+        .ASCENDING));
+    ListenableFuture<FeatureQueryResult> result = featureTable instanceof ServiceFeatureTable ?
+        ((ServiceFeatureTable) featureTable).queryFeaturesAsync(queryParams,
+            ServiceFeatureTable.QueryFeatureFields.LOAD_ALL) : featureTable.queryFeaturesAsync(queryParams);
+    result.addDoneListener(() -> {
+      try {
+        long last = lastObjectId;
+        for (Feature feature : result.get()) {
+          Object id = feature.getAttributes().get(objectIdField);
+          if (id instanceof Number) {
+            long objectId = ((Number) id).longValue();
+            last = Math.max(last, objectId);
+            if (feature.getGeometry() != null && !feature.getGeometry().isEmpty()) {
+              queried.put(objectId, feature);
+            }
+          }
+        }
+        if (last > lastObjectId) {
+          queryPage(featureTable, objectIdField, last, queried, built);
+          return;
+        }
+
+        long[] ids = new long[queried.size()];
+        double[] boxes = new double[ids.length * 4];
+        int i = 0;
+        for (Map.Entry<Long, Feature> entry : queried.entrySet()) {
+          ids[i] = entry.getKey();
+          Envelope extent = entry.getValue().getGeometry().getExtent();
+          boxes[i * 4] = extent.getXMin();
+          boxes[i * 4 + 1] = extent.getYMin();
+          boxes[i * 4 + 2] = extent.getXMax();
+          boxes[i * 4 + 3] = extent.getYMax();
+          i++;
+        }
+        built.complete(new FeatureSpatialIndex(featureTable, objectIdField, new ConcurrentHashMap<>(queried),
+            new SpatialIndex(ids, boxes)));
+      } catch (Exception e) {
+        built.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Gets the number of indexed features.
+   *
+   * @return feature count
+   */
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * Finds the features at a screen location.
+   *
+   * @param mapView     view the location is in
+   * @param screenPoint location in the view
+   * @param tolerance   search radius in pixels
+   * @param maxResults  most features to return
+   * @return features within the tolerance of the location, closest first
+   */
+  public List<Feature> hitTest(MapView mapView, Point2D screenPoint, double tolerance, int maxResults) {
+
+    Point min = mapView.screenToLocation(new Point2D(screenPoint.getX() - tolerance, screenPoint.getY() + tolerance));
+    Point max = mapView.screenToLocation(new Point2D(screenPoint.getX() + tolerance, screenPoint.getY() - tolerance));
+    Point location = mapView.screenToLocation(screenPoint);
+    if (min == null || max == null || location == null) {
+      return new ArrayList<>();
+    }
+    List<Feature> found = search(new Envelope(min, max));
+    if (found.size() > 1) {
+      // the closest features are returned, not whichever the index found first
+      Point projected = (Point) project(location);
+      Map<Feature, Double> distances = new IdentityHashMap<>();
+      found.forEach(feature -> distances.put(feature, distance(feature.getGeometry(), projected)));
+      found.sort(Comparator.comparingDouble(distances::get));
+    }
+    return found.size() > maxResults ? new ArrayList<>(found.subList(0, maxResults)) : found;
+  }
+
+  private static double distance(Geometry geometry, Point location) {
+
+    if (geometry instanceof Point) {
+      return Math.hypot(((Point) geometry).getX() - location.getX(), ((Point) geometry).getY() - location.getY());
+    }
+    return GeometryEngine.distanceBetween(geometry, location);
+  }
+
+  /**
+   * Finds the features intersecting a rectangle.
+   *
+   * @param rectangle rectangle in any spatial reference
+   * @return intersecting features
+   */
+  public List<Feature> rectangle(Envelope rectangle) {
+    return search(rectangle);
+  }
+
+  /**
+   * Finds the features intersecting a lasso.
+   *
+   * @param lasso polygon in any spatial reference
+   * @return intersecting features
+   */
+  public List<Feature> lasso(Polygon lasso) {
+    return search(lasso);
+  }
+
+  /**
+   * Finds the features intersecting the geometry of query parameters, or all features without a geometry, without a
+   * request to the server. The spatial relationship is not evaluated, every feature intersecting the geometry is
+   * returned.
+   *
+   * @param queryParameters parameters with a geometry in any spatial reference, and no where clause other than "1=1"
+   * @return intersecting features
+   * @throws IllegalArgumentException if the parameters have a where clause, which the index can't evaluate
+   */
+  public List<Feature> query(QueryParameters queryParameters) {
+
+    String whereClause = queryParameters.getWhereClause();
+    if (whereClause != null && !whereClause.trim().isEmpty() && !whereClause.trim().equals("1=1")) {
+      throw new IllegalArgumentException("Where clauses are not supported by the index: " + whereClause);
+    }
+    if (queryParameters.getGeometry() == null) {
+      return new ArrayList<>(features.values());
+    }
+    return search(queryParameters.getGeometry());
+  }
+
+  /**
+   * Searches the index by the area's extent, then checks each candidate against the area itself.
+   */
+  private List<Feature> search(Geometry area) {
+
+    Geometry projected = project(area);
+    Envelope extent = projected.getExtent();
+    boolean rectangle = projected.getGeometryType() == GeometryType.ENVELOPE;
+    PolygonRings rings = projected instanceof Polygon ? toRings((Polygon) projected) : null;
+
+    List<Feature> found = new ArrayList<>();
+    for (long id : index.search(extent.getXMin(), extent.getYMin(), extent.getXMax(), extent.getYMax())) {
+      Feature feature = features.get(id);
+      if (feature == null) {
+        continue;
+      }
+      // points are checked here, only other geometries need the geometry engine
+      Geometry geometry = feature.getGeometry();
+      boolean hit;
+      if (geometry instanceof Point && rectangle) {
+        hit = true;
+      } else if (geometry instanceof Point && rings != null) {
+        hit = rings.contains(((Point) geometry).getX(), ((Point) geometry).getY());
+      } else {
+        hit = GeometryEngine.intersects(geometry, projected);
+      }
+      if (hit) {
+        found.add(feature);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Projects a geometry to the table's spatial reference, if it is in another.
+   */
+  private Geometry project(Geometry geometry) {
+
+    if (featureTable.getSpatialReference() != null && !featureTable.getSpatialReference().equals(geometry
+        .getSpatialReference())) {
+      return GeometryEngine.project(geometry, featureTable.getSpatialReference());
+    }
+    return geometry;
+  }
+
+  private static PolygonRings toRings(Polygon polygon) {
+
+    ImmutablePartCollection parts = polygon.getParts();
+    double[][] xs = new double[parts.size()][];
+    double[][] ys = new double[parts.size()][];
+    for (int r = 0; r < parts.size(); r++) {
+      ImmutablePart part = parts.get(r);
+      xs[r] = new double[part.getPointCount()];
+      ys[r] = new double[part.getPointCount()];
+      int i = 0;
+      for (Point point : part.getPoints()) {
+        xs[r][i] = point.getX();
+        ys[r][i] = point.getY();
+        i++;
+      }
+    }
+    return new PolygonRings(xs, ys);
+  }
+
+  /**
+   * Updates a feature in the table, and in the index once the update succeeds.
+   *
+   * @param feature feature to update
+   * @return future of the table's update
+   */
+  public ListenableFuture<Void> updateFeatureAsync(Feature feature) {
+
+    ListenableFuture<Void> result = featureTable.updateFeatureAsync(feature);
+    result.addDoneListener(() -> {
+      try {
+        result.get();
+        Object id = feature.getAttributes().get(objectIdField);
+        if (id instanceof Number) {
+          long objectId = ((Number) id).longValue();
+          if (feature.getGeometry() == null || feature.getGeometry().isEmpty()) {
+            index.remove(objectId);
+            features.remove(objectId);
+          } else {
+            Envelope extent = feature.getGeometry().getExtent();
+            features.put(objectId, feature);
+            index.put(objectId, extent.getXMin(), extent.getYMin(), extent.getXMax(), extent.getYMax());
+          }
+        }
+      } catch (Exception e) {
+        // a failed update leaves the index as it was
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Deletes features from the table, and from the index once the delete succeeds.
+   *
+   * @param deleted features to delete
+   * @return future of the table's delete
+   */
+  public ListenableFuture<Void> deleteFeaturesAsync(List<Feature> deleted) {
+
+    ListenableFuture<Void> result = featureTable.deleteFeaturesAsync(deleted);
+    result.addDoneListener(() -> {
+      try {
+        result.get();
+        for (Feature feature : deleted) {
+          Object id = feature.getAttributes().get(objectIdField);
+          if (id instanceof Number) {
+            index.remove(((Number) id).longValue());
+            features.remove(((Number) id).longValue());
+          }
+        }
+      } catch (Exception e) {
+        // a failed delete leaves the index as it was
+      }
+    });
+    return result;
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.esri.arcgisruntime.data.Geodatabase;
+import com.esri.arcgisruntime.data.GeodatabaseFeatureTable;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.layers.FeatureLayer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+
+/**
+ * Opens a geodatabase and loads a feature layer for each of its tables, all at once.
+ * <p>
+ * Every layer's load is started together and the loader waits on all of them, so the time to show a geodatabase is
+ * that of its slowest table instead of the sum of them all. The result holds the layers ready to be added to a map in
+ * one batch, the union of their extents for a single viewpoint change, and how long each table took to load.
+ */
+public class GeodatabaseLoader {
+
+  /**
+   * Loads a layer for every table of a geodatabase.
+   *
+   * @param path      path of the geodatabase file
+   * @param configure called with each layer before it loads, e.g. to set a renderer
+   * @return future of the loaded layers
+   */
+  public static CompletableFuture<Result> loadAsync(String path, Consumer<FeatureLayer> configure) {
+    return loadAsync(path, table -> true, configure);
+  }
+
+  /**
+   * Loads a layer for the chosen tables of a geodatabase.
+   *
+   * @param path        path of the geodatabase file
+   * @param tableFilter chooses the tables to load by name
+   * @param configure   called with each layer before it loads, e.g. to set a renderer
+   * @return future of the loaded layers
+   */
+  public static CompletableFuture<Result> loadAsync(String path, Predicate<String> tableFilter,
+      Consumer<FeatureLayer> configure) {
+
+    CompletableFuture<Result> loaded = new CompletableFuture<>();
+    long start = System.nanoTime();
+    Geodatabase geodatabase = new Geodatabase(path);
+    geodatabase.addDoneLoadingListener(() -> {
+      if (geodatabase.getLoadStatus() != LoadStatus.LOADED) {
+        loaded.completeExceptionally(geodatabase.getLoadError());
+        return;
+      }
+      double openMillis = (System.nanoTime() - start) / 1e6;
+
+      List<FeatureLayer> layers = new ArrayList<>();
+      for (GeodatabaseFeatureTable table : geodatabase.getGeodatabaseFeatureTables()) {
+        if (tableFilter.test(table.getTableName())) {
+          FeatureLayer layer = new FeatureLayer(table);
+          configure.accept(layer);
+          layers.add(layer);
+        }
+      }
+      if (layers.isEmpty()) {
+        loaded.complete(new Result(geodatabase, layers, null, Collections.emptyMap(), openMillis, openMillis));
+        return;
+      }
+
+      // start every load, then wait for the last one to finish
+      double[] layerMillis = new double[layers.size()];
+      AtomicInteger remaining = new AtomicInteger(layers.size());
+      for (int i = 0; i < layers.size(); i++) {
+        int index = i;
+        FeatureLayer layer = layers.get(i);
+        long layerStart = System.nanoTime();
+        layer.addDoneLoadingListener(() -> {
+          layerMillis[index] = (System.nanoTime() - layerStart) / 1e6;
+          if (remaining.decrementAndGet() == 0) {
+            loaded.complete(collect(geodatabase, layers, layerMillis, openMillis, (System.nanoTime() - start) / 1e6));
+          }
+        });
+        layer.loadAsync();
+      }
+    });
+    geodatabase.loadAsync();
+    return loaded;
+  }
+
+  /**
+   * Keeps the layers that loaded and combines their extents.
+   */
+  private static Result collect(Geodatabase geodatabase, List<FeatureLayer> layers, double[] layerMillis,
+      double openMillis, double totalMillis) {
+
+    List<FeatureLayer> loadedLayers = new ArrayList<>();
+    Map<String, Double> tableMillis = new LinkedHashMap<>();
+    Envelope extent = null;
+    for (int i = 0; i < layers.size(); i++) {
+      FeatureLayer layer = layers.get(i);
+      tableMillis.put(layer.getFeatureTable().getTableName(), layerMillis[i]);
+      if (layer.getLoadStatus() != LoadStatus.LOADED) {
+        continue;
+      }
+      loadedLayers.add(layer);
+      Envelope layerExtent = layer.getFullExtent();
+      if (layerExtent == null || layerExtent.isEmpty()) {
+        continue;
+      }
+      if (extent == null) {
+        extent = layerExtent;
+      } else {
+        if (!extent.getSpatialReference().equals(layerExtent.getSpatialReference())) {
+          layerExtent = (Envelope) GeometryEngine.project(layerExtent, extent.getSpatialReference());
+        }
+        extent = new Envelope(Math.min(extent.getXMin(), layerExtent.getXMin()), Math.min(extent.getYMin(), layerExtent
+            .getYMin()), Math.max(extent.getXMax(), layerExtent.getXMax()), Math.max(extent.getYMax(), layerExtent
+                .getYMax()), extent.getSpatialReference());
+      }
+    }
+    return new Result(geodatabase, loadedLayers, extent, tableMillis, openMillis, totalMillis);
+  }
+
+  /**
+   * Layers loaded from a geodatabase and how long they took.
+   */
+  public static class Result {
+
+    private final Geodatabase geodatabase;
+    private final List<FeatureLayer> layers;
+    private final Envelope extent;
+    private final Map<String, Double> tableMillis;
+    private final double openMillis;
+    private final double totalMillis;
+
+    Result(Geodatabase geodatabase, List<FeatureLayer> layers, Envelope extent, Map<String, Double> tableMillis,
+        double openMillis, double totalMillis) {
+
+      this.geodatabase = geodatabase;
+      this.layers = layers;
+      this.extent = extent;
+      this.tableMillis = tableMillis;
+      this.openMillis = openMillis;
+      this.totalMillis = totalMillis;
+    }
+
+    /**
+     * Gets the opened geodatabase.
+     *
+     * @return geodatabase
+     */
+    public Geodatabase getGeodatabase() {
+      return geodatabase;
+    }
+
+    /**
+     * Gets the layers that loaded, in the order of their tables.
+     *
+     * @return loaded layers
+     */
+    public List<FeatureLayer> getLayers() {
+      return layers;
+    }
+
+    /**
+     * Gets the union of the layers' extents.
+     *
+     * @return combined extent, or null if no layer has one
+     */
+    public Envelope getExtent() {
+      return extent;
+    }
+
+    /**
+     * Gets how long each table's layer took to load, measured from when the loads were started together.
+     *
+     * @return load time in milliseconds by table name
+     */
+    public Map<String, Double> getTableMillis() {
+      return tableMillis;
+    }
+
+    /**
+     * Gets how long the geodatabase took to open.
+     *
+     * @return open time in milliseconds
+     */
+    public double getOpenMillis() {
+      return openMillis;
+    }
+
+    /**
+     * Gets the time from opening the geodatabase to the last layer loading.
+     *
+     * @return total time in milliseconds
+     */
+    public double getTotalMillis() {
+      return totalMillis;
+    }
+
+    /**
+     * Describes the timings, one line per table.
+     *
+     * @return timing report
+     */
+    public String describeTimings() {
+
+      StringBuilder report = new StringBuilder(String.format("Open: %.0f ms", openMillis));
+      tableMillis.forEach((name, millis) -> report.append(String.format("%n%s: %.0f ms", name, millis)));
+      report.append(String.format("%nTotal: %.0f ms", totalMillis));
+      return report.toString();
+    }
+  }
+}
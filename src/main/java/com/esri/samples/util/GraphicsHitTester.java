@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.mapping.view.SpatialReferenceChangedListener;
+import com.esri.arcgisruntime.symbology.MarkerSymbol;
+import com.esri.arcgisruntime.symbology.PictureMarkerSymbol;
+import com.esri.arcgisruntime.symbology.SimpleFillSymbol;
+import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
+import com.esri.arcgisruntime.symbology.SimpleRenderer;
+import com.esri.arcgisruntime.symbology.Symbol;
+import com.esri.arcgisruntime.symbology.TextSymbol;
+import com.esri.arcgisruntime.util.ListChangedEvent;
+import com.esri.arcgisruntime.util.ListChangedListener;
+
+import javafx.geometry.Point2D;
+
+/**
+ * Finds the graphics of an overlay at a screen location without a call to
+ * {@link MapView#identifyGraphicsOverlayAsync}, returning them right away on the calling thread.
+ * <p>
+ * The extents of the graphics, in the map view's spatial reference, are kept in a {@link SpatialIndex}. Graphics added
+ * to or removed from the overlay are added to or removed from the index as the overlay's list changes; a graphic whose
+ * geometry or symbol is changed must be passed to {@link #update(Graphic)}. A hit test converts the tolerance to map
+ * units at the view's current scale, searches the index for candidates, then checks each one: a point is hit if it
+ * is within the tolerance plus the drawn size of its symbol, other geometries if they intersect a box of that size.
+ * Hits are returned in the order they are drawn, highest z-index first and then last in the overlay first.
+ * <p>
+ * Symbol sizes are estimated from the symbol's size, width and offset, so a text or picture symbol drawn well away
+ * from its point may be hit a few pixels off where identify would hit it.
+ */
+public class GraphicsHitTester {
+
+  // more graphics than this, or this fraction of those indexed, changing at once rebuilds the index
+  private static final int BULK_SIZE = 256;
+  private static final double BULK_FRACTION = 0.05;
+
+  private final MapView mapView;
+  private final GraphicsOverlay graphicsOverlay;
+  private final ListChangedListener<Graphic> graphicsListener = this::graphicsChanged;
+  private final SpatialReferenceChangedListener spatialReferenceListener = e -> rebuild();
+
+  // ID of each graphic in the overlay, increasing in the overlay's order, so graphics drawn on top are higher
+  private final Map<Graphic, Long> ids = new IdentityHashMap<>();
+  private final Map<Long, Entry> entries = new HashMap<>();
+  private long nextId = 1;
+  private SpatialReference spatialReference;
+  private SpatialIndex index;
+  // largest symbol radius of the indexed graphics, in pixels
+  private double maxRadius;
+  // the graphic with the largest radius was removed or shrunk, so it is worked out again before the next hit test
+  private boolean maxRadiusStale;
+  private int rebuildCount;
+
+  /**
+   * Indexes the graphics of an overlay and follows the overlay's changes until {@link #close()}.
+   *
+   * @param mapView         view the overlay is in
+   * @param graphicsOverlay overlay to hit test
+   */
+  public GraphicsHitTester(MapView mapView, GraphicsOverlay graphicsOverlay) {
+
+    this.mapView = mapView;
+    this.graphicsOverlay = graphicsOverlay;
+    synchronized (this) {
+      for (Graphic graphic : graphicsOverlay.getGraphics()) {
+        ids.put(graphic, nextId++);
+      }
+      rebuild();
+    }
+    graphicsOverlay.getGraphics().addListChangedListener(graphicsListener);
+    // the extents are kept in the view's spatial reference, which is only known once its map is loaded
+    mapView.addSpatialReferenceChangedListener(spatialReferenceListener);
+  }
+
+  /**
+   * Finds the graphics at a screen location.
+   *
+   * @param screenPoint location in the view
+   * @param tolerance   search radius in pixels
+   * @param maxResults  most graphics to return
+   * @return graphics within the tolerance of the location, topmost first
+   */
+  public synchronized List<Graphic> hitTest(Point2D screenPoint, double tolerance, int maxResults) {
+
+    List<Graphic> found = new ArrayList<>();
+    if (index == null || !graphicsOverlay.isVisible() || maxResults <= 0) {
+      return found;
+    }
+    if (maxRadiusStale) {
+      maxRadius = entries.values().stream().mapToDouble(entry -> entry.radius).max().orElse(0);
+      maxRadiusStale = false;
+    }
+    // two opposite corners of a square around the location give its center and the scale, even if the map is rotated
+    double reach = Math.max(1, tolerance + maxRadius);
+    Point corner = mapView.screenToLocation(new Point2D(screenPoint.getX() - reach, screenPoint.getY() + reach));
+    Point opposite = mapView.screenToLocation(new Point2D(screenPoint.getX() + reach, screenPoint.getY() - reach));
+    if (corner == null || opposite == null) {
+      return found;
+    }
+    double x = (corner.getX() + opposite.getX()) / 2;
+    double y = (corner.getY() + opposite.getY()) / 2;
+    double unitsPerPixel = Math.hypot(opposite.getX() - corner.getX(), opposite.getY() - corner.getY()) / (2 * Math
+        .sqrt(2) * reach);
+
+    double searchRadius = (tolerance + maxRadius) * unitsPerPixel;
+    long[] candidates = index.search(x - searchRadius, y - searchRadius, x + searchRadius, y + searchRadius);
+    List<Entry> hits = new ArrayList<>();
+    for (long candidate : candidates) {
+      Entry entry = entries.get(candidate);
+      if (entry == null || !entry.graphic.isVisible()) {
+        continue;
+      }
+      double radius = (tolerance + entry.radius) * unitsPerPixel;
+      boolean hit;
+      if (entry.point) {
+        hit = Math.hypot(entry.x - x, entry.y - y) <= radius;
+      } else {
+        hit = GeometryEngine.intersects(entry.geometry, new Envelope(x - radius, y - radius, x + radius, y + radius,
+            spatialReference));
+      }
+      if (hit) {
+        hits.add(entry);
+      }
+    }
+    // the z-index is read from the graphics, since changing it doesn't change the index
+    hits.sort(Comparator.comparingInt((Entry entry) -> entry.graphic.getZIndex()).thenComparingLong(entry -> entry.id)
+        .reversed());
+    for (int i = 0; i < hits.size() && found.size() < maxResults; i++) {
+      found.add(hits.get(i).graphic);
+    }
+    return found;
+  }
+
+  /**
+   * Updates the index after a graphic's geometry or symbol was changed.
+   *
+   * @param graphic graphic in the overlay
+   */
+  public synchronized void update(Graphic graphic) {
+
+    Long id = ids.get(graphic);
+    if (id != null && index != null) {
+      index(graphic, id);
+    }
+  }
+
+  /**
+   * Gets the number of indexed graphics, those in the overlay with a geometry.
+   *
+   * @return graphic count
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the number of times the index was rebuilt, once the spatial reference was known or after large changes.
+   *
+   * @return rebuild count
+   */
+  public synchronized int getRebuildCount() {
+    return rebuildCount;
+  }
+
+  /**
+   * Stops following the overlay's changes.
+   */
+  public void close() {
+
+    graphicsOverlay.getGraphics().removeListChangedListener(graphicsListener);
+    mapView.removeSpatialReferenceChangedListener(spatialReferenceListener);
+  }
+
+  private synchronized void graphicsChanged(ListChangedEvent<Graphic> event) {
+
+    List<Graphic> graphics = event.getItems();
+    boolean added = event.getAction() == ListChangedEvent.Action.ADDED;
+    if (added && event.getIndex() + graphics.size() < graphicsOverlay.getGraphics().size()) {
+      // inserted below other graphics, so number them all again in the overlay's order
+      ids.clear();
+      for (Graphic graphic : graphicsOverlay.getGraphics()) {
+        ids.put(graphic, nextId++);
+      }
+      rebuild();
+      return;
+    }
+    for (Graphic graphic : graphics) {
+      Long id = added ? ids.put(graphic, nextId++) : ids.remove(graphic);
+      // a graphic added again is indexed under its new ID
+      if (id != null && index != null) {
+        remove(id);
+      }
+    }
+    if (index == null || graphics.size() < Math.max(BULK_SIZE, entries.size() * BULK_FRACTION)) {
+      if (added && index != null) {
+        for (Graphic graphic : graphics) {
+          index(graphic, ids.get(graphic));
+        }
+      }
+    } else {
+      rebuild();
+    }
+  }
+
+  /**
+   * Indexes all graphics of the overlay in the view's spatial reference, if it is known.
+   */
+  private synchronized void rebuild() {
+
+    spatialReference = mapView.getSpatialReference();
+    entries.clear();
+    maxRadius = 0;
+    maxRadiusStale = false;
+    if (spatialReference == null) {
+      index = null;
+      return;
+    }
+    long[] indexIds = new long[ids.size()];
+    double[] boxes = new double[indexIds.length * 4];
+    int next = 0;
+    for (Map.Entry<Graphic, Long> id : ids.entrySet()) {
+      Entry entry = entry(id.getKey(), id.getValue());
+      if (entry != null) {
+        entries.put(id.getValue(), entry);
+        maxRadius = Math.max(maxRadius, entry.radius);
+        Envelope extent = entry.geometry.getExtent();
+        indexIds[next] = id.getValue();
+        boxes[next * 4] = extent.getXMin();
+        boxes[next * 4 + 1] = extent.getYMin();
+        boxes[next * 4 + 2] = extent.getXMax();
+        boxes[next * 4 + 3] = extent.getYMax();
+        next++;
+      }
+    }
+    index = new SpatialIndex(Arrays.copyOf(indexIds, next), Arrays.copyOf(boxes, next * 4));
+    rebuildCount++;
+  }
+
+  private void index(Graphic graphic, long id) {
+
+    Entry entry = entry(graphic, id);
+    if (entry == null) {
+      remove(id);
+      return;
+    }
+    Entry previous = entries.put(id, entry);
+    if (previous != null && previous.radius >= maxRadius && entry.radius < previous.radius) {
+      maxRadiusStale = true;
+    }
+    maxRadius = Math.max(maxRadius, entry.radius);
+    Envelope extent = entry.geometry.getExtent();
+    index.put(id, extent.getXMin(), extent.getYMin(), extent.getXMax(), extent.getYMax());
+  }
+
+  private void remove(long id) {
+
+    index.remove(id);
+    Entry entry = entries.remove(id);
+    if (entry != null && entry.radius >= maxRadius) {
+      maxRadiusStale = true;
+    }
+  }
+
+  /**
+   * Gets a graphic's geometry in the view's spatial reference, and the radius its symbol is drawn with.
+   *
+   * @return entry, or null if the graphic has no geometry
+   */
+  private Entry entry(Graphic graphic, long id) {
+
+    Geometry geometry = graphic.getGeometry();
+    if (geometry == null || geometry.isEmpty()) {
+      return null;
+    }
+    if (geometry.getSpatialReference() != null && !geometry.getSpatialReference().equals(spatialReference)) {
+      geometry = GeometryEngine.project(geometry, spatialReference);
+    }
+    Symbol symbol = graphic.getSymbol();
+    if (symbol == null && graphicsOverlay.getRenderer() instanceof SimpleRenderer) {
+      symbol = ((SimpleRenderer) graphicsOverlay.getRenderer()).getSymbol();
+    }
+    return new Entry(id, graphic, geometry, radius(symbol));
+  }
+
+  /**
+   * Estimates how far from its geometry a symbol is drawn.
+   *
+   * @return radius in pixels
+   */
+  private static double radius(Symbol symbol) {
+
+    double offset = 0;
+    if (symbol instanceof MarkerSymbol) {
+      offset = Math.max(Math.abs(((MarkerSymbol) symbol).getOffsetX()), Math.abs(((MarkerSymbol) symbol)
+          .getOffsetY()));
+    }
+    if (symbol instanceof SimpleMarkerSymbol) {
+      return offset + ((SimpleMarkerSymbol) symbol).getSize() / 2;
+    } else if (symbol instanceof PictureMarkerSymbol) {
+      PictureMarkerSymbol picture = (PictureMarkerSymbol) symbol;
+      return offset + Math.max(picture.getWidth(), picture.getHeight()) / 2;
+    } else if (symbol instanceof TextSymbol) {
+      // the text's length is unknown, so take a square of its height beside the point
+      return offset + ((TextSymbol) symbol).getSize();
+    } else if (symbol instanceof SimpleLineSymbol) {
+      return ((SimpleLineSymbol) symbol).getWidth() / 2;
+    } else if (symbol instanceof SimpleFillSymbol && ((SimpleFillSymbol) symbol).getOutline() != null) {
+      return radius(((SimpleFillSymbol) symbol).getOutline());
+    }
+    return offset;
+  }
+
+  /**
+   * An indexed graphic.
+   */
+  private static class Entry {
+
+    final long id;
+    final Graphic graphic;
+    final Geometry geometry;
+    final boolean point;
+    final double x;
+    final double y;
+    final double radius;
+
+    Entry(long id, Graphic graphic, Geometry geometry, double radius) {
+
+      this.id = id;
+      this.graphic = graphic;
+      this.geometry = geometry;
+      this.radius = radius;
+      point = geometry instanceof Point;
+      x = point ? ((Point) geometry).getX() : 0;
+      y = point ? ((Point) geometry).getY() : 0;
+    }
+  }
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull parser reading JSON one token at a time from a {@link Reader}, so a document is never held in memory whole.
+ * <p>
+ * Callers walk the document with {@link #beginObject()}, {@link #nextName()}, {@link #hasNext()} and the like, and can
+ * materialize a small subtree, such as one GeoJSON feature, with {@link #readValue()}. Numbers are read as
+ * {@link Double}s. Small documents, such as REST responses, can be read whole with {@link #parseObject(String)}.
+ */
+public class JsonPullReader implements AutoCloseable {
+
+  /**
+   * Kind of the next token.
+   */
+  public enum Token {
+    BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+  }
+
+  private final Reader reader;
+  private final char[] buffer = new char[8192];
+  private int position;
+  private int limit;
+
+  // whether the enclosing containers are objects, and whether a name is expected next in each
+  private final List<Boolean> inObject = new ArrayList<>();
+  private boolean expectName;
+  private boolean first = true;
+
+  /**
+   * Creates a reader. The reader is buffered internally.
+   *
+   * @param reader source of JSON text
+   */
+  public JsonPullReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Parses a JSON object held in a string.
+   *
+   * @param json JSON text of an object
+   * @return the object's members
+   * @throws IOException if the text is not a JSON object
+   */
+  @SuppressWarnings("unchecked")
+  public static Map<String, Object> parseObject(String json) throws IOException {
+
+    try (JsonPullReader reader = new JsonPullReader(new StringReader(json))) {
+      if (reader.peek() != Token.BEGIN_OBJECT) {
+        throw new IOException("Not a JSON object");
+      }
+      Map<String, Object> members = (Map<String, Object>) reader.readValue();
+      if (reader.peek() != Token.END_DOCUMENT) {
+        throw reader.error("Unexpected trailing content");
+      }
+      return members;
+    }
+  }
+
+  /**
+   * Gets the kind of the next token without consuming it.
+   *
+   * @return next token
+   * @throws IOException if reading fails or the JSON is malformed
+   */
+  public Token peek() throws IOException {
+
+    int c = peekSignificant();
+    if (c == -1) {
+      return Token.END_DOCUMENT;
+    }
+    if (c == '}' || c == ']') {
+      return c == '}' ? Token.END_OBJECT : Token.END_ARRAY;
+    }
+    if (!first) {
+      if (c != ',') {
+        throw error("Expected ','");
+      }
+      position++;
+      first = true;
+      c = peekSignificant();
+    }
+    if (expectName) {
+      if (c != '"') {
+        throw error("Expected a name");
+      }
+      return Token.NAME;
+    }
+    switch (c) {
+      case '{':
+        return Token.BEGIN_OBJECT;
+      case '[':
+        return Token.BEGIN_ARRAY;
+      case '"':
+        return Token.STRING;
+      case 't':
+      case 'f':
+        return Token.BOOLEAN;
+      case 'n':
+        return Token.NULL;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return Token.NUMBER;
+        }
+        throw error("Unexpected character '" + (char) c + "'");
+    }
+  }
+
+  /**
+   * Checks whether the current object or array has another member.
+   *
+   * @return true if the next token doesn't end the container
+   * @throws IOException if reading fails
+   */
+  public boolean hasNext() throws IOException {
+
+    Token token = peek();
+    return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+  }
+
+  /**
+   * Consumes the start of an object.
+   *
+   * @throws IOException if reading fails or the next token isn't an object
+   */
+  public void beginObject() throws IOException {
+    begin(Token.BEGIN_OBJECT, true);
+  }
+
+  /**
+   * Consumes the end of an object.
+   *
+   * @throws IOException if reading fails or the next token doesn't end an object
+   */
+  public void endObject() throws IOException {
+    end(Token.END_OBJECT);
+  }
+
+  /**
+   * Consumes the start of an array.
+   *
+   * @throws IOException if reading fails or the next token isn't an array
+   */
+  public void beginArray() throws IOException {
+    begin(Token.BEGIN_ARRAY, false);
+  }
+
+  /**
+   * Consumes the end of an array.
+   *
+   * @throws IOException if reading fails or the next token doesn't end an array
+   */
+  public void endArray() throws IOException {
+    end(Token.END_ARRAY);
+  }
+
+  /**
+   * Consumes a member name and the colon after it.
+   *
+   * @return the name
+   * @throws IOException if reading fails or the next token isn't a name
+   */
+  public String nextName() throws IOException {
+
+    expect(Token.NAME);
+    String name = readString();
+    if (peekSignificant() != ':') {
+      throw error("Expected ':'");
+    }
+    position++;
+    expectName = false;
+    first = true;
+    return name;
+  }
+
+  /**
+   * Consumes a string value.
+   *
+   * @return the string
+   * @throws IOException if reading fails or the next token isn't a string
+   */
+  public String nextString() throws IOException {
+
+    expect(Token.STRING);
+    String value = readString();
+    valueRead();
+    return value;
+  }
+
+  /**
+   * Consumes a number value.
+   *
+   * @return the number
+   * @throws IOException if reading fails or the next token isn't a number
+   */
+  public double nextDouble() throws IOException {
+
+    expect(Token.NUMBER);
+    StringBuilder number = new StringBuilder();
+    int c;
+    while ((c = peekChar()) != -1 && "+-0123456789.eE".indexOf(c) >= 0) {
+      number.append((char) c);
+      position++;
+    }
+    valueRead();
+    try {
+      return Double.parseDouble(number.toString());
+    } catch (NumberFormatException e) {
+      throw error("Invalid number " + number);
+    }
+  }
+
+  /**
+   * Consumes a boolean value.
+   *
+   * @return the boolean
+   * @throws IOException if reading fails or the next token isn't a boolean
+   */
+  public boolean nextBoolean() throws IOException {
+
+    expect(Token.BOOLEAN);
+    boolean value = peekChar() == 't';
+    readLiteral(value ? "true" : "false");
+    valueRead();
+    return value;
+  }
+
+  /**
+   * Consumes a null value.
+   *
+   * @throws IOException if reading fails or the next token isn't null
+   */
+  public void nextNull() throws IOException {
+
+    expect(Token.NULL);
+    readLiteral("null");
+    valueRead();
+  }
+
+  /**
+   * Consumes the next value, including everything nested in it, without building it.
+   *
+   * @throws IOException if reading fails
+   */
+  public void skipValue() throws IOException {
+
+    int depth = 0;
+    do {
+      switch (peek()) {
+        case BEGIN_OBJECT:
+          beginObject();
+          depth++;
+          break;
+        case BEGIN_ARRAY:
+          beginArray();
+          depth++;
+          break;
+        case END_OBJECT:
+          endObject();
+          depth--;
+          break;
+        case END_ARRAY:
+          endArray();
+          depth--;
+          break;
+        case NAME:
+          nextName();
+          break;
+        default:
+          readValue();
+      }
+    } while (depth > 0);
+  }
+
+  /**
+   * Consumes the next value and builds it: objects as {@link Map}s, arrays as {@link List}s, numbers as
+   * {@link Double}s, and strings, booleans and null as themselves.
+   *
+   * @return the value
+   * @throws IOException if reading fails
+   */
+  public Object readValue() throws IOException {
+
+    switch (peek()) {
+      case BEGIN_OBJECT:
+        Map<String, Object> object = new LinkedHashMap<>();
+        beginObject();
+        while (hasNext()) {
+          String name = nextName();
+          object.put(name, readValue());
+        }
+        endObject();
+        return object;
+      case BEGIN_ARRAY:
+        List<Object> array = new ArrayList<>();
+        beginArray();
+        while (hasNext()) {
+          array.add(readValue());
+        }
+        endArray();
+        return array;
+      case STRING:
+        return nextString();
+      case NUMBER:
+        return nextDouble();
+      case BOOLEAN:
+        return nextBoolean();
+      case NULL:
+        nextNull();
+        return null;
+      default:
+        throw error("Expected a value");
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private void begin(Token token, boolean object) throws IOException {
+
+    expect(token);
+    position++;
+    inObject.add(object);
+    expectName = object;
+    first = true;
+  }
+
+  private void end(Token token) throws IOException {
+
+    if (peek() != token) {
+      throw error("Expected " + token);
+    }
+    position++;
+    inObject.remove(inObject.size() - 1);
+    valueRead();
+  }
+
+  private void expect(Token token) throws IOException {
+
+    if (peek() != token) {
+      throw error("Expected " + token);
+    }
+  }
+
+  /**
+   * Updates the state after a complete value: in an object the next member starts with a name.
+   */
+  private void valueRead() {
+
+    first = false;
+    expectName = !inObject.isEmpty() && inObject.get(inObject.size() - 1);
+  }
+
+  private String readString() throws IOException {
+
+    position++;
+    StringBuilder value = new StringBuilder();
+    while (true) {
+      int c = readChar();
+      if (c == -1) {
+        throw error("Unterminated string");
+      }
+      if (c == '"') {
+        return value.toString();
+      }
+      if (c != '\\') {
+        value.append((char) c);
+        continue;
+      }
+      int escaped = readChar();
+      switch (escaped) {
+        case 'n':
+          value.append('\n');
+          break;
+        case 't':
+          value.append('\t');
+          break;
+        case 'r':
+          value.append('\r');
+          break;
+        case 'b':
+          value.append('\b');
+          break;
+        case 'f':
+          value.append('\f');
+          break;
+        case 'u':
+          char[] hex = new char[4];
+          for (int i = 0; i < 4; i++) {
+            hex[i] = (char) readChar();
+          }
+          value.append((char) Integer.parseInt(new String(hex), 16));
+          break;
+        default:
+          value.append((char) escaped);
+      }
+    }
+  }
+
+  private void readLiteral(String literal) throws IOException {
+
+    for (int i = 0; i < literal.length(); i++) {
+      if (readChar() != literal.charAt(i)) {
+        throw error("Expected " + literal);
+      }
+    }
+  }
+
+  private int peekSignificant() throws IOException {
+
+    int c;
+    while ((c = peekChar()) != -1 && Character.isWhitespace(c)) {
+      position++;
+    }
+    return c;
+  }
+
+  private int peekChar() throws IOException {
+
+    if (position == limit) {
+      limit = reader.read(buffer, 0, buffer.length);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[position];
+  }
+
+  private int readChar() throws IOException {
+
+    int c = peekChar();
+    if (c != -1) {
+      position++;
+    }
+    return c;
+  }
+
+  private IOException error(String message) {
+    return new IOException(message);
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable R-tree over axis aligned boxes, bulk loaded with Sort-Tile-Recursive (STR) packing.
+ * <p>
+ * Every level is stored in flat arrays: four coordinates per entry and the index of the item (on the leaf level) or of
+ * the first child (above it). STR sorts the entries of a level into vertical slices by x, each slice by y, and packs
+ * runs of entries into full nodes, which gives nodes with little overlap and a tree with no empty space.
+ */
+public class PackedRTree {
+
+  private final int nodeSize;
+  private final int size;
+  // level 0 holds the items, the last level holds the root's entries
+  private final double[][] levelBoxes;
+  private final int[][] levelIndices;
+
+  /**
+   * Builds a tree.
+   *
+   * @param boxes    four values per item: min x, min y, max x, max y
+   * @param nodeSize entries per node, at least 2
+   */
+  public PackedRTree(double[] boxes, int nodeSize) {
+
+    if (nodeSize < 2 || boxes.length % 4 != 0) {
+      throw new IllegalArgumentException("Invalid node size or boxes");
+    }
+    this.nodeSize = nodeSize;
+    this.size = boxes.length / 4;
+
+    int levels = 1;
+    for (int count = size; count > nodeSize; count = (count + nodeSize - 1) / nodeSize) {
+      levels++;
+    }
+    levelBoxes = new double[levels][];
+    levelIndices = new int[levels][];
+
+    double[] currentBoxes = boxes;
+    int[] currentIndices = IntStream.range(0, size).toArray();
+    for (int level = 0; level < levels; level++) {
+      int[] order = strOrder(currentBoxes, currentIndices.length);
+      levelBoxes[level] = new double[currentBoxes.length];
+      levelIndices[level] = new int[currentIndices.length];
+      for (int i = 0; i < order.length; i++) {
+        System.arraycopy(currentBoxes, order[i] * 4, levelBoxes[level], i * 4, 4);
+        levelIndices[level][i] = currentIndices[order[i]];
+      }
+      if (level + 1 < levels) {
+        currentBoxes = parentBoxes(levelBoxes[level]);
+        currentIndices = IntStream.range(0, currentBoxes.length / 4).map(i -> i * nodeSize).toArray();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of items.
+   *
+   * @return item count
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the items whose boxes intersect a box.
+   *
+   * @param minX     query min x
+   * @param minY     query min y
+   * @param maxX     query max x
+   * @param maxY     query max y
+   * @param consumer receives the index of every intersecting item
+   */
+  public void search(double minX, double minY, double maxX, double maxY, IntConsumer consumer) {
+
+    if (size == 0) {
+      return;
+    }
+    int top = levelBoxes.length - 1;
+    searchLevel(top, 0, levelIndices[top].length, minX, minY, maxX, maxY, consumer);
+  }
+
+  private void searchLevel(int level, int from, int to, double minX, double minY, double maxX, double maxY,
+      IntConsumer consumer) {
+
+    double[] boxes = levelBoxes[level];
+    int[] indices = levelIndices[level];
+    for (int i = from; i < to; i++) {
+      int b = i * 4;
+      if (boxes[b] > maxX || boxes[b + 1] > maxY || boxes[b + 2] < minX || boxes[b + 3] < minY) {
+        continue;
+      }
+      if (level == 0) {
+        consumer.accept(indices[i]);
+      } else {
+        int childFrom = indices[i];
+        int childTo = Math.min(childFrom + nodeSize, levelIndices[level - 1].length);
+        searchLevel(level - 1, childFrom, childTo, minX, minY, maxX, maxY, consumer);
+      }
+    }
+  }
+
+  /**
+   * Sorts entries into STR order: slices by center x, then by center y within each slice.
+   */
+  private int[] strOrder(double[] boxes, int count) {
+
+    int[] order = new int[count];
+    double[] keys = new double[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+      keys[i] = boxes[i * 4] + boxes[i * 4 + 2];
+    }
+    int nodes = (count + nodeSize - 1) / nodeSize;
+    int slices = (int) Math.ceil(Math.sqrt(nodes));
+    int sliceSize = slices * nodeSize;
+
+    sort(order, keys, 0, count - 1);
+    for (int i = 0; i < count; i++) {
+      keys[i] = boxes[order[i] * 4 + 1] + boxes[order[i] * 4 + 3];
+    }
+    for (int start = 0; start < count; start += sliceSize) {
+      sort(order, keys, start, Math.min(start + sliceSize, count) - 1);
+    }
+    return order;
+  }
+
+  /**
+   * Sorts a range of entries by key, moving each key along with its entry. Quicksort on primitives, which is much
+   * faster than sorting boxed indices with a comparator.
+   */
+  private static void sort(int[] order, double[] keys, int low, int high) {
+
+    while (high - low > 16) {
+      double pivot = keys[(low + high) >>> 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (keys[i] < pivot) {
+          i++;
+        }
+        while (keys[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(order, keys, i++, j--);
+        }
+      }
+      // recurse into the smaller side to bound the stack depth
+      if (j - low < high - i) {
+        sort(order, keys, low, j);
+        low = i;
+      } else {
+        sort(order, keys, i, high);
+        high = j;
+      }
+    }
+    for (int i = low + 1; i <= high; i++) {
+      for (int j = i; j > low && keys[j - 1] > keys[j]; j--) {
+        swap(order, keys, j, j - 1);
+      }
+    }
+  }
+
+  private static void swap(int[] order, double[] keys, int i, int j) {
+
+    int index = order[i];
+    order[i] = order[j];
+    order[j] = index;
+    double key = keys[i];
+    keys[i] = keys[j];
+    keys[j] = key;
+  }
+
+  /**
+   * Computes the box of every node of consecutive entries.
+   */
+  private double[] parentBoxes(double[] boxes) {
+
+    int count = boxes.length / 4;
+    int parents = (count + nodeSize - 1) / nodeSize;
+    double[] parentBoxes = new double[parents * 4];
+    for (int p = 0; p < parents; p++) {
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int i = p * nodeSize; i < Math.min((p + 1) * nodeSize, count); i++) {
+        minX = Math.min(minX, boxes[i * 4]);
+        minY = Math.min(minY, boxes[i * 4 + 1]);
+        maxX = Math.max(maxX, boxes[i * 4 + 2]);
+        maxY = Math.max(maxY, boxes[i * 4 + 3]);
+      }
+      parentBoxes[p * 4] = minX;
+      parentBoxes[p * 4 + 1] = minY;
+      parentBoxes[p * 4 + 2] = maxX;
+      parentBoxes[p * 4 + 3] = maxY;
+    }
+    return parentBoxes;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.util.Arrays;
+
+/**
+ * Point in polygon test over the rings of a polygon, such as a freehand lasso.
+ * <p>
+ * Uses the even-odd rule, so holes and self-intersecting lassos are handled the way they are drawn. The edges are
+ * bucketed into horizontal bands, so a point is only tested against the few edges crossing its band. Testing in plain
+ * Java avoids a call into the geometry engine per point, which matters when a lasso holds many thousands of points.
+ */
+public class PolygonRings {
+
+  // edges per band on average, more bands means fewer edges tested per point
+  private static final int EDGES_PER_BAND = 4;
+
+  // edge endpoints, one edge per index
+  private final double[] x1;
+  private final double[] y1;
+  private final double[] x2;
+  private final double[] y2;
+  private final double minY;
+  private final double bandHeight;
+  // edge indices crossing each band
+  private final int[][] bands;
+
+  /**
+   * Creates the rings. A ring is closed implicitly, its last vertex connects to its first.
+   *
+   * @param xs x of each vertex, per ring
+   * @param ys y of each vertex, per ring
+   */
+  public PolygonRings(double[][] xs, double[][] ys) {
+
+    int edges = 0;
+    for (double[] ring : xs) {
+      edges += ring.length;
+    }
+    x1 = new double[edges];
+    y1 = new double[edges];
+    x2 = new double[edges];
+    y2 = new double[edges];
+    double low = Double.POSITIVE_INFINITY;
+    double high = Double.NEGATIVE_INFINITY;
+    int e = 0;
+    for (int r = 0; r < xs.length; r++) {
+      for (int i = 0, j = xs[r].length - 1; i < xs[r].length; j = i++, e++) {
+        x1[e] = xs[r][j];
+        y1[e] = ys[r][j];
+        x2[e] = xs[r][i];
+        y2[e] = ys[r][i];
+        low = Math.min(low, ys[r][i]);
+        high = Math.max(high, ys[r][i]);
+      }
+    }
+    minY = low;
+
+    int bandCount = Math.max(1, edges / EDGES_PER_BAND);
+    bandHeight = edges == 0 ? 1 : Math.max((high - low) / bandCount, Double.MIN_NORMAL);
+    int[][] bandEdges = new int[bandCount][4];
+    int[] bandSizes = new int[bandCount];
+    for (e = 0; e < edges; e++) {
+      int from = band(Math.min(y1[e], y2[e]), bandCount);
+      int to = band(Math.max(y1[e], y2[e]), bandCount);
+      for (int b = from; b <= to; b++) {
+        if (bandSizes[b] == bandEdges[b].length) {
+          bandEdges[b] = Arrays.copyOf(bandEdges[b], bandSizes[b] * 2);
+        }
+        bandEdges[b][bandSizes[b]++] = e;
+      }
+    }
+    bands = new int[bandCount][];
+    for (int b = 0; b < bandCount; b++) {
+      bands[b] = Arrays.copyOf(bandEdges[b], bandSizes[b]);
+    }
+  }
+
+  /**
+   * Checks whether a point is inside the rings.
+   *
+   * @param x point x
+   * @param y point y
+   * @return true if a ray from the point crosses an odd number of ring edges
+   */
+  public boolean contains(double x, double y) {
+
+    if (x1.length == 0 || y < minY || y > minY + bandHeight * bands.length) {
+      return false;
+    }
+    boolean inside = false;
+    for (int e : bands[band(y, bands.length)]) {
+      if ((y2[e] > y) != (y1[e] > y) && x < (x1[e] - x2[e]) * (y - y2[e]) / (y1[e] - y2[e]) + x2[e]) {
+        inside = !inside;
+      }
+    }
+    return inside;
+  }
+
+  private int band(double y, int bandCount) {
+    return Math.min(bandCount - 1, Math.max(0, (int) ((y - minY) / bandHeight)));
+  }
+}
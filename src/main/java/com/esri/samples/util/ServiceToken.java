@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+import com.esri.arcgisruntime.security.Credential;
+import com.esri.arcgisruntime.security.UserCredential;
+
+/**
+ * Token for the REST requests a sample sends itself, outside the runtime, to a service secured with the credential
+ * of its feature table.
+ * <p>
+ * The runtime signs its own requests with a table's credential but doesn't hand out the token. For a
+ * {@link UserCredential}, a token is generated by the token service named in the server's info resource, and reused
+ * until shortly before it expires. A table without a credential needs no token.
+ */
+public class ServiceToken {
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+  private static final int READ_TIMEOUT_MILLIS = 60000;
+  // minutes a generated token is valid for
+  private static final int EXPIRATION_MINUTES = 60;
+  // time before a token expires that a new one is generated
+  private static final long RENEW_MILLIS = 60000;
+
+  private final String serviceUrl;
+  private final UserCredential credential;
+  private String token;
+  private long expires;
+
+  /**
+   * Creates a token for a service.
+   *
+   * @param serviceUrl URL of the service or one of its layers
+   * @param credential credential of the service's feature table, or null
+   */
+  public ServiceToken(String serviceUrl, Credential credential) {
+
+    this.serviceUrl = serviceUrl;
+    this.credential = credential instanceof UserCredential ? (UserCredential) credential : null;
+  }
+
+  /**
+   * Gets a token that is valid for a while yet, generating one if needed.
+   *
+   * @return token, or null if the service needs none
+   * @throws IOException if generating a token fails
+   */
+  public synchronized String get() throws IOException {
+
+    if (credential == null) {
+      return null;
+    }
+    if (token != null && System.currentTimeMillis() < expires - RENEW_MILLIS) {
+      return token;
+    }
+
+    int rest = serviceUrl.indexOf("/rest/");
+    if (rest < 0) {
+      throw new IOException("Not an ArcGIS REST service: " + serviceUrl);
+    }
+    Object authInfo = read(open(serviceUrl.substring(0, rest) + "/rest/info?f=json")).get("authInfo");
+    Object tokenServicesUrl = authInfo instanceof Map ? ((Map<?, ?>) authInfo).get("tokenServicesUrl") : null;
+    if (tokenServicesUrl == null) {
+      throw new IOException("The server has no token service: " + serviceUrl);
+    }
+
+    byte[] form = ("f=json&client=requestip&expiration=" + EXPIRATION_MINUTES + "&username=" + encode(credential
+        .getUsername()) + "&password=" + encode(credential.getPassword())).getBytes(StandardCharsets.UTF_8);
+    HttpURLConnection connection = open(tokenServicesUrl.toString());
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+    connection.setFixedLengthStreamingMode(form.length);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(form);
+    }
+    Map<String, Object> response = read(connection);
+    if (!(response.get("token") instanceof String) || !(response.get("expires") instanceof Number)) {
+      throw new IOException("Generating a token failed: " + response.get("error"));
+    }
+    token = (String) response.get("token");
+    expires = ((Number) response.get("expires")).longValue();
+    return token;
+  }
+
+  /**
+   * Opens a connection that gives up if the server doesn't connect or answer in time, rather than hanging.
+   *
+   * @param url URL to open
+   * @return the connection
+   * @throws IOException if the URL is malformed or can't be opened
+   */
+  public static HttpURLConnection open(String url) throws IOException {
+
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+    connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+    return connection;
+  }
+
+  private static Map<String, Object> read(HttpURLConnection connection) throws IOException {
+
+    try (InputStream in = connection.getInputStream()) {
+      return JsonPullReader.parseObject(new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static String encode(String value) throws IOException {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of boxes by ID that can be edited, backed by a {@link PackedRTree}.
+ * <p>
+ * A packed tree can't change, so edits go to an overlay: updated and added boxes are kept in a map, and removed IDs
+ * hide their entries in the main tree. The overlay's boxes are packed into a small tree of their own whenever the
+ * boxes put since its last packing grow past a fraction of it, so only a few recent boxes are scanned one by one.
+ * Once the overlay holds a fraction of the main tree, everything is packed into a new main tree.
+ */
+public class SpatialIndex {
+
+  private static final int NODE_SIZE = 16;
+  // the overlay is merged into a new tree once it holds this fraction of the tree's size
+  private static final double REBUILD_FRACTION = 0.05;
+  private static final int MIN_REBUILD_SIZE = 256;
+  // recent boxes are scanned one by one until there are this many, or this fraction of the overlay
+  private static final int MIN_OVERLAY_PACK_SIZE = 64;
+  private static final double OVERLAY_PACK_FRACTION = 0.125;
+
+  private PackedRTree tree;
+  private long[] treeIds;
+  private double[] treeBoxes;
+  private final Map<Long, double[]> overlay = new HashMap<>();
+  private final Set<Long> hidden = new HashSet<>();
+  // overlay boxes packed at some point, and IDs put since then
+  private PackedRTree overlayTree = new PackedRTree(new double[0], NODE_SIZE);
+  private long[] overlayTreeIds = new long[0];
+  private final Set<Long> recent = new HashSet<>();
+  private int rebuildCount;
+
+  /**
+   * Builds an index.
+   *
+   * @param ids   ID of each box
+   * @param boxes four values per ID: min x, min y, max x, max y
+   */
+  public SpatialIndex(long[] ids, double[] boxes) {
+
+    if (boxes.length != ids.length * 4) {
+      throw new IllegalArgumentException("Expected four values per ID");
+    }
+    pack(ids.clone(), boxes.clone());
+  }
+
+  /**
+   * Adds a box, or replaces the box of an ID already in the index.
+   *
+   * @param id   ID of the box
+   * @param minX min x
+   * @param minY min y
+   * @param maxX max x
+   * @param maxY max y
+   */
+  public synchronized void put(long id, double minX, double minY, double maxX, double maxY) {
+
+    hidden.add(id);
+    overlay.put(id, new double[] {minX, minY, maxX, maxY});
+    recent.add(id);
+    rebuildIfNeeded();
+  }
+
+  /**
+   * Removes an ID's box.
+   *
+   * @param id ID to remove
+   */
+  public synchronized void remove(long id) {
+
+    hidden.add(id);
+    overlay.remove(id);
+    recent.remove(id);
+    rebuildIfNeeded();
+  }
+
+  /**
+   * Finds the IDs whose boxes intersect a box.
+   *
+   * @param minX query min x
+   * @param minY query min y
+   * @param maxX query max x
+   * @param maxY query max y
+   * @return IDs of intersecting boxes
+   */
+  public synchronized long[] search(double minX, double minY, double maxX, double maxY) {
+
+    IdList found = new IdList();
+    tree.search(minX, minY, maxX, maxY, i -> {
+      long id = treeIds[i];
+      if (hidden.isEmpty() || !hidden.contains(id)) {
+        found.add(id);
+      }
+    });
+    overlayTree.search(minX, minY, maxX, maxY, i -> {
+      // the packed box is stale if the ID was put again or removed since
+      long id = overlayTreeIds[i];
+      if (!recent.contains(id) && overlay.containsKey(id)) {
+        found.add(id);
+      }
+    });
+    for (long id : recent) {
+      double[] box = overlay.get(id);
+      if (box[0] <= maxX && box[1] <= maxY && box[2] >= minX && box[3] >= minY) {
+        found.add(id);
+      }
+    }
+    return found.toArray();
+  }
+
+  /**
+   * Gets the number of boxes in the index.
+   *
+   * @return box count
+   */
+  public synchronized int size() {
+
+    int hiddenInTree = 0;
+    for (long id : treeIds) {
+      if (hidden.contains(id)) {
+        hiddenInTree++;
+      }
+    }
+    return treeIds.length - hiddenInTree + overlay.size();
+  }
+
+  /**
+   * Gets the number of times edits were packed into a new tree.
+   *
+   * @return rebuild count
+   */
+  public synchronized int getRebuildCount() {
+    return rebuildCount;
+  }
+
+  private void rebuildIfNeeded() {
+
+    if (hidden.size() < Math.max(MIN_REBUILD_SIZE, treeIds.length * REBUILD_FRACTION)) {
+      if (recent.size() > Math.max(MIN_OVERLAY_PACK_SIZE, overlay.size() * OVERLAY_PACK_FRACTION)) {
+        packOverlay();
+      }
+      return;
+    }
+    int live = 0;
+    for (long id : treeIds) {
+      if (!hidden.contains(id)) {
+        live++;
+      }
+    }
+    long[] ids = new long[live + overlay.size()];
+    double[] boxes = new double[ids.length * 4];
+    int next = 0;
+    for (int i = 0; i < treeIds.length; i++) {
+      if (!hidden.contains(treeIds[i])) {
+        ids[next] = treeIds[i];
+        System.arraycopy(treeBoxes, i * 4, boxes, next * 4, 4);
+        next++;
+      }
+    }
+    for (Map.Entry<Long, double[]> entry : overlay.entrySet()) {
+      ids[next] = entry.getKey();
+      System.arraycopy(entry.getValue(), 0, boxes, next * 4, 4);
+      next++;
+    }
+    overlay.clear();
+    hidden.clear();
+    pack(ids, boxes);
+    packOverlay();
+    rebuildCount++;
+  }
+
+  private void packOverlay() {
+
+    overlayTreeIds = new long[overlay.size()];
+    double[] boxes = new double[overlayTreeIds.length * 4];
+    int next = 0;
+    for (Map.Entry<Long, double[]> entry : overlay.entrySet()) {
+      overlayTreeIds[next] = entry.getKey();
+      System.arraycopy(entry.getValue(), 0, boxes, next * 4, 4);
+      next++;
+    }
+    overlayTree = new PackedRTree(boxes, NODE_SIZE);
+    recent.clear();
+  }
+
+  private void pack(long[] ids, double[] boxes) {
+
+    treeIds = ids;
+    treeBoxes = boxes;
+    tree = new PackedRTree(boxes, NODE_SIZE);
+  }
+
+  /**
+   * Growable list of IDs.
+   */
+  private static class IdList {
+
+    private long[] ids = new long[16];
+    private int count;
+
+    void add(long id) {
+
+      if (count == ids.length) {
+        ids = Arrays.copyOf(ids, count * 2);
+      }
+      ids[count++] = id;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(ids, count);
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.esri.arcgisruntime.symbology.SimpleFillSymbol;
+import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
+import com.esri.arcgisruntime.symbology.Symbol;
+
+/**
+ * Creates simple symbols, returning the same instance for every request with the same style, color, size and outline.
+ * <p>
+ * Each symbol constructed is a Java object backed by one in the runtime's native memory, so graphics created with a new
+ * symbol of their own each hold a separate copy of what is usually one of a few looks. Symbols are kept by their
+ * defining properties in a map that holds a bounded number of them, dropping the least recently requested, so a
+ * caller with many distinct symbols doesn't hold them all forever. A symbol dropped while graphics still use it stays
+ * valid; only later requests get a new instance.
+ * <p>
+ * The symbols are shared, so they must not be changed. Construct a symbol directly to change it later, such as from
+ * a control.
+ */
+public class SymbolFactory {
+
+  private final Map<Key, Symbol> symbols;
+  private int createdCount;
+  private int reusedCount;
+
+  /**
+   * Creates a factory.
+   *
+   * @param maxSymbols most symbols kept for reuse
+   */
+  public SymbolFactory(int maxSymbols) {
+
+    // access ordered, so the least recently requested symbol is dropped first
+    symbols = new LinkedHashMap<Key, Symbol>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Symbol> eldest) {
+        return size() > maxSymbols;
+      }
+    };
+  }
+
+  /**
+   * Gets a marker symbol without an outline.
+   *
+   * @param style marker style
+   * @param color ARGB color
+   * @param size  size in points
+   * @return shared symbol
+   */
+  public SimpleMarkerSymbol marker(SimpleMarkerSymbol.Style style, int color, float size) {
+    return marker(style, color, size, null);
+  }
+
+  /**
+   * Gets a marker symbol.
+   *
+   * @param style   marker style
+   * @param color   ARGB color
+   * @param size    size in points
+   * @param outline outline, or null; only its properties are used
+   * @return shared symbol
+   */
+  public synchronized SimpleMarkerSymbol marker(SimpleMarkerSymbol.Style style, int color, float size,
+      SimpleLineSymbol outline) {
+
+    return (SimpleMarkerSymbol) intern(new Key(SimpleMarkerSymbol.class, style, color, size, key(outline)), () -> {
+      SimpleMarkerSymbol symbol = new SimpleMarkerSymbol(style, color, size);
+      if (outline != null) {
+        symbol.setOutline(line(outline));
+      }
+      return symbol;
+    });
+  }
+
+  /**
+   * Gets a line symbol.
+   *
+   * @param style line style
+   * @param color ARGB color
+   * @param width width in points
+   * @return shared symbol
+   */
+  public synchronized SimpleLineSymbol line(SimpleLineSymbol.Style style, int color, float width) {
+    return (SimpleLineSymbol) intern(new Key(SimpleLineSymbol.class, style, color, width, null),
+        () -> new SimpleLineSymbol(style, color, width));
+  }
+
+  /**
+   * Gets a fill symbol.
+   *
+   * @param style   fill style
+   * @param color   ARGB color
+   * @param outline outline, or null; only its properties are used
+   * @return shared symbol
+   */
+  public synchronized SimpleFillSymbol fill(SimpleFillSymbol.Style style, int color, SimpleLineSymbol outline) {
+
+    return (SimpleFillSymbol) intern(new Key(SimpleFillSymbol.class, style, color, 0, key(outline)),
+        () -> new SimpleFillSymbol(style, color, outline != null ? line(outline) : null));
+  }
+
+  /**
+   * Gets the shared line symbol with the same properties as a line symbol.
+   */
+  private SimpleLineSymbol line(SimpleLineSymbol outline) {
+    return line(outline.getStyle(), outline.getColor(), outline.getWidth());
+  }
+
+  /**
+   * Gets the key of a line symbol used as an outline, so symbols with equal outlines are shared even after the outline
+   * itself has been dropped and created again.
+   */
+  private static Key key(SimpleLineSymbol outline) {
+    return outline != null ? new Key(SimpleLineSymbol.class, outline.getStyle(), outline.getColor(), outline
+        .getWidth(), null) : null;
+  }
+
+  private Symbol intern(Key key, Supplier<Symbol> create) {
+
+    Symbol symbol = symbols.get(key);
+    if (symbol != null) {
+      reusedCount++;
+      return symbol;
+    }
+    symbol = create.get();
+    symbols.put(key, symbol);
+    createdCount++;
+    return symbol;
+  }
+
+  /**
+   * Gets the number of symbols constructed, including outlines.
+   *
+   * @return created symbols
+   */
+  public synchronized int getCreatedCount() {
+    return createdCount;
+  }
+
+  /**
+   * Gets the number of requests answered with a symbol created for an earlier one, including outlines.
+   *
+   * @return reused symbols
+   */
+  public synchronized int getReusedCount() {
+    return reusedCount;
+  }
+
+  /**
+   * Gets the number of symbols kept for reuse.
+   *
+   * @return kept symbols
+   */
+  public synchronized int size() {
+    return symbols.size();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%d symbols created, %d requests reused one", createdCount, reusedCount);
+  }
+
+  /**
+   * The properties defining a symbol. An outline is compared by its own properties, not by instance.
+   */
+  private static class Key {
+
+    final Class<?> type;
+    final Object style;
+    final int color;
+    final float size;
+    final Key outline;
+
+    Key(Class<?> type, Object style, int color, float size, Key outline) {
+
+      this.type = type;
+      this.style = style;
+      this.color = color;
+      this.size = size;
+      this.outline = outline;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return type == key.type && style == key.style && color == key.color && Float.compare(size, key.size) == 0
+          && Objects.equals(outline, key.outline);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, style, color, size, outline);
+    }
+  }
+}